@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // android.util.Log and friends do nothing in JVM unit tests instead of throwing
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -0,0 +1,231 @@
+package app.quiz.data.cache;
+
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Byte-budgeted LRU cache of small blobs stored as files in one directory
+ * Each file starts with the time it was written, followed by the raw data.
+ * Recency survives restarts through the file modification time, which is bumped on every read.
+ */
+public class DiskLruCache {
+    private static final String TAG = "DiskLruCache";
+    private static final String FILE_SUFFIX = ".entry";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int HEADER_BYTES = 8; // write timestamp
+
+    private final File directory;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true); // file name -> size
+    private long maxBytes;
+    private long sizeBytes;
+
+    /**
+     * Open (or create) a cache in the given directory
+     * @param directory Directory owned exclusively by this cache
+     * @param maxBytes Byte budget, least recently used entries are evicted above it
+     */
+    public DiskLruCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Unable to create cache directory " + directory);
+        }
+        loadEntries();
+    }
+
+    /**
+     * Cached data with the time it was stored
+     */
+    public static class Snapshot {
+        private final byte[] data;
+        private final long writtenAt;
+
+        Snapshot(byte[] data, long writtenAt) {
+            this.data = data;
+            this.writtenAt = writtenAt;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public long getWrittenAt() {
+            return writtenAt;
+        }
+
+        public long getAgeMillis() {
+            return System.currentTimeMillis() - writtenAt;
+        }
+    }
+
+    /**
+     * @param key Cache key
+     * @return Cached data, or null if absent or unreadable
+     */
+    public synchronized Snapshot get(String key) {
+        String fileName = fileName(key);
+        if (!entries.containsKey(fileName)) {
+            return null;
+        }
+
+        File file = new File(directory, fileName);
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            long writtenAt = in.readLong();
+            byte[] data = new byte[(int) (file.length() - HEADER_BYTES)];
+            in.readFully(data);
+
+            // Persist recency for the next process
+            file.setLastModified(System.currentTimeMillis());
+            return new Snapshot(data, writtenAt);
+
+        } catch (IOException | NegativeArraySizeException e) {
+            Log.w(TAG, "Dropping unreadable cache entry: " + e.getMessage());
+            removeFile(fileName);
+            return null;
+        }
+    }
+
+    /**
+     * Store data under a key, replacing any previous value
+     * The entry is written to a temporary file first so readers never see a partial entry
+     */
+    public synchronized void put(String key, byte[] data) {
+        String fileName = fileName(key);
+        File temp = new File(directory, fileName + TEMP_SUFFIX);
+        File file = new File(directory, fileName);
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeLong(System.currentTimeMillis());
+            out.write(data);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write cache entry: " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        Long previousSize = entries.remove(fileName);
+        if (previousSize != null) {
+            sizeBytes -= previousSize;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Failed to commit cache entry " + fileName);
+            temp.delete();
+            file.delete();
+            return;
+        }
+
+        long size = file.length();
+        entries.put(fileName, size);
+        sizeBytes += size;
+        trimToSize();
+    }
+
+    /**
+     * Remove the entry for a key if present
+     */
+    public synchronized void remove(String key) {
+        removeFile(fileName(key));
+    }
+
+    /**
+     * Remove every entry
+     */
+    public synchronized void clear() {
+        for (String fileName : entries.keySet()) {
+            new File(directory, fileName).delete();
+        }
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    /**
+     * Change the byte budget, evicting immediately if the cache is over it
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long size() {
+        return sizeBytes;
+    }
+
+    private void removeFile(String fileName) {
+        Long size = entries.remove(fileName);
+        if (size != null) {
+            sizeBytes -= size;
+        }
+        new File(directory, fileName).delete();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            sizeBytes -= eldest.getValue();
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+
+    /**
+     * Rebuild the in-memory index from disk, oldest access first
+     */
+    private void loadEntries() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // Left over from an interrupted write
+                file.delete();
+            } else if (name.endsWith(FILE_SUFFIX)) {
+                entries.put(name, file.length());
+                sizeBytes += file.length();
+            }
+        }
+        trimToSize();
+    }
+
+    /**
+     * Keys can contain characters that are not valid in file names, so entries are named by hash
+     */
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + FILE_SUFFIX.length());
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16));
+                name.append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append(FILE_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is always available on Android
+            throw new IllegalStateException(e);
+        }
+    }
+}
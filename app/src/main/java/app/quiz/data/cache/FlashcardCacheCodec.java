@@ -0,0 +1,86 @@
+package app.quiz.data.cache;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import app.quiz.data.models.Flashcard;
+import app.quiz.data.models.FlashcardGroup;
+import app.quiz.data.models.PagedResponse;
+import app.quiz.data.remote.JsonStreamParser;
+
+/**
+ * Encodes flashcard models for the disk cache
+ * Uses the same JSON shape as the API so entries are decoded with JsonStreamParser
+ */
+public final class FlashcardCacheCodec {
+
+    private FlashcardCacheCodec() {}
+
+    public static byte[] encodeGroup(FlashcardGroup group) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            writeGroup(writer, group, true);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static FlashcardGroup decodeGroup(byte[] data) throws IOException {
+        try (JsonReader reader = JsonStreamParser.newReader(new ByteArrayInputStream(data))) {
+            return JsonStreamParser.readFlashcardGroupDetails(reader);
+        }
+    }
+
+    public static byte[] encodePage(PagedResponse<FlashcardGroup> page) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("totalCount").value(page.getTotalCount());
+            writer.name("pageNumber").value(page.getPageNumber());
+            writer.name("pageSize").value(page.getPageSize());
+            writer.name("totalPages").value(page.getTotalPages());
+            writer.name("items").beginArray();
+            if (page.getItems() != null) {
+                for (FlashcardGroup group : page.getItems()) {
+                    writeGroup(writer, group, false);
+                }
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    public static PagedResponse<FlashcardGroup> decodePage(byte[] data) throws IOException {
+        try (JsonReader reader = JsonStreamParser.newReader(new ByteArrayInputStream(data))) {
+            return JsonStreamParser.readPagedResponse(reader, JsonStreamParser::readFlashcardGroupSummary);
+        }
+    }
+
+    private static void writeGroup(JsonWriter writer, FlashcardGroup group, boolean withFlashcards) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(group.getId());
+        writer.name("name").value(group.getName());
+        writer.name("description").value(group.getDescription());
+        writer.name("isPublic").value(group.isPublic());
+        if (group.getUpdatedAt() != null) {
+            writer.name("updatedAt").value(JsonStreamParser.formatDate(group.getUpdatedAt()));
+        }
+        if (withFlashcards) {
+            writer.name("flashcards").beginArray();
+            for (Flashcard flashcard : group.getFlashcards()) {
+                writer.beginObject();
+                writer.name("term").value(flashcard.getTerm());
+                writer.name("definition").value(flashcard.getDefinition());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+}
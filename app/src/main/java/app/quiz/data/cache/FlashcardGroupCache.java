@@ -0,0 +1,76 @@
+package app.quiz.data.cache;
+
+import android.util.LruCache;
+
+import app.quiz.data.models.FlashcardGroup;
+
+/**
+ * Process-wide in-memory cache of flashcard groups keyed by group id
+ * Bounded by the total number of flashcards held, so one huge deck cannot crowd out memory.
+ */
+public class FlashcardGroupCache {
+    private final LruCache<String, FlashcardGroup> cache;
+
+    /**
+     * @param maxFlashcards Maximum number of flashcards held across all cached groups
+     */
+    public FlashcardGroupCache(int maxFlashcards) {
+        cache = new LruCache<String, FlashcardGroup>(maxFlashcards) {
+            @Override
+            protected int sizeOf(String groupId, FlashcardGroup group) {
+                // Count the group itself so groups without flashcards still take space
+                return 1 + group.getFlashcardCount();
+            }
+        };
+    }
+
+    public FlashcardGroup get(String groupId) {
+        return groupId != null ? cache.get(groupId) : null;
+    }
+
+    public void put(FlashcardGroup group) {
+        if (group != null && group.getId() != null) {
+            cache.put(group.getId(), group);
+        }
+    }
+
+    public void invalidate(String groupId) {
+        if (groupId != null) {
+            cache.remove(groupId);
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    public int getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * @return Number of flashcards (plus one per group) currently held
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return "FlashcardGroupCache{" +
+                "size=" + cache.size() +
+                ", maxSize=" + cache.maxSize() +
+                ", hits=" + cache.hitCount() +
+                ", misses=" + cache.missCount() +
+                ", evictions=" + cache.evictionCount() +
+                '}';
+    }
+}
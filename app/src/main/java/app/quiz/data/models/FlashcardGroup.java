@@ -4,6 +4,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -16,6 +17,7 @@ public class FlashcardGroup implements Parcelable {
     private String description;
     private boolean isPublic;
     private List<Flashcard> flashcards;
+    private Date updatedAt;
     
     // Default constructor
     public FlashcardGroup() {
@@ -106,6 +108,17 @@ public class FlashcardGroup implements Parcelable {
         return flashcards.size();
     }
     
+    /**
+     * @return Last update time on the server, or null for a set not sent yet
+     */
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
     // Parcelable implementation
     protected FlashcardGroup(Parcel in) {
         id = in.readString();
@@ -116,6 +129,8 @@ public class FlashcardGroup implements Parcelable {
         if (flashcards == null) {
             flashcards = new ArrayList<>();
         }
+        long tmpUpdatedAt = in.readLong();
+        updatedAt = tmpUpdatedAt == -1 ? null : new Date(tmpUpdatedAt);
     }
     
     public static final Creator<FlashcardGroup> CREATOR = new Creator<FlashcardGroup>() {
@@ -142,6 +157,7 @@ public class FlashcardGroup implements Parcelable {
         dest.writeString(description);
         dest.writeByte((byte) (isPublic ? 1 : 0));
         dest.writeTypedList(flashcards);
+        dest.writeLong(updatedAt != null ? updatedAt.getTime() : -1);
     }
     
     @Override
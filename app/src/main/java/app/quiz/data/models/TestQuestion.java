@@ -6,6 +6,8 @@ import android.os.Parcelable;
 import java.util.ArrayList;
 import java.util.List;
 
+import app.quiz.utils.AnswerMatcher;
+
 /**
  * TestQuestion model representing a single test question
  * Supports multiple question types: multiple choice, true/false, fill-in-the-blank
@@ -160,6 +162,17 @@ public class TestQuestion implements Parcelable {
         }
     }
     
+    /**
+     * Grade a fill-in-the-blank answer leniently, other types as in isCorrectAnswer(String)
+     * @param matcher Decides which typed answers are close enough, including synonyms
+     */
+    public boolean isCorrectAnswer(String userAnswer, AnswerMatcher matcher) {
+        if (type == QuestionType.FILL_IN_BLANK) {
+            return matcher.matches(userAnswer, correctAnswer);
+        }
+        return isCorrectAnswer(userAnswer);
+    }
+    
     public boolean isCorrectAnswer(int selectedIndex) {
         return selectedIndex == correctAnswerIndex;
     }
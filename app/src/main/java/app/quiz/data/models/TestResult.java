@@ -23,6 +23,8 @@ public class TestResult implements Parcelable {
     private List<QuestionResult> questionResults;
     private List<Flashcard> incorrectFlashcards;
     private List<Flashcard> skippedFlashcards;
+    // 0 keeps every question result, see setMaxQuestionResults
+    private int maxQuestionResults;
     
     // Inner class for individual question results
     public static class QuestionResult implements Parcelable {
@@ -222,22 +224,44 @@ public class TestResult implements Parcelable {
         this.skippedFlashcards = skippedFlashcards != null ? new ArrayList<>(skippedFlashcards) : new ArrayList<>();
     }
     
+    public int getMaxQuestionResults() {
+        return maxQuestionResults;
+    }
+    
+    /**
+     * Keep only the most recent question results, for sessions without a fixed length
+     * The counts still cover every question, and each missed or skipped card is listed once.
+     * @param maxQuestionResults Results to keep, 0 to keep all
+     */
+    public void setMaxQuestionResults(int maxQuestionResults) {
+        this.maxQuestionResults = Math.max(0, maxQuestionResults);
+    }
+    
     // Helper methods
     public void addQuestionResult(QuestionResult result) {
         if (result != null) {
             questionResults.add(result);
+            if (maxQuestionResults > 0 && questionResults.size() > maxQuestionResults) {
+                questionResults.remove(0);
+            }
             if (result.isCorrect()) {
                 correctAnswers++;
             } else if (!result.wasSkipped()) {
-                incorrectFlashcards.add(result.getSourceFlashcard());
+                addFlashcard(incorrectFlashcards, result.getSourceFlashcard());
             }
             if (result.wasSkipped()) {
                 skippedQuestions++;
-                skippedFlashcards.add(result.getSourceFlashcard());
+                addFlashcard(skippedFlashcards, result.getSourceFlashcard());
             }
         }
     }
     
+    private void addFlashcard(List<Flashcard> flashcards, Flashcard flashcard) {
+        if (maxQuestionResults == 0 || !flashcards.contains(flashcard)) {
+            flashcards.add(flashcard);
+        }
+    }
+    
     public double getScorePercentage() {
         if (totalQuestions == 0) return 0.0;
         return (double) correctAnswers / totalQuestions * 100.0;
@@ -276,6 +300,7 @@ public class TestResult implements Parcelable {
         questionResults = in.createTypedArrayList(QuestionResult.CREATOR);
         incorrectFlashcards = in.createTypedArrayList(Flashcard.CREATOR);
         skippedFlashcards = in.createTypedArrayList(Flashcard.CREATOR);
+        maxQuestionResults = in.readInt();
     }
     
     public static final Creator<TestResult> CREATOR = new Creator<TestResult>() {
@@ -308,6 +333,7 @@ public class TestResult implements Parcelable {
         dest.writeTypedList(questionResults);
         dest.writeTypedList(incorrectFlashcards);
         dest.writeTypedList(skippedFlashcards);
+        dest.writeInt(maxQuestionResults);
     }
     
     @Override
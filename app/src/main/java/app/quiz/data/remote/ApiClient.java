@@ -5,15 +5,7 @@ import android.util.Log;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import app.quiz.data.models.LoginRequest;
 import app.quiz.data.models.LoginResponse;
@@ -23,26 +15,24 @@ import app.quiz.data.models.User;
 
 /**
  * API Client for handling HTTP requests to the LinguaRead backend
- * Base URL: https://learnlanguage-aggbd0h2h6grc6es.eastasia-01.azurewebsites.net/
+ * Requests go through the shared HttpTransport (see HttpTransport.BASE_URL)
  * Based on API documentation from api-docs/user.txt
  */
 public class ApiClient {
     private static final String TAG = "ApiClient";
-    private static final String BASE_URL = "https://learnlanguage-aggbd0h2h6grc6es.eastasia-01.azurewebsites.net";
     private static final String LOGIN_ENDPOINT = "/api/User/login";
     private static final String REGISTER_ENDPOINT = "/api/User/register";
     private static final String UPDATE_USER_ENDPOINT = "/api/User";
     
-    private static final int TIMEOUT_CONNECT = 10000; // 10 seconds
-    private static final int TIMEOUT_READ = 15000; // 15 seconds
-    
-    private final ExecutorService executorService;
+    private final NetworkExecutor networkExecutor;
+    private final HttpTransport transport;
     
     // Singleton instance
     private static ApiClient instance;
     
     private ApiClient() {
-        executorService = Executors.newCachedThreadPool();
+        networkExecutor = NetworkExecutor.getInstance();
+        transport = HttpTransport.getInstance();
     }
     
     public static synchronized ApiClient getInstance() {
@@ -64,9 +54,12 @@ public class ApiClient {
      * Login user with email and password
      * @param loginRequest Login credentials
      * @param callback Response callback
+     * @return Handle to cancel the request
      */
-    public void login(LoginRequest loginRequest, ApiCallback<LoginResponse> callback) {
-        executorService.execute(() -> {
+    public RequestHandle login(LoginRequest loginRequest, ApiCallback<LoginResponse> callback) {
+        RequestHandle handle = new RequestHandle();
+        ApiCallback<LoginResponse> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 JSONObject requestBody = new JSONObject();
                 requestBody.put("Email", loginRequest.getEmail());
@@ -78,28 +71,32 @@ public class ApiClient {
                 LoginResponse loginResponse = new LoginResponse();
                 loginResponse.setToken(responseJson.getString("token"));
                 
-                callback.onSuccess(loginResponse);
+                guarded.onSuccess(loginResponse);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Login API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (JSONException e) {
                 Log.e(TAG, "Login JSON parsing error: " + e.getMessage());
-                callback.onError("Invalid response format", -1);
+                guarded.onError("Invalid response format", -1);
             } catch (Exception e) {
                 Log.e(TAG, "Login unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                guarded.onError("Network error occurred", -1);
             }
         });
+        return handle;
     }
     
     /**
      * Register new user
      * @param signupRequest User registration data
      * @param callback Response callback
+     * @return Handle to cancel the request
      */
-    public void register(SignupRequest signupRequest, ApiCallback<User> callback) {
-        executorService.execute(() -> {
+    public RequestHandle register(SignupRequest signupRequest, ApiCallback<User> callback) {
+        RequestHandle handle = new RequestHandle();
+        ApiCallback<User> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 JSONObject requestBody = new JSONObject();
                 requestBody.put("Email", signupRequest.getEmail());
@@ -116,19 +113,20 @@ public class ApiClient {
                 user.setActive(responseJson.getBoolean("isActive"));
                 user.setRole(responseJson.getString("role"));
                 
-                callback.onSuccess(user);
+                guarded.onSuccess(user);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Register API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (JSONException e) {
                 Log.e(TAG, "Register JSON parsing error: " + e.getMessage());
-                callback.onError("Invalid response format", -1);
+                guarded.onError("Invalid response format", -1);
             } catch (Exception e) {
                 Log.e(TAG, "Register unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                guarded.onError("Network error occurred", -1);
             }
         });
+        return handle;
     }
     
     /**
@@ -139,12 +137,15 @@ public class ApiClient {
      * @param updateRequest The user update request containing all required fields
      * @param authToken Bearer token for authentication
      * @param callback Callback for handling response
+     * @return Handle to cancel the request
      */
-    public void updateUser(UpdateUserRequest updateRequest, String authToken, ApiCallback<Void> callback) {
-        executorService.execute(() -> {
+    public RequestHandle updateUser(UpdateUserRequest updateRequest, String authToken, ApiCallback<Void> callback) {
+        RequestHandle handle = new RequestHandle();
+        ApiCallback<Void> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 if (!updateRequest.isValid()) {
-                    callback.onError("Invalid update request data", 400);
+                    guarded.onError("Invalid update request data", 400);
                     return;
                 }
                 
@@ -154,19 +155,41 @@ public class ApiClient {
                 String response = makePutRequest(UPDATE_USER_ENDPOINT, requestBody, authToken);
                 Log.d(TAG, "Update user response: " + response);
                 
-                callback.onSuccess(null);
+                guarded.onSuccess(null);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Update user API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (JSONException e) {
                 Log.e(TAG, "Update user JSON error: " + e.getMessage());
-                callback.onError("Invalid request format", -1);
+                guarded.onError("Invalid request format", -1);
             } catch (Exception e) {
                 Log.e(TAG, "Update user unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                guarded.onError("Network error occurred", -1);
             }
         });
+        return handle;
+    }
+    
+    /**
+     * Wrap a callback so it is delivered at most once and never after the handle is cancelled
+     */
+    private static <T> ApiCallback<T> guard(RequestHandle handle, ApiCallback<T> callback) {
+        return new ApiCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                if (handle.finish()) {
+                    callback.onSuccess(result);
+                }
+            }
+            
+            @Override
+            public void onError(String error, int statusCode) {
+                if (handle.finish()) {
+                    callback.onError(error, statusCode);
+                }
+            }
+        };
     }
     
     /**
@@ -177,57 +200,7 @@ public class ApiClient {
      * @throws ApiException If request fails
      */
     private String makePostRequest(String endpoint, String requestBody) throws ApiException {
-        HttpURLConnection connection = null;
-        try {
-            URL url = new URL(BASE_URL + endpoint);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // Configure connection
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(TIMEOUT_CONNECT);
-            connection.setReadTimeout(TIMEOUT_READ);
-            
-            // Send request body
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            
-            int statusCode = connection.getResponseCode();
-            
-            // Read response
-            BufferedReader reader;
-            if (statusCode >= 200 && statusCode < 300) {
-                reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
-            } else {
-                reader = new BufferedReader(new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8));
-            }
-            
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-            
-            if (statusCode >= 200 && statusCode < 300) {
-                return response.toString();
-            } else {
-                String errorMessage = getErrorMessage(statusCode, response.toString());
-                throw new ApiException(errorMessage, statusCode);
-            }
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Network error: " + e.getMessage());
-            throw new ApiException("Network connection failed", -1);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
+        return makeRequest(endpoint, "POST", null, requestBody);
     }
     
     /**
@@ -239,61 +212,33 @@ public class ApiClient {
      * @throws ApiException If request fails
      */
     private String makePutRequest(String endpoint, String requestBody, String authToken) throws ApiException {
-        HttpURLConnection connection = null;
+        return makeRequest(endpoint, "PUT", authToken, requestBody);
+    }
+    
+    /**
+     * Make HTTP request through the shared transport
+     * @param endpoint API endpoint
+     * @param method HTTP method
+     * @param authToken Bearer token for authentication (optional)
+     * @param requestBody JSON request body
+     * @return Response string
+     * @throws ApiException If request fails
+     */
+    private String makeRequest(String endpoint, String method, String authToken, String requestBody) throws ApiException {
         try {
-            URL url = new URL(BASE_URL + endpoint);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("PUT");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "application/json");
+            HttpTransport.Response response = transport.execute(method, endpoint, authToken, requestBody);
+            Log.d(TAG, method + " request status code: " + response.getStatusCode());
             
-            // Add authorization header
-            if (authToken != null && !authToken.isEmpty()) {
-                connection.setRequestProperty("Authorization", "Bearer " + authToken);
-            }
-            
-            connection.setConnectTimeout(TIMEOUT_CONNECT);
-            connection.setReadTimeout(TIMEOUT_READ);
-            connection.setDoOutput(true);
-            
-            // Write request body
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            
-            int statusCode = connection.getResponseCode();
-            Log.d(TAG, "PUT request status code: " + statusCode);
-            
-            // Read response
-            BufferedReader reader;
-            if (statusCode >= 200 && statusCode < 300) {
-                reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+            if (response.isSuccessful()) {
+                return response.getBody();
             } else {
-                reader = new BufferedReader(new InputStreamReader(connection.getErrorStream()));
-            }
-            
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-            
-            if (statusCode >= 200 && statusCode < 300) {
-                return response.toString();
-            } else {
-                String errorMessage = getErrorMessage(statusCode, response.toString());
-                throw new ApiException(errorMessage, statusCode);
+                String errorMessage = getErrorMessage(response.getStatusCode(), response.getBody());
+                throw new ApiException(errorMessage, response.getStatusCode());
             }
             
         } catch (IOException e) {
             Log.e(TAG, "Network error: " + e.getMessage());
             throw new ApiException("Network connection failed", -1);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
     }
     
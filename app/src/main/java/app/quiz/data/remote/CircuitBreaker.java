@@ -0,0 +1,154 @@
+package app.quiz.data.remote;
+
+/**
+ * Fails calls to an endpoint fast while it keeps failing
+ * CLOSED lets every call through and counts consecutive failures. After FAILURE_THRESHOLD of them
+ * the breaker opens: calls are refused without touching the network until the open period is
+ * over. Then it is HALF_OPEN and lets a single trial call through, which closes it again on success
+ * or reopens it for twice as long (up to MAX_OPEN_MILLIS) on failure. A failure is a network error
+ * or a 5xx, 408 or 429 answer, other answers show the backend is up and count as successes.
+ * Thread-safe.
+ */
+public class CircuitBreaker {
+    public static final int FAILURE_THRESHOLD = 5;
+    public static final long OPEN_MILLIS = 10 * 1000; // 10 seconds
+    public static final long MAX_OPEN_MILLIS = 2 * 60 * 1000; // 2 minutes
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private long openMillis = OPEN_MILLIS;
+    private boolean trialInFlight;
+
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long openedCount;
+
+    public CircuitBreaker(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Ask to make a call, which must then be reported with exactly one of recordSuccess,
+     * recordFailure or recordAbandoned
+     * @return False if the call must fail fast
+     */
+    public synchronized boolean tryAcquire() {
+        return tryAcquire(System.currentTimeMillis());
+    }
+
+    synchronized boolean tryAcquire(long now) {
+        if (state == State.OPEN && now >= openUntil) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        successCount++;
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            openMillis = OPEN_MILLIS;
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized void recordFailure() {
+        recordFailure(System.currentTimeMillis());
+    }
+
+    synchronized void recordFailure(long now) {
+        failureCount++;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            // The backend is still down, wait longer before the next trial
+            trialInFlight = false;
+            openMillis = Math.min(openMillis * 2, MAX_OPEN_MILLIS);
+            open(now);
+        } else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+            open(now);
+        }
+    }
+
+    /**
+     * Report a call that ended without an answer telling whether the backend is up, e.g. cancelled
+     */
+    public synchronized void recordAbandoned() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openUntil = now + openMillis;
+        openedCount++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return Time until a trial call is let through, 0 unless open
+     */
+    public synchronized long getRemainingOpenMillis() {
+        return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+    }
+
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return Number of calls failed fast while open
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return Number of times the breaker opened
+     */
+    public synchronized long getOpenedCount() {
+        return openedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" + name
+                + ", state=" + state
+                + ", successes=" + successCount
+                + ", failures=" + failureCount
+                + ", rejected=" + rejectedCount
+                + ", opened=" + openedCount + "}";
+    }
+}
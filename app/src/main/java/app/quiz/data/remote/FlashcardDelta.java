@@ -0,0 +1,156 @@
+package app.quiz.data.remote;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import app.quiz.data.models.Flashcard;
+
+/**
+ * Cards changed between two versions of a flashcard set, to update it without uploading every card
+ * Cards have no ids, so they are matched by term: a term only in the new version is added, a term
+ * in both with another definition is modified and a term only in the old version is removed.
+ * Applying the delta sets the definition of every added or modified term and deletes every removed
+ * term, so applying it twice has the same effect as applying it once. Added cards go after the
+ * existing ones.
+ */
+public class FlashcardDelta {
+    // Above this share of changed cards the whole set is about as small to send
+    private static final float MAX_CHANGED_SHARE = 0.5f;
+
+    private final List<Flashcard> added;
+    private final List<Flashcard> modified;
+    private final List<String> removedTerms;
+
+    private FlashcardDelta(List<Flashcard> added, List<Flashcard> modified, List<String> removedTerms) {
+        this.added = added;
+        this.modified = modified;
+        this.removedTerms = removedTerms;
+    }
+
+    /**
+     * Compare the cards of the last version the server confirmed with the edited cards
+     * @return Delta, or null if the whole set must be sent: a version has the same term twice, the
+     *         cards were reordered or inserted before existing ones, or most of the set changed
+     */
+    public static FlashcardDelta compute(List<Flashcard> synced, List<Flashcard> edited) {
+        if (synced == null || edited == null) {
+            return null;
+        }
+        Map<String, Integer> syncedIndexes = new HashMap<>();
+        List<String> syncedDefinitions = new ArrayList<>(synced.size());
+        for (Flashcard flashcard : synced) {
+            if (syncedIndexes.put(trim(flashcard.getTerm()), syncedIndexes.size()) != null) {
+                return null;
+            }
+            syncedDefinitions.add(trim(flashcard.getDefinition()));
+        }
+
+        List<Flashcard> added = new ArrayList<>();
+        List<Flashcard> modified = new ArrayList<>();
+        Set<String> editedTerms = new HashSet<>();
+        int lastIndex = -1;
+        for (Flashcard flashcard : edited) {
+            String term = trim(flashcard.getTerm());
+            String definition = trim(flashcard.getDefinition());
+            if (!editedTerms.add(term)) {
+                return null;
+            }
+            Integer index = syncedIndexes.get(term);
+            if (index == null) {
+                added.add(flashcard);
+                continue;
+            }
+            if (index < lastIndex || !added.isEmpty()) {
+                // Order changed, which a delta cannot express
+                return null;
+            }
+            lastIndex = index;
+            if (!definition.equals(syncedDefinitions.get(index))) {
+                modified.add(flashcard);
+            }
+        }
+
+        List<String> removedTerms = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : syncedIndexes.entrySet()) {
+            if (!editedTerms.contains(entry.getKey())) {
+                removedTerms.add(entry.getKey());
+            }
+        }
+
+        int changed = added.size() + modified.size() + removedTerms.size();
+        if (changed > MAX_CHANGED_SHARE * Math.max(synced.size(), edited.size())) {
+            return null;
+        }
+        return new FlashcardDelta(added, modified, removedTerms);
+    }
+
+    public List<Flashcard> getAdded() {
+        return added;
+    }
+
+    public List<Flashcard> getModified() {
+        return modified;
+    }
+
+    public List<String> getRemovedTerms() {
+        return removedTerms;
+    }
+
+    /**
+     * @return Number of cards added, modified or removed
+     */
+    public int getChangedCount() {
+        return added.size() + modified.size() + removedTerms.size();
+    }
+
+    /**
+     * Build the body of a partial update, carrying the set's name and visibility and the changed cards
+     */
+    public String createRequestBody(String groupId, String name, String description, boolean isPublic)
+            throws JSONException {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("Id", groupId);
+        requestBody.put("Name", name.trim());
+        requestBody.put("Description", description != null ? description.trim() : "");
+        requestBody.put("IsPublic", isPublic);
+        requestBody.put("AddedFlashcards", toJson(added));
+        requestBody.put("ModifiedFlashcards", toJson(modified));
+
+        JSONArray removedArray = new JSONArray();
+        for (String term : removedTerms) {
+            removedArray.put(term);
+        }
+        requestBody.put("RemovedTerms", removedArray);
+        return requestBody.toString();
+    }
+
+    private static JSONArray toJson(List<Flashcard> flashcards) throws JSONException {
+        JSONArray flashcardsArray = new JSONArray();
+        for (Flashcard flashcard : flashcards) {
+            JSONObject flashcardJson = new JSONObject();
+            flashcardJson.put("Term", trim(flashcard.getTerm()));
+            flashcardJson.put("Definition", trim(flashcard.getDefinition()));
+            flashcardsArray.put(flashcardJson);
+        }
+        return flashcardsArray;
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : "";
+    }
+
+    @Override
+    public String toString() {
+        return "FlashcardDelta{added=" + added.size()
+                + ", modified=" + modified.size()
+                + ", removed=" + removedTerms.size() + "}";
+    }
+}
@@ -1,22 +1,18 @@
 package app.quiz.data.remote;
 
 import android.util.Log;
+import android.util.MalformedJsonException;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import app.quiz.data.models.Flashcard;
 import app.quiz.data.models.FlashcardGroup;
@@ -28,20 +24,28 @@ import app.quiz.data.models.PagedResponse;
  */
 public class FlashcardService {
     private static final String TAG = "FlashcardService";
-    private static final String BASE_URL = "https://learnlanguage-aggbd0h2h6grc6es.eastasia-01.azurewebsites.net";
     private static final String FLASHCARD_PAGED_ENDPOINT = "/api/Flashcard/paged";
-    private static final String FLASHCARD_DETAIL_ENDPOINT = "/api/Flashcard";
+    public static final String FLASHCARD_DETAIL_ENDPOINT = "/api/Flashcard";
     
-    private static final int TIMEOUT_CONNECT = 10000; // 10 seconds
-    private static final int TIMEOUT_READ = 15000; // 15 seconds
+    private static final HttpTransport.BodyParser<PagedResponse<FlashcardGroup>> PAGED_GROUPS_PARSER =
+            JsonStreamParser.pagedParser(JsonStreamParser::readFlashcardGroupSummary);
+    private static final HttpTransport.BodyParser<FlashcardGroup> GROUP_DETAILS_PARSER =
+            JsonStreamParser.parser(JsonStreamParser::readFlashcardGroupDetails);
     
-    private final ExecutorService executorService;
+    private final NetworkExecutor networkExecutor;
+    private final HttpTransport transport;
+    
+    // Identical concurrent reads share one HTTP exchange
+    private final SingleFlight<FlashcardCallback<PagedResponse<FlashcardGroup>>> publicFlashcardsFlight =
+            new SingleFlight<>();
+    private final SingleFlight<FlashcardCallback<FlashcardGroup>> groupDetailsFlight = new SingleFlight<>();
     
     // Singleton instance
     private static FlashcardService instance;
     
     private FlashcardService() {
-        executorService = Executors.newCachedThreadPool();
+        networkExecutor = NetworkExecutor.getInstance();
+        transport = HttpTransport.getInstance();
     }
     
     public static synchronized FlashcardService getInstance() {
@@ -51,6 +55,13 @@ public class FlashcardService {
         return instance;
     }
     
+    /**
+     * @return Number of read calls that were served by an identical call already in flight
+     */
+    public long getCoalescedCallCount() {
+        return publicFlashcardsFlight.getCoalescedCount() + groupDetailsFlight.getCoalescedCount();
+    }
+    
     /**
      * Interface for API response callbacks
      */
@@ -67,10 +78,35 @@ public class FlashcardService {
      * @param pageSize Page size (default: 10, max: 100)
      * @param search Search term for filtering (optional)
      * @param callback Response callback
+     * @return Handle to cancel the request
+     */
+    public RequestHandle getPublicFlashcards(int pageNumber, int pageSize, String search, 
+                                            FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
+        return getPublicFlashcards(pageNumber, pageSize, search, NetworkExecutor.Priority.USER_VISIBLE, callback);
+    }
+    
+    /**
+     * Get paged list of public flashcard groups with an explicit request priority
+     * 
+     * @param pageNumber Page number (default: 1)
+     * @param pageSize Page size (default: 10, max: 100)
+     * @param search Search term for filtering (optional)
+     * @param priority Network priority, PREFETCH for background refreshes
+     * @param callback Response callback
+     * @return Handle to cancel the request
      */
-    public void getPublicFlashcards(int pageNumber, int pageSize, String search, 
-                                   FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
-        executorService.execute(() -> {
+    public RequestHandle getPublicFlashcards(int pageNumber, int pageSize, String search, NetworkExecutor.Priority priority,
+                                            FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
+        String flightKey = pageNumber + ":" + Math.min(pageSize, 100) + ":" + (search != null ? search.trim() : "");
+        RequestHandle handle = new RequestHandle();
+        FlashcardCallback<PagedResponse<FlashcardGroup>> guarded = guard(handle, callback);
+        RequestHandle flight = publicFlashcardsFlight.join(flightKey, guarded);
+        handle.onCancel(() -> publicFlashcardsFlight.leave(flightKey, guarded));
+        if (flight == null) {
+            return handle;
+        }
+        
+        networkExecutor.execute(priority, flight, () -> {
             try {
                 // Build query parameters
                 StringBuilder queryParams = new StringBuilder();
@@ -83,19 +119,18 @@ public class FlashcardService {
                 }
                 
                 String endpoint = FLASHCARD_PAGED_ENDPOINT + queryParams.toString();
-                String response = makeGetRequest(endpoint);
-                
-                PagedResponse<FlashcardGroup> pagedResponse = parsePagedFlashcardResponse(response);
-                callback.onSuccess(pagedResponse);
+                PagedResponse<FlashcardGroup> pagedResponse = makeGetRequest(endpoint, PAGED_GROUPS_PARSER);
+                publicFlashcardsFlight.complete(flightKey, flight, waiting -> waiting.onSuccess(pagedResponse));
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Get public flashcards API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                publicFlashcardsFlight.complete(flightKey, flight, waiting -> waiting.onError(e.getMessage(), e.getStatusCode()));
             } catch (Exception e) {
                 Log.e(TAG, "Get public flashcards unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                publicFlashcardsFlight.complete(flightKey, flight, waiting -> waiting.onError("Network error occurred", -1));
             }
         });
+        return handle;
     }
     
     /**
@@ -108,60 +143,40 @@ public class FlashcardService {
      * @param isPublic Whether the flashcard group is public
      * @param flashcards List of flashcards to include
      * @param callback Response callback
+     * @return Handle to cancel the request
      */
-    public void createFlashcard(String authToken, String name, String description, boolean isPublic,
-                               List<Flashcard> flashcards, FlashcardCallback<FlashcardGroup> callback) {
-        executorService.execute(() -> {
+    public RequestHandle createFlashcard(String authToken, String name, String description, boolean isPublic,
+                                        List<Flashcard> flashcards, FlashcardCallback<FlashcardGroup> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardCallback<FlashcardGroup> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 // Validate input
                 if (authToken == null || authToken.trim().isEmpty()) {
-                    callback.onError("Authentication required", 401);
-                    return;
-                }
-                
-                if (name == null || name.trim().isEmpty()) {
-                    callback.onError("Flashcard title is required", 400);
+                    guarded.onError("Authentication required", 401);
                     return;
                 }
                 
-                if (flashcards == null || flashcards.isEmpty()) {
-                    callback.onError("At least one flashcard is required", 400);
+                String invalid = validateFlashcard(name, flashcards);
+                if (invalid != null) {
+                    guarded.onError(invalid, 400);
                     return;
                 }
                 
-                // Build request body
-                JSONObject requestBody = new JSONObject();
-                requestBody.put("Name", name.trim());
-                requestBody.put("Description", description != null ? description.trim() : "");
-                requestBody.put("IsPublic", isPublic);
-                
-                JSONArray flashcardsArray = new JSONArray();
-                for (Flashcard flashcard : flashcards) {
-                    if (flashcard.getTerm() == null || flashcard.getTerm().trim().isEmpty() ||
-                        flashcard.getDefinition() == null || flashcard.getDefinition().trim().isEmpty()) {
-                        callback.onError("All flashcard terms and definitions are required", 400);
-                        return;
-                    }
-                    
-                    JSONObject flashcardJson = new JSONObject();
-                    flashcardJson.put("Term", flashcard.getTerm().trim());
-                    flashcardJson.put("Definition", flashcard.getDefinition().trim());
-                    flashcardsArray.put(flashcardJson);
-                }
-                requestBody.put("Flashcards", flashcardsArray);
-                
-                String response = makePostRequest(FLASHCARD_DETAIL_ENDPOINT, requestBody.toString(), authToken);
-                FlashcardGroup createdGroup = parseFlashcardGroupResponse(response);
-                callback.onSuccess(createdGroup);
+                String requestBody = createRequestBody(null, name, description, isPublic, flashcards);
+                FlashcardGroup createdGroup = makePostRequest(FLASHCARD_DETAIL_ENDPOINT, requestBody, authToken,
+                        GROUP_DETAILS_PARSER);
+                guarded.onSuccess(createdGroup);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Create flashcard API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (Exception e) {
                 Log.e(TAG, "Create flashcard unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                guarded.onError("Network error occurred", -1);
             }
         });
+        return handle;
     }
 
     /**
@@ -173,10 +188,13 @@ public class FlashcardService {
      * @param pageSize Page size (default: 10, max: 100)
      * @param search Search term for filtering (optional)
      * @param callback Response callback
+     * @return Handle to cancel the request
      */
-    public void getUserFlashcards(String authToken, int pageNumber, int pageSize, String search, 
-                                 FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
-        executorService.execute(() -> {
+    public RequestHandle getUserFlashcards(String authToken, int pageNumber, int pageSize, String search, 
+                                          FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardCallback<PagedResponse<FlashcardGroup>> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 // Build query parameters
                 StringBuilder queryParams = new StringBuilder();
@@ -189,19 +207,18 @@ public class FlashcardService {
                 }
                 
                 String endpoint = FLASHCARD_PAGED_ENDPOINT + queryParams.toString();
-                String response = makeAuthenticatedGetRequest(endpoint, authToken);
-                
-                PagedResponse<FlashcardGroup> pagedResponse = parsePagedFlashcardResponse(response);
-                callback.onSuccess(pagedResponse);
+                PagedResponse<FlashcardGroup> pagedResponse = makeAuthenticatedGetRequest(endpoint, authToken, PAGED_GROUPS_PARSER);
+                guarded.onSuccess(pagedResponse);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Get user flashcards API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (Exception e) {
                 Log.e(TAG, "Get user flashcards unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                guarded.onError("Network error occurred", -1);
             }
         });
+        return handle;
     }
     
     /**
@@ -209,24 +226,45 @@ public class FlashcardService {
      * 
      * @param groupId Flashcard group ID
      * @param callback Response callback
+     * @return Handle to cancel the request
      */
-    public void getFlashcardGroupDetails(String groupId, FlashcardCallback<FlashcardGroup> callback) {
-        executorService.execute(() -> {
+    public RequestHandle getFlashcardGroupDetails(String groupId, FlashcardCallback<FlashcardGroup> callback) {
+        return getFlashcardGroupDetails(groupId, NetworkExecutor.Priority.USER_VISIBLE, callback);
+    }
+    
+    /**
+     * Get detailed flashcard group with an explicit request priority
+     * 
+     * @param groupId Flashcard group ID
+     * @param priority Network priority, PREFETCH for background refreshes
+     * @param callback Response callback
+     * @return Handle to cancel the request
+     */
+    public RequestHandle getFlashcardGroupDetails(String groupId, NetworkExecutor.Priority priority,
+                                                  FlashcardCallback<FlashcardGroup> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardCallback<FlashcardGroup> guarded = guard(handle, callback);
+        RequestHandle flight = groupDetailsFlight.join(groupId, guarded);
+        handle.onCancel(() -> groupDetailsFlight.leave(groupId, guarded));
+        if (flight == null) {
+            return handle;
+        }
+        
+        networkExecutor.execute(priority, flight, () -> {
             try {
                 String endpoint = FLASHCARD_DETAIL_ENDPOINT + "/" + groupId;
-                String response = makeGetRequest(endpoint);
-                
-                FlashcardGroup flashcardGroup = parseFlashcardGroupDetails(response);
-                callback.onSuccess(flashcardGroup);
+                FlashcardGroup flashcardGroup = makeGetRequest(endpoint, GROUP_DETAILS_PARSER);
+                groupDetailsFlight.complete(groupId, flight, waiting -> waiting.onSuccess(flashcardGroup));
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Get flashcard details API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                groupDetailsFlight.complete(groupId, flight, waiting -> waiting.onError(e.getMessage(), e.getStatusCode()));
             } catch (Exception e) {
                 Log.e(TAG, "Get flashcard details unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                groupDetailsFlight.complete(groupId, flight, waiting -> waiting.onError("Network error occurred", -1));
             }
         });
+        return handle;
     }
 
     /**
@@ -239,67 +277,47 @@ public class FlashcardService {
      * @param isPublic Whether the flashcard group is public
      * @param flashcards Updated list of flashcards
      * @param callback Response callback
+     * @return Handle to cancel the request
      */
-    public void updateFlashcard(String authToken, String groupId, String name, String description, boolean isPublic,
-                               List<Flashcard> flashcards, FlashcardCallback<FlashcardGroup> callback) {
-        executorService.execute(() -> {
+    public RequestHandle updateFlashcard(String authToken, String groupId, String name, String description, boolean isPublic,
+                                        List<Flashcard> flashcards, FlashcardCallback<FlashcardGroup> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardCallback<FlashcardGroup> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 // Validate input
                 if (authToken == null || authToken.trim().isEmpty()) {
-                    callback.onError("Authentication required", 401);
+                    guarded.onError("Authentication required", 401);
                     return;
                 }
                 
                 if (groupId == null || groupId.trim().isEmpty()) {
-                    callback.onError("Flashcard group ID is required", 400);
-                    return;
-                }
-                
-                if (name == null || name.trim().isEmpty()) {
-                    callback.onError("Flashcard title is required", 400);
+                    guarded.onError("Flashcard group ID is required", 400);
                     return;
                 }
                 
-                if (flashcards == null || flashcards.isEmpty()) {
-                    callback.onError("At least one flashcard is required", 400);
+                String invalid = validateFlashcard(name, flashcards);
+                if (invalid != null) {
+                    guarded.onError(invalid, 400);
                     return;
                 }
                 
-                // Build request body
-                JSONObject requestBody = new JSONObject();
-                requestBody.put("Name", name.trim());
-                requestBody.put("Description", description != null ? description.trim() : "");
-                requestBody.put("IsPublic", isPublic);
-                requestBody.put("Id", groupId);
-                
-                JSONArray flashcardsArray = new JSONArray();
-                for (Flashcard flashcard : flashcards) {
-                    if (flashcard.getTerm() == null || flashcard.getTerm().trim().isEmpty() ||
-                        flashcard.getDefinition() == null || flashcard.getDefinition().trim().isEmpty()) {
-                        callback.onError("All flashcard terms and definitions are required", 400);
-                        return;
-                    }
-                    
-                    JSONObject flashcardJson = new JSONObject();
-                    flashcardJson.put("Term", flashcard.getTerm().trim());
-                    flashcardJson.put("Definition", flashcard.getDefinition().trim());
-                    flashcardsArray.put(flashcardJson);
-                }
-                requestBody.put("Flashcards", flashcardsArray);
+                String requestBody = createRequestBody(groupId, name, description, isPublic, flashcards);
                 
                 String endpoint = FLASHCARD_DETAIL_ENDPOINT;
-                String response = makeRequest(endpoint, "PUT", authToken, requestBody.toString());
-                FlashcardGroup updatedGroup = parseFlashcardGroupResponse(response);
-                callback.onSuccess(updatedGroup);
+                FlashcardGroup updatedGroup = makeRequest(endpoint, "PUT", authToken, requestBody,
+                        GROUP_DETAILS_PARSER);
+                guarded.onSuccess(updatedGroup);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Update flashcard API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (Exception e) {
                 Log.e(TAG, "Update flashcard unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                guarded.onError("Network error occurred", -1);
             }
         });
+        return handle;
     }
 
     /**
@@ -308,44 +326,139 @@ public class FlashcardService {
      * @param authToken User authentication token
      * @param groupId Flashcard group ID
      * @param callback Response callback (Void on success)
+     * @return Handle to cancel the request
      */
-    public void deleteFlashcard(String authToken, String groupId, FlashcardCallback<Void> callback) {
-        executorService.execute(() -> {
+    public RequestHandle deleteFlashcard(String authToken, String groupId, FlashcardCallback<Void> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardCallback<Void> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 // Validate input
                 if (authToken == null || authToken.trim().isEmpty()) {
-                    callback.onError("Authentication required", 401);
+                    guarded.onError("Authentication required", 401);
                     return;
                 }
                 
                 if (groupId == null || groupId.trim().isEmpty()) {
-                    callback.onError("Flashcard group ID is required", 400);
+                    guarded.onError("Flashcard group ID is required", 400);
                     return;
                 }
                 
                 String endpoint = FLASHCARD_DETAIL_ENDPOINT + "/" + groupId;
                 makeRequest(endpoint, "DELETE", authToken, null);
-                callback.onSuccess(null);
+                guarded.onSuccess(null);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Delete flashcard API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (Exception e) {
                 Log.e(TAG, "Delete flashcard unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                guarded.onError("Network error occurred", -1);
             }
         });
+        return handle;
+    }
+    
+    /**
+     * Check a flashcard group before it is sent
+     * @return Error message, or null if the group is valid
+     */
+    public static String validateFlashcard(String name, List<Flashcard> flashcards) {
+        if (name == null || name.trim().isEmpty()) {
+            return "Flashcard title is required";
+        }
+        if (flashcards == null || flashcards.isEmpty()) {
+            return "At least one flashcard is required";
+        }
+        for (Flashcard flashcard : flashcards) {
+            if (flashcard.getTerm() == null || flashcard.getTerm().trim().isEmpty() ||
+                flashcard.getDefinition() == null || flashcard.getDefinition().trim().isEmpty()) {
+                return "All flashcard terms and definitions are required";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build the body of a create or update request
+     * @param groupId Flashcard group ID for an update, null for a create
+     */
+    public static String createRequestBody(String groupId, String name, String description, boolean isPublic,
+                                           List<Flashcard> flashcards) throws JSONException {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("Name", name.trim());
+        requestBody.put("Description", description != null ? description.trim() : "");
+        requestBody.put("IsPublic", isPublic);
+        if (groupId != null) {
+            requestBody.put("Id", groupId);
+        }
+        
+        JSONArray flashcardsArray = new JSONArray();
+        for (Flashcard flashcard : flashcards) {
+            JSONObject flashcardJson = new JSONObject();
+            flashcardJson.put("Term", flashcard.getTerm().trim());
+            flashcardJson.put("Definition", flashcard.getDefinition().trim());
+            flashcardsArray.put(flashcardJson);
+        }
+        requestBody.put("Flashcards", flashcardsArray);
+        return requestBody.toString();
+    }
+
+    /**
+     * Read a flashcard group from a create or update request body
+     */
+    public static FlashcardGroup parseRequestBody(String groupId, String requestBody) throws JSONException {
+        JSONObject json = new JSONObject(requestBody);
+        List<Flashcard> flashcards = new ArrayList<>();
+        JSONArray flashcardsArray = json.optJSONArray("Flashcards");
+        if (flashcardsArray != null) {
+            for (int i = 0; i < flashcardsArray.length(); i++) {
+                JSONObject flashcardJson = flashcardsArray.getJSONObject(i);
+                flashcards.add(new Flashcard(flashcardJson.optString("Term"), flashcardJson.optString("Definition")));
+            }
+        }
+        return new FlashcardGroup(groupId, json.optString("Name"), json.optString("Description"),
+                json.optBoolean("IsPublic"), flashcards);
+    }
+
+    /**
+     * Read a flashcard group from a create or update response body
+     */
+    public static FlashcardGroup parseFlashcardGroup(String responseBody) throws IOException {
+        return GROUP_DETAILS_PARSER.parse(new ByteArrayInputStream(responseBody.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Wrap a callback so it is delivered at most once and never after the handle is cancelled
+     */
+    private static <T> FlashcardCallback<T> guard(RequestHandle handle, FlashcardCallback<T> callback) {
+        return new FlashcardCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                if (handle.finish()) {
+                    callback.onSuccess(result);
+                }
+            }
+            
+            @Override
+            public void onError(String error, int statusCode) {
+                if (handle.finish()) {
+                    callback.onError(error, statusCode);
+                }
+            }
+        };
     }
     
     /**
      * Make HTTP GET request
      * 
      * @param endpoint API endpoint with query parameters
-     * @return Response string
+     * @param parser Response body parser
+     * @return Parsed response
      * @throws ApiException If request fails
      */
-    private String makeGetRequest(String endpoint) throws ApiException {
-        return makeRequest(endpoint, "GET", null, null);
+    private <T> T makeGetRequest(String endpoint, HttpTransport.BodyParser<T> parser) throws ApiException {
+        return makeConditionalGetRequest(endpoint, null, parser);
     }
     
     /**
@@ -353,11 +466,13 @@ public class FlashcardService {
      * 
      * @param endpoint API endpoint with query parameters
      * @param authToken Authentication token
-     * @return Response string
+     * @param parser Response body parser
+     * @return Parsed response
      * @throws ApiException If request fails
      */
-    private String makeAuthenticatedGetRequest(String endpoint, String authToken) throws ApiException {
-        return makeRequest(endpoint, "GET", authToken, null);
+    private <T> T makeAuthenticatedGetRequest(String endpoint, String authToken,
+                                              HttpTransport.BodyParser<T> parser) throws ApiException {
+        return makeConditionalGetRequest(endpoint, authToken, parser);
     }
     
     /**
@@ -366,11 +481,13 @@ public class FlashcardService {
      * @param endpoint API endpoint
      * @param requestBody Request body JSON
      * @param authToken Authentication token
-     * @return Response string
+     * @param parser Response body parser
+     * @return Parsed response
      * @throws ApiException If request fails
      */
-    private String makePostRequest(String endpoint, String requestBody, String authToken) throws ApiException {
-        return makeRequest(endpoint, "POST", authToken, requestBody);
+    private <T> T makePostRequest(String endpoint, String requestBody, String authToken,
+                                  HttpTransport.BodyParser<T> parser) throws ApiException {
+        return makeRequest(endpoint, "POST", authToken, requestBody, parser);
     }
     
     /**
@@ -384,159 +501,75 @@ public class FlashcardService {
      * @throws ApiException If request fails
      */
     private String makeRequest(String endpoint, String method, String authToken, String requestBody) throws ApiException {
-        HttpURLConnection connection = null;
         try {
-            URL url = new URL(BASE_URL + endpoint);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // Configure connection
-            connection.setRequestMethod(method);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setConnectTimeout(TIMEOUT_CONNECT);
-            connection.setReadTimeout(TIMEOUT_READ);
-            
-            // Add authentication header if token provided
-            if (authToken != null && !authToken.trim().isEmpty()) {
-                connection.setRequestProperty("Authorization", "Bearer " + authToken);
-            }
-            
-            // Add request body if provided
-            if (requestBody != null && !requestBody.trim().isEmpty()) {
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setDoOutput(true);
-                connection.getOutputStream().write(requestBody.getBytes(StandardCharsets.UTF_8));
-            }
-            
-            int statusCode = connection.getResponseCode();
-            
-            // Read response
-            BufferedReader reader;
-            if (statusCode >= 200 && statusCode < 300) {
-                reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
-            } else {
-                reader = new BufferedReader(new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8));
-            }
-            
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
+            HttpTransport.Response response = transport.execute(method, endpoint, authToken, requestBody);
             
-            if (statusCode >= 200 && statusCode < 300) {
-                return response.toString();
+            if (response.isSuccessful()) {
+                return response.getBody();
             } else {
-                String errorMessage = getErrorMessage(statusCode, response.toString());
-                throw new ApiException(errorMessage, statusCode);
+                String errorMessage = getErrorMessage(response.getStatusCode(), response.getBody());
+                throw new ApiException(errorMessage, response.getStatusCode());
             }
             
         } catch (IOException e) {
             Log.e(TAG, "Network error: " + e.getMessage());
             throw new ApiException("Network connection failed", -1);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
     }
     
     /**
-     * Parse paged flashcard response from JSON
+     * Make HTTP request and parse the response body while it streams in
      * 
-     * @param jsonResponse JSON response string
-     * @return PagedResponse containing FlashcardGroup list
-     * @throws JSONException If JSON parsing fails
+     * @param endpoint API endpoint with query parameters
+     * @param method HTTP method
+     * @param authToken Authentication token (optional)
+     * @param requestBody Request body (optional)
+     * @param parser Response body parser
+     * @return Parsed response
+     * @throws ApiException If request fails
      */
-    private PagedResponse<FlashcardGroup> parsePagedFlashcardResponse(String jsonResponse) throws JSONException {
-        JSONObject responseJson = new JSONObject(jsonResponse);
-        
-        PagedResponse<FlashcardGroup> pagedResponse = new PagedResponse<>();
-        pagedResponse.setTotalCount(responseJson.getInt("totalCount"));
-        pagedResponse.setPageNumber(responseJson.getInt("pageNumber"));
-        pagedResponse.setPageSize(responseJson.getInt("pageSize"));
-        pagedResponse.setTotalPages(responseJson.getInt("totalPages"));
-        
-        JSONArray itemsArray = responseJson.getJSONArray("items");
-        List<FlashcardGroup> flashcardGroups = new ArrayList<>();
-        
-        for (int i = 0; i < itemsArray.length(); i++) {
-            JSONObject item = itemsArray.getJSONObject(i);
-            FlashcardGroup group = new FlashcardGroup();
-            group.setId(item.getString("id"));
-            group.setName(item.getString("name"));
-            group.setDescription(item.optString("description", ""));
-            group.setPublic(item.getBoolean("isPublic"));
+    private <T> T makeRequest(String endpoint, String method, String authToken, String requestBody,
+                              HttpTransport.BodyParser<T> parser) throws ApiException {
+        try {
+            return transport.execute(method, endpoint, authToken, requestBody, parser);
             
-            flashcardGroups.add(group);
+        } catch (HttpTransport.HttpStatusException e) {
+            String errorMessage = getErrorMessage(e.getStatusCode(), e.getBody());
+            throw new ApiException(errorMessage, e.getStatusCode());
+        } catch (MalformedJsonException e) {
+            Log.e(TAG, "Invalid response format: " + e.getMessage());
+            throw new ApiException("Invalid response format", -1);
+        } catch (IOException e) {
+            Log.e(TAG, "Network error: " + e.getMessage());
+            throw new ApiException("Network connection failed", -1);
         }
-        
-        pagedResponse.setItems(flashcardGroups);
-        return pagedResponse;
     }
     
     /**
-     * Parse detailed flashcard group response from JSON
+     * Make conditional HTTP GET request
+     * A 304 Not Modified returns the model parsed from the previous full response
      * 
-     * @param jsonResponse JSON response string
-     * @return FlashcardGroup with all flashcards
-     * @throws JSONException If JSON parsing fails
+     * @param endpoint API endpoint with query parameters
+     * @param authToken Authentication token (optional)
+     * @param parser Response body parser
+     * @return Parsed response
+     * @throws ApiException If request fails
      */
-    private FlashcardGroup parseFlashcardGroupDetails(String jsonResponse) throws JSONException {
-        JSONObject responseJson = new JSONObject(jsonResponse);
-        
-        FlashcardGroup group = new FlashcardGroup();
-        group.setId(responseJson.getString("id"));
-        group.setName(responseJson.getString("name"));
-        group.setDescription(responseJson.optString("description", ""));
-        group.setPublic(responseJson.getBoolean("isPublic"));
-        
-        JSONArray flashcardsArray = responseJson.getJSONArray("flashcards");
-        List<Flashcard> flashcards = new ArrayList<>();
-        
-        for (int i = 0; i < flashcardsArray.length(); i++) {
-            JSONObject flashcardJson = flashcardsArray.getJSONObject(i);
-            Flashcard flashcard = new Flashcard();
-            flashcard.setTerm(flashcardJson.getString("term"));
-            flashcard.setDefinition(flashcardJson.getString("definition"));
-            
-            flashcards.add(flashcard);
-        }
-        
-        group.setFlashcards(flashcards);
-        return group;
-    }
+    private <T> T makeConditionalGetRequest(String endpoint, String authToken,
+                                            HttpTransport.BodyParser<T> parser) throws ApiException {
+        try {
+            return transport.executeConditional(endpoint, authToken, parser);
     
-    /**
-     * Parse flashcard group response from JSON (for create operation)
-     * 
-     * @param jsonResponse JSON response string
-     * @return FlashcardGroup object
-     * @throws JSONException If JSON parsing fails
-     */
-    private FlashcardGroup parseFlashcardGroupResponse(String jsonResponse) throws JSONException {
-        JSONObject responseJson = new JSONObject(jsonResponse);
-        
-        FlashcardGroup group = new FlashcardGroup();
-        group.setId(responseJson.getString("id"));
-        group.setName(responseJson.getString("name"));
-        group.setDescription(responseJson.optString("description", ""));
-        group.setPublic(responseJson.getBoolean("isPublic"));
-        
-        JSONArray flashcardsArray = responseJson.getJSONArray("flashcards");
-        List<Flashcard> flashcards = new ArrayList<>();
-        
-        for (int i = 0; i < flashcardsArray.length(); i++) {
-            JSONObject flashcardJson = flashcardsArray.getJSONObject(i);
-            Flashcard flashcard = new Flashcard();
-            flashcard.setTerm(flashcardJson.getString("term"));
-            flashcard.setDefinition(flashcardJson.getString("definition"));
-            
-            flashcards.add(flashcard);
+        } catch (HttpTransport.HttpStatusException e) {
+            String errorMessage = getErrorMessage(e.getStatusCode(), e.getBody());
+            throw new ApiException(errorMessage, e.getStatusCode());
+        } catch (MalformedJsonException e) {
+            Log.e(TAG, "Invalid response format: " + e.getMessage());
+            throw new ApiException("Invalid response format", -1);
+        } catch (IOException e) {
+            Log.e(TAG, "Network error: " + e.getMessage());
+            throw new ApiException("Network connection failed", -1);
         }
-        
-        group.setFlashcards(flashcards);
-        return group;
     }
     
     /**
@@ -0,0 +1,1104 @@
+package app.quiz.data.remote;
+
+import android.util.Log;
+import android.util.MalformedJsonException;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shared HTTP transport used by ApiClient, FlashcardService and ReadingService
+ * Connections to the LinguaRead backend are pooled and kept alive between calls instead of
+ * being torn down after every request, so repeated calls skip the TCP and TLS handshakes
+ * Failed attempts are retried up to MAX_ATTEMPTS times with exponential backoff and full jitter
+ * (a random delay up to the backoff, or the server's Retry-After), so clients that failed together
+ * do not retry together. Requests made with enqueue are queued again on the NetworkExecutor once the
+ * delay has passed instead of holding a thread. Only requests that are safe to repeat are retried:
+ * idempotent methods, requests carrying an Idempotency-Key, and requests that never reached the
+ * server. Each endpoint has a CircuitBreaker, so while the backend keeps failing calls fail fast
+ * instead of piling up.
+ * Responses are requested gzip-compressed and decompressed while they stream in. Request bodies can
+ * be gzip-compressed too (setRequestCompressionThreshold), compressed while they are written.
+ */
+public class HttpTransport {
+    private static final String TAG = "HttpTransport";
+    public static final String BASE_URL = "https://learnlanguage-aggbd0h2h6grc6es.eastasia-01.azurewebsites.net";
+
+    private static final int TIMEOUT_CONNECT = 10000; // 10 seconds
+    private static final int TIMEOUT_READ = 15000; // 15 seconds
+    private static final int BUFFER_SIZE = 8192;
+
+    // Idle keep-alive sockets retained by the platform connection pool
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+    // Conditional GET responses remembered for revalidation
+    private static final int MAX_VALIDATED_RESPONSES = 64;
+
+    // Request compression is off until enabled, the backend must accept Content-Encoding: gzip
+    public static final int COMPRESSION_DISABLED = -1;
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_BASE_MILLIS = 500;
+    private static final long BACKOFF_MAX_MILLIS = 8000;
+
+    static {
+        // Read once by the platform HttpURLConnection pool, so it must be set before the first request
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+    }
+
+    private final Map<String, HostLimiter> hostLimiters = new HashMap<>();
+    private int defaultMaxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+
+    private final Map<String, ValidatedResponse> validatedResponses =
+            new LinkedHashMap<String, ValidatedResponse>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ValidatedResponse> eldest) {
+                    return size() > MAX_VALIDATED_RESPONSES;
+                }
+            };
+    private long notModifiedCount;
+    private long bytesSaved;
+    private long timeSavedMillis;
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+    private long retryCount;
+
+    private volatile int compressionThreshold = COMPRESSION_DISABLED;
+    private volatile TransferListener transferListener;
+    private long requestBytes;
+    private long requestWireBytes;
+    private long responseBytes;
+    private long responseWireBytes;
+
+    private final String baseUrl;
+
+    // Singleton instance
+    private static HttpTransport instance;
+
+    private HttpTransport() {
+        this(BASE_URL);
+    }
+
+    /**
+     * A transport for another backend, e.g. a local server in tests
+     */
+    HttpTransport(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static synchronized HttpTransport getInstance() {
+        if (instance == null) {
+            instance = new HttpTransport();
+        }
+        return instance;
+    }
+
+    /**
+     * Limit the number of concurrent requests to a single host
+     * Requests over the limit wait for a free slot rather than opening another socket
+     * @param host Host name, e.g. the backend host from BASE_URL
+     * @param maxRequests Maximum concurrent requests (at least 1)
+     */
+    public void setMaxRequestsPerHost(String host, int maxRequests) {
+        getHostLimiter(host).setLimit(Math.max(1, maxRequests));
+    }
+
+    /**
+     * Set the concurrent request limit for hosts without an explicit limit
+     * @param maxRequests Maximum concurrent requests (at least 1)
+     */
+    public synchronized void setDefaultMaxRequestsPerHost(int maxRequests) {
+        defaultMaxRequestsPerHost = Math.max(1, maxRequests);
+    }
+
+    /**
+     * Compress request bodies of at least the given size
+     * If the backend answers 415 Unsupported Media Type to a compressed body, compression is turned
+     * off again and the request resent as is.
+     * @param thresholdChars Smallest body to compress in characters, or COMPRESSION_DISABLED
+     */
+    public void setRequestCompressionThreshold(int thresholdChars) {
+        compressionThreshold = thresholdChars;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Instrumentation hook told the size of every exchange, before and after compression
+     */
+    public interface TransferListener {
+        void onTransfer(Transfer transfer);
+    }
+
+    public void setTransferListener(TransferListener listener) {
+        this.transferListener = listener;
+    }
+
+    /**
+     * Parses a successful response body straight from the network stream
+     * The transport owns the stream and closes it, parsers must not
+     */
+    public interface BodyParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
+
+    /**
+     * Execute a request against the backend
+     * The response body is always fully read and closed so the socket goes back to the pool
+     * @param method HTTP method
+     * @param endpoint API endpoint with query parameters, relative to BASE_URL
+     * @param authToken Bearer token (optional)
+     * @param requestBody JSON request body (optional)
+     * @return Response with status code and body
+     * @throws IOException If the request could not be completed
+     */
+    public Response execute(String method, String endpoint, String authToken, String requestBody) throws IOException {
+        return execute(method, endpoint, authToken, requestBody, (Map<String, String>) null);
+    }
+
+    /**
+     * Execute a request with extra headers, e.g. Idempotency-Key or If-Unmodified-Since
+     * @param method HTTP method
+     * @param endpoint API endpoint with query parameters, relative to BASE_URL
+     * @param authToken Bearer token (optional)
+     * @param requestBody JSON request body (optional)
+     * @param headers Request headers (optional)
+     * @return Response with status code, e.g. 201 or 204 rather than 200, and body
+     * @throws IOException If the request could not be completed
+     */
+    public Response execute(String method, String endpoint, String authToken, String requestBody,
+                            Map<String, String> headers) throws IOException {
+        Call<String> call = new Call<>(method, endpoint, authToken, requestBody, this::readBody, null, headers,
+                RequestHandle.current());
+        try {
+            String body = execute(call);
+            return new Response(call.statusCode, body);
+        } catch (HttpStatusException e) {
+            return new Response(e.getStatusCode(), e.getBody());
+        }
+    }
+
+    /**
+     * Execute a request and parse a successful response body while it streams in
+     * @param method HTTP method
+     * @param endpoint API endpoint with query parameters, relative to BASE_URL
+     * @param authToken Bearer token (optional)
+     * @param requestBody JSON request body (optional)
+     * @param parser Parser for a 2xx response body
+     * @return Parsed response
+     * @throws HttpStatusException If the server answered with a non-2xx status
+     * @throws MalformedJsonException If the body could not be parsed
+     * @throws IOException If the request could not be completed
+     */
+    public <T> T execute(String method, String endpoint, String authToken, String requestBody,
+                         BodyParser<T> parser) throws IOException {
+        return execute(method, endpoint, authToken, requestBody, parser, null, null);
+    }
+
+    /**
+     * Execute a conditional GET
+     * The ETag and Last-Modified validators of the last 200 response for the same endpoint and token
+     * are sent back as If-None-Match and If-Modified-Since. On 304 Not Modified the model parsed from
+     * that response is returned again without downloading or parsing a body.
+     * @param endpoint API endpoint with query parameters, relative to BASE_URL
+     * @param authToken Bearer token (optional)
+     * @param parser Parser for a 2xx response body, must be the same for every call to this endpoint
+     * @return Parsed response, possibly shared with earlier calls
+     * @throws HttpStatusException If the server answered with an error status
+     * @throws MalformedJsonException If the body could not be parsed
+     * @throws IOException If the request could not be completed
+     */
+    public <T> T executeConditional(String endpoint, String authToken, BodyParser<T> parser) throws IOException {
+        String key = authToken != null ? endpoint + "\n" + authToken : endpoint;
+        return execute("GET", endpoint, authToken, null, parser, key, null);
+    }
+
+    /**
+     * @return Number of conditional GETs answered with 304 Not Modified
+     */
+    public synchronized long getNotModifiedCount() {
+        return notModifiedCount;
+    }
+
+    /**
+     * @return Response body bytes not downloaded thanks to 304 responses
+     */
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * @return Time saved by 304 responses compared to the full responses they replaced
+     */
+    public synchronized long getTimeSavedMillis() {
+        return timeSavedMillis;
+    }
+
+    /**
+     * @return Request body bytes before compression, over every call
+     */
+    public synchronized long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return Request body bytes sent, over every call
+     */
+    public synchronized long getRequestWireBytes() {
+        return requestWireBytes;
+    }
+
+    /**
+     * @return Response body bytes after decompression, over every call
+     */
+    public synchronized long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return Response body bytes received, over every call
+     */
+    public synchronized long getResponseWireBytes() {
+        return responseWireBytes;
+    }
+
+    /**
+     * @return Number of attempts repeated after a failure
+     */
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * @return Circuit breaker of the endpoint, e.g. "/api/Flashcard/*" for "/api/Flashcard/{id}"
+     */
+    public CircuitBreaker getCircuitBreaker(String endpoint) {
+        String key = endpointKey(endpoint);
+        synchronized (circuitBreakers) {
+            CircuitBreaker breaker = circuitBreakers.get(key);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(key);
+                circuitBreakers.put(key, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    /**
+     * @return Circuit breakers of every endpoint called so far
+     */
+    public List<CircuitBreaker> getCircuitBreakers() {
+        synchronized (circuitBreakers) {
+            return new ArrayList<>(circuitBreakers.values());
+        }
+    }
+
+    /**
+     * Forget all stored validators, e.g. after the user signs out
+     */
+    public void clearValidators() {
+        synchronized (validatedResponses) {
+            validatedResponses.clear();
+        }
+    }
+
+    /**
+     * Execute a request on the NetworkExecutor, reporting the response to a callback
+     * Unlike execute, no thread is held between attempts: a failed attempt that may be retried is
+     * queued again once its backoff has passed, so waiting retries do not keep other tasks from
+     * running. Nothing is reported if the handle is cancelled.
+     * @param priority Priority of every attempt
+     * @param handle Handle to cancel the call (optional)
+     * @param method HTTP method
+     * @param endpoint API endpoint with query parameters, relative to BASE_URL
+     * @param authToken Bearer token (optional)
+     * @param requestBody JSON request body (optional)
+     * @param headers Request headers (optional)
+     * @param callback Told the response, or the error if the request could not be completed
+     */
+    public void enqueue(NetworkExecutor.Priority priority, RequestHandle handle, String method, String endpoint,
+                        String authToken, String requestBody, Map<String, String> headers,
+                        ResponseCallback callback) {
+        Call<String> call = new Call<>(method, endpoint, authToken, requestBody, this::readBody, null, headers,
+                handle);
+        NetworkExecutor.getInstance().execute(priority, handle, () -> attempt(call, priority, callback));
+    }
+
+    /**
+     * Outcome of a request made with enqueue, called on a network thread
+     */
+    public interface ResponseCallback {
+        void onResponse(Response response);
+
+        void onFailure(IOException e);
+    }
+
+    private void attempt(Call<String> call, NetworkExecutor.Priority priority, ResponseCallback callback) {
+        try {
+            String body = call.attempt();
+            callback.onResponse(new Response(call.statusCode, body));
+        } catch (RetryLaterException e) {
+            NetworkExecutor.getInstance().executeLater(priority, call.handle,
+                    () -> attempt(call, priority, callback), e.delayMillis);
+        } catch (HttpStatusException e) {
+            callback.onResponse(new Response(e.getStatusCode(), e.getBody()));
+        } catch (IOException e) {
+            callback.onFailure(e);
+        }
+    }
+
+    /**
+     * @param validatorKey Key for conditional GET validators, or null for an unconditional request
+     * @param headers Extra request headers, or null
+     */
+    private <T> T execute(String method, String endpoint, String authToken, String requestBody,
+                          BodyParser<T> parser, String validatorKey, Map<String, String> headers) throws IOException {
+        return execute(new Call<>(method, endpoint, authToken, requestBody, parser, validatorKey, headers,
+                RequestHandle.current()));
+    }
+
+    private <T> T execute(Call<T> call) throws IOException {
+        while (true) {
+            try {
+                return call.attempt();
+            } catch (RetryLaterException e) {
+                // The caller waits for the result, so it waits for the retry too
+                try {
+                    Thread.sleep(e.delayMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry");
+                }
+                if (call.handle != null && call.handle.isCancelled()) {
+                    throw new InterruptedIOException("Canceled");
+                }
+            }
+        }
+    }
+
+    /**
+     * One request and its attempts so far
+     */
+    private class Call<T> {
+        private final String method;
+        private final String endpoint;
+        private final String authToken;
+        private final String requestBody;
+        private final BodyParser<T> parser;
+        private final String validatorKey;
+        private final Map<String, String> headers;
+        private final RequestHandle handle;
+        private final CircuitBreaker breaker;
+        private final boolean repeatable;
+        private int attempt;
+        // Status of the last response received
+        private int statusCode;
+
+        Call(String method, String endpoint, String authToken, String requestBody, BodyParser<T> parser,
+             String validatorKey, Map<String, String> headers, RequestHandle handle) {
+            this.method = method;
+            this.endpoint = endpoint;
+            this.authToken = authToken;
+            this.requestBody = requestBody;
+            this.parser = parser;
+            this.validatorKey = validatorKey;
+            this.headers = headers;
+            this.handle = handle;
+            breaker = getCircuitBreaker(endpoint);
+            repeatable = isRepeatable(method, headers);
+        }
+
+        /**
+         * Make the next attempt
+         * @throws RetryLaterException If the attempt failed and the request should be retried after a delay
+         */
+        T attempt() throws IOException {
+            attempt++;
+            while (true) {
+                if (!breaker.tryAcquire()) {
+                    throw new CircuitOpenException(breaker);
+                }
+                long delay;
+                try {
+                    T result = executeOnce(this);
+                    breaker.recordSuccess();
+                    return result;
+                } catch (CompressionRejectedException e) {
+                    // Nothing was applied, resend uncompressed right away without using up an attempt.
+                    // Compression is now off, so this happens at most once.
+                    breaker.recordSuccess();
+                    continue;
+                } catch (HttpStatusException e) {
+                    if (!isServerFailure(e.getStatusCode())) {
+                        breaker.recordSuccess();
+                        throw e;
+                    }
+                    breaker.recordFailure();
+                    if (!repeatable || attempt == MAX_ATTEMPTS || e.getRetryAfterMillis() > BACKOFF_MAX_MILLIS) {
+                        // Retry-After beyond the longest backoff is not worth holding the caller for
+                        throw e;
+                    }
+                    delay = Math.max(backoff(attempt), e.getRetryAfterMillis());
+                } catch (MalformedJsonException e) {
+                    breaker.recordSuccess();
+                    throw e;
+                } catch (IOException e) {
+                    if (handle != null && handle.isCancelled()) {
+                        breaker.recordAbandoned();
+                        throw e;
+                    }
+                    breaker.recordFailure();
+                    boolean neverSent = e instanceof ConnectException || e instanceof UnknownHostException;
+                    if (!(repeatable || neverSent) || attempt == MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    delay = backoff(attempt);
+                } catch (RuntimeException e) {
+                    breaker.recordAbandoned();
+                    throw e;
+                }
+
+                synchronized (HttpTransport.this) {
+                    retryCount++;
+                }
+                Log.d(TAG, method + " " + endpoint + " retrying in " + delay + " ms");
+                throw new RetryLaterException(delay);
+            }
+        }
+    }
+
+    /**
+     * Make a single attempt at a request
+     */
+    private <T> T executeOnce(Call<T> call) throws IOException {
+        String method = call.method;
+        String endpoint = call.endpoint;
+        String authToken = call.authToken;
+        String requestBody = call.requestBody;
+        BodyParser<T> parser = call.parser;
+        String validatorKey = call.validatorKey;
+        Map<String, String> headers = call.headers;
+        URL url = new URL(baseUrl + endpoint);
+        RequestHandle handle = RequestHandle.current();
+        HostLimiter limiter = getHostLimiter(url.getHost());
+
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection", e);
+        }
+
+        ValidatedResponse previous = null;
+        if (validatorKey != null) {
+            synchronized (validatedResponses) {
+                previous = validatedResponses.get(validatorKey);
+            }
+        }
+        long startTime = System.nanoTime();
+        Transfer transfer = new Transfer(method, endpoint);
+        int threshold = compressionThreshold;
+        boolean compress = threshold != COMPRESSION_DISABLED && requestBody != null
+                && requestBody.length() >= threshold;
+
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            if (handle != null && !handle.attach(connection)) {
+                throw new InterruptedIOException("Canceled");
+            }
+
+            // Configure connection
+            if ("PATCH".equals(method)) {
+                // HttpURLConnection rejects PATCH, tunnel it through POST
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("X-HTTP-Method-Override", "PATCH");
+            } else {
+                connection.setRequestMethod(method);
+            }
+            connection.setRequestProperty("Accept", "application/json");
+            // Set explicitly, so the body is decompressed here and both sizes can be counted
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            connection.setConnectTimeout(TIMEOUT_CONNECT);
+            connection.setReadTimeout(TIMEOUT_READ);
+
+            // Add authentication header if token provided
+            if (authToken != null && !authToken.trim().isEmpty()) {
+                connection.setRequestProperty("Authorization", "Bearer " + authToken);
+            }
+
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+
+            if (previous != null) {
+                if (previous.etag != null) {
+                    connection.setRequestProperty("If-None-Match", previous.etag);
+                }
+                if (previous.lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", previous.lastModified);
+                }
+            }
+
+            // Add request body if provided
+            if (requestBody != null && !requestBody.trim().isEmpty()) {
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setDoOutput(true);
+                if (compress) {
+                    // Compressed size is unknown until written, so the body goes out in chunks
+                    connection.setRequestProperty("Content-Encoding", "gzip");
+                    connection.setChunkedStreamingMode(0);
+                    try (OutputStream os = connection.getOutputStream()) {
+                        transfer.writeCompressed(os, requestBody);
+                    }
+                } else {
+                    byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
+                    connection.setFixedLengthStreamingMode(input.length);
+                    try (OutputStream os = connection.getOutputStream()) {
+                        os.write(input, 0, input.length);
+                    }
+                    transfer.requestBytes = input.length;
+                    transfer.requestWireBytes = input.length;
+                }
+            }
+
+            int statusCode = connection.getResponseCode();
+            call.statusCode = statusCode;
+            if (statusCode == 415 && compress) {
+                Log.w(TAG, "Compressed request body rejected, sending uncompressed from now on");
+                compressionThreshold = COMPRESSION_DISABLED;
+                drainQuietly(connection.getErrorStream());
+                throw new CompressionRejectedException();
+            }
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null) {
+                // A 304 has no body, so the socket is immediately reusable
+                recordNotModified(endpoint, previous, elapsedMillis(startTime));
+                @SuppressWarnings("unchecked")
+                T model = (T) previous.model;
+                return model;
+            }
+            if (statusCode < 200 || statusCode >= 300) {
+                try (InputStream errorStream = transfer.response(connection, connection.getErrorStream(), statusCode)) {
+                    throw new HttpStatusException(statusCode, readBody(errorStream),
+                            retryAfterMillis(connection.getHeaderField("Retry-After")));
+                }
+            }
+
+            if (validatorKey == null) {
+                try (InputStream stream = transfer.response(connection, connection.getInputStream(), statusCode)) {
+                    T result = parseBody(parser, stream);
+                    drain(stream);
+                    return result;
+                }
+            }
+
+            String etag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            try (InputStream stream = transfer.response(connection, connection.getInputStream(), statusCode)) {
+                T result = parseBody(parser, stream);
+                drain(stream);
+                if (etag != null || lastModified != null) {
+                    ValidatedResponse validated = new ValidatedResponse(etag, lastModified, result,
+                            transfer.getResponseWireBytes(), elapsedMillis(startTime));
+                    synchronized (validatedResponses) {
+                        validatedResponses.put(validatorKey, validated);
+                    }
+                }
+                return result;
+            }
+
+        } catch (HttpStatusException | MalformedJsonException | CompressionRejectedException e) {
+            // The exchange itself completed, so the socket can stay in the pool
+            throw e;
+        } catch (IOException e) {
+            // A failed exchange may leave the socket in an unknown state, so drop it from the pool
+            if (connection != null) {
+                connection.disconnect();
+            }
+            if (handle != null && handle.isCancelled()) {
+                Log.d(TAG, method + " " + endpoint + " canceled");
+            } else {
+                Log.e(TAG, method + " " + endpoint + " failed: " + e.getMessage());
+            }
+            throw e;
+        } finally {
+            if (handle != null) {
+                handle.detach(connection);
+            }
+            limiter.release();
+            recordTransfer(transfer);
+        }
+    }
+
+    private void recordTransfer(Transfer transfer) {
+        synchronized (this) {
+            requestBytes += transfer.getRequestBytes();
+            requestWireBytes += transfer.getRequestWireBytes();
+            responseBytes += transfer.getResponseBytes();
+            responseWireBytes += transfer.getResponseWireBytes();
+        }
+        TransferListener listener = transferListener;
+        if (listener != null) {
+            listener.onTransfer(transfer);
+        }
+    }
+
+    private synchronized void recordNotModified(String endpoint, ValidatedResponse previous, long elapsed) {
+        notModifiedCount++;
+        bytesSaved += previous.bodyBytes;
+        timeSavedMillis += Math.max(0, previous.fetchMillis - elapsed);
+        Log.d(TAG, "304 for " + endpoint + ", saved " + previous.bodyBytes + " bytes");
+    }
+
+    /**
+     * @return Whether sending the request twice has the same effect as sending it once
+     */
+    private static boolean isRepeatable(String method, Map<String, String> headers) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+            case "PUT":
+            case "DELETE":
+                return true;
+            default:
+                return headers != null && headers.containsKey("Idempotency-Key");
+        }
+    }
+
+    /**
+     * @return Whether the status shows the backend is failing or overloaded, rather than rejecting the request
+     */
+    private static boolean isServerFailure(int statusCode) {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    /**
+     * Full jitter: a random delay up to the exponential backoff of the attempt
+     */
+    private static long backoff(int attempt) {
+        long ceiling = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << (attempt - 1));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * @param retryAfter Retry-After header in seconds (HTTP dates are ignored)
+     */
+    private static long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Endpoint without its query and with ids replaced by "*", so all calls to a resource share a breaker
+     */
+    static String endpointKey(String endpoint) {
+        int query = endpoint.indexOf('?');
+        String path = query >= 0 ? endpoint.substring(0, query) : endpoint;
+        StringBuilder key = new StringBuilder(path.length());
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            boolean word = true;
+            for (int i = 0; i < segment.length() && word; i++) {
+                word = Character.isLetter(segment.charAt(i));
+            }
+            key.append('/').append(word ? segment : "*");
+        }
+        return key.toString();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    private <T> T parseBody(BodyParser<T> parser, InputStream stream) throws IOException {
+        try {
+            return parser.parse(stream);
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader reports unexpected tokens as IllegalStateException
+            throw new MalformedJsonException(e.getMessage());
+        }
+    }
+
+    /**
+     * Consume whatever the parser left unread so the connection can be reused
+     */
+    private void drainQuietly(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try (InputStream in = stream) {
+            drain(in);
+        } catch (IOException e) {
+            // The exchange is abandoned anyway
+        }
+    }
+
+    private void drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (stream.read(buffer) != -1) {
+            // Discard
+        }
+    }
+
+    /**
+     * Read the whole body as a string
+     */
+    private String readBody(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+
+        StringBuilder body = new StringBuilder();
+        Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            body.append(buffer, 0, read);
+        }
+        return body.toString();
+    }
+
+    private synchronized HostLimiter getHostLimiter(String host) {
+        HostLimiter limiter = hostLimiters.get(host);
+        if (limiter == null) {
+            limiter = new HostLimiter(defaultMaxRequestsPerHost);
+            hostLimiters.put(host, limiter);
+        }
+        return limiter;
+    }
+
+    /**
+     * HTTP response with status code and body
+     */
+    public static class Response {
+        private final int statusCode;
+        private final String body;
+
+        public Response(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isSuccessful() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+    }
+
+    /**
+     * Thrown when the server answers with a non-2xx status
+     */
+    public static class HttpStatusException extends IOException {
+        private final int statusCode;
+        private final String body;
+        private final long retryAfterMillis;
+
+        public HttpStatusException(int statusCode, String body) {
+            this(statusCode, body, 0);
+        }
+
+        public HttpStatusException(int statusCode, String body, long retryAfterMillis) {
+            super("HTTP " + statusCode);
+            this.statusCode = statusCode;
+            this.body = body;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        /**
+         * @return Delay the server asked for before retrying, 0 if none
+         */
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Thrown without a network call while the endpoint's circuit breaker is open
+     */
+    public static class CircuitOpenException extends IOException {
+        private final CircuitBreaker breaker;
+
+        public CircuitOpenException(CircuitBreaker breaker) {
+            super("Service temporarily unavailable: " + breaker.getName());
+            this.breaker = breaker;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return breaker;
+        }
+    }
+
+    /**
+     * Thrown when the backend does not accept a compressed request body, the request is resent
+     */
+    /**
+     * Thrown by an attempt that failed and should be repeated after a delay, never leaves the transport
+     */
+    private static class RetryLaterException extends IOException {
+        private final long delayMillis;
+
+        RetryLaterException(long delayMillis) {
+            super("Retry in " + delayMillis + " ms");
+            this.delayMillis = delayMillis;
+        }
+    }
+
+    private static class CompressionRejectedException extends IOException {
+        CompressionRejectedException() {
+            super("Content-Encoding gzip not supported");
+        }
+    }
+
+    /**
+     * Sizes of one exchange's bodies as the application sees them and as they went over the wire
+     */
+    public static class Transfer {
+        private final String method;
+        private final String endpoint;
+        private long requestBytes;
+        private long requestWireBytes;
+        private CountingInputStream responseWire;
+        private CountingInputStream responseDecoded;
+
+        Transfer(String method, String endpoint) {
+            this.method = method;
+            this.endpoint = endpoint;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public long getRequestWireBytes() {
+            return requestWireBytes;
+        }
+
+        public long getResponseBytes() {
+            return responseDecoded != null ? responseDecoded.getCount() : 0;
+        }
+
+        public long getResponseWireBytes() {
+            return responseWire != null ? responseWire.getCount() : 0;
+        }
+
+        /**
+         * @return Bytes compression kept off the wire in both directions
+         */
+        public long getBytesSaved() {
+            return getRequestBytes() - getRequestWireBytes() + getResponseBytes() - getResponseWireBytes();
+        }
+
+        /**
+         * Write the body through gzip straight into the connection, without a compressed copy in memory
+         */
+        void writeCompressed(OutputStream out, String body) throws IOException {
+            CountingOutputStream wire = new CountingOutputStream(out);
+            CountingOutputStream raw = new CountingOutputStream(new GZIPOutputStream(wire, BUFFER_SIZE));
+            try (Writer writer = new OutputStreamWriter(raw, StandardCharsets.UTF_8)) {
+                writer.write(body);
+            } finally {
+                requestBytes = raw.getCount();
+                requestWireBytes = wire.getCount();
+            }
+        }
+
+        /**
+         * Wrap a response body stream to count its bytes and decompress it if needed
+         * @return Decoded stream, or null for no body
+         */
+        InputStream response(HttpURLConnection connection, InputStream body, int statusCode) throws IOException {
+            if (body == null) {
+                return null;
+            }
+            responseWire = new CountingInputStream(body);
+            InputStream decoded = responseWire;
+            // An empty body has no gzip header to read
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())
+                    && statusCode != HttpURLConnection.HTTP_NO_CONTENT && connection.getContentLength() != 0) {
+                decoded = new GZIPInputStream(responseWire, BUFFER_SIZE);
+            }
+            responseDecoded = new CountingInputStream(decoded);
+            return responseDecoded;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + endpoint + ": sent " + requestWireBytes + "/" + requestBytes
+                    + " bytes, received " + getResponseWireBytes() + "/" + getResponseBytes() + " bytes";
+        }
+    }
+
+    /**
+     * Validators and parsed model of the last full response for a conditional GET
+     */
+    private static class ValidatedResponse {
+        final String etag;
+        final String lastModified;
+        final Object model;
+        final long bodyBytes;
+        final long fetchMillis;
+
+        ValidatedResponse(String etag, String lastModified, Object model, long bodyBytes, long fetchMillis) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.model = model;
+            this.bodyBytes = bodyBytes;
+            this.fetchMillis = fetchMillis;
+        }
+    }
+
+    /**
+     * Counts the bytes written through it
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+
+    /**
+     * Counts the bytes read through it
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Counting gate that caps concurrent requests to one host
+     */
+    private static class HostLimiter {
+        private int limit;
+        private int inFlight;
+
+        HostLimiter(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized void setLimit(int limit) {
+            this.limit = limit;
+            notifyAll();
+        }
+
+        synchronized void acquire() throws InterruptedException {
+            while (inFlight >= limit) {
+                wait();
+            }
+            inFlight++;
+        }
+
+        synchronized void release() {
+            inFlight--;
+            notifyAll();
+        }
+    }
+}
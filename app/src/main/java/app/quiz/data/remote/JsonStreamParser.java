@@ -0,0 +1,415 @@
+package app.quiz.data.remote;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import app.quiz.data.models.Flashcard;
+import app.quiz.data.models.FlashcardGroup;
+import app.quiz.data.models.PagedResponse;
+import app.quiz.data.models.Reading;
+import app.quiz.data.models.ReadingQuestion;
+
+/**
+ * Pull-based JSON decoders that map response streams directly into models
+ * Avoids holding the whole body as a String plus an org.json tree while a page is parsed
+ */
+public final class JsonStreamParser {
+    // ISO 8601 as sent by the API, fractions of any length, no zone meaning UTC
+    private static final Pattern ISO_DATE = Pattern.compile(
+            "(\\d{4})-(\\d{2})-(\\d{2})T(\\d{2}):(\\d{2}):(\\d{2})(?:\\.(\\d+))?(Z|[+-]\\d{2}:?\\d{2})?");
+
+    private JsonStreamParser() {}
+
+    /**
+     * Reads one value from the current position of a JsonReader
+     */
+    public interface ItemReader<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Body parser for a single JSON value
+     */
+    public static <T> HttpTransport.BodyParser<T> parser(ItemReader<T> itemReader) {
+        return body -> itemReader.read(newReader(body));
+    }
+
+    /**
+     * Body parser for a paged response whose items are read with the given reader
+     */
+    public static <T> HttpTransport.BodyParser<PagedResponse<T>> pagedParser(ItemReader<T> itemReader) {
+        return body -> readPagedResponse(newReader(body), itemReader);
+    }
+
+    public static JsonReader newReader(InputStream body) {
+        return new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read a paged response: totalCount, pageNumber, pageSize, totalPages and items
+     */
+    public static <T> PagedResponse<T> readPagedResponse(JsonReader reader, ItemReader<T> itemReader) throws IOException {
+        PagedResponse<T> pagedResponse = new PagedResponse<>();
+        List<T> items = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "totalCount":
+                    pagedResponse.setTotalCount(reader.nextInt());
+                    break;
+                case "pageNumber":
+                    pagedResponse.setPageNumber(reader.nextInt());
+                    break;
+                case "pageSize":
+                    pagedResponse.setPageSize(reader.nextInt());
+                    break;
+                case "totalPages":
+                    pagedResponse.setTotalPages(reader.nextInt());
+                    break;
+                case "items":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        items.add(itemReader.read(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        pagedResponse.setItems(items);
+        return pagedResponse;
+    }
+
+    /**
+     * Read a flashcard group list item (the paged endpoint does not include flashcards)
+     */
+    public static FlashcardGroup readFlashcardGroupSummary(JsonReader reader) throws IOException {
+        return readFlashcardGroup(reader, false);
+    }
+
+    /**
+     * Read a flashcard group with all of its flashcards
+     */
+    public static FlashcardGroup readFlashcardGroupDetails(JsonReader reader) throws IOException {
+        return readFlashcardGroup(reader, true);
+    }
+
+    private static FlashcardGroup readFlashcardGroup(JsonReader reader, boolean withFlashcards) throws IOException {
+        String id = null;
+        String name = null;
+        String description = "";
+        boolean isPublic = false;
+        Date updatedAt = null;
+        List<Flashcard> flashcards = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "isPublic":
+                    isPublic = reader.nextBoolean();
+                    break;
+                case "updatedAt":
+                    updatedAt = parseDate(nextStringOrEmpty(reader));
+                    break;
+                case "flashcards":
+                    if (withFlashcards) {
+                        flashcards = readFlashcards(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (withFlashcards && flashcards == null) {
+            throw new MalformedJsonException("Missing flashcards for group " + id);
+        }
+
+        FlashcardGroup group = new FlashcardGroup();
+        group.setId(id);
+        group.setName(name);
+        group.setDescription(description);
+        group.setPublic(isPublic);
+        group.setUpdatedAt(updatedAt);
+        if (flashcards != null) {
+            group.setFlashcards(flashcards);
+        }
+        return group;
+    }
+
+    private static List<Flashcard> readFlashcards(JsonReader reader) throws IOException {
+        List<Flashcard> flashcards = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String term = null;
+            String definition = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "term":
+                        term = reader.nextString();
+                        break;
+                    case "definition":
+                        definition = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            Flashcard flashcard = new Flashcard();
+            flashcard.setTerm(term);
+            flashcard.setDefinition(definition);
+            flashcards.add(flashcard);
+        }
+        reader.endArray();
+
+        return flashcards;
+    }
+
+    /**
+     * Read a reading with its embedded questions
+     */
+    public static Reading readReading(JsonReader reader) throws IOException {
+        Reading reading = new Reading();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+                case "id":
+                    reading.setId(nextStringOrEmpty(reader));
+                    break;
+                case "title":
+                    reading.setTitle(nextStringOrEmpty(reader));
+                    break;
+                case "description":
+                    reading.setDescription(nextStringOrEmpty(reader));
+                    break;
+                case "content":
+                    reading.setContent(nextStringOrEmpty(reader));
+                    break;
+                case "imageUrl":
+                    reading.setImageUrl(nextStringOrEmpty(reader));
+                    break;
+                case "userId":
+                    reading.setUserId(nextStringOrEmpty(reader));
+                    break;
+                case "createdAt":
+                    reading.setCreatedAt(parseDate(nextStringOrEmpty(reader)));
+                    break;
+                case "updatedAt":
+                    reading.setUpdatedAt(parseDate(nextStringOrEmpty(reader)));
+                    break;
+                case "questions":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        reading.setQuestions(readReadingQuestions(reader));
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // Match the previous parser, which defaulted every missing field to an empty string
+        if (reading.getId() == null) reading.setId("");
+        if (reading.getTitle() == null) reading.setTitle("");
+        if (reading.getDescription() == null) reading.setDescription("");
+        if (reading.getContent() == null) reading.setContent("");
+        if (reading.getImageUrl() == null) reading.setImageUrl("");
+        if (reading.getUserId() == null) reading.setUserId("");
+
+        return reading;
+    }
+
+    private static List<ReadingQuestion> readReadingQuestions(JsonReader reader) throws IOException {
+        List<ReadingQuestion> questions = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            questions.add(readReadingQuestion(reader));
+        }
+        reader.endArray();
+
+        return questions;
+    }
+
+    private static ReadingQuestion readReadingQuestion(JsonReader reader) throws IOException {
+        String id = "";
+        String questionText = "";
+        int questionType = 0;
+        String optionA = "";
+        String optionB = "";
+        String optionC = "";
+        String optionD = "";
+        String correctOption = "";
+        String answer = "";
+
+        // Fields can arrive in any order, so collect them before applying the type rules
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+                case "id":
+                    id = nextStringOrEmpty(reader);
+                    break;
+                case "questionText":
+                    questionText = nextStringOrEmpty(reader);
+                    break;
+                case "questionType":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        questionType = reader.nextInt();
+                    }
+                    break;
+                case "optionA":
+                    optionA = nextStringOrEmpty(reader);
+                    break;
+                case "optionB":
+                    optionB = nextStringOrEmpty(reader);
+                    break;
+                case "optionC":
+                    optionC = nextStringOrEmpty(reader);
+                    break;
+                case "optionD":
+                    optionD = nextStringOrEmpty(reader);
+                    break;
+                case "correctOption":
+                    correctOption = nextStringOrEmpty(reader);
+                    break;
+                case "answer":
+                    answer = nextStringOrEmpty(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        ReadingQuestion question = new ReadingQuestion();
+        question.setId(id);
+        question.setQuestionText(questionText);
+        question.setQuestionType(questionType);
+
+        // Parse single choice options
+        if (questionType == ReadingQuestion.TYPE_SINGLE_CHOICE) {
+            question.setOptionA(optionA);
+            question.setOptionB(optionB);
+            question.setOptionC(optionC);
+            question.setOptionD(optionD);
+            question.setCorrectOption(correctOption);
+        }
+
+        // Parse fill in the blank answer
+        if (questionType == ReadingQuestion.TYPE_FILL_IN_BLANK) {
+            question.setAnswer(answer);
+        }
+
+        return question;
+    }
+
+    /**
+     * Parse an ISO 8601 date, e.g. 2024-05-01T10:15:30.1234567Z
+     * @return Date, or null if the value is empty or not a date
+     */
+    public static Date parseDate(String value) {
+        Matcher matcher = ISO_DATE.matcher(value != null ? value.trim() : "");
+        if (!matcher.matches()) {
+            return null;
+        }
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        calendar.clear();
+        calendar.set(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)) - 1,
+                Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)),
+                Integer.parseInt(matcher.group(5)), Integer.parseInt(matcher.group(6)));
+        String fraction = matcher.group(7);
+        if (fraction != null) {
+            calendar.set(Calendar.MILLISECOND, Integer.parseInt((fraction + "00").substring(0, 3)));
+        }
+        long time = calendar.getTimeInMillis();
+        String zone = matcher.group(8);
+        if (zone != null && !zone.equals("Z")) {
+            String digits = zone.replace(":", "");
+            int minutes = Integer.parseInt(digits.substring(1, 3)) * 60 + Integer.parseInt(digits.substring(3, 5));
+            time -= (zone.charAt(0) == '-' ? -minutes : minutes) * 60 * 1000L;
+        }
+        return new Date(time);
+    }
+
+    /**
+     * Format a date as ISO 8601 in UTC with milliseconds, read back by parseDate
+     */
+    public static String formatDate(Date date) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        calendar.setTime(date);
+        return String.format(Locale.ROOT, "%04d-%02d-%02dT%02d:%02d:%02d.%03dZ",
+                calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+                calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND),
+                calendar.get(Calendar.MILLISECOND));
+    }
+
+    private static String nextStringOrEmpty(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return "";
+        }
+        return reader.nextString();
+    }
+}
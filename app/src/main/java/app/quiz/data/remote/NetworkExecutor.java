@@ -0,0 +1,248 @@
+package app.quiz.data.remote;
+
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App-wide executor for network work
+ * Runs on a fixed number of threads so bursts of requests queue up instead of spawning threads.
+ * Queued tasks are ordered by priority, then by submission order within the same priority.
+ * Tasks can also be queued after a delay (executeLater), e.g. a retry after its backoff, without
+ * holding a thread while they wait.
+ */
+public class NetworkExecutor implements Executor {
+    private static final String TAG = "NetworkExecutor";
+    private static final int MAX_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Task priority, highest first
+     */
+    public enum Priority {
+        USER_VISIBLE, // Result is waited on by the screen the user is looking at
+        PREFETCH      // Speculative work such as loading the next page or refreshing caches
+    }
+
+    /**
+     * Instrumentation hook for observing executor load
+     */
+    public interface Monitor {
+        void onThreadCreated(int poolSize);
+        void onTaskQueued(Priority priority, int queueDepth);
+        void onTaskFinished(int activeCount, int queueDepth);
+    }
+
+    private final ThreadPoolExecutor threadPool;
+    // Only moves delayed tasks into the queue, they run on the pool
+    private final ScheduledExecutorService delayScheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "network-delay");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile Monitor monitor;
+
+    // Singleton instance
+    private static NetworkExecutor instance;
+
+    private NetworkExecutor() {
+        threadPool = new ThreadPoolExecutor(
+                MAX_THREADS,
+                MAX_THREADS,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                new NetworkThreadFactory());
+        threadPool.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized NetworkExecutor getInstance() {
+        if (instance == null) {
+            instance = new NetworkExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Execute a user-visible task
+     */
+    @Override
+    public void execute(Runnable task) {
+        execute(Priority.USER_VISIBLE, task);
+    }
+
+    /**
+     * Execute a task with the given priority
+     * @param priority Task priority
+     * @param task Task to run
+     */
+    public void execute(Priority priority, Runnable task) {
+        execute(priority, null, task);
+    }
+
+    /**
+     * Execute a cancellable task with the given priority
+     * Cancelling the handle removes the task if it has not started yet. While it runs, the handle
+     * is the current one for HttpTransport so that cancelling also aborts its connection.
+     * @param priority Task priority
+     * @param handle Handle for the call the task performs (optional)
+     * @param task Task to run
+     */
+    public void execute(Priority priority, RequestHandle handle, Runnable task) {
+        PrioritizedTask prioritizedTask = new PrioritizedTask(priority, sequence.getAndIncrement(), handle, task);
+        threadPool.execute(prioritizedTask);
+        if (handle != null) {
+            handle.onCancel(() -> threadPool.remove(prioritizedTask));
+        }
+
+        Monitor currentMonitor = monitor;
+        if (currentMonitor != null) {
+            currentMonitor.onTaskQueued(priority, getQueueDepth());
+        }
+    }
+
+    /**
+     * Queue a cancellable task once a delay has passed
+     * No thread is held while waiting. Cancelling the handle drops the task whether it is still
+     * waiting or already queued.
+     * @param priority Task priority
+     * @param handle Handle for the call the task performs (optional)
+     * @param task Task to run
+     * @param delayMillis Delay before the task is queued
+     */
+    public void executeLater(Priority priority, RequestHandle handle, Runnable task, long delayMillis) {
+        ScheduledFuture<?> pending = delayScheduler.schedule(() -> execute(priority, handle, task),
+                delayMillis, TimeUnit.MILLISECONDS);
+        if (handle != null) {
+            handle.onCancel(() -> pending.cancel(false));
+        }
+    }
+
+    /**
+     * Set the instrumentation hook (null to remove)
+     */
+    public void setMonitor(Monitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * @return Number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return threadPool.getQueue().size();
+    }
+
+    /**
+     * @return Number of threads currently running a task
+     */
+    public int getActiveCount() {
+        return threadPool.getActiveCount();
+    }
+
+    /**
+     * @return Number of threads currently in the pool
+     */
+    public int getPoolSize() {
+        return threadPool.getPoolSize();
+    }
+
+    /**
+     * @return Largest number of threads that have ever been in the pool
+     */
+    public int getLargestPoolSize() {
+        return threadPool.getLargestPoolSize();
+    }
+
+    /**
+     * @return Maximum number of threads the pool will create
+     */
+    public int getMaxThreads() {
+        return MAX_THREADS;
+    }
+
+    /**
+     * @return Number of tasks that have finished running
+     */
+    public long getCompletedTaskCount() {
+        return threadPool.getCompletedTaskCount();
+    }
+
+    /**
+     * Runnable wrapper that orders tasks in the queue
+     */
+    private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Priority priority;
+        private final long sequenceNumber;
+        private final RequestHandle handle;
+        private final Runnable task;
+
+        PrioritizedTask(Priority priority, long sequenceNumber, RequestHandle handle, Runnable task) {
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+            this.handle = handle;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (handle != null && handle.isCancelled()) {
+                return;
+            }
+
+            RequestHandle.setCurrent(handle);
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Keep the worker alive; services report errors through their callbacks
+                Log.e(TAG, "Unhandled error in network task: " + e.getMessage(), e);
+            } finally {
+                RequestHandle.setCurrent(null);
+                Monitor currentMonitor = monitor;
+                if (currentMonitor != null) {
+                    // This task still counts as active until it returns
+                    currentMonitor.onTaskFinished(getActiveCount() - 1, getQueueDepth());
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+    /**
+     * Names network threads and runs them below the UI thread priority
+     */
+    private class NetworkThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "network-" + threadCount.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+
+            Monitor currentMonitor = monitor;
+            if (currentMonitor != null) {
+                // The new thread is added to the pool right after the factory returns
+                currentMonitor.onThreadCreated(getPoolSize() + 1);
+            }
+            return thread;
+        }
+    }
+}
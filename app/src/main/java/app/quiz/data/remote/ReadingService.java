@@ -1,47 +1,60 @@
 package app.quiz.data.remote;
 
+import android.content.Context;
+import android.util.JsonReader;
 import android.util.Log;
+import android.util.MalformedJsonException;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.StringReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Locale;
+import java.util.Map;
 
 import app.quiz.data.models.PagedResponse;
 import app.quiz.data.models.Reading;
 import app.quiz.data.models.ReadingCreateDTO;
 import app.quiz.data.models.ReadingQuestion;
 import app.quiz.data.models.ReadingUpdateDto;
-
-import java.io.OutputStream;
+import app.quiz.data.search.OfflineSearchIndex;
+import app.quiz.data.sync.MutationOutbox;
 
 public class ReadingService {
     private static final String TAG = "ReadingService";
-    private static final String BASE_URL = "https://learnlanguage-aggbd0h2h6grc6es.eastasia-01.azurewebsites.net";
     private static final String READING_PAGED_ENDPOINT = "/api/Reading/paged";
-    private static final String READING_DETAIL_ENDPOINT = "/api/Reading";
+    public static final String READING_DETAIL_ENDPOINT = "/api/Reading";
+
+    private static final HttpTransport.BodyParser<PagedResponse<Reading>> PAGED_READINGS_PARSER =
+            JsonStreamParser.pagedParser(JsonStreamParser::readReading);
+    private static final HttpTransport.BodyParser<Reading> READING_PARSER =
+            JsonStreamParser.parser(JsonStreamParser::readReading);
 
-    private static final int TIMEOUT_CONNECT = 10000; // 10 seconds
-    private static final int TIMEOUT_READ = 15000; // 15 seconds
+    private final NetworkExecutor networkExecutor;
+    private final HttpTransport transport;
+    private final OfflineSearchIndex searchIndex;
+    // Queue for writes, set once an activity provides a context
+    private volatile MutationOutbox outbox;
 
-    private final ExecutorService executorService;
+    // Identical concurrent reads share one HTTP exchange
+    private final SingleFlight<ReadingCallback<PagedResponse<Reading>>> publicReadingsFlight = new SingleFlight<>();
+    private final SingleFlight<ReadingCallback<Reading>> readingFlight = new SingleFlight<>();
 
     // Singleton instance
     private static ReadingService instance;
 
     private ReadingService() {
-        executorService = Executors.newCachedThreadPool();
+        networkExecutor = NetworkExecutor.getInstance();
+        transport = HttpTransport.getInstance();
+        searchIndex = OfflineSearchIndex.getInstance();
     }
 
     public static synchronized ReadingService getInstance() {
@@ -51,14 +64,63 @@ public class ReadingService {
         return instance;
     }
 
+    /**
+     * Get the service with writes going through MutationOutbox
+     * Creates, updates and deletes are then kept on disk and sent when the network is available, and
+     * reads show them before they are sent.
+     */
+    public static synchronized ReadingService getInstance(Context context) {
+        ReadingService service = getInstance();
+        if (service.outbox == null) {
+            service.outbox = MutationOutbox.getInstance(context);
+            service.outbox.addListener(service.new OutboxListener());
+        }
+        return service;
+    }
+
+    /**
+     * @return Number of read calls that were served by an identical call already in flight
+     */
+    public long getCoalescedCallCount() {
+        return publicReadingsFlight.getCoalescedCount() + readingFlight.getCoalescedCount();
+    }
+
+    /**
+     * Search the readings loaded so far without the network
+     * Readings opened in this process also match on their content and questions.
+     * @param limit Maximum number of results
+     * @return Matching readings with id, title and description, best match first
+     */
+    public List<Reading> searchOffline(String query, int limit) {
+        List<OfflineSearchIndex.Result> results = searchIndex.search(query, OfflineSearchIndex.Type.READING, limit);
+        List<Reading> readings = new ArrayList<>(results.size());
+        for (OfflineSearchIndex.Result result : results) {
+            Reading reading = new Reading();
+            reading.setId(result.getId());
+            reading.setTitle(result.getTitle());
+            reading.setDescription(result.getDescription());
+            readings.add(reading);
+        }
+        return readings;
+    }
+
     public interface ReadingCallback<T> {
         void onSuccess(T result);
         void onError(String error, int statusCode);
     }
 
-    public void getPublicReadings(int pageNumber, int pageSize, String search,
-                                  ReadingCallback<PagedResponse<Reading>> callback) {
-        executorService.execute(() -> {
+    public RequestHandle getPublicReadings(int pageNumber, int pageSize, String search,
+                                           ReadingCallback<PagedResponse<Reading>> callback) {
+        String flightKey = pageNumber + ":" + Math.min(pageSize, 100) + ":" + (search != null ? search.trim() : "");
+        RequestHandle handle = new RequestHandle();
+        ReadingCallback<PagedResponse<Reading>> guarded = guard(handle, callback);
+        RequestHandle flight = publicReadingsFlight.join(flightKey, guarded);
+        handle.onCancel(() -> publicReadingsFlight.leave(flightKey, guarded));
+        if (flight == null) {
+            return handle;
+        }
+
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, flight, () -> {
             try {
                 StringBuilder queryParams = new StringBuilder();
                 queryParams.append("?pageNumber=").append(pageNumber);
@@ -69,281 +131,478 @@ public class ReadingService {
                 }
 
                 String endpoint = READING_PAGED_ENDPOINT + queryParams.toString();
-                String response = makeGetRequest(endpoint);
-
-                PagedResponse<Reading> pagedResponse = parsePagedReadingResponse(response);
-                callback.onSuccess(pagedResponse);
+                PagedResponse<Reading> pagedResponse = withPendingChanges(makeGetRequest(endpoint, PAGED_READINGS_PARSER),
+                        pageNumber, search);
+                searchIndex.indexReadings(pagedResponse.getItems());
+                publicReadingsFlight.complete(flightKey, flight, waiting -> waiting.onSuccess(pagedResponse));
 
             } catch (ApiException e) {
                 Log.e(TAG, "Get public readings API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                publicReadingsFlight.complete(flightKey, flight, waiting -> waiting.onError(e.getMessage(), e.getStatusCode()));
             } catch (Exception e) {
                 Log.e(TAG, "Get public readings unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                publicReadingsFlight.complete(flightKey, flight, waiting -> waiting.onError("Network error occurred", -1));
             }
         });
+        return handle;
     }
 
-    public void getReadingById(String readingId, ReadingCallback<Reading> callback) {
-        executorService.execute(() -> {
+    /**
+     * Get a page of the readings created or updated since a point in time, for incremental sync
+     * Sent as the updatedSince parameter of the paged endpoint, which servers without it ignore: callers
+     * must check the timestamps of what comes back. Changes not sent yet are not applied.
+     * @param updatedSince Oldest update time to include, null for every reading
+     * @return Handle to cancel the request
+     */
+    public RequestHandle getReadingsChangedSince(Date updatedSince, int pageNumber, int pageSize,
+                                                 ReadingCallback<PagedResponse<Reading>> callback) {
+        RequestHandle handle = new RequestHandle();
+        ReadingCallback<PagedResponse<Reading>> guarded = guard(handle, callback);
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
-                String endpoint = READING_DETAIL_ENDPOINT + "/" + readingId;
-                String response = makeGetRequest(endpoint);
+                StringBuilder queryParams = new StringBuilder();
+                queryParams.append("?pageNumber=").append(pageNumber);
+                queryParams.append("&pageSize=").append(Math.min(pageSize, 100));
+                if (updatedSince != null) {
+                    queryParams.append("&updatedSince=").append(URLEncoder.encode(
+                            JsonStreamParser.formatDate(updatedSince), StandardCharsets.UTF_8.toString()));
+                }
 
-                Reading reading = parseReadingResponse(response);
-                callback.onSuccess(reading);
+                // Not a conditional GET, every watermark is a different URL that would never be asked again
+                PagedResponse<Reading> pagedResponse = makeRequest(READING_PAGED_ENDPOINT + queryParams, "GET", null,
+                        null, PAGED_READINGS_PARSER);
+                searchIndex.indexReadings(pagedResponse.getItems());
+                guarded.onSuccess(pagedResponse);
+
+            } catch (ApiException e) {
+                Log.e(TAG, "Get changed readings API error: " + e.getMessage());
+                guarded.onError(e.getMessage(), e.getStatusCode());
+            } catch (Exception e) {
+                Log.e(TAG, "Get changed readings unexpected error: " + e.getMessage());
+                guarded.onError("Network error occurred", -1);
+            }
+        });
+        return handle;
+    }
+
+    public RequestHandle getReadingById(String id, ReadingCallback<Reading> callback) {
+        RequestHandle handle = new RequestHandle();
+        ReadingCallback<Reading> guarded = guard(handle, callback);
+        String serverId = MutationOutbox.isLocalId(id) && outbox != null ? outbox.getServerId(id) : null;
+        String readingId = serverId != null ? serverId : id;
+        Map<String, Reading> pending = pendingReadings();
+        if (pending.containsKey(readingId)) {
+            // Show the change the user made, it has not reached the server yet
+            Reading reading = pending.get(readingId);
+            if (reading != null) {
+                guarded.onSuccess(reading);
+            } else {
+                guarded.onError("Reading not found", 404);
+            }
+            return handle;
+        }
+        RequestHandle flight = readingFlight.join(readingId, guarded);
+        handle.onCancel(() -> readingFlight.leave(readingId, guarded));
+        if (flight == null) {
+            return handle;
+        }
+
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, flight, () -> {
+            try {
+                String endpoint = READING_DETAIL_ENDPOINT + "/" + readingId;
+                Reading reading = makeGetRequest(endpoint, READING_PARSER);
+                searchIndex.indexReading(reading);
+                readingFlight.complete(readingId, flight, waiting -> waiting.onSuccess(reading));
 
             } catch (ApiException e) {
                 Log.e(TAG, "Get reading by id API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                readingFlight.complete(readingId, flight, waiting -> waiting.onError(e.getMessage(), e.getStatusCode()));
             } catch (Exception e) {
                 Log.e(TAG, "Get reading by id unexpected error: " + e.getMessage());
-                callback.onError("Network error occurred", -1);
+                readingFlight.complete(readingId, flight, waiting -> waiting.onError("Network error occurred", -1));
             }
         });
+        return handle;
     }
 
     // Create reading (Admin only)
-    public void createReading(String authToken, ReadingCreateDTO readingData, ReadingCallback<Reading> callback) {
-        executorService.execute(() -> {
+    public RequestHandle createReading(String authToken, ReadingCreateDTO readingData, ReadingCallback<Reading> callback) {
+        RequestHandle handle = new RequestHandle();
+        ReadingCallback<Reading> guarded = guard(handle, callback);
+        MutationOutbox queue = outbox;
+        if (queue != null) {
+            if (authToken == null || authToken.trim().isEmpty()) {
+                guarded.onError("Authentication token is required", 401);
+            } else if (readingData == null || !readingData.isValid()) {
+                guarded.onError("Invalid reading data", 400);
+            } else {
+                try {
+                    String localId = MutationOutbox.newLocalId();
+                    String requestBody = createReadingRequestBody(readingData).toString();
+                    enqueue(queue, MutationOutbox.Operation.CREATE, localId, "POST", READING_DETAIL_ENDPOINT,
+                            requestBody, null, guarded);
+                } catch (JSONException e) {
+                    guarded.onError("Failed to create reading: " + e.getMessage(), -1);
+                }
+            }
+            return handle;
+        }
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 // Validate input
                 if (authToken == null || authToken.trim().isEmpty()) {
-                    callback.onError("Authentication token is required", 401);
+                    guarded.onError("Authentication token is required", 401);
                     return;
                 }
                 
                 if (readingData == null || !readingData.isValid()) {
-                    callback.onError("Invalid reading data", 400);
+                    guarded.onError("Invalid reading data", 400);
                     return;
                 }
                 
                 JSONObject requestBody = createReadingRequestBody(readingData);
-                String response = makeRequest(READING_DETAIL_ENDPOINT, "POST", authToken, requestBody.toString());
-                Reading reading = parseReadingResponse(response);
-                callback.onSuccess(reading);
+                Reading reading = makeRequest(READING_DETAIL_ENDPOINT, "POST", authToken, requestBody.toString(),
+                        READING_PARSER);
+                searchIndex.indexReading(reading);
+                guarded.onSuccess(reading);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Create reading API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (Exception e) {
                 Log.e(TAG, "Create reading unexpected error: " + e.getMessage());
-                callback.onError("Failed to create reading: " + e.getMessage(), -1);
+                guarded.onError("Failed to create reading: " + e.getMessage(), -1);
             }
         });
+        return handle;
     }
     
     // Update reading (Admin only)
-    public void updateReading(String authToken, ReadingUpdateDto readingData, ReadingCallback<Reading> callback) {
-        executorService.execute(() -> {
+    public RequestHandle updateReading(String authToken, ReadingUpdateDto readingData, ReadingCallback<Reading> callback) {
+        return updateReading(authToken, readingData, null, callback);
+    }
+
+    /**
+     * Update a reading unless it was changed on the server since the given version
+     * @param baseUpdatedAt Last update time of the reading that was edited, null to overwrite regardless
+     */
+    public RequestHandle updateReading(String authToken, ReadingUpdateDto readingData, Date baseUpdatedAt,
+                                       ReadingCallback<Reading> callback) {
+        RequestHandle handle = new RequestHandle();
+        ReadingCallback<Reading> guarded = guard(handle, callback);
+        MutationOutbox queue = outbox;
+        if (queue != null) {
+            if (authToken == null || authToken.trim().isEmpty()) {
+                guarded.onError("Authentication token is required", 401);
+            } else if (readingData == null || !readingData.isValid()) {
+                guarded.onError("Invalid reading data", 400);
+            } else {
+                try {
+                    String requestBody = createUpdateReadingRequestBody(readingData).toString();
+                    enqueue(queue, MutationOutbox.Operation.UPDATE, readingData.getId(), "PUT", READING_DETAIL_ENDPOINT,
+                            requestBody, baseUpdatedAt != null ? MutationOutbox.httpDate(baseUpdatedAt) : null, guarded);
+                } catch (JSONException e) {
+                    guarded.onError("Failed to update reading: " + e.getMessage(), -1);
+                }
+            }
+            return handle;
+        }
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 // Validate input
                 if (authToken == null || authToken.trim().isEmpty()) {
-                    callback.onError("Authentication token is required", 401);
+                    guarded.onError("Authentication token is required", 401);
                     return;
                 }
                 
                 if (readingData == null || !readingData.isValid()) {
-                    callback.onError("Invalid reading data", 400);
+                    guarded.onError("Invalid reading data", 400);
                     return;
                 }
                 
                 JSONObject requestBody = createUpdateReadingRequestBody(readingData);
-                String response = makeRequest(READING_DETAIL_ENDPOINT, "PUT", authToken, requestBody.toString());
-                Reading reading = parseReadingResponse(response);
-                callback.onSuccess(reading);
+                Reading reading = makeRequest(READING_DETAIL_ENDPOINT, "PUT", authToken, requestBody.toString(),
+                        READING_PARSER);
+                searchIndex.indexReading(reading);
+                guarded.onSuccess(reading);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Update reading API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (Exception e) {
                 Log.e(TAG, "Update reading unexpected error: " + e.getMessage());
-                callback.onError("Failed to update reading: " + e.getMessage(), -1);
+                guarded.onError("Failed to update reading: " + e.getMessage(), -1);
             }
         });
+        return handle;
     }
     
     // Delete reading (Admin only)
-    public void deleteReading(String authToken, String id, ReadingCallback<Void> callback) {
-        executorService.execute(() -> {
+    public RequestHandle deleteReading(String authToken, String id, ReadingCallback<Void> callback) {
+        RequestHandle handle = new RequestHandle();
+        ReadingCallback<Void> guarded = guard(handle, callback);
+        MutationOutbox queue = outbox;
+        if (queue != null) {
+            if (authToken == null || authToken.trim().isEmpty()) {
+                guarded.onError("Authentication token is required", 401);
+            } else if (id == null || id.trim().isEmpty()) {
+                guarded.onError("Reading ID is required", 400);
+            } else {
+                searchIndex.remove(OfflineSearchIndex.Type.READING, id);
+                queue.enqueue(MutationOutbox.Entity.READING, MutationOutbox.Operation.DELETE, id, "DELETE",
+                        READING_DETAIL_ENDPOINT + "/" + id, null, null, new MutationOutbox.Listener() {
+                            @Override
+                            public void onApplied(MutationOutbox.Mutation mutation, String responseBody) {
+                                guarded.onSuccess(null);
+                            }
+
+                            @Override
+                            public void onQueued(MutationOutbox.Mutation mutation) {
+                                guarded.onSuccess(null);
+                            }
+
+                            @Override
+                            public void onFailed(MutationOutbox.Mutation mutation, String error, int statusCode) {
+                                guarded.onError(error, statusCode);
+                            }
+                        });
+            }
+            return handle;
+        }
+        networkExecutor.execute(NetworkExecutor.Priority.USER_VISIBLE, handle, () -> {
             try {
                 // Validate input
                 if (authToken == null || authToken.trim().isEmpty()) {
-                    callback.onError("Authentication token is required", 401);
+                    guarded.onError("Authentication token is required", 401);
                     return;
                 }
                 
                 if (id == null || id.trim().isEmpty()) {
-                    callback.onError("Reading ID is required", 400);
+                    guarded.onError("Reading ID is required", 400);
                     return;
                 }
                 
                 String endpoint = READING_DETAIL_ENDPOINT + "/" + id;
                 makeRequest(endpoint, "DELETE", authToken, null);
-                callback.onSuccess(null);
+                searchIndex.remove(OfflineSearchIndex.Type.READING, id);
+                guarded.onSuccess(null);
                 
             } catch (ApiException e) {
                 Log.e(TAG, "Delete reading API error: " + e.getMessage());
-                callback.onError(e.getMessage(), e.getStatusCode());
+                guarded.onError(e.getMessage(), e.getStatusCode());
             } catch (Exception e) {
                 Log.e(TAG, "Delete reading unexpected error: " + e.getMessage());
-                callback.onError("Failed to delete reading: " + e.getMessage(), -1);
+                guarded.onError("Failed to delete reading: " + e.getMessage(), -1);
             }
         });
+        return handle;
     }
 
-    private String makeGetRequest(String endpoint) throws ApiException {
-        return makeRequest(endpoint, "GET", null, null);
+    /**
+     * Queue a create or update, answering with the server's copy when it was sent or the local one
+     * while it is queued
+     */
+    private void enqueue(MutationOutbox queue, MutationOutbox.Operation operation, String id, String method,
+                         String endpoint, String requestBody, String unmodifiedSince, ReadingCallback<Reading> callback) {
+        Reading local = parseReading(requestBody);
+        if (local != null) {
+            local.setId(id);
+            searchIndex.indexReading(local);
+        }
+        queue.enqueue(MutationOutbox.Entity.READING, operation, id, method, endpoint, requestBody, unmodifiedSince,
+                new MutationOutbox.Listener() {
+                    @Override
+                    public void onApplied(MutationOutbox.Mutation mutation, String responseBody) {
+                        Reading applied = responseBody != null ? parseReading(responseBody) : null;
+                        callback.onSuccess(applied != null ? applied : local);
+                    }
+
+                    @Override
+                    public void onQueued(MutationOutbox.Mutation mutation) {
+                        callback.onSuccess(local);
+                    }
+
+                    @Override
+                    public void onFailed(MutationOutbox.Mutation mutation, String error, int statusCode) {
+                        callback.onError(error, statusCode);
+                    }
+                });
     }
 
-    private String makeRequest(String endpoint, String method, String authToken, String requestBody) throws ApiException {
-        HttpURLConnection connection = null;
-        try {
-            URL url = new URL(BASE_URL + endpoint);
-            connection = (HttpURLConnection) url.openConnection();
-
-            connection.setRequestMethod(method);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setConnectTimeout(TIMEOUT_CONNECT);
-            connection.setReadTimeout(TIMEOUT_READ);
+    /**
+     * Latest queued content of every reading with unsent changes, null for a deleted reading
+     */
+    private Map<String, Reading> pendingReadings() {
+        Map<String, Reading> readings = new HashMap<>();
+        MutationOutbox queue = outbox;
+        if (queue == null) {
+            return readings;
+        }
+        for (MutationOutbox.Mutation mutation : queue.getPending(MutationOutbox.Entity.READING)) {
+            Reading reading = mutation.getBody() != null ? parseReading(mutation.getBody()) : null;
+            if (reading != null) {
+                reading.setId(mutation.getEntityId());
+            }
+            readings.put(mutation.getEntityId(), reading);
+        }
+        return readings;
+    }
 
-            if (authToken != null && !authToken.trim().isEmpty()) {
-                connection.setRequestProperty("Authorization", "Bearer " + authToken);
+    /**
+     * Apply unsent changes to a page: created readings first on page 1, updated ones replaced,
+     * deleted ones left out
+     */
+    public PagedResponse<Reading> withPendingChanges(PagedResponse<Reading> page, int pageNumber, String search) {
+        Map<String, Reading> pending = pendingReadings();
+        if (pending.isEmpty() || page.getItems() == null) {
+            return page;
+        }
+        List<Reading> items = new ArrayList<>();
+        String query = search != null ? search.trim().toLowerCase(Locale.ROOT) : "";
+        if (pageNumber == 1) {
+            for (Reading reading : pending.values()) {
+                if (reading != null && MutationOutbox.isLocalId(reading.getId())
+                        && (query.isEmpty() || reading.getTitle().toLowerCase(Locale.ROOT).contains(query))) {
+                    items.add(reading);
+                }
+            }
+        }
+        for (Reading reading : page.getItems()) {
+            if (!pending.containsKey(reading.getId())) {
+                items.add(reading);
+            } else if (pending.get(reading.getId()) != null) {
+                items.add(pending.get(reading.getId()));
             }
+        }
+        return new PagedResponse<>(items, page.getTotalCount(), page.getPageNumber(), page.getPageSize(),
+                page.getTotalPages());
+    }
+
+    private static Reading parseReading(String json) {
+        try {
+            return JsonStreamParser.readReading(new JsonReader(new StringReader(json)));
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unreadable reading: " + e.getMessage());
+            return null;
+        }
+    }
 
-            if (requestBody != null && !requestBody.trim().isEmpty()) {
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setDoOutput(true);
-                connection.getOutputStream().write(requestBody.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Keeps the offline search index in line with the server as queued changes are sent or dropped
+     */
+    private class OutboxListener implements MutationOutbox.Listener {
+        @Override
+        public void onApplied(MutationOutbox.Mutation mutation, String responseBody) {
+            if (mutation.getEntity() != MutationOutbox.Entity.READING) {
+                return;
+            }
+            Reading applied = responseBody != null ? parseReading(responseBody) : null;
+            if (mutation.getOperation() == MutationOutbox.Operation.DELETE || applied != null) {
+                searchIndex.remove(OfflineSearchIndex.Type.READING, mutation.getEntityId());
+            }
+            if (applied != null && !applied.getId().isEmpty()) {
+                searchIndex.indexReading(applied);
             }
+        }
 
-            int statusCode = connection.getResponseCode();
+        @Override
+        public void onQueued(MutationOutbox.Mutation mutation) {
+        }
 
-            BufferedReader reader;
-            if (statusCode >= 200 && statusCode < 300) {
-                reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
-            } else {
-                reader = new BufferedReader(new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8));
+        @Override
+        public void onFailed(MutationOutbox.Mutation mutation, String error, int statusCode) {
+            if (mutation.getEntity() == MutationOutbox.Entity.READING) {
+                searchIndex.remove(OfflineSearchIndex.Type.READING, mutation.getEntityId());
             }
+        }
+    }
 
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+    /**
+     * Wrap a callback so it is delivered at most once and never after the handle is cancelled
+     */
+    private static <T> ReadingCallback<T> guard(RequestHandle handle, ReadingCallback<T> callback) {
+        return new ReadingCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                if (handle.finish()) {
+                    callback.onSuccess(result);
+                }
             }
-            reader.close();
 
-            if (statusCode >= 200 && statusCode < 300) {
-                return response.toString();
+            @Override
+            public void onError(String error, int statusCode) {
+                if (handle.finish()) {
+                    callback.onError(error, statusCode);
+                }
+            }
+        };
+    }
+
+    private <T> T makeGetRequest(String endpoint, HttpTransport.BodyParser<T> parser) throws ApiException {
+        return makeConditionalGetRequest(endpoint, null, parser);
+    }
+
+    private String makeRequest(String endpoint, String method, String authToken, String requestBody) throws ApiException {
+        try {
+            HttpTransport.Response response = transport.execute(method, endpoint, authToken, requestBody);
+
+            if (response.isSuccessful()) {
+                return response.getBody();
             } else {
-                String errorMessage = getErrorMessage(statusCode, response.toString());
-                throw new ApiException(errorMessage, statusCode);
+                String errorMessage = getErrorMessage(response.getStatusCode(), response.getBody());
+                throw new ApiException(errorMessage, response.getStatusCode());
             }
 
         } catch (IOException e) {
             Log.e(TAG, "Network error: " + e.getMessage());
             throw new ApiException("Network connection failed", -1);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
     }
 
-    private String getErrorMessage(int statusCode, String response) {
+    private <T> T makeRequest(String endpoint, String method, String authToken, String requestBody,
+                              HttpTransport.BodyParser<T> parser) throws ApiException {
         try {
-            JSONObject errorJson = new JSONObject(response);
-            return errorJson.optString("message", "An error occurred while loading readings");
-        } catch (JSONException e) {
-            return "An error occurred while loading readings";
+            return transport.execute(method, endpoint, authToken, requestBody, parser);
+
+        } catch (HttpTransport.HttpStatusException e) {
+            String errorMessage = getErrorMessage(e.getStatusCode(), e.getBody());
+            throw new ApiException(errorMessage, e.getStatusCode());
+        } catch (MalformedJsonException e) {
+            Log.e(TAG, "Invalid response format: " + e.getMessage());
+            throw new ApiException("Invalid response format", -1);
+        } catch (IOException e) {
+            Log.e(TAG, "Network error: " + e.getMessage());
+            throw new ApiException("Network connection failed", -1);
         }
     }
 
-    private PagedResponse<Reading> parsePagedReadingResponse(String jsonResponse) throws JSONException {
-        JSONObject responseJson = new JSONObject(jsonResponse);
-
-        PagedResponse<Reading> pagedResponse = new PagedResponse<>();
-        pagedResponse.setTotalCount(responseJson.getInt("totalCount"));
-        pagedResponse.setPageNumber(responseJson.getInt("pageNumber"));
-        pagedResponse.setPageSize(responseJson.getInt("pageSize"));
-        pagedResponse.setTotalPages(responseJson.getInt("totalPages"));
-
-        JSONArray itemsArray = responseJson.getJSONArray("items");
-        List<Reading> readings = new ArrayList<>();
-        for (int i = 0; i < itemsArray.length(); i++) {
-            JSONObject itemJson = itemsArray.getJSONObject(i);
-            Reading reading = new Reading();
-            reading.setId(itemJson.optString("id"));
-            reading.setTitle(itemJson.optString("title"));
-            reading.setDescription(itemJson.optString("description"));
-            reading.setContent(itemJson.optString("content"));
-            reading.setImageUrl(itemJson.optString("imageUrl"));
-            reading.setUserId(itemJson.optString("userId"));
-            
-            // Parse questions
-            JSONArray questionsArray = itemJson.optJSONArray("questions");
-            if (questionsArray != null) {
-                List<ReadingQuestion> questions = new ArrayList<>();
-                for (int j = 0; j < questionsArray.length(); j++) {
-                    JSONObject questionJson = questionsArray.getJSONObject(j);
-                    ReadingQuestion question = parseReadingQuestion(questionJson);
-                    questions.add(question);
-                }
-                reading.setQuestions(questions);
-            }
-            
-            readings.add(reading);
+    /**
+     * Conditional GET, a 304 Not Modified returns the model parsed from the previous full response
+     */
+    private <T> T makeConditionalGetRequest(String endpoint, String authToken,
+                                            HttpTransport.BodyParser<T> parser) throws ApiException {
+        try {
+            return transport.executeConditional(endpoint, authToken, parser);
+
+        } catch (HttpTransport.HttpStatusException e) {
+            String errorMessage = getErrorMessage(e.getStatusCode(), e.getBody());
+            throw new ApiException(errorMessage, e.getStatusCode());
+        } catch (MalformedJsonException e) {
+            Log.e(TAG, "Invalid response format: " + e.getMessage());
+            throw new ApiException("Invalid response format", -1);
+        } catch (IOException e) {
+            Log.e(TAG, "Network error: " + e.getMessage());
+            throw new ApiException("Network connection failed", -1);
         }
-        pagedResponse.setItems(readings);
-        return pagedResponse;
     }
 
-    private Reading parseReadingResponse(String jsonResponse) throws JSONException {
-        JSONObject itemJson = new JSONObject(jsonResponse);
-        Reading reading = new Reading();
-        reading.setId(itemJson.optString("id"));
-        reading.setTitle(itemJson.optString("title"));
-        reading.setDescription(itemJson.optString("description"));
-        reading.setContent(itemJson.optString("content"));
-        reading.setImageUrl(itemJson.optString("imageUrl"));
-        reading.setUserId(itemJson.optString("userId"));
-        
-        // Parse questions
-        JSONArray questionsArray = itemJson.optJSONArray("questions");
-        if (questionsArray != null) {
-            List<ReadingQuestion> questions = new ArrayList<>();
-            for (int i = 0; i < questionsArray.length(); i++) {
-                JSONObject questionJson = questionsArray.getJSONObject(i);
-                ReadingQuestion question = parseReadingQuestion(questionJson);
-                questions.add(question);
-            }
-            reading.setQuestions(questions);
-        }
-        
-        return reading;
-    }
-    
-    private ReadingQuestion parseReadingQuestion(JSONObject questionJson) throws JSONException {
-        ReadingQuestion question = new ReadingQuestion();
-        question.setId(questionJson.optString("id"));
-        question.setQuestionText(questionJson.optString("questionText"));
-        question.setQuestionType(questionJson.optInt("questionType"));
-        
-        // Parse single choice options
-        if (question.getQuestionType() == ReadingQuestion.TYPE_SINGLE_CHOICE) {
-            question.setOptionA(questionJson.optString("optionA"));
-            question.setOptionB(questionJson.optString("optionB"));
-            question.setOptionC(questionJson.optString("optionC"));
-            question.setOptionD(questionJson.optString("optionD"));
-            question.setCorrectOption(questionJson.optString("correctOption"));
-        }
-        
-        // Parse fill in the blank answer
-        if (question.getQuestionType() == ReadingQuestion.TYPE_FILL_IN_BLANK) {
-            question.setAnswer(questionJson.optString("answer"));
+    private String getErrorMessage(int statusCode, String response) {
+        try {
+            JSONObject errorJson = new JSONObject(response);
+            return errorJson.optString("message", "An error occurred while loading readings");
+        } catch (JSONException e) {
+            return "An error occurred while loading readings";
         }
-        
-        return question;
     }
 
     // JSON request body creation methods
@@ -0,0 +1,122 @@
+package app.quiz.data.remote;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handle returned by service calls to cancel them
+ * Cancelling drops the task if it is still queued, aborts its connection if it is running,
+ * and suppresses the callback. A handle is finished once its callback has been delivered.
+ */
+public class RequestHandle {
+    // Handle of the task running on the current network thread
+    private static final ThreadLocal<RequestHandle> CURRENT = new ThreadLocal<>();
+
+    private boolean cancelled;
+    private boolean finished;
+    private HttpURLConnection connection;
+    private List<Runnable> cancelActions;
+
+    /**
+     * Cancel the call, safe to call more than once and after the call has finished
+     */
+    public void cancel() {
+        HttpURLConnection activeConnection;
+        List<Runnable> actions;
+        synchronized (this) {
+            if (cancelled || finished) {
+                return;
+            }
+            cancelled = true;
+            activeConnection = connection;
+            connection = null;
+            actions = cancelActions;
+            cancelActions = null;
+        }
+
+        if (activeConnection != null) {
+            // Makes the blocked read on the network thread fail right away
+            activeConnection.disconnect();
+        }
+        if (actions != null) {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Run an action when this handle is cancelled, immediately if it already is
+     * Used to cancel dependent handles together with this one.
+     */
+    public void onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                if (!finished) {
+                    if (cancelActions == null) {
+                        cancelActions = new ArrayList<>(1);
+                    }
+                    cancelActions.add(action);
+                }
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Mark the callback as delivered
+     * @return true if the callback should be delivered, false if the call was cancelled or already finished
+     */
+    public synchronized boolean finish() {
+        if (cancelled || finished) {
+            return false;
+        }
+        finished = true;
+        connection = null;
+        cancelActions = null;
+        return true;
+    }
+
+    /**
+     * Register the connection of the running request so cancel can abort it
+     * @return false if the handle is already cancelled and the request should not be sent
+     */
+    synchronized boolean attach(HttpURLConnection connection) {
+        if (cancelled) {
+            return false;
+        }
+        this.connection = connection;
+        return true;
+    }
+
+    synchronized void detach(HttpURLConnection connection) {
+        if (this.connection == connection) {
+            this.connection = null;
+        }
+    }
+
+    /**
+     * @return Handle of the task running on this thread, or null outside a cancellable task
+     */
+    static RequestHandle current() {
+        return CURRENT.get();
+    }
+
+    static void setCurrent(RequestHandle handle) {
+        if (handle != null) {
+            CURRENT.set(handle);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package app.quiz.data.remote;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Deduplicates identical in-flight calls
+ * The first caller for a key becomes the leader and performs the call. Callers that arrive with the
+ * same key before it completes only register their callback and receive the leader's result.
+ * The shared call is only cancelled once every caller waiting on it has left.
+ * @param <C> Callback type notified when the call completes
+ */
+public class SingleFlight<C> {
+    private static final String TAG = "SingleFlight";
+
+    private final Map<String, Flight<C>> inFlight = new HashMap<>();
+    private long coalescedCount;
+
+    private static class Flight<C> {
+        final List<C> waiting = new ArrayList<>(1);
+        final RequestHandle handle = new RequestHandle();
+    }
+
+    /**
+     * Register a callback for a call
+     * @param key Identifies the call, e.g. its endpoint and parameters
+     * @param callback Callback to notify when the call completes
+     * @return Handle to run the call with if the caller is the leader and must perform it,
+     *         null if an identical call is already in flight
+     */
+    public synchronized RequestHandle join(String key, C callback) {
+        Flight<C> flight = inFlight.get(key);
+        if (flight != null) {
+            flight.waiting.add(callback);
+            coalescedCount++;
+            return null;
+        }
+
+        flight = new Flight<>();
+        flight.waiting.add(callback);
+        inFlight.put(key, flight);
+        return flight.handle;
+    }
+
+    /**
+     * Stop waiting for a call, e.g. because the caller was cancelled
+     * The call itself is cancelled when no callers are left.
+     */
+    public void leave(String key, C callback) {
+        RequestHandle abandoned = null;
+        synchronized (this) {
+            Flight<C> flight = inFlight.get(key);
+            if (flight != null && flight.waiting.remove(callback) && flight.waiting.isEmpty()) {
+                inFlight.remove(key);
+                abandoned = flight.handle;
+            }
+        }
+        if (abandoned != null) {
+            abandoned.cancel();
+        }
+    }
+
+    /**
+     * Finish a call and notify every registered callback
+     * Later calls with the same key start a new flight
+     * @param key Key passed to join
+     * @param handle Handle returned to the leader by join
+     * @param notifier Delivers the result to one callback
+     */
+    public void complete(String key, RequestHandle handle, Consumer<C> notifier) {
+        Flight<C> flight;
+        synchronized (this) {
+            flight = inFlight.get(key);
+            if (flight == null || flight.handle != handle) {
+                // Abandoned by all callers, possibly replaced by a newer flight for the same key
+                return;
+            }
+            inFlight.remove(key);
+        }
+
+        for (C callback : flight.waiting) {
+            try {
+                notifier.accept(callback);
+            } catch (RuntimeException e) {
+                // One failing callback must not keep the result from the others
+                Log.e(TAG, "Callback for " + key + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Number of calls that joined an in-flight call instead of starting their own
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * @return Number of distinct calls currently in flight
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,748 @@
+package app.quiz.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import app.quiz.data.cache.DiskLruCache;
+import app.quiz.data.cache.FlashcardCacheCodec;
+import app.quiz.data.cache.FlashcardGroupCache;
+import app.quiz.data.models.Flashcard;
+import app.quiz.data.models.FlashcardGroup;
+import app.quiz.data.models.PagedResponse;
+import app.quiz.data.remote.FlashcardDelta;
+import app.quiz.data.remote.FlashcardService;
+import app.quiz.data.remote.NetworkExecutor;
+import app.quiz.data.remote.RequestHandle;
+import app.quiz.data.search.OfflineSearchIndex;
+import app.quiz.data.sync.MutationOutbox;
+
+/**
+ * Entry point for flashcard data used by the activities
+ * Flashcard sets fetched in this process are kept in memory and never re-fetched until they are
+ * updated or deleted. Sets and list pages are also kept on disk: cached results are returned
+ * immediately and, once older than REVALIDATE_AFTER, refreshed in the background for next time
+ * (stale-while-revalidate). Without a cached copy the request goes straight to FlashcardService.
+ * A cached page listing a set updated or deleted since the page was stored is not used, so it cannot
+ * show the set as it was, e.g. after it was made private.
+ * Every set that passes through the repository is added to OfflineSearchIndex for searchOffline.
+ * Creates, updates and deletes go through MutationOutbox and are applied to the cached copies right
+ * away, so they show up (and survive restarts) while offline and are sent when the network returns.
+ * Sets created offline carry a local id until the server assigns one.
+ * An update of a set whose server version is known sends only the cards that changed (FlashcardDelta),
+ * with the whole set as a fallback for servers without partial updates.
+ */
+public class FlashcardRepository {
+    private static final String TAG = "FlashcardRepository";
+    private static final String CACHE_DIRECTORY = "flashcard-cache";
+    private static final long DEFAULT_MAX_CACHE_BYTES = 10 * 1024 * 1024; // 10 MB
+    private static final long REVALIDATE_AFTER = 60 * 1000; // 1 minute
+    private static final int MAX_MEMORY_FLASHCARDS = 5000;
+    // Sets whose server version is remembered for partial updates
+    private static final int MAX_SYNCED_GROUPS = 16;
+
+    private static final String GROUP_KEY_PREFIX = "group:";
+    private static final String PUBLIC_PAGE_KEY_PREFIX = "public:";
+
+    private final FlashcardService flashcardService;
+    private final FlashcardGroupCache memoryCache;
+    private final DiskLruCache diskCache;
+    private final ExecutorService diskExecutor;
+    private final OfflineSearchIndex searchIndex;
+    private final MutationOutbox outbox;
+    // Cards of the version last confirmed by the server, by set id, least recently used first
+    private final LinkedHashMap<String, List<Flashcard>> syncedCards = new LinkedHashMap<>(16, 0.75f, true);
+    // When each set was last updated or deleted in this process, used on the disk thread only
+    private final Map<String, Long> changedAt = new HashMap<>();
+
+    // Singleton instance
+    private static FlashcardRepository instance;
+
+    private FlashcardRepository(Context context) {
+        flashcardService = FlashcardService.getInstance();
+        memoryCache = new FlashcardGroupCache(MAX_MEMORY_FLASHCARDS);
+        diskCache = new DiskLruCache(new File(context.getCacheDir(), CACHE_DIRECTORY), DEFAULT_MAX_CACHE_BYTES);
+        diskExecutor = Executors.newSingleThreadExecutor();
+        searchIndex = OfflineSearchIndex.getInstance();
+        outbox = MutationOutbox.getInstance(context);
+        outbox.addListener(new OutboxListener());
+        restorePendingGroups();
+    }
+
+    public static synchronized FlashcardRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new FlashcardRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Change the disk cache byte budget
+     * @param maxBytes Maximum bytes kept on disk
+     */
+    public void setMaxCacheBytes(long maxBytes) {
+        diskExecutor.execute(() -> diskCache.setMaxBytes(maxBytes));
+    }
+
+    /**
+     * Get paged list of public flashcard groups, served from disk when available
+     * @return Handle to cancel the request
+     */
+    public RequestHandle getPublicFlashcards(int pageNumber, int pageSize, String search,
+                                             FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
+        String key = PUBLIC_PAGE_KEY_PREFIX + pageNumber + ":" + pageSize + ":" + (search != null ? search.trim() : "");
+        RequestHandle handle = new RequestHandle();
+        FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>> guarded = guard(handle, callback);
+
+        diskExecutor.execute(() -> {
+            if (handle.isCancelled()) {
+                return;
+            }
+            DiskLruCache.Snapshot snapshot = diskCache.get(key);
+            PagedResponse<FlashcardGroup> cached = null;
+            if (snapshot != null) {
+                try {
+                    cached = FlashcardCacheCodec.decodePage(snapshot.getData());
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Discarding cached page " + key + ": " + e.getMessage());
+                    diskCache.remove(key);
+                }
+            }
+            if (cached != null && listsChangedSet(cached, snapshot.getWrittenAt())) {
+                diskCache.remove(key);
+                cached = null;
+            }
+
+            if (cached != null) {
+                searchIndex.indexFlashcardGroups(cached.getItems());
+                guarded.onSuccess(cached);
+                if (snapshot.getAgeMillis() > REVALIDATE_AFTER) {
+                    fetchPublicFlashcards(key, pageNumber, pageSize, search, NetworkExecutor.Priority.PREFETCH, null);
+                }
+            } else {
+                handle.onCancel(fetchPublicFlashcards(key, pageNumber, pageSize, search,
+                        NetworkExecutor.Priority.USER_VISIBLE, guarded)::cancel);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Get detailed flashcard group with all flashcards
+     * Served from memory, then disk, then the network
+     * @return Handle to cancel the request
+     */
+    public RequestHandle getFlashcardGroupDetails(String groupId, FlashcardService.FlashcardCallback<FlashcardGroup> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardService.FlashcardCallback<FlashcardGroup> guarded = guard(handle, callback);
+
+        String serverId = MutationOutbox.isLocalId(groupId) ? outbox.getServerId(groupId) : null;
+        if (serverId != null) {
+            groupId = serverId;
+        }
+        FlashcardGroup inMemory = memoryCache.get(groupId);
+        if (inMemory != null) {
+            guarded.onSuccess(inMemory);
+            return handle;
+        }
+
+        String id = groupId;
+        String key = GROUP_KEY_PREFIX + id;
+
+        diskExecutor.execute(() -> {
+            if (handle.isCancelled()) {
+                return;
+            }
+            DiskLruCache.Snapshot snapshot = diskCache.get(key);
+            FlashcardGroup cached = null;
+            if (snapshot != null) {
+                try {
+                    cached = FlashcardCacheCodec.decodeGroup(snapshot.getData());
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Discarding cached group " + id + ": " + e.getMessage());
+                    diskCache.remove(key);
+                }
+            }
+
+            if (cached != null) {
+                memoryCache.put(cached);
+                searchIndex.indexFlashcardGroup(cached);
+                guarded.onSuccess(cached);
+                if (snapshot.getAgeMillis() > REVALIDATE_AFTER) {
+                    fetchFlashcardGroupDetails(id, NetworkExecutor.Priority.PREFETCH, null);
+                }
+            } else {
+                handle.onCancel(fetchFlashcardGroupDetails(id, NetworkExecutor.Priority.USER_VISIBLE, guarded)::cancel);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * @return Group held in memory, or null if it has not been loaded in this process
+     */
+    public FlashcardGroup getCachedGroup(String groupId) {
+        return memoryCache.get(groupId);
+    }
+
+    /**
+     * @return In-memory group cache, for its hit/miss/eviction counters
+     */
+    public FlashcardGroupCache getMemoryCache() {
+        return memoryCache;
+    }
+
+    /**
+     * Get paged list of the user's own flashcard groups (always from the network)
+     * Changes not sent yet are applied to the page: created sets come first on page 1, updated sets
+     * show their new content and deleted sets are left out. Offline, page 1 lists the created sets.
+     * @return Handle to cancel the request
+     */
+    public RequestHandle getUserFlashcards(String authToken, int pageNumber, int pageSize, String search,
+                                           FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
+        return flashcardService.getUserFlashcards(authToken, pageNumber, pageSize, search,
+                new FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>>() {
+                    @Override
+                    public void onSuccess(PagedResponse<FlashcardGroup> result) {
+                        searchIndex.indexFlashcardGroups(result.getItems());
+                        callback.onSuccess(withPendingChanges(result, pageNumber, search));
+                    }
+
+                    @Override
+                    public void onError(String error, int statusCode) {
+                        List<FlashcardGroup> created = pageNumber == 1 ? pendingCreates(search) : new ArrayList<>();
+                        if (statusCode == -1 && !created.isEmpty()) {
+                            callback.onSuccess(new PagedResponse<>(created, created.size(), 1, pageSize, 1));
+                        } else {
+                            callback.onError(error, statusCode);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Search every flashcard set loaded so far without the network
+     * Matches names, descriptions and, for sets opened in this process, card terms and definitions.
+     * @param publicOnly Whether to leave out private sets, for the list of public sets
+     * @param limit Maximum number of results
+     * @return Matching sets, best match first. Sets no longer held in memory come without their cards.
+     */
+    public List<FlashcardGroup> searchOffline(String query, boolean publicOnly, int limit) {
+        List<OfflineSearchIndex.Result> results = searchIndex.search(query, OfflineSearchIndex.Type.FLASHCARD_GROUP,
+                publicOnly, limit);
+        List<FlashcardGroup> groups = new ArrayList<>(results.size());
+        for (OfflineSearchIndex.Result result : results) {
+            FlashcardGroup group = memoryCache.get(result.getId());
+            groups.add(group != null ? group
+                    : new FlashcardGroup(result.getId(), result.getTitle(), result.getDescription(), result.isPublic()));
+        }
+        return groups;
+    }
+
+    /**
+     * Create a flashcard group
+     * The set is cached under a local id and queued in the outbox. The callback gets the set
+     * returned by the server, or the local copy if it cannot be sent now.
+     * @return Handle to cancel the callback, the set is created regardless
+     */
+    public RequestHandle createFlashcard(String authToken, String name, String description, boolean isPublic,
+                                         List<Flashcard> flashcards, FlashcardService.FlashcardCallback<FlashcardGroup> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardService.FlashcardCallback<FlashcardGroup> guarded = guard(handle, callback);
+        String localId = MutationOutbox.newLocalId();
+        String requestBody = validRequestBody(authToken, localId, null, name, description, isPublic, flashcards, guarded);
+        if (requestBody == null) {
+            return handle;
+        }
+
+        FlashcardGroup group = new FlashcardGroup(localId, name.trim(), description != null ? description.trim() : "",
+                isPublic, flashcards);
+        storeGroup(group);
+        outbox.enqueue(MutationOutbox.Entity.FLASHCARD_GROUP, MutationOutbox.Operation.CREATE, localId, "POST",
+                FlashcardService.FLASHCARD_DETAIL_ENDPOINT, requestBody, null, groupWaiter(group, guarded));
+        return handle;
+    }
+
+    /**
+     * Update a flashcard group
+     * The cached copy is replaced right away and the update queued in the outbox.
+     * @return Handle to cancel the callback, the set is updated regardless
+     */
+    public RequestHandle updateFlashcard(String authToken, String groupId, String name, String description, boolean isPublic,
+                                         List<Flashcard> flashcards, FlashcardService.FlashcardCallback<FlashcardGroup> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardService.FlashcardCallback<FlashcardGroup> guarded = guard(handle, callback);
+        if (groupId == null || groupId.trim().isEmpty()) {
+            guarded.onError("Flashcard group ID is required", 400);
+            return handle;
+        }
+        String requestBody = validRequestBody(authToken, groupId, groupId, name, description, isPublic, flashcards, guarded);
+        if (requestBody == null) {
+            return handle;
+        }
+
+        FlashcardGroup group = new FlashcardGroup(groupId, name.trim(), description != null ? description.trim() : "",
+                isPublic, flashcards);
+        // The edited copy stays based on the server version that was loaded, for the next edit too
+        Date baseUpdatedAt = baseUpdatedAt(groupId);
+        group.setUpdatedAt(baseUpdatedAt);
+        String unmodifiedSince = baseUpdatedAt != null ? MutationOutbox.httpDate(baseUpdatedAt) : null;
+        String deltaBody = deltaRequestBody(groupId, name, description, isPublic, flashcards);
+        storeGroup(group);
+        markChanged(groupId);
+        if (deltaBody != null) {
+            outbox.enqueuePartial(MutationOutbox.Entity.FLASHCARD_GROUP, groupId, "PATCH",
+                    FlashcardService.FLASHCARD_DETAIL_ENDPOINT + "/" + groupId, deltaBody,
+                    "PUT", FlashcardService.FLASHCARD_DETAIL_ENDPOINT, requestBody, unmodifiedSince,
+                    groupWaiter(group, guarded));
+        } else {
+            outbox.enqueue(MutationOutbox.Entity.FLASHCARD_GROUP, MutationOutbox.Operation.UPDATE, groupId, "PUT",
+                    FlashcardService.FLASHCARD_DETAIL_ENDPOINT, requestBody, unmodifiedSince, groupWaiter(group, guarded));
+        }
+        return handle;
+    }
+
+    /**
+     * Delete a flashcard group
+     * The cached copy is dropped right away and the delete queued in the outbox.
+     * @return Handle to cancel the callback, the set is deleted regardless
+     */
+    public RequestHandle deleteFlashcard(String authToken, String groupId, FlashcardService.FlashcardCallback<Void> callback) {
+        RequestHandle handle = new RequestHandle();
+        FlashcardService.FlashcardCallback<Void> guarded = guard(handle, callback);
+        if (authToken == null || authToken.trim().isEmpty()) {
+            guarded.onError("Authentication required", 401);
+            return handle;
+        }
+        if (groupId == null || groupId.trim().isEmpty()) {
+            guarded.onError("Flashcard group ID is required", 400);
+            return handle;
+        }
+
+        Date baseUpdatedAt = baseUpdatedAt(groupId);
+        forgetGroup(groupId);
+        markChanged(groupId);
+        outbox.enqueue(MutationOutbox.Entity.FLASHCARD_GROUP, MutationOutbox.Operation.DELETE, groupId, "DELETE",
+                FlashcardService.FLASHCARD_DETAIL_ENDPOINT + "/" + groupId, null,
+                baseUpdatedAt != null ? MutationOutbox.httpDate(baseUpdatedAt) : null, new MutationOutbox.Listener() {
+                    @Override
+                    public void onApplied(MutationOutbox.Mutation mutation, String responseBody) {
+                        guarded.onSuccess(null);
+                    }
+
+                    @Override
+                    public void onQueued(MutationOutbox.Mutation mutation) {
+                        guarded.onSuccess(null);
+                    }
+
+                    @Override
+                    public void onFailed(MutationOutbox.Mutation mutation, String error, int statusCode) {
+                        guarded.onError(error, statusCode);
+                    }
+                });
+        return handle;
+    }
+
+    /**
+     * @return Outbox holding flashcard changes not sent yet, for its queue metrics
+     */
+    public MutationOutbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Fetch a page from the network and cache it
+     * @param callback Callback to notify, or null for a silent background refresh
+     * @return Handle of the network request
+     */
+    private RequestHandle fetchPublicFlashcards(String key, int pageNumber, int pageSize, String search,
+                                                NetworkExecutor.Priority priority,
+                                                FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>> callback) {
+        return flashcardService.getPublicFlashcards(pageNumber, pageSize, search, priority,
+                new FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>>() {
+                    @Override
+                    public void onSuccess(PagedResponse<FlashcardGroup> result) {
+                        searchIndex.indexFlashcardGroups(result.getItems());
+                        try {
+                            byte[] data = FlashcardCacheCodec.encodePage(result);
+                            diskExecutor.execute(() -> diskCache.put(key, data));
+                        } catch (IOException e) {
+                            Log.w(TAG, "Failed to cache page " + key + ": " + e.getMessage());
+                        }
+                        if (callback != null) {
+                            callback.onSuccess(result);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String error, int statusCode) {
+                        if (callback != null) {
+                            callback.onError(error, statusCode);
+                        } else {
+                            Log.d(TAG, "Background refresh of " + key + " failed: " + error);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Fetch a group from the network and cache it
+     * @param callback Callback to notify, or null for a silent background refresh
+     * @return Handle of the network request
+     */
+    private RequestHandle fetchFlashcardGroupDetails(String groupId, NetworkExecutor.Priority priority,
+                                                     FlashcardService.FlashcardCallback<FlashcardGroup> callback) {
+        return flashcardService.getFlashcardGroupDetails(groupId, priority,
+                new FlashcardService.FlashcardCallback<FlashcardGroup>() {
+                    @Override
+                    public void onSuccess(FlashcardGroup result) {
+                        storeGroup(result);
+                        rememberSynced(result);
+                        if (callback != null) {
+                            callback.onSuccess(result);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String error, int statusCode) {
+                        if (callback != null) {
+                            callback.onError(error, statusCode);
+                        } else {
+                            Log.d(TAG, "Background refresh of group " + groupId + " failed: " + error);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Wrap a callback so it is delivered at most once and never after the handle is cancelled
+     */
+    private static <T> FlashcardService.FlashcardCallback<T> guard(RequestHandle handle,
+                                                                 FlashcardService.FlashcardCallback<T> callback) {
+        return new FlashcardService.FlashcardCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                if (handle.finish()) {
+                    callback.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void onError(String error, int statusCode) {
+                if (handle.finish()) {
+                    callback.onError(error, statusCode);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Request body, or null after reporting why the input is invalid
+     */
+    private static String validRequestBody(String authToken, String localId, String groupId, String name,
+                                           String description, boolean isPublic, List<Flashcard> flashcards,
+                                           FlashcardService.FlashcardCallback<FlashcardGroup> callback) {
+        if (authToken == null || authToken.trim().isEmpty()) {
+            callback.onError("Authentication required", 401);
+            return null;
+        }
+        String invalid = FlashcardService.validateFlashcard(name, flashcards);
+        if (invalid != null) {
+            callback.onError(invalid, 400);
+            return null;
+        }
+        try {
+            return FlashcardService.createRequestBody(groupId, name, description, isPublic, flashcards);
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to build request for " + localId, e);
+            callback.onError("Invalid flashcard data", 400);
+            return null;
+        }
+    }
+
+    /**
+     * Body of a partial update, or null if the whole set must be sent
+     * Only possible when the server version is known and no other change of the set is queued, since
+     * the delta is computed against that version.
+     */
+    private String deltaRequestBody(String groupId, String name, String description, boolean isPublic,
+                                    List<Flashcard> flashcards) {
+        if (MutationOutbox.isLocalId(groupId)
+                || !outbox.isPartialUpdateSupported(MutationOutbox.Entity.FLASHCARD_GROUP)
+                || outbox.hasPending(MutationOutbox.Entity.FLASHCARD_GROUP, groupId)) {
+            return null;
+        }
+        List<Flashcard> synced;
+        synchronized (syncedCards) {
+            synced = syncedCards.get(groupId);
+        }
+        FlashcardDelta delta = FlashcardDelta.compute(synced, flashcards);
+        if (delta == null) {
+            return null;
+        }
+        try {
+            return delta.createRequestBody(groupId, name, description, isPublic);
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to build partial update for " + groupId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Remember the cards of a set as the server has them, the base of its next partial update
+     */
+    private void rememberSynced(FlashcardGroup group) {
+        if (group.getId() == null || group.getFlashcards() == null) {
+            return;
+        }
+        // Copied, the caller's cards may be edited in place
+        List<Flashcard> cards = new ArrayList<>(group.getFlashcards().size());
+        try {
+            for (Flashcard flashcard : group.getFlashcards()) {
+                cards.add(new Flashcard(flashcard.getTerm(), flashcard.getDefinition()));
+            }
+        } catch (IllegalArgumentException e) {
+            // A blank card from the server, updates of this set are sent whole
+            forgetSynced(group.getId());
+            return;
+        }
+        synchronized (syncedCards) {
+            syncedCards.put(group.getId(), cards);
+            if (syncedCards.size() > MAX_SYNCED_GROUPS) {
+                syncedCards.remove(syncedCards.keySet().iterator().next());
+            }
+        }
+    }
+
+    private void forgetSynced(String groupId) {
+        synchronized (syncedCards) {
+            syncedCards.remove(groupId);
+        }
+    }
+
+    /**
+     * Outbox callback for a create or update, answering with the server's copy when it was sent
+     * @param group Local copy, returned while the change is queued
+     */
+    private static MutationOutbox.Listener groupWaiter(FlashcardGroup group,
+                                                       FlashcardService.FlashcardCallback<FlashcardGroup> callback) {
+        return new MutationOutbox.Listener() {
+            @Override
+            public void onApplied(MutationOutbox.Mutation mutation, String responseBody) {
+                FlashcardGroup applied = responseGroup(mutation, responseBody);
+                callback.onSuccess(applied != null ? applied : group);
+            }
+
+            @Override
+            public void onQueued(MutationOutbox.Mutation mutation) {
+                callback.onSuccess(group);
+            }
+
+            @Override
+            public void onFailed(MutationOutbox.Mutation mutation, String error, int statusCode) {
+                callback.onError(error, statusCode);
+            }
+        };
+    }
+
+    /**
+     * @return Set returned by the server for a create or update, or null if none was returned
+     */
+    private static FlashcardGroup responseGroup(MutationOutbox.Mutation mutation, String responseBody) {
+        if (responseBody == null || responseBody.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return FlashcardService.parseFlashcardGroup(responseBody);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unreadable response for " + mutation.getEntityId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Latest queued content of every set with unsent changes, null for a deleted set
+     */
+    private Map<String, FlashcardGroup> pendingGroups() {
+        Map<String, FlashcardGroup> groups = new HashMap<>();
+        for (MutationOutbox.Mutation mutation : outbox.getPending(MutationOutbox.Entity.FLASHCARD_GROUP)) {
+            groups.put(mutation.getEntityId(), pendingGroup(mutation));
+        }
+        return groups;
+    }
+
+    private static FlashcardGroup pendingGroup(MutationOutbox.Mutation mutation) {
+        if (mutation.getOperation() == MutationOutbox.Operation.DELETE || mutation.getFullBody() == null) {
+            return null;
+        }
+        try {
+            return FlashcardService.parseRequestBody(mutation.getEntityId(), mutation.getFullBody());
+        } catch (JSONException e) {
+            Log.w(TAG, "Unreadable queued change for " + mutation.getEntityId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sets created offline and not sent yet, matching the search if any
+     */
+    private List<FlashcardGroup> pendingCreates(String search) {
+        List<FlashcardGroup> created = new ArrayList<>();
+        String query = search != null ? search.trim().toLowerCase() : "";
+        for (FlashcardGroup group : pendingGroups().values()) {
+            if (group != null && MutationOutbox.isLocalId(group.getId())
+                    && (query.isEmpty() || group.getName().toLowerCase().contains(query))) {
+                created.add(group);
+            }
+        }
+        return created;
+    }
+
+    private PagedResponse<FlashcardGroup> withPendingChanges(PagedResponse<FlashcardGroup> page, int pageNumber,
+                                                             String search) {
+        if (outbox.getQueueDepth() == 0 || page.getItems() == null) {
+            return page;
+        }
+        Map<String, FlashcardGroup> pending = pendingGroups();
+        List<FlashcardGroup> items = pageNumber == 1 ? pendingCreates(search) : new ArrayList<>();
+        for (FlashcardGroup group : page.getItems()) {
+            if (!pending.containsKey(group.getId())) {
+                items.add(group);
+            } else if (pending.get(group.getId()) != null) {
+                items.add(pending.get(group.getId()));
+            }
+        }
+        // A new page, the service's page may be the cached model a later 304 returns again
+        return new PagedResponse<>(items, page.getTotalCount(), page.getPageNumber(), page.getPageSize(),
+                page.getTotalPages());
+    }
+
+    /**
+     * Show changes left in the outbox by an earlier run
+     */
+    private void restorePendingGroups() {
+        for (Map.Entry<String, FlashcardGroup> entry : pendingGroups().entrySet()) {
+            if (entry.getValue() != null) {
+                memoryCache.put(entry.getValue());
+                searchIndex.indexFlashcardGroup(entry.getValue());
+            } else {
+                forgetGroup(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Keeps the caches in line with the server as queued changes are sent or dropped
+     */
+    private class OutboxListener implements MutationOutbox.Listener {
+        @Override
+        public void onApplied(MutationOutbox.Mutation mutation, String responseBody) {
+            if (mutation.getEntity() != MutationOutbox.Entity.FLASHCARD_GROUP) {
+                return;
+            }
+            if (mutation.getOperation() != MutationOutbox.Operation.CREATE) {
+                // A page refreshed since the edit may have cached the old version again
+                markChanged(mutation.getEntityId());
+            }
+            if (mutation.getOperation() == MutationOutbox.Operation.DELETE) {
+                forgetGroup(mutation.getEntityId());
+                forgetSynced(mutation.getEntityId());
+                return;
+            }
+            FlashcardGroup applied = responseGroup(mutation, responseBody);
+            if (applied != null && applied.getId() != null) {
+                if (!applied.getId().equals(mutation.getEntityId())) {
+                    // Created offline, now known under its server id
+                    forgetGroup(mutation.getEntityId());
+                }
+                storeGroup(applied);
+            }
+            if (applied != null && applied.getId() != null && applied.getFlashcards() != null) {
+                rememberSynced(applied);
+            } else if (!MutationOutbox.isLocalId(mutation.getEntityId())) {
+                // The server now holds what was sent
+                FlashcardGroup sent = pendingGroup(mutation);
+                if (sent != null) {
+                    rememberSynced(sent);
+                } else {
+                    forgetSynced(mutation.getEntityId());
+                }
+            }
+        }
+
+        @Override
+        public void onQueued(MutationOutbox.Mutation mutation) {
+        }
+
+        @Override
+        public void onFailed(MutationOutbox.Mutation mutation, String error, int statusCode) {
+            if (mutation.getEntity() == MutationOutbox.Entity.FLASHCARD_GROUP) {
+                // Drop the local copy, the next load gets the server's
+                forgetGroup(mutation.getEntityId());
+                forgetSynced(mutation.getEntityId());
+            }
+        }
+    }
+
+    /**
+     * @return Server update time of the cached version of a set, the version an edit is based on, or
+     *         null to write regardless (not loaded in this process, or the server sent no time)
+     */
+    private Date baseUpdatedAt(String groupId) {
+        FlashcardGroup base = memoryCache.get(groupId);
+        return base != null ? base.getUpdatedAt() : null;
+    }
+
+    private void forgetGroup(String groupId) {
+        memoryCache.invalidate(groupId);
+        searchIndex.remove(OfflineSearchIndex.Type.FLASHCARD_GROUP, groupId);
+        diskExecutor.execute(() -> diskCache.remove(GROUP_KEY_PREFIX + groupId));
+    }
+
+    /**
+     * Make the cached pages listing a set stale, the next load fetches them again
+     */
+    private void markChanged(String groupId) {
+        long now = System.currentTimeMillis();
+        diskExecutor.execute(() -> changedAt.put(groupId, now));
+    }
+
+    /**
+     * @return Whether a page lists a set changed after the page was stored, runs on the disk thread
+     */
+    private boolean listsChangedSet(PagedResponse<FlashcardGroup> page, long writtenAt) {
+        if (page.getItems() == null || changedAt.isEmpty()) {
+            return false;
+        }
+        for (FlashcardGroup group : page.getItems()) {
+            Long changed = changedAt.get(group.getId());
+            if (changed != null && changed >= writtenAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void storeGroup(FlashcardGroup group) {
+        memoryCache.put(group);
+        searchIndex.indexFlashcardGroup(group);
+        try {
+            byte[] data = FlashcardCacheCodec.encodeGroup(group);
+            diskExecutor.execute(() -> diskCache.put(GROUP_KEY_PREFIX + group.getId(), data));
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache group " + group.getId() + ": " + e.getMessage());
+        }
+    }
+}
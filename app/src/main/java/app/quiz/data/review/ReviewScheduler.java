@@ -0,0 +1,710 @@
+package app.quiz.data.review;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import app.quiz.data.models.Flashcard;
+import app.quiz.data.models.TestResult;
+
+/**
+ * Spaced-repetition schedule of the flashcards the user practises (SM-2)
+ * Every answer updates the card's ease, interval and due time: cards answered well come back after
+ * growing intervals, missed and skipped ones within minutes. Cards are then asked most overdue first,
+ * followed by cards never asked and cards due later.
+ * Each group's schedule is held in primitive arrays indexed by slot, with an open-addressing table from
+ * card key to slot and a binary heap of slots ordered by due time, so an answer costs O(log n) and
+ * picking k cards O(k log k) whatever the size of the deck. Schedules are loaded from app storage on
+ * first use and written back in the background after answers.
+ * Cards are keyed by a hash of their term, so editing a definition keeps the card's progress.
+ * Thread-safe.
+ *
+ * File layout per group, big-endian:
+ *   int magic, int count
+ *   long[count] keys, int[count] dueMinutes, int[count] intervalDays
+ *   short[count] eases, short[count] repetitions, short[count] lapses
+ */
+public class ReviewScheduler {
+    private static final String TAG = "ReviewScheduler";
+    private static final String DIRECTORY = "review";
+    private static final int MAGIC = 0x52455631; // "REV1"
+    private static final int HEADER_BYTES = 8;
+    private static final int BYTES_PER_CARD = 8 + 4 + 4 + 2 + 2 + 2;
+
+    // SM-2 ease factor, times 100
+    private static final int INITIAL_EASE = 250;
+    private static final int MIN_EASE = 130;
+    private static final int MAX_INTERVAL_DAYS = 36500;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // A missed card is asked again in the same session or soon after
+    private static final int RELEARN_MINUTES = 10;
+    // Correct answers given this fast are rated easy, slower ones hard
+    private static final long EASY_ANSWER_MS = 8000;
+    private static final long HARD_ANSWER_MS = 20000;
+
+    /**
+     * Schedule of one flashcard group
+     */
+    private static class Schedule {
+        final File file;
+        int size;
+        long[] keys;
+        int[] dueMinutes;
+        int[] intervalDays;
+        short[] eases;
+        short[] repetitions;
+        short[] lapses;
+        // Min-heap of slots by due time, and the heap position of every slot
+        int[] heap;
+        int[] heapPositions;
+        // Open addressing with linear probing, slot + 1 or 0 for empty
+        int[] table;
+        // Not saved: position of each slot's card in the deck of the last selection, valid if stamped with it
+        int[] deckIndexes;
+        int[] deckStamps;
+        int deckStamp;
+        boolean savePending;
+
+        Schedule(File file, int capacity) {
+            this.file = file;
+            capacity = Math.max(16, capacity);
+            keys = new long[capacity];
+            dueMinutes = new int[capacity];
+            intervalDays = new int[capacity];
+            eases = new short[capacity];
+            repetitions = new short[capacity];
+            lapses = new short[capacity];
+            heap = new int[capacity];
+            heapPositions = new int[capacity];
+            deckIndexes = new int[capacity];
+            deckStamps = new int[capacity];
+            table = new int[tableCapacity(capacity)];
+        }
+
+        int find(long key) {
+            int mask = table.length - 1;
+            for (int i = (int) mix(key) & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (keys[table[i] - 1] == key) {
+                    return table[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        int add(long key, int due) {
+            if (size == keys.length) {
+                grow(size * 2);
+            }
+            int slot = size++;
+            keys[slot] = key;
+            dueMinutes[slot] = due;
+            intervalDays[slot] = 0;
+            eases[slot] = INITIAL_EASE;
+            repetitions[slot] = 0;
+            lapses[slot] = 0;
+            deckStamps[slot] = 0;
+            insertIntoTable(slot);
+            heap[slot] = slot;
+            heapPositions[slot] = slot;
+            siftUp(slot);
+            return slot;
+        }
+
+        /**
+         * Remove a card, the last slot takes its place
+         */
+        void remove(int slot) {
+            // Out of the heap, the last heap entry takes the freed position
+            int position = heapPositions[slot];
+            int lastInHeap = heap[--size];
+            if (position < size) {
+                heap[position] = lastInHeap;
+                heapPositions[lastInHeap] = position;
+                updated(lastInHeap);
+            }
+
+            removeFromTable(keys[slot]);
+
+            int lastSlot = size;
+            if (slot != lastSlot) {
+                keys[slot] = keys[lastSlot];
+                dueMinutes[slot] = dueMinutes[lastSlot];
+                intervalDays[slot] = intervalDays[lastSlot];
+                eases[slot] = eases[lastSlot];
+                repetitions[slot] = repetitions[lastSlot];
+                lapses[slot] = lapses[lastSlot];
+                deckIndexes[slot] = deckIndexes[lastSlot];
+                deckStamps[slot] = deckStamps[lastSlot];
+                table[tablePositionOf(keys[slot])] = slot + 1;
+                heapPositions[slot] = heapPositions[lastSlot];
+                heap[heapPositions[slot]] = slot;
+                // Slots break ties in due time, so the renumbered one may have to move
+                updated(slot);
+            }
+        }
+
+        /**
+         * Restore the heap order after the due time of a slot changed
+         */
+        void updated(int slot) {
+            siftUp(heapPositions[slot]);
+            siftDown(heapPositions[slot]);
+        }
+
+        void heapify() {
+            for (int i = 0; i < size; i++) {
+                heap[i] = i;
+                heapPositions[i] = i;
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        boolean before(int slotA, int slotB) {
+            return dueMinutes[slotA] < dueMinutes[slotB]
+                    || (dueMinutes[slotA] == dueMinutes[slotB] && slotA < slotB);
+        }
+
+        private void siftUp(int position) {
+            int slot = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (!before(slot, heap[parent])) {
+                    break;
+                }
+                heap[position] = heap[parent];
+                heapPositions[heap[position]] = position;
+                position = parent;
+            }
+            heap[position] = slot;
+            heapPositions[slot] = position;
+        }
+
+        private void siftDown(int position) {
+            int slot = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], slot)) {
+                    break;
+                }
+                heap[position] = heap[child];
+                heapPositions[heap[position]] = position;
+                position = child;
+            }
+            heap[position] = slot;
+            heapPositions[slot] = position;
+        }
+
+        private void insertIntoTable(int slot) {
+            int mask = table.length - 1;
+            int i = (int) mix(keys[slot]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = slot + 1;
+        }
+
+        private int tablePositionOf(long key) {
+            int mask = table.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[table[i] - 1] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * Delete with backward shift, so lookups never need tombstones
+         */
+        private void removeFromTable(long key) {
+            int mask = table.length - 1;
+            int hole = tablePositionOf(key);
+            table[hole] = 0;
+            for (int i = (hole + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int home = (int) mix(keys[table[i] - 1]) & mask;
+                // The entry may move into the hole unless its home lies cyclically in (hole, i]
+                boolean homeBetween = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+                if (!homeBetween) {
+                    table[hole] = table[i];
+                    table[i] = 0;
+                    hole = i;
+                }
+            }
+        }
+
+        private void grow(int capacity) {
+            keys = Arrays.copyOf(keys, capacity);
+            dueMinutes = Arrays.copyOf(dueMinutes, capacity);
+            intervalDays = Arrays.copyOf(intervalDays, capacity);
+            eases = Arrays.copyOf(eases, capacity);
+            repetitions = Arrays.copyOf(repetitions, capacity);
+            lapses = Arrays.copyOf(lapses, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            heapPositions = Arrays.copyOf(heapPositions, capacity);
+            deckIndexes = Arrays.copyOf(deckIndexes, capacity);
+            deckStamps = Arrays.copyOf(deckStamps, capacity);
+            table = new int[tableCapacity(capacity)];
+            for (int slot = 0; slot < size; slot++) {
+                insertIntoTable(slot);
+            }
+        }
+
+        private static int tableCapacity(int capacity) {
+            // At most half full
+            return Integer.highestOneBit(Math.max(16, capacity) * 2 - 1) * 2;
+        }
+    }
+
+    private final File directory;
+    private final Map<String, Schedule> schedules = new HashMap<>();
+    private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor();
+
+    // Singleton instance
+    private static ReviewScheduler instance;
+
+    private ReviewScheduler(Context context) {
+        this.directory = new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    public static synchronized ReviewScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new ReviewScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Cards of a group in the order they should be practised now
+     * @see #selectCards(String, List, int, long)
+     */
+    public List<Flashcard> selectCards(String groupId, List<Flashcard> deck, int count) {
+        return selectCards(groupId, deck, count, System.currentTimeMillis());
+    }
+
+    /**
+     * Cards of a group in the order they should be practised at a given time
+     * Overdue cards come first, most overdue first, then cards never asked in random order, then
+     * cards due later, soonest first. Cards no longer in the deck are dropped from the schedule.
+     * @param count Maximum number of cards
+     * @param nowMillis Time to schedule for, e.g. System.currentTimeMillis()
+     */
+    public synchronized List<Flashcard> selectCards(String groupId, List<Flashcard> deck, int count, long nowMillis) {
+        if (groupId == null || deck == null || deck.isEmpty() || count <= 0) {
+            return new ArrayList<>();
+        }
+        Schedule schedule = schedule(groupId);
+        int now = toMinutes(nowMillis);
+
+        // Stamp the slot of every card with its deck position, and collect the cards never scheduled
+        int stamp = ++schedule.deckStamp;
+        int[] newCards = new int[16];
+        int newCount = 0;
+        for (int i = 0; i < deck.size(); i++) {
+            long key = keyOf(deck.get(i));
+            int slot = schedule.find(key);
+            if (slot < 0) {
+                if (newCount == newCards.length) {
+                    newCards = Arrays.copyOf(newCards, newCount * 2);
+                }
+                newCards[newCount++] = i;
+            } else if (schedule.deckStamps[slot] != stamp) {
+                schedule.deckIndexes[slot] = i;
+                schedule.deckStamps[slot] = stamp;
+            }
+        }
+
+        // Register new cards, shuffled so a first session is not in deck order
+        Random random = new Random();
+        for (int i = newCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int card = newCards[i];
+            newCards[i] = newCards[j];
+            newCards[j] = card;
+        }
+        for (int i = 0; i < newCount; i++) {
+            long key = keyOf(deck.get(newCards[i]));
+            if (schedule.find(key) < 0) {
+                int slot = schedule.add(key, now);
+                schedule.deckIndexes[slot] = newCards[i];
+                schedule.deckStamps[slot] = stamp;
+            }
+        }
+
+        // Drop cards no longer in the deck, from the end since removal moves the last slot
+        boolean removed = false;
+        for (int slot = schedule.size - 1; slot >= 0; slot--) {
+            if (schedule.deckStamps[slot] != stamp) {
+                schedule.remove(slot);
+                removed = true;
+            }
+        }
+
+        // Best-first walk of the heap: a position's children are the only candidates it unlocks
+        List<Flashcard> selected = new ArrayList<>(Math.min(count, schedule.size));
+        int[] frontier = new int[16];
+        int frontierSize = 0;
+        frontier[frontierSize++] = 0;
+        while (frontierSize > 0 && selected.size() < count) {
+            int position = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            siftDownFrontier(schedule, frontier, frontierSize);
+            selected.add(deck.get(schedule.deckIndexes[schedule.heap[position]]));
+
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < schedule.size; child++) {
+                if (frontierSize == frontier.length) {
+                    frontier = Arrays.copyOf(frontier, frontierSize * 2);
+                }
+                frontier[frontierSize++] = child;
+                siftUpFrontier(schedule, frontier, frontierSize - 1);
+            }
+        }
+
+        if (newCount > 0 || removed) {
+            scheduleSave(schedule);
+        }
+        return selected;
+    }
+
+    /**
+     * Update the schedule with every answer of a finished test
+     */
+    public void recordResult(TestResult result) {
+        recordResult(result, System.currentTimeMillis());
+    }
+
+    public synchronized void recordResult(TestResult result, long nowMillis) {
+        if (result == null || result.getFlashcardGroupId() == null || result.getQuestionResults() == null) {
+            return;
+        }
+        Schedule schedule = schedule(result.getFlashcardGroupId());
+        int now = toMinutes(nowMillis);
+        for (TestResult.QuestionResult questionResult : result.getQuestionResults()) {
+            if (questionResult.getSourceFlashcard() != null) {
+                review(schedule, questionResult.getSourceFlashcard(),
+                        quality(questionResult.isCorrect(), questionResult.wasSkipped(), questionResult.getTimeSpentMs()),
+                        now);
+            }
+        }
+        scheduleSave(schedule);
+    }
+
+    /**
+     * Update the schedule with one answer
+     * @param timeSpentMs Time taken to answer, quick correct answers push the card further out
+     */
+    public void recordAnswer(String groupId, Flashcard flashcard, boolean correct, boolean skipped, long timeSpentMs) {
+        recordAnswer(groupId, flashcard, correct, skipped, timeSpentMs, System.currentTimeMillis());
+    }
+
+    public synchronized void recordAnswer(String groupId, Flashcard flashcard, boolean correct, boolean skipped,
+                                          long timeSpentMs, long nowMillis) {
+        if (groupId == null || flashcard == null) {
+            return;
+        }
+        Schedule schedule = schedule(groupId);
+        review(schedule, flashcard, quality(correct, skipped, timeSpentMs), toMinutes(nowMillis));
+        scheduleSave(schedule);
+    }
+
+    /**
+     * @return Number of cards of the group that are due, new cards included
+     */
+    public synchronized int getDueCount(String groupId, long nowMillis) {
+        if (groupId == null) {
+            return 0;
+        }
+        Schedule schedule = schedule(groupId);
+        int now = toMinutes(nowMillis);
+        // Heap order means only the due entries and their direct children are visited
+        int count = 0;
+        int[] stack = new int[16];
+        int stackSize = 0;
+        if (schedule.size > 0) {
+            stack[stackSize++] = 0;
+        }
+        while (stackSize > 0) {
+            int position = stack[--stackSize];
+            if (schedule.dueMinutes[schedule.heap[position]] > now) {
+                continue;
+            }
+            count++;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < schedule.size; child++) {
+                if (stackSize == stack.length) {
+                    stack = Arrays.copyOf(stack, stackSize * 2);
+                }
+                stack[stackSize++] = child;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Due time of a card in milliseconds, or -1 if it was never scheduled
+     */
+    public synchronized long getDueTime(String groupId, Flashcard flashcard) {
+        if (groupId == null || flashcard == null) {
+            return -1;
+        }
+        Schedule schedule = schedule(groupId);
+        int slot = schedule.find(keyOf(flashcard));
+        return slot >= 0 ? schedule.dueMinutes[slot] * 60_000L : -1;
+    }
+
+    /**
+     * SM-2 answer quality, 0 (no recall) to 5 (perfect)
+     */
+    private static int quality(boolean correct, boolean skipped, long timeSpentMs) {
+        if (skipped) {
+            return 0;
+        }
+        if (!correct) {
+            return 1;
+        }
+        if (timeSpentMs <= EASY_ANSWER_MS) {
+            return 5;
+        }
+        return timeSpentMs <= HARD_ANSWER_MS ? 4 : 3;
+    }
+
+    private static void review(Schedule schedule, Flashcard flashcard, int quality, int now) {
+        long key = keyOf(flashcard);
+        int slot = schedule.find(key);
+        if (slot < 0) {
+            slot = schedule.add(key, now);
+        }
+
+        if (quality >= 3) {
+            int repetitions = schedule.repetitions[slot];
+            long interval;
+            if (repetitions == 0) {
+                interval = 1;
+            } else if (repetitions == 1) {
+                interval = 6;
+            } else {
+                interval = Math.round(Math.max(1, schedule.intervalDays[slot]) * schedule.eases[slot] / 100.0);
+            }
+            interval = Math.min(interval, MAX_INTERVAL_DAYS);
+            schedule.intervalDays[slot] = (int) interval;
+            schedule.repetitions[slot] = (short) Math.min(Short.MAX_VALUE, repetitions + 1);
+            schedule.dueMinutes[slot] = saturatedAdd(now, interval * MINUTES_PER_DAY);
+        } else {
+            schedule.intervalDays[slot] = 0;
+            schedule.repetitions[slot] = 0;
+            schedule.lapses[slot] = (short) Math.min(Short.MAX_VALUE, schedule.lapses[slot] + 1);
+            schedule.dueMinutes[slot] = saturatedAdd(now, RELEARN_MINUTES);
+        }
+
+        int miss = 5 - quality;
+        int ease = schedule.eases[slot] + 10 - miss * (8 + miss * 2);
+        schedule.eases[slot] = (short) Math.max(MIN_EASE, ease);
+        schedule.updated(slot);
+    }
+
+    private Schedule schedule(String groupId) {
+        Schedule schedule = schedules.get(groupId);
+        if (schedule == null) {
+            schedule = load(new File(directory, Long.toHexString(hash(groupId)) + ".rev"));
+            schedules.put(groupId, schedule);
+        }
+        return schedule;
+    }
+
+    private static Schedule load(File file) {
+        if (!file.exists()) {
+            return new Schedule(file, 0);
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long length = input.length();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid length " + length);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            input.getChannel().read(buffer);
+            buffer.flip();
+            int count = buffer.remaining() >= HEADER_BYTES && buffer.getInt() == MAGIC ? buffer.getInt() : -1;
+            if (count < 0 || (long) count * BYTES_PER_CARD != length - HEADER_BYTES) {
+                throw new IOException("Not a review schedule");
+            }
+
+            Schedule schedule = new Schedule(file, count);
+            buffer.asLongBuffer().get(schedule.keys, 0, count);
+            buffer.position(buffer.position() + count * 8);
+            buffer.asIntBuffer().get(schedule.dueMinutes, 0, count);
+            buffer.position(buffer.position() + count * 4);
+            buffer.asIntBuffer().get(schedule.intervalDays, 0, count);
+            buffer.position(buffer.position() + count * 4);
+            buffer.asShortBuffer().get(schedule.eases, 0, count);
+            buffer.position(buffer.position() + count * 2);
+            buffer.asShortBuffer().get(schedule.repetitions, 0, count);
+            buffer.position(buffer.position() + count * 2);
+            buffer.asShortBuffer().get(schedule.lapses, 0, count);
+
+            schedule.size = count;
+            for (int slot = 0; slot < count; slot++) {
+                schedule.insertIntoTable(slot);
+            }
+            schedule.heapify();
+            return schedule;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading review schedule " + file, e);
+            return new Schedule(file, 0);
+        }
+    }
+
+    /**
+     * Write a schedule in the background, answers given meanwhile are written with it
+     */
+    private void scheduleSave(Schedule schedule) {
+        if (schedule.savePending) {
+            return;
+        }
+        schedule.savePending = true;
+        saveExecutor.execute(() -> save(schedule));
+    }
+
+    private void save(Schedule schedule) {
+        int count;
+        long[] keys;
+        int[] dueMinutes;
+        int[] intervalDays;
+        short[] eases;
+        short[] repetitions;
+        short[] lapses;
+        synchronized (this) {
+            schedule.savePending = false;
+            count = schedule.size;
+            keys = Arrays.copyOf(schedule.keys, count);
+            dueMinutes = Arrays.copyOf(schedule.dueMinutes, count);
+            intervalDays = Arrays.copyOf(schedule.intervalDays, count);
+            eases = Arrays.copyOf(schedule.eases, count);
+            repetitions = Arrays.copyOf(schedule.repetitions, count);
+            lapses = Arrays.copyOf(schedule.lapses, count);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * BYTES_PER_CARD);
+        buffer.putInt(MAGIC).putInt(count);
+        buffer.asLongBuffer().put(keys);
+        buffer.position(buffer.position() + count * 8);
+        buffer.asIntBuffer().put(dueMinutes);
+        buffer.position(buffer.position() + count * 4);
+        buffer.asIntBuffer().put(intervalDays);
+        buffer.position(buffer.position() + count * 4);
+        buffer.asShortBuffer().put(eases);
+        buffer.position(buffer.position() + count * 2);
+        buffer.asShortBuffer().put(repetitions);
+        buffer.position(buffer.position() + count * 2);
+        buffer.asShortBuffer().put(lapses);
+
+        File temp = new File(schedule.file.getPath() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Failed to create " + directory);
+            }
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+                out.write(buffer.array());
+            }
+            if (!temp.renameTo(schedule.file)) {
+                throw new IOException("Failed to replace " + schedule.file);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            Log.e(TAG, "Error saving review schedule", e);
+        }
+    }
+
+    private static void siftUpFrontier(Schedule schedule, int[] frontier, int index) {
+        int position = frontier[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!schedule.before(schedule.heap[position], schedule.heap[frontier[parent]])) {
+                break;
+            }
+            frontier[index] = frontier[parent];
+            index = parent;
+        }
+        frontier[index] = position;
+    }
+
+    private static void siftDownFrontier(Schedule schedule, int[] frontier, int size) {
+        if (size == 0) {
+            return;
+        }
+        int index = 0;
+        int position = frontier[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size
+                    && schedule.before(schedule.heap[frontier[child + 1]], schedule.heap[frontier[child]])) {
+                child++;
+            }
+            if (!schedule.before(schedule.heap[frontier[child]], schedule.heap[position])) {
+                break;
+            }
+            frontier[index] = frontier[child];
+            index = child;
+        }
+        frontier[index] = position;
+    }
+
+    private static long keyOf(Flashcard flashcard) {
+        return hash(flashcard.getTerm());
+    }
+
+    /**
+     * 64-bit FNV-1a, stable across app versions unlike String.hashCode collisions
+     */
+    private static long hash(String text) {
+        long hash = 0xCBF29CE484222325L;
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Murmur3 64-bit finalizer, spreads keys over the table
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int toMinutes(long millis) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, millis / 60_000L));
+    }
+
+    private static int saturatedAdd(int minutes, long delta) {
+        return (int) Math.min(Integer.MAX_VALUE, minutes + delta);
+    }
+}
@@ -0,0 +1,524 @@
+package app.quiz.data.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import app.quiz.data.models.Flashcard;
+import app.quiz.data.models.FlashcardGroup;
+import app.quiz.data.models.Reading;
+import app.quiz.data.models.ReadingQuestion;
+import app.quiz.utils.TextNormalizer;
+
+/**
+ * On-device full-text index over the flashcard sets and readings the app has fetched
+ * Lets search work offline and look inside card definitions, reading content and questions.
+ * Every set and every reading is one document. Tokens are folded with TextNormalizer and weighted by
+ * field, so a match in a title counts more than one in body text, and results are ranked with BM25.
+ * Postings are varint-encoded document gaps and weighted term frequencies, and the number of
+ * documents is capped, so memory stays bounded.
+ * Thread-safe.
+ */
+public class OfflineSearchIndex {
+    private static final int MAX_DOCUMENTS = 20000;
+    // Replaced and evicted documents are purged from postings once they make up this share
+    private static final float MAX_REMOVED_RATIO = 0.5f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final int WEIGHT_TITLE = 4;
+    private static final int WEIGHT_TERM = 3;
+    private static final int WEIGHT_DESCRIPTION = 2;
+    private static final int WEIGHT_BODY = 1;
+
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    public enum Type {
+        FLASHCARD_GROUP, READING
+    }
+
+    /**
+     * A matching document, with what is needed to show it in a list
+     */
+    public static class Result {
+        private final Type type;
+        private final String id;
+        private final String title;
+        private final String description;
+        private final boolean isPublic;
+        private final float score;
+
+        Result(Type type, String id, String title, String description, boolean isPublic, float score) {
+            this.type = type;
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.isPublic = isPublic;
+            this.score = score;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return Visibility of a flashcard set, readings are always public
+         */
+        public boolean isPublic() {
+            return isPublic;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    private static class Document {
+        final Type type;
+        final String id;
+        final String title;
+        final String description;
+        final boolean isPublic;
+        final int length;
+        // Whether the body (cards, content, questions) was indexed, list items come without it
+        final boolean hasBody;
+
+        Document(Type type, String id, String title, String description, boolean isPublic, int length,
+                 boolean hasBody) {
+            this.type = type;
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.isPublic = isPublic;
+            this.length = length;
+            this.hasBody = hasBody;
+        }
+    }
+
+    /**
+     * Documents containing a token, as varint pairs of document gap and weighted frequency
+     */
+    private static class Postings {
+        byte[] data = new byte[8];
+        int size;
+        int lastDocument;
+        int documentCount;
+
+        void add(int document, int frequency) {
+            ensureCapacity(10);
+            writeVarint(document - lastDocument);
+            writeVarint(frequency);
+            lastDocument = document;
+            documentCount++;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > data.length) {
+                byte[] grown = new byte[Math.max(data.length * 2, size + extra)];
+                System.arraycopy(data, 0, grown, 0, size);
+                data = grown;
+            }
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Reads a Postings list, next() must be called before reading a pair
+     */
+    private static class PostingsReader {
+        private final Postings postings;
+        private int offset;
+        int document;
+        int frequency;
+
+        PostingsReader(Postings postings) {
+            this.postings = postings;
+        }
+
+        boolean next() {
+            if (offset >= postings.size) {
+                return false;
+            }
+            document += readVarint();
+            frequency = readVarint();
+            return true;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings.data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private long liveLength;
+
+    // Singleton instance
+    private static OfflineSearchIndex instance;
+
+    public static synchronized OfflineSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new OfflineSearchIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Index a flashcard set, replacing an earlier version
+     * A set without cards (as listed in pages) does not replace a version that had them.
+     */
+    public void indexFlashcardGroup(FlashcardGroup group) {
+        if (group == null || group.getId() == null) {
+            return;
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTokens(frequencies, group.getName(), WEIGHT_TITLE);
+        addTokens(frequencies, group.getDescription(), WEIGHT_DESCRIPTION);
+        List<Flashcard> flashcards = group.getFlashcards();
+        for (Flashcard flashcard : flashcards) {
+            addTokens(frequencies, flashcard.getTerm(), WEIGHT_TERM);
+            addTokens(frequencies, flashcard.getDefinition(), WEIGHT_BODY);
+        }
+        index(Type.FLASHCARD_GROUP, group.getId(), group.getName(), group.getDescription(), group.isPublic(),
+                frequencies, !flashcards.isEmpty());
+    }
+
+    public void indexFlashcardGroups(List<FlashcardGroup> groups) {
+        if (groups != null) {
+            for (FlashcardGroup group : groups) {
+                indexFlashcardGroup(group);
+            }
+        }
+    }
+
+    /**
+     * Index a reading, replacing an earlier version
+     * A reading without content or questions does not replace a version that had them.
+     */
+    public void indexReading(Reading reading) {
+        if (reading == null || reading.getId() == null) {
+            return;
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTokens(frequencies, reading.getTitle(), WEIGHT_TITLE);
+        addTokens(frequencies, reading.getDescription(), WEIGHT_DESCRIPTION);
+        addTokens(frequencies, reading.getContent(), WEIGHT_BODY);
+        boolean hasBody = reading.getContent() != null && !reading.getContent().isEmpty();
+        if (reading.getQuestions() != null) {
+            for (ReadingQuestion question : reading.getQuestions()) {
+                addTokens(frequencies, question.getQuestionText(), WEIGHT_BODY);
+                addTokens(frequencies, question.getOptionA(), WEIGHT_BODY);
+                addTokens(frequencies, question.getOptionB(), WEIGHT_BODY);
+                addTokens(frequencies, question.getOptionC(), WEIGHT_BODY);
+                addTokens(frequencies, question.getOptionD(), WEIGHT_BODY);
+                hasBody = true;
+            }
+        }
+        index(Type.READING, reading.getId(), reading.getTitle(), reading.getDescription(), true, frequencies, hasBody);
+    }
+
+    public void indexReadings(List<Reading> readings) {
+        if (readings != null) {
+            for (Reading reading : readings) {
+                indexReading(reading);
+            }
+        }
+    }
+
+    /**
+     * Drop a document, e.g. after it was deleted on the server
+     */
+    public synchronized void remove(Type type, String id) {
+        Integer document = documentIds.remove(key(type, id));
+        if (document != null) {
+            removeDocument(document);
+            compactIfNeeded();
+        }
+    }
+
+    public synchronized void clear() {
+        documents.clear();
+        documentIds.clear();
+        removed.clear();
+        postings.clear();
+        liveLength = 0;
+    }
+
+    /**
+     * Find the documents containing every query token, best match first
+     * The last token also matches longer tokens starting with it, so results follow typing.
+     * @param query Search text, case and diacritics are ignored
+     * @param type Type of documents to return, or null for all
+     * @param limit Maximum number of results
+     */
+    public List<Result> search(String query, Type type, int limit) {
+        return search(query, type, false, limit);
+    }
+
+    /**
+     * Find the documents containing every query token, best match first, see search
+     * @param publicOnly Whether to leave out private flashcard sets, e.g. for a list of public sets
+     */
+    public synchronized List<Result> search(String query, Type type, boolean publicOnly, int limit) {
+        List<String> queryTokens = TextNormalizer.tokenize(query);
+        int liveDocuments = documents.size() - removed.cardinality();
+        if (queryTokens.isEmpty() || liveDocuments == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        float averageLength = (float) liveLength / liveDocuments;
+        float[] scores = new float[documents.size()];
+        BitSet matches = null;
+
+        for (int i = 0; i < queryTokens.size(); i++) {
+            String token = queryTokens.get(i);
+            Collection<Postings> tokenPostings;
+            if (i == queryTokens.size() - 1) {
+                tokenPostings = prefixPostings(token);
+            } else {
+                Postings exact = postings.get(token);
+                tokenPostings = exact != null ? Collections.singletonList(exact) : Collections.emptyList();
+            }
+
+            BitSet tokenMatches = new BitSet(documents.size());
+            for (Postings list : tokenPostings) {
+                // documentCount still includes replaced and evicted documents until the next compaction
+                int liveCount = 0;
+                PostingsReader counter = new PostingsReader(list);
+                while (counter.next()) {
+                    if (!removed.get(counter.document)) {
+                        liveCount++;
+                    }
+                }
+                if (liveCount == 0) {
+                    continue;
+                }
+                float idf = (float) Math.log(1 + (liveDocuments - liveCount + 0.5) / (liveCount + 0.5));
+                PostingsReader reader = new PostingsReader(list);
+                while (reader.next()) {
+                    if (removed.get(reader.document)) {
+                        continue;
+                    }
+                    float normalizedLength = documents.get(reader.document).length / averageLength;
+                    scores[reader.document] += idf * reader.frequency * (K1 + 1)
+                            / (reader.frequency + K1 * (1 - B + B * normalizedLength));
+                    tokenMatches.set(reader.document);
+                }
+            }
+
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.and(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        // Keep the best `limit` documents in a min-heap on score
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+        for (int document = matches.nextSetBit(0); document >= 0; document = matches.nextSetBit(document + 1)) {
+            if ((type != null && documents.get(document).type != type)
+                    || (publicOnly && !documents.get(document).isPublic)) {
+                continue;
+            }
+            best.add(document);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        Result[] results = new Result[best.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            int document = best.poll();
+            Document doc = documents.get(document);
+            results[i] = new Result(doc.type, doc.id, doc.title, doc.description, doc.isPublic, scores[document]);
+        }
+        List<Result> ranked = new ArrayList<>(results.length);
+        Collections.addAll(ranked, results);
+        return ranked;
+    }
+
+    /**
+     * @return Number of documents that can be found
+     */
+    public synchronized int getDocumentCount() {
+        return documents.size() - removed.cardinality();
+    }
+
+    /**
+     * @return Bytes used by encoded postings, a measure of the index size
+     */
+    public synchronized long getPostingsBytes() {
+        long bytes = 0;
+        for (Postings list : postings.values()) {
+            bytes += list.size;
+        }
+        return bytes;
+    }
+
+    private synchronized void index(Type type, String id, String title, String description, boolean isPublic,
+                                    Map<String, Integer> frequencies, boolean hasBody) {
+        String key = key(type, id);
+        Integer existing = documentIds.get(key);
+        if (existing != null) {
+            Document previous = documents.get(existing);
+            if (previous.hasBody && !hasBody && equal(previous.title, title) && equal(previous.description, description)
+                    && previous.isPublic == isPublic) {
+                // A list item for a document already indexed in full
+                return;
+            }
+            removeDocument(existing);
+        }
+
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+
+        int document = documents.size();
+        documents.add(new Document(type, id, title, description, isPublic, length, hasBody));
+        documentIds.put(key, document);
+        liveLength += length;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Postings list = postings.get(entry.getKey());
+            if (list == null) {
+                list = new Postings();
+                postings.put(entry.getKey(), list);
+            }
+            list.add(document, entry.getValue());
+        }
+
+        // Evict the oldest documents above the cap
+        int liveDocuments = documents.size() - removed.cardinality();
+        for (int oldest = removed.nextClearBit(0); liveDocuments > MAX_DOCUMENTS; oldest = removed.nextClearBit(oldest + 1)) {
+            Document evicted = documents.get(oldest);
+            documentIds.remove(key(evicted.type, evicted.id));
+            removeDocument(oldest);
+            liveDocuments--;
+        }
+        compactIfNeeded();
+    }
+
+    private void removeDocument(int document) {
+        if (!removed.get(document)) {
+            removed.set(document);
+            liveLength -= documents.get(document).length;
+        }
+    }
+
+    /**
+     * Rewrite postings without removed documents once they take up too much space
+     */
+    private void compactIfNeeded() {
+        int removedCount = removed.cardinality();
+        if (removedCount < 64 || removedCount < documents.size() * MAX_REMOVED_RATIO) {
+            return;
+        }
+
+        int[] newIds = new int[documents.size()];
+        List<Document> kept = new ArrayList<>(documents.size() - removedCount);
+        documentIds.clear();
+        for (int document = 0; document < documents.size(); document++) {
+            if (removed.get(document)) {
+                newIds[document] = -1;
+            } else {
+                Document doc = documents.get(document);
+                newIds[document] = kept.size();
+                documentIds.put(key(doc.type, doc.id), kept.size());
+                kept.add(doc);
+            }
+        }
+
+        Iterator<Map.Entry<String, Postings>> iterator = postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Postings> entry = iterator.next();
+            Postings compacted = new Postings();
+            PostingsReader reader = new PostingsReader(entry.getValue());
+            while (reader.next()) {
+                int newId = newIds[reader.document];
+                if (newId >= 0) {
+                    compacted.add(newId, reader.frequency);
+                }
+            }
+            if (compacted.documentCount == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(compacted);
+            }
+        }
+
+        documents.clear();
+        documents.addAll(kept);
+        removed.clear();
+    }
+
+    private Collection<Postings> prefixPostings(String prefix) {
+        Collection<Postings> all = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values();
+        if (all.size() <= MAX_PREFIX_EXPANSIONS) {
+            return all;
+        }
+        // A very short prefix, keep the most common expansions
+        List<Postings> expansions = new ArrayList<>(all);
+        expansions.sort((a, b) -> Integer.compare(b.documentCount, a.documentCount));
+        return expansions.subList(0, MAX_PREFIX_EXPANSIONS);
+    }
+
+    private static void addTokens(Map<String, Integer> frequencies, String text, int weight) {
+        if (text == null) {
+            return;
+        }
+        for (String token : TextNormalizer.tokenize(text)) {
+            Integer frequency = frequencies.get(token);
+            frequencies.put(token, frequency != null ? frequency + weight : weight);
+        }
+    }
+
+    private static String key(Type type, String id) {
+        return type.name() + ":" + id;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,450 @@
+package app.quiz.data.search;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import app.quiz.utils.AnswerMatcher;
+
+/**
+ * Dictionary of answers that are accepted for each other (synonyms, spelling variants)
+ * The dictionary is a binary file in app storage that is memory-mapped on first use, so it costs
+ * nothing at startup and its entries stay out of the Java heap whatever its size. Entries are looked
+ * up by binary search over their folded form (see AnswerMatcher.normalize) directly in the mapping.
+ * Without a file in app storage, one is built there in the background from the word list bundled in
+ * the app assets (SOURCE_ASSET, one group of comma-separated answers per line).
+ * Thread-safe.
+ *
+ * File layout, big-endian:
+ *   int magic, int entryCount, int groupCount
+ *   int[entryCount + 1] keyOffsets       folded keys, sorted by UTF-8 bytes
+ *   int[entryCount + 1] displayOffsets   entries as written, for showing variants
+ *   int[entryCount] entryGroups
+ *   int[groupCount + 1] groupStarts      into groupMembers
+ *   int[entryCount] groupMembers         entries of each group
+ *   byte[] keys, byte[] displays         UTF-8, offsets relative to the start of each pool
+ */
+public class SynonymDictionary implements AnswerMatcher.SynonymProvider {
+    private static final String TAG = "SynonymDictionary";
+    private static final String FILE_NAME = "synonyms.dict";
+    private static final String SOURCE_ASSET = "synonyms.txt";
+    private static final int MAGIC = 0x53594E31; // "SYN1"
+    private static final int HEADER_BYTES = 12;
+
+    private final File file;
+    private final Context context;
+    private final ExecutorService installExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * A mapped dictionary file with the positions of its tables
+     */
+    private static class Mapping {
+        final ByteBuffer buffer;
+        final int entryCount;
+        final int displayOffsetsStart;
+        final int entryGroupsStart;
+        final int groupStartsStart;
+        final int groupMembersStart;
+        final int keysStart;
+        final int displaysStart;
+
+        Mapping(ByteBuffer buffer) {
+            this.buffer = buffer;
+            entryCount = buffer.getInt(4);
+            int groupCount = buffer.getInt(8);
+            displayOffsetsStart = HEADER_BYTES + 4 * (entryCount + 1);
+            entryGroupsStart = displayOffsetsStart + 4 * (entryCount + 1);
+            groupStartsStart = entryGroupsStart + 4 * entryCount;
+            groupMembersStart = groupStartsStart + 4 * (groupCount + 1);
+            keysStart = groupMembersStart + 4 * entryCount;
+            displaysStart = keysStart + buffer.getInt(HEADER_BYTES + 4 * entryCount);
+        }
+
+        /**
+         * Binary search for an entry by folded key
+         * @return Entry index, or -1 if absent
+         */
+        int find(String key) {
+            byte[] target = key.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = entryCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int start = buffer.getInt(HEADER_BYTES + 4 * middle);
+                int end = buffer.getInt(HEADER_BYTES + 4 * (middle + 1));
+                int comparison = compare(keysStart + start, end - start, target);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        int groupOf(int entry) {
+            return buffer.getInt(entryGroupsStart + 4 * entry);
+        }
+
+        int groupStart(int group) {
+            return buffer.getInt(groupStartsStart + 4 * group);
+        }
+
+        int groupMember(int index) {
+            return buffer.getInt(groupMembersStart + 4 * index);
+        }
+
+        String display(int entry) {
+            int start = buffer.getInt(displayOffsetsStart + 4 * entry);
+            int end = buffer.getInt(displayOffsetsStart + 4 * (entry + 1));
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(displaysStart + start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Compare mapped bytes with a key as unsigned bytes, which orders UTF-8 by code point
+         */
+        private int compare(int position, int length, byte[] key) {
+            int common = Math.min(length, key.length);
+            for (int i = 0; i < common; i++) {
+                int difference = (buffer.get(position + i) & 0xFF) - (key[i] & 0xFF);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return length - key.length;
+        }
+    }
+
+    // Null until opened or when there is no usable dictionary
+    private Mapping mapping;
+    private boolean openAttempted;
+
+    // Singleton instance
+    private static SynonymDictionary instance;
+
+    private SynonymDictionary(Context context) {
+        this.context = context;
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    public static synchronized SynonymDictionary getInstance(Context context) {
+        if (instance == null) {
+            instance = new SynonymDictionary(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public boolean areSynonyms(String answer, String expected) {
+        Mapping mapped = open();
+        if (mapped == null) {
+            return false;
+        }
+        int answerEntry = mapped.find(answer);
+        if (answerEntry < 0) {
+            return false;
+        }
+        int expectedEntry = mapped.find(expected);
+        return expectedEntry >= 0 && mapped.groupOf(answerEntry) == mapped.groupOf(expectedEntry);
+    }
+
+    /**
+     * @return Other accepted answers for a term as they were written, empty if it has none
+     */
+    public List<String> getVariants(String term) {
+        Mapping mapped = open();
+        if (mapped == null || term == null) {
+            return Collections.emptyList();
+        }
+        int entry = mapped.find(AnswerMatcher.normalize(term));
+        if (entry < 0) {
+            return Collections.emptyList();
+        }
+
+        int group = mapped.groupOf(entry);
+        int start = mapped.groupStart(group);
+        int end = mapped.groupStart(group + 1);
+        List<String> variants = new ArrayList<>(end - start - 1);
+        for (int i = start; i < end; i++) {
+            int member = mapped.groupMember(i);
+            if (member != entry) {
+                variants.add(mapped.display(member));
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * @return Number of entries, 0 without a dictionary
+     */
+    public int getEntryCount() {
+        Mapping mapped = open();
+        return mapped != null ? mapped.entryCount : 0;
+    }
+
+    /**
+     * Replace the dictionary file, e.g. with one downloaded for the user's language
+     * The new file is validated before it replaces the current one.
+     */
+    public void install(InputStream source) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = source.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        }
+        if (map(temp) == null) {
+            temp.delete();
+            throw new IOException("Not a synonym dictionary");
+        }
+
+        synchronized (this) {
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Failed to replace " + file);
+            }
+            // Mapped by the next lookup, the old mapping is released with its buffer
+            mapping = null;
+            openAttempted = false;
+        }
+    }
+
+    /**
+     * Write a dictionary file from groups of interchangeable answers
+     * Groups that share an answer are merged. Answers are folded for lookup and also kept as written.
+     */
+    public static void write(Collection<? extends Collection<String>> groups, OutputStream output) throws IOException {
+        // Unique entries by folded form, merging the groups that share one
+        Map<String, Integer> entryIds = new HashMap<>();
+        List<String> displays = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        for (Collection<String> group : groups) {
+            int first = -1;
+            for (String answer : group) {
+                String key = AnswerMatcher.normalize(answer);
+                if (key.isEmpty()) {
+                    continue;
+                }
+                Integer id = entryIds.get(key);
+                if (id == null) {
+                    id = displays.size();
+                    entryIds.put(key, id);
+                    displays.add(answer.trim());
+                    parents.add(id);
+                }
+                if (first < 0) {
+                    first = id;
+                } else {
+                    parents.set(root(parents, id), root(parents, first));
+                }
+            }
+        }
+
+        // Sort entries by the UTF-8 bytes of their key, the order used by find()
+        int count = displays.size();
+        byte[][] keys = new byte[count][];
+        for (Map.Entry<String, Integer> entry : entryIds.entrySet()) {
+            keys[entry.getValue()] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(keys[a], keys[b]));
+
+        // Number groups in entry order and list their members
+        int[] entryGroups = new int[count];
+        Map<Integer, Integer> groupIds = new HashMap<>();
+        List<List<Integer>> members = new ArrayList<>();
+        for (int position = 0; position < count; position++) {
+            int groupRoot = root(parents, order[position]);
+            Integer group = groupIds.get(groupRoot);
+            if (group == null) {
+                group = members.size();
+                groupIds.put(groupRoot, group);
+                members.add(new ArrayList<>());
+            }
+            entryGroups[position] = group;
+            members.get(group).add(position);
+        }
+
+        byte[][] displayBytes = new byte[count][];
+        for (int position = 0; position < count; position++) {
+            displayBytes[position] = displays.get(order[position]).getBytes(StandardCharsets.UTF_8);
+        }
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(count);
+        out.writeInt(members.size());
+        int offset = 0;
+        for (int position = 0; position < count; position++) {
+            out.writeInt(offset);
+            offset += keys[order[position]].length;
+        }
+        out.writeInt(offset);
+        offset = 0;
+        for (byte[] display : displayBytes) {
+            out.writeInt(offset);
+            offset += display.length;
+        }
+        out.writeInt(offset);
+        for (int group : entryGroups) {
+            out.writeInt(group);
+        }
+        offset = 0;
+        for (List<Integer> group : members) {
+            out.writeInt(offset);
+            offset += group.size();
+        }
+        out.writeInt(offset);
+        for (List<Integer> group : members) {
+            for (int member : group) {
+                out.writeInt(member);
+            }
+        }
+        for (int position = 0; position < count; position++) {
+            out.write(keys[order[position]]);
+        }
+        for (byte[] display : displayBytes) {
+            out.write(display);
+        }
+        out.flush();
+    }
+
+    /**
+     * Map the dictionary file on first use
+     * @return The mapping, or null if there is no usable dictionary yet
+     */
+    private synchronized Mapping open() {
+        if (openAttempted) {
+            return mapping;
+        }
+        openAttempted = true;
+
+        if (!file.exists()) {
+            installExecutor.execute(this::buildFromAssets);
+            return null;
+        }
+
+        ByteBuffer mapped = map(file);
+        if (mapped == null) {
+            Log.w(TAG, "Ignoring invalid dictionary " + file);
+            return null;
+        }
+        mapping = new Mapping(mapped);
+        return mapping;
+    }
+
+    /**
+     * Build the dictionary from the word list bundled with the app, if any, into app storage
+     * Blank lines and lines starting with # are skipped.
+     */
+    private void buildFromAssets() {
+        List<List<String>> groups = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(context.getAssets().open(SOURCE_ASSET), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    groups.add(Arrays.asList(line.split(",")));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No bundled word list");
+            return;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read bundled word list: " + e.getMessage());
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream built = new ByteArrayOutputStream();
+            write(groups, built);
+            install(new ByteArrayInputStream(built.toByteArray()));
+            Log.d(TAG, "Built dictionary from " + groups.size() + " groups");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to build dictionary: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Map a dictionary file and check that its tables fit in it
+     */
+    private static ByteBuffer map(File source) {
+        try (FileInputStream input = new FileInputStream(source); FileChannel channel = input.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt(0) != MAGIC) {
+                return null;
+            }
+            long entries = mapped.getInt(4);
+            long groups = mapped.getInt(8);
+            long tables = HEADER_BYTES + 4 * ((entries + 1) * 2 + entries + (groups + 1) + entries);
+            if (entries < 0 || groups < 0 || tables > size) {
+                return null;
+            }
+            long keyBytes = mapped.getInt((int) (HEADER_BYTES + 4 * entries));
+            long displayBytes = mapped.getInt((int) (HEADER_BYTES + 4 * (entries + 1) + 4 * entries));
+            return tables + keyBytes + displayBytes == size ? mapped : null;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to map " + source + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static int root(List<Integer> parents, int id) {
+        while (parents.get(id) != id) {
+            parents.set(id, parents.get(parents.get(id)));
+            id = parents.get(id);
+        }
+        return id;
+    }
+}
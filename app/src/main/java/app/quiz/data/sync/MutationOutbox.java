@@ -0,0 +1,1251 @@
+package app.quiz.data.sync;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import app.quiz.data.remote.HttpTransport;
+import app.quiz.data.remote.NetworkExecutor;
+import app.quiz.utils.SessionManager;
+
+/**
+ * Durable queue of the user's writes (creates, updates, deletes), sent to the server in order
+ * Every mutation is appended to an OutboxLog before it is sent, so an edit survives the network
+ * being down and the app being killed. Mutations are replayed in the order they were made whenever
+ * the network becomes available: queued writes go out in waves of up to MAX_BATCH concurrent
+ * requests, at most one per entity so each entity's writes keep their order. A write to an entity
+ * whose previous write has not been sent yet is merged into it, a delete cancels a pending create.
+ * Each mutation has an idempotency key sent as the Idempotency-Key header, the same on every retry,
+ * so a request that reached the server before the connection dropped is not applied twice. Updates
+ * send the version they were based on as If-Unmodified-Since, and a 409 or 412 answer is reported
+ * as a conflict instead of overwriting the server copy. Replay stops while the server is unreachable
+ * and, after a 401, until the user signs in again; any other rejection drops the mutation.
+ * Entities created offline get a local id until the server assigns one, queued mutations are then
+ * rewritten to the server id.
+ * Each mutation records the user who made it and is only sent with that user's credentials: after
+ * signing out, a user's queued mutations stay parked in the log until they sign in again.
+ * A partial update sends only what changed and carries the whole entity as a fallback: if the
+ * server has no endpoint for partial updates (404, 405 or 501) the fallback is sent instead, and
+ * isPartialUpdateSupported tells callers to stop making partial updates of that entity type. This is
+ * kept in the log, so it holds across restarts, and tried again after PARTIAL_REPROBE_MILLIS.
+ * Thread-safe.
+ */
+public class MutationOutbox {
+    private static final String TAG = "MutationOutbox";
+    private static final String FILE_NAME = "outbox.log";
+    private static final String LOCAL_ID_PREFIX = "local-";
+    // Concurrent requests per replay wave
+    private static final int MAX_BATCH = 4;
+    // Finished records tolerated in the log before it is compacted
+    private static final int COMPACT_THRESHOLD = 256;
+    private static final int MAX_SERVER_IDS = 500;
+    // Partial updates are tried again this long after the server turned them down
+    private static final long PARTIAL_REPROBE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final byte RECORD_MUTATION = 1;
+    private static final byte RECORD_DONE = 2;
+    private static final byte RECORD_SERVER_ID = 3;
+    private static final byte RECORD_PARTIAL_UNSUPPORTED = 4;
+
+    private enum Outcome {
+        SETTLED,
+        // Network down or server unavailable
+        UNREACHABLE,
+        // Token expired or revoked
+        UNAUTHORIZED
+    }
+
+    public enum Entity {
+        FLASHCARD_GROUP,
+        READING
+    }
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Outcome of a mutation
+     * Called on a background thread.
+     */
+    public interface Listener {
+        /**
+         * Sent and accepted by the server, or made unnecessary by a later mutation
+         * @param responseBody Server response, null if nothing was sent
+         */
+        void onApplied(Mutation mutation, String responseBody);
+
+        /**
+         * Could not be sent now (offline, server unavailable, signed out), kept for a later replay
+         */
+        void onQueued(Mutation mutation);
+
+        /**
+         * Rejected by the server or conflicting with a change made there, dropped from the queue
+         */
+        void onFailed(Mutation mutation, String error, int statusCode);
+    }
+
+    /**
+     * One queued write, immutable
+     */
+    public static class Mutation {
+        private final long sequence;
+        // Id of the user who made it, it is only sent with their credentials
+        private final String owner;
+        private final Entity entity;
+        private final Operation operation;
+        private final String entityId;
+        private final String idempotencyKey;
+        private final String method;
+        private final String endpoint;
+        private final String body;
+        private final String unmodifiedSince;
+        private final long createdAt;
+        // Request writing the whole entity, set for a partial update
+        private final String fullMethod;
+        private final String fullEndpoint;
+        private final String fullBody;
+        private final String key;
+
+        Mutation(long sequence, String owner, Entity entity, Operation operation, String entityId,
+                 String idempotencyKey, String method, String endpoint, String body, String unmodifiedSince,
+                 long createdAt) {
+            this(sequence, owner, entity, operation, entityId, idempotencyKey, method, endpoint, body,
+                    unmodifiedSince, createdAt, null, null, null);
+        }
+
+        Mutation(long sequence, String owner, Entity entity, Operation operation, String entityId,
+                 String idempotencyKey, String method, String endpoint, String body, String unmodifiedSince,
+                 long createdAt, String fullMethod, String fullEndpoint, String fullBody) {
+            this.sequence = sequence;
+            this.owner = owner;
+            this.entity = entity;
+            this.operation = operation;
+            this.entityId = entityId;
+            this.idempotencyKey = idempotencyKey;
+            this.method = method;
+            this.endpoint = endpoint;
+            this.body = body;
+            this.unmodifiedSince = unmodifiedSince;
+            this.createdAt = createdAt;
+            this.fullMethod = fullMethod;
+            this.fullEndpoint = fullEndpoint;
+            this.fullBody = fullBody;
+            this.key = keyOf(owner, entity, entityId);
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return Id of the user who made the mutation
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        public Entity getEntity() {
+            return entity;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return Server id, or a local id for an entity created offline
+         */
+        public String getEntityId() {
+            return entityId;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * @return HTTP date of the version the update was based on, or null
+         */
+        public String getUnmodifiedSince() {
+            return unmodifiedSince;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * @return Whether only the changes are sent, with the whole entity as a fallback
+         */
+        public boolean isPartial() {
+            return fullMethod != null;
+        }
+
+        /**
+         * @return Body writing the whole entity: the fallback of a partial update, otherwise the body
+         */
+        public String getFullBody() {
+            return fullMethod != null ? fullBody : body;
+        }
+
+        String key() {
+            return key;
+        }
+
+        /**
+         * Same mutation addressed to the server id of an entity created offline
+         */
+        Mutation resolve(String localId, String serverId) {
+            return new Mutation(sequence, owner, entity, operation,
+                    entityId.equals(localId) ? serverId : entityId, idempotencyKey, method,
+                    replace(endpoint, localId, serverId), replace(body, localId, serverId), unmodifiedSince,
+                    createdAt, fullMethod, replace(fullEndpoint, localId, serverId),
+                    replace(fullBody, localId, serverId));
+        }
+
+        Mutation withOwner(String owner) {
+            return new Mutation(sequence, owner, entity, operation, entityId, idempotencyKey, method, endpoint,
+                    body, unmodifiedSince, createdAt, fullMethod, fullEndpoint, fullBody);
+        }
+
+        /**
+         * The fallback of a partial update, under its own idempotency key as it is another request
+         */
+        Mutation toFull() {
+            return new Mutation(sequence, owner, entity, operation, entityId, idempotencyKey + "-full",
+                    fullMethod, fullEndpoint, fullBody, unmodifiedSince, createdAt);
+        }
+
+        private static String replace(String value, String localId, String serverId) {
+            return value != null ? value.replace(localId, serverId) : null;
+        }
+    }
+
+    private final SessionManager sessionManager;
+    private final HttpTransport transport = HttpTransport.getInstance();
+    private final OutboxLog log;
+    private final ExecutorService logExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Queued mutations in sequence order
+    private final LinkedHashMap<Long, Mutation> pending = new LinkedHashMap<>();
+    // Newest queued mutation of each entity
+    private final Map<String, Mutation> latest = new HashMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+    // Mutations sent at least once, the server may have applied them so they are never merged into
+    private final Set<Long> attempted = new HashSet<>();
+    private final Map<Long, Listener> waiters = new HashMap<>();
+    // When the server turned down partial updates of each entity type
+    private final Map<Entity, Long> partialUnsupported = new EnumMap<>(Entity.class);
+    private final LinkedHashMap<String, String> serverIds = new LinkedHashMap<>();
+    // Records not yet handed to the log
+    private final List<byte[]> unsynced = new ArrayList<>();
+    private long nextSequence = 1;
+    private int finishedRecords;
+    private boolean commitScheduled;
+    private boolean replayScheduled;
+    private boolean replayRequested;
+    private boolean offline;
+    // Token the server answered 401 to, nothing is sent with it again
+    private String rejectedToken;
+
+    private long appliedCount;
+    private long conflictCount;
+    private long rejectedCount;
+    private long coalescedCount;
+    private long batchCount;
+    private long fullFallbackCount;
+
+    private static MutationOutbox instance;
+
+    private MutationOutbox(Context context) {
+        sessionManager = SessionManager.getInstance(context);
+        log = new OutboxLog(new File(context.getFilesDir(), FILE_NAME));
+        load();
+
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            try {
+                connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                    @Override
+                    public void onAvailable(Network network) {
+                        flush();
+                    }
+                });
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to watch connectivity", e);
+            }
+        }
+        flush();
+    }
+
+    public static synchronized MutationOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new MutationOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @return A new id for an entity created before the server assigned one
+     */
+    public static String newLocalId() {
+        return LOCAL_ID_PREFIX + UUID.randomUUID();
+    }
+
+    public static boolean isLocalId(String id) {
+        return id != null && id.startsWith(LOCAL_ID_PREFIX);
+    }
+
+    /**
+     * Format a date as an HTTP date, for the unmodifiedSince of enqueue
+     */
+    public static String httpDate(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(date);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queue a write and try to send it
+     * The mutation is on disk before it is sent. A local id already assigned a server id is replaced
+     * by it in the id, endpoint and body.
+     * @param entityId Id of the entity written, a local id for a create
+     * @param unmodifiedSince HTTP date of the version an update or delete is based on (optional)
+     * @param callback Outcome of this mutation (optional), told onQueued if it cannot be sent now
+     * @return Queued mutation, or null if it cancelled a pending create or targets an entity that was
+     *         never created
+     */
+    public Mutation enqueue(Entity entity, Operation operation, String entityId, String method, String endpoint,
+                            String body, String unmodifiedSince, Listener callback) {
+        return enqueue(entity, operation, entityId, method, endpoint, body, null, null, null, unmodifiedSince,
+                callback);
+    }
+
+    /**
+     * Queue an update that sends only what changed, see enqueue
+     * Check isPartialUpdateSupported first. The whole entity is sent instead if the server has no
+     * endpoint for partial updates, and listeners see the mutation with its whole body in getFullBody.
+     * @param body Changes since the server's current version, applying them twice must be harmless
+     * @param fullMethod Method of the request writing the whole entity
+     * @param fullEndpoint Endpoint of the request writing the whole entity
+     * @param fullBody Body of the request writing the whole entity
+     */
+    public Mutation enqueuePartial(Entity entity, String entityId, String method, String endpoint, String body,
+                                   String fullMethod, String fullEndpoint, String fullBody, String unmodifiedSince,
+                                   Listener callback) {
+        return enqueue(entity, Operation.UPDATE, entityId, method, endpoint, body, fullMethod, fullEndpoint,
+                fullBody, unmodifiedSince, callback);
+    }
+
+    private Mutation enqueue(Entity entity, Operation operation, String entityId, String method, String endpoint,
+                             String body, String fullMethod, String fullEndpoint, String fullBody,
+                             String unmodifiedSince, Listener callback) {
+        List<Runnable> notifications = new ArrayList<>();
+        Mutation mutation;
+        Mutation orphan = null;
+        boolean queuedOffline;
+
+        String owner = sessionManager.getUserId();
+        synchronized (this) {
+            String serverId = serverIds.get(entityId);
+            long now = System.currentTimeMillis();
+            mutation = new Mutation(nextSequence++, owner, entity, operation, entityId,
+                    UUID.randomUUID().toString(), method, endpoint, body, unmodifiedSince, now, fullMethod,
+                    fullEndpoint, fullBody);
+            if (serverId != null) {
+                mutation = mutation.resolve(entityId, serverId);
+            }
+
+            Mutation previous = latest.get(mutation.key());
+            if (previous == null && isLocalId(mutation.entityId) && operation != Operation.CREATE) {
+                // Its create was cancelled or failed, there is nothing to apply it to
+                orphan = mutation;
+                mutation = null;
+            } else if (previous != null && !attempted.contains(previous.sequence)) {
+                mutation = coalesce(previous, mutation, notifications);
+            }
+
+            queuedOffline = offline;
+            if (mutation != null) {
+                add(mutation);
+                unsynced.add(encode(mutation));
+                if (callback != null && !queuedOffline) {
+                    waiters.put(mutation.sequence, callback);
+                }
+            }
+            scheduleCommit();
+        }
+
+        for (Runnable notification : notifications) {
+            notification.run();
+        }
+        if (orphan != null) {
+            if (callback != null) {
+                callback.onFailed(orphan, "Deleted before it was saved", 404);
+            }
+            return null;
+        }
+        if (mutation == null) {
+            Mutation cancelled = new Mutation(0, owner, entity, operation, entityId, null, method, endpoint,
+                    body, unmodifiedSince, System.currentTimeMillis(), fullMethod, fullEndpoint, fullBody);
+            for (Listener listener : listeners) {
+                listener.onApplied(cancelled, null);
+            }
+            if (callback != null) {
+                callback.onApplied(cancelled, null);
+            }
+            return null;
+        }
+        if (queuedOffline && callback != null) {
+            callback.onQueued(mutation);
+        }
+        flush();
+        return mutation;
+    }
+
+    /**
+     * Send queued mutations, e.g. after signing in
+     */
+    public void flush() {
+        synchronized (this) {
+            if (replayScheduled) {
+                replayRequested = true;
+                return;
+            }
+            replayScheduled = true;
+        }
+        replayExecutor.execute(this::replay);
+    }
+
+    /**
+     * @return Number of queued mutations
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * @return Age of the oldest queued mutation, 0 if the queue is empty
+     */
+    public synchronized long getOldestPendingAgeMillis() {
+        Iterator<Mutation> iterator = pending.values().iterator();
+        return iterator.hasNext() ? System.currentTimeMillis() - iterator.next().createdAt : 0;
+    }
+
+    /**
+     * @return Queued mutations of the signed-in user on one entity type, oldest first
+     */
+    public List<Mutation> getPending(Entity entity) {
+        String owner = sessionManager.getUserId();
+        List<Mutation> mutations = new ArrayList<>();
+        synchronized (this) {
+            for (Mutation mutation : pending.values()) {
+                if (mutation.entity == entity && owner != null && owner.equals(mutation.owner)) {
+                    mutations.add(mutation);
+                }
+            }
+        }
+        return mutations;
+    }
+
+    /**
+     * @return Server id assigned to an entity created offline, or null if not created yet
+     */
+    public synchronized String getServerId(String localId) {
+        return serverIds.get(localId);
+    }
+
+    /**
+     * @return Whether updates of the entity type may be sent as partial updates
+     */
+    public synchronized boolean isPartialUpdateSupported(Entity entity) {
+        Long since = partialUnsupported.get(entity);
+        return since == null || System.currentTimeMillis() - since >= PARTIAL_REPROBE_MILLIS;
+    }
+
+    /**
+     * @return Whether the signed-in user has mutations of the entity queued, i.e. the server copy is
+     *         about to change
+     */
+    public boolean hasPending(Entity entity, String entityId) {
+        String owner = sessionManager.getUserId();
+        synchronized (this) {
+            String serverId = serverIds.get(entityId);
+            return latest.containsKey(keyOf(owner, entity, serverId != null ? serverId : entityId));
+        }
+    }
+
+    /**
+     * @return Whether the last replay stopped because the server could not be reached
+     */
+    public synchronized boolean isOffline() {
+        return offline;
+    }
+
+    public synchronized long getAppliedCount() {
+        return appliedCount;
+    }
+
+    public synchronized long getConflictCount() {
+        return conflictCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return Number of mutations merged into a later one instead of being sent
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * @return Number of replay waves sent
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return Number of partial updates sent again whole because the server turned them down
+     */
+    public synchronized long getFullFallbackCount() {
+        return fullFallbackCount;
+    }
+
+    /**
+     * @return Size of the log on disk
+     */
+    public long getLogBytes() {
+        synchronized (log) {
+            return log.length();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MutationOutbox{depth=" + pending.size()
+                + ", oldestAgeMs=" + getOldestPendingAgeMillis()
+                + ", applied=" + appliedCount
+                + ", conflicts=" + conflictCount
+                + ", rejected=" + rejectedCount
+                + ", coalesced=" + coalescedCount
+                + ", batches=" + batchCount
+                + ", fullFallbacks=" + fullFallbackCount
+                + ", offline=" + offline + "}";
+    }
+
+    /**
+     * Merge a mutation into the unsent one before it
+     * @return Mutation to queue in their place, or null if nothing is left to send
+     */
+    private Mutation coalesce(Mutation previous, Mutation next, List<Runnable> notifications) {
+        Mutation merged;
+        if (previous.operation == Operation.CREATE && next.operation == Operation.UPDATE) {
+            // The entity does not exist on the server yet, create it with the latest content
+            merged = new Mutation(next.sequence, next.owner, next.entity, Operation.CREATE, previous.entityId,
+                    next.idempotencyKey, previous.method, previous.endpoint, withoutId(next.getFullBody()), null,
+                    previous.createdAt);
+        } else if (previous.operation == Operation.CREATE && next.operation == Operation.DELETE) {
+            merged = null;
+        } else if (previous.operation == Operation.UPDATE && next.operation != Operation.CREATE) {
+            // Keep the version the first edit was based on, so a conflict with it is still detected
+            merged = new Mutation(next.sequence, next.owner, next.entity, next.operation, next.entityId,
+                    next.idempotencyKey, next.method, next.endpoint, next.body, previous.unmodifiedSince,
+                    previous.createdAt, next.fullMethod, next.fullEndpoint, next.fullBody);
+        } else {
+            return next;
+        }
+
+        remove(previous);
+        unsynced.add(encodeDone(previous.sequence));
+        finishedRecords++;
+        coalescedCount++;
+        Listener waiter = waiters.remove(previous.sequence);
+        if (waiter != null) {
+            notifications.add(() -> waiter.onQueued(previous));
+        }
+        return merged;
+    }
+
+    private void add(Mutation mutation) {
+        pending.put(mutation.sequence, mutation);
+        latest.put(mutation.key(), mutation);
+    }
+
+    private void remove(Mutation mutation) {
+        pending.remove(mutation.sequence);
+        // Mutations of an entity finish oldest first, so only the newest one leaves nothing behind
+        if (latest.get(mutation.key()) == mutation) {
+            latest.remove(mutation.key());
+        }
+    }
+
+    /**
+     * Rewrite queued mutations of an entity created offline to its server id
+     */
+    private void resolvePending(String localId, String serverId) {
+        for (Map.Entry<Long, Mutation> entry : pending.entrySet()) {
+            entry.setValue(entry.getValue().resolve(localId, serverId));
+        }
+        latest.clear();
+        for (Mutation mutation : pending.values()) {
+            latest.put(mutation.key(), mutation);
+        }
+    }
+
+    private void replay() {
+        while (true) {
+            String token = sessionManager.getAuthToken();
+            String owner = sessionManager.getUserId();
+            List<Mutation> wave = new ArrayList<>();
+            synchronized (this) {
+                if (token != null && owner != null && !token.equals(rejectedToken)) {
+                    nextWave(owner, wave);
+                }
+                if (wave.isEmpty()) {
+                    if (replayRequested) {
+                        replayRequested = false;
+                        continue;
+                    }
+                    replayScheduled = false;
+                    if (token == null || token.equals(rejectedToken)) {
+                        releaseWaiters();
+                    }
+                    return;
+                }
+                batchCount++;
+            }
+
+            HttpTransport.Response[] responses = send(wave, token);
+            boolean unreachable = false;
+            boolean unauthorized = false;
+            for (int i = 0; i < wave.size(); i++) {
+                Outcome outcome = handle(wave.get(i), responses[i]);
+                unreachable |= outcome == Outcome.UNREACHABLE;
+                unauthorized |= outcome == Outcome.UNAUTHORIZED;
+            }
+
+            if (unreachable || unauthorized) {
+                synchronized (this) {
+                    if (unreachable) {
+                        offline = true;
+                    } else {
+                        // Nothing more can be sent with this token, wait for the user to sign in again
+                        rejectedToken = token;
+                    }
+                    replayScheduled = false;
+                    replayRequested = false;
+                    releaseWaiters();
+                }
+                return;
+            }
+            synchronized (this) {
+                offline = false;
+            }
+        }
+    }
+
+    /**
+     * Oldest sendable mutation of each entity, in sequence order
+     * Mutations of other users stay parked until they sign in again.
+     */
+    private void nextWave(String owner, List<Mutation> wave) {
+        Set<String> seen = new HashSet<>();
+        for (Mutation mutation : pending.values()) {
+            if (!owner.equals(mutation.owner) || !seen.add(mutation.key())
+                    || inFlight.contains(mutation.sequence)) {
+                continue;
+            }
+            if (isLocalId(mutation.entityId) && mutation.operation != Operation.CREATE) {
+                // Its create was dropped, nothing on the server to apply it to
+                continue;
+            }
+            inFlight.add(mutation.sequence);
+            attempted.add(mutation.sequence);
+            wave.add(mutation);
+            if (wave.size() == MAX_BATCH) {
+                return;
+            }
+        }
+    }
+
+    private HttpTransport.Response[] send(List<Mutation> wave, String token) {
+        HttpTransport.Response[] responses = new HttpTransport.Response[wave.size()];
+        CountDownLatch done = new CountDownLatch(wave.size());
+        for (int i = 0; i < wave.size(); i++) {
+            int index = i;
+            Mutation mutation = wave.get(i);
+            sendOne(mutation, token, response -> {
+                responses[index] = response;
+                done.countDown();
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return responses;
+    }
+
+    /**
+     * Send a mutation, retries wait off the network threads so a failing wave does not hold them
+     */
+    private void sendOne(Mutation mutation, String token, Consumer<HttpTransport.Response> done) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Idempotency-Key", mutation.idempotencyKey);
+        if (mutation.unmodifiedSince != null) {
+            headers.put("If-Unmodified-Since", mutation.unmodifiedSince);
+        }
+        transport.enqueue(NetworkExecutor.Priority.PREFETCH, null, mutation.method, mutation.endpoint, token,
+                mutation.body, headers, new HttpTransport.ResponseCallback() {
+                    @Override
+                    public void onResponse(HttpTransport.Response response) {
+                        done.accept(response);
+                    }
+
+                    @Override
+                    public void onFailure(IOException e) {
+                        Log.e(TAG, "Error sending " + mutation.method + " " + mutation.endpoint, e);
+                        done.accept(new HttpTransport.Response(-1, e.getMessage()));
+                    }
+                });
+    }
+
+    /**
+     * @return Whether the mutation is settled, or why replay must stop with it still queued
+     */
+    private Outcome handle(Mutation mutation, HttpTransport.Response response) {
+        int statusCode = response != null ? response.getStatusCode() : -1;
+        String body = response != null ? response.getBody() : null;
+
+        if ((statusCode >= 200 && statusCode < 300)
+                || (statusCode == 404 && mutation.operation == Operation.DELETE)) {
+            applied(mutation, body);
+            return Outcome.SETTLED;
+        }
+        if ((statusCode == 404 || statusCode == 405 || statusCode == 501) && mutation.isPartial()) {
+            // No endpoint for partial updates, a missing entity shows up as a 404 on the fallback
+            fallBackToFull(mutation);
+            return Outcome.SETTLED;
+        }
+        if (statusCode == 409 || statusCode == 412) {
+            failed(mutation, "Changed on the server since it was edited", statusCode, true);
+            return Outcome.SETTLED;
+        }
+        if (statusCode == 404) {
+            failed(mutation, "Deleted on the server", statusCode, true);
+            return Outcome.SETTLED;
+        }
+        if (statusCode == 401) {
+            synchronized (this) {
+                inFlight.remove(mutation.sequence);
+            }
+            return Outcome.UNAUTHORIZED;
+        }
+        if (statusCode == -1 || statusCode == 408 || statusCode == 429 || statusCode >= 500) {
+            synchronized (this) {
+                inFlight.remove(mutation.sequence);
+            }
+            return Outcome.UNREACHABLE;
+        }
+        // Any other answer, e.g. 403 for a set of another user, fails the same way on every retry
+        failed(mutation, errorMessage(body, statusCode), statusCode, false);
+        return Outcome.SETTLED;
+    }
+
+    private void applied(Mutation mutation, String body) {
+        Listener waiter;
+        synchronized (this) {
+            finish(mutation);
+            appliedCount++;
+            waiter = waiters.remove(mutation.sequence);
+            if (mutation.operation == Operation.CREATE && isLocalId(mutation.entityId)) {
+                String serverId = idOf(body);
+                if (serverId != null) {
+                    assignServerId(mutation.entityId, serverId);
+                }
+            }
+            scheduleCommit();
+        }
+        // Listeners first, so caches are up to date when the waiter hears about it
+        for (Listener listener : listeners) {
+            listener.onApplied(mutation, body);
+        }
+        if (waiter != null) {
+            waiter.onApplied(mutation, body);
+        }
+    }
+
+    /**
+     * Queue the fallback of a partial update in its place, it goes out in the next wave
+     */
+    private void fallBackToFull(Mutation mutation) {
+        synchronized (this) {
+            Mutation full = mutation.toFull();
+            pending.put(full.sequence, full);
+            if (latest.get(full.key()) == mutation) {
+                latest.put(full.key(), full);
+            }
+            inFlight.remove(full.sequence);
+            unsynced.add(encode(full));
+            if (isPartialUpdateSupported(mutation.entity)) {
+                Log.w(TAG, "Partial updates not supported for " + mutation.entity + ", sending them whole");
+                long now = System.currentTimeMillis();
+                partialUnsupported.put(mutation.entity, now);
+                unsynced.add(encodePartialUnsupported(mutation.entity, now));
+            }
+            fullFallbackCount++;
+            scheduleCommit();
+        }
+    }
+
+    /**
+     * Drop a mutation and the later ones of the same entity, which depended on it
+     */
+    private void failed(Mutation mutation, String error, int statusCode, boolean conflict) {
+        List<Mutation> dropped = new ArrayList<>();
+        List<Listener> droppedWaiters = new ArrayList<>();
+        synchronized (this) {
+            String key = mutation.key();
+            dropped.add(mutation);
+            for (Mutation later : pending.values()) {
+                if (later.sequence != mutation.sequence && later.key().equals(key)) {
+                    dropped.add(later);
+                }
+            }
+            for (Mutation drop : dropped) {
+                finish(drop);
+                droppedWaiters.add(waiters.remove(drop.sequence));
+            }
+            if (conflict) {
+                conflictCount++;
+            } else {
+                rejectedCount++;
+            }
+            scheduleCommit();
+        }
+        Log.e(TAG, mutation.method + " " + mutation.endpoint + " dropped: " + error);
+
+        for (int i = 0; i < dropped.size(); i++) {
+            for (Listener listener : listeners) {
+                listener.onFailed(dropped.get(i), error, statusCode);
+            }
+            Listener waiter = droppedWaiters.get(i);
+            if (waiter != null) {
+                waiter.onFailed(dropped.get(i), error, statusCode);
+            }
+        }
+    }
+
+    private void finish(Mutation mutation) {
+        remove(mutation);
+        inFlight.remove(mutation.sequence);
+        attempted.remove(mutation.sequence);
+        unsynced.add(encodeDone(mutation.sequence));
+        finishedRecords++;
+    }
+
+    private void assignServerId(String localId, String serverId) {
+        serverIds.put(localId, serverId);
+        if (serverIds.size() > MAX_SERVER_IDS) {
+            Iterator<String> eldest = serverIds.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        unsynced.add(encodeServerId(localId, serverId));
+        resolvePending(localId, serverId);
+    }
+
+    /**
+     * Tell waiters their mutations stay queued, they hear nothing more about them
+     */
+    private void releaseWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        List<Mutation> mutations = new ArrayList<>(waiters.size());
+        List<Listener> released = new ArrayList<>(waiters.size());
+        for (Map.Entry<Long, Listener> entry : waiters.entrySet()) {
+            Mutation mutation = pending.get(entry.getKey());
+            if (mutation != null) {
+                mutations.add(mutation);
+                released.add(entry.getValue());
+            }
+        }
+        waiters.clear();
+        // Called with the lock held, notify from the log thread so callbacks cannot deadlock
+        logExecutor.execute(() -> {
+            for (int i = 0; i < released.size(); i++) {
+                released.get(i).onQueued(mutations.get(i));
+            }
+        });
+    }
+
+    private void scheduleCommit() {
+        if (!commitScheduled && !unsynced.isEmpty()) {
+            commitScheduled = true;
+            logExecutor.execute(this::commit);
+        }
+    }
+
+    /**
+     * Write every record produced since the last commit with one fsync, or compact the log
+     */
+    private void commit() {
+        List<byte[]> records;
+        boolean compact;
+        synchronized (this) {
+            commitScheduled = false;
+            compact = finishedRecords > 0 && (pending.isEmpty() || finishedRecords > COMPACT_THRESHOLD);
+            if (compact) {
+                records = snapshot();
+                finishedRecords = 0;
+            } else {
+                records = new ArrayList<>(unsynced);
+            }
+            unsynced.clear();
+        }
+
+        synchronized (log) {
+            try {
+                if (compact) {
+                    log.rewrite(records);
+                } else {
+                    for (byte[] record : records) {
+                        log.append(record);
+                    }
+                    log.sync();
+                }
+            } catch (IOException e) {
+                // Appended records stay buffered in the log for the next commit
+                Log.e(TAG, "Failed to write the outbox log", e);
+                if (compact) {
+                    synchronized (this) {
+                        unsynced.addAll(0, records);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records describing the current state, the content of a compacted log
+     */
+    private List<byte[]> snapshot() {
+        List<byte[]> records = new ArrayList<>(partialUnsupported.size() + serverIds.size() + pending.size());
+        for (Map.Entry<Entity, Long> entry : partialUnsupported.entrySet()) {
+            records.add(encodePartialUnsupported(entry.getKey(), entry.getValue()));
+        }
+        for (Map.Entry<String, String> entry : serverIds.entrySet()) {
+            records.add(encodeServerId(entry.getKey(), entry.getValue()));
+        }
+        for (Mutation mutation : pending.values()) {
+            records.add(encode(mutation));
+        }
+        return records;
+    }
+
+    private void load() {
+        List<byte[]> records;
+        try {
+            records = log.readAll();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read the outbox log", e);
+            return;
+        }
+
+        synchronized (this) {
+            for (byte[] record : records) {
+                try {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+                    switch (in.readByte()) {
+                        case RECORD_MUTATION:
+                            // Written again with the same sequence when a partial update falls back
+                            Mutation mutation = decode(in);
+                            add(mutation);
+                            nextSequence = Math.max(nextSequence, mutation.sequence + 1);
+                            break;
+                        case RECORD_DONE:
+                            Mutation done = pending.get(in.readLong());
+                            if (done != null) {
+                                remove(done);
+                            }
+                            finishedRecords++;
+                            break;
+                        case RECORD_SERVER_ID:
+                            String localId = readString(in);
+                            String serverId = readString(in);
+                            serverIds.put(localId, serverId);
+                            resolvePending(localId, serverId);
+                            break;
+                        case RECORD_PARTIAL_UNSUPPORTED:
+                            Entity entity = Entity.values()[in.readByte()];
+                            partialUnsupported.put(entity, in.readLong());
+                            break;
+                        default:
+                            Log.w(TAG, "Skipping unknown outbox record");
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    Log.e(TAG, "Skipping unreadable outbox record", e);
+                }
+            }
+            // The server may have applied them before the process died
+            attempted.addAll(pending.keySet());
+        }
+        adoptUnowned();
+    }
+
+    /**
+     * Give mutations logged before owners were recorded to the signed-in user, the only one who could
+     * have made them since the last sign-out, otherwise they are never sent
+     */
+    private void adoptUnowned() {
+        String owner = sessionManager.getUserId();
+        synchronized (this) {
+            Iterator<Mutation> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                Mutation mutation = iterator.next();
+                if (mutation.owner != null) {
+                    continue;
+                }
+                finishedRecords++;
+                if (owner != null) {
+                    // Replaced in place, so it keeps its turn
+                    Mutation adopted = mutation.withOwner(owner);
+                    pending.put(adopted.sequence, adopted);
+                    unsynced.add(encode(adopted));
+                } else {
+                    iterator.remove();
+                    unsynced.add(encodeDone(mutation.sequence));
+                    Log.w(TAG, "Dropping " + mutation.method + " " + mutation.endpoint
+                            + " made by an unknown user");
+                }
+            }
+            latest.clear();
+            for (Mutation mutation : pending.values()) {
+                latest.put(mutation.key(), mutation);
+            }
+            scheduleCommit();
+        }
+    }
+
+    private static String keyOf(String owner, Entity entity, String entityId) {
+        return owner + ":" + entity.ordinal() + ":" + entityId;
+    }
+
+    private static byte[] encode(Mutation mutation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_MUTATION);
+            out.writeLong(mutation.sequence);
+            out.writeByte(mutation.entity.ordinal());
+            out.writeByte(mutation.operation.ordinal());
+            writeString(out, mutation.entityId);
+            writeString(out, mutation.idempotencyKey);
+            writeString(out, mutation.method);
+            writeString(out, mutation.endpoint);
+            writeString(out, mutation.body);
+            writeString(out, mutation.unmodifiedSince);
+            out.writeLong(mutation.createdAt);
+            writeString(out, mutation.fullMethod);
+            writeString(out, mutation.fullEndpoint);
+            writeString(out, mutation.fullBody);
+            writeString(out, mutation.owner);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Mutation decode(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        Entity entity = Entity.values()[in.readByte()];
+        Operation operation = Operation.values()[in.readByte()];
+        String entityId = readString(in);
+        String idempotencyKey = readString(in);
+        String method = readString(in);
+        String endpoint = readString(in);
+        String body = readString(in);
+        String unmodifiedSince = readString(in);
+        long createdAt = in.readLong();
+        // Records written before the partial update fallback and the owner end here
+        String fullMethod = null;
+        String fullEndpoint = null;
+        String fullBody = null;
+        String owner = null;
+        if (in.available() > 0) {
+            fullMethod = readString(in);
+            fullEndpoint = readString(in);
+            fullBody = readString(in);
+        }
+        if (in.available() > 0) {
+            owner = readString(in);
+        }
+        return new Mutation(sequence, owner, entity, operation, entityId, idempotencyKey, method, endpoint, body,
+                unmodifiedSince, createdAt, fullMethod, fullEndpoint, fullBody);
+    }
+
+    private static byte[] encodeDone(long sequence) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_DONE);
+            out.writeLong(sequence);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeServerId(String localId, String serverId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_SERVER_ID);
+            writeString(out, localId);
+            writeString(out, serverId);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodePartialUnsupported(Entity entity, long since) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(10);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_PARTIAL_UNSUPPORTED);
+            out.writeByte(entity.ordinal());
+            out.writeLong(since);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Length-prefixed UTF-8, -1 for null (writeUTF is limited to 64 KB)
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Request body without its id, so an update body can serve as a create body
+     */
+    private static String withoutId(String body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(body);
+            json.remove("id");
+            json.remove("Id");
+            return json.toString();
+        } catch (JSONException e) {
+            return body;
+        }
+    }
+
+    private static String idOf(String body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(body);
+            Object id = json.has("id") ? json.get("id") : json.opt("Id");
+            return id != null && id != JSONObject.NULL ? String.valueOf(id) : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static String errorMessage(String body, int statusCode) {
+        if (body != null) {
+            try {
+                String message = new JSONObject(body).optString("message", null);
+                if (message != null && !message.isEmpty()) {
+                    return message;
+                }
+            } catch (JSONException e) {
+                // Not JSON, use the generic message
+            }
+        }
+        return "Rejected by the server (" + statusCode + ")";
+    }
+}
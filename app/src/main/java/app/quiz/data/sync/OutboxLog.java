@@ -0,0 +1,161 @@
+package app.quiz.data.sync;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of records that survives the process being killed at any point
+ * Each record is framed as its length and a CRC32 of its bytes, followed by the bytes. A record cut
+ * short by a crash or failing its checksum ends the log: it and anything after it are dropped when
+ * the log is read. Appends are buffered until sync(), so a burst of records costs one write and one
+ * fsync (group commit).
+ * Not thread-safe, used from one thread at a time.
+ */
+public class OutboxLog {
+    private static final String TAG = "OutboxLog";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int FRAME_BYTES = 8; // length, crc
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final File file;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final CRC32 crc = new CRC32();
+    private long length;
+
+    public OutboxLog(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Read every intact record, dropping a damaged tail from the file
+     * @return Records in the order they were appended
+     */
+    public List<byte[]> readAll() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        if (!file.exists()) {
+            length = 0;
+            return records;
+        }
+
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int size;
+                try {
+                    size = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (size < 0 || size > MAX_RECORD_BYTES) {
+                    break;
+                }
+                int checksum = in.readInt();
+                byte[] record = new byte[size];
+                in.readFully(record);
+                crc.reset();
+                crc.update(record, 0, size);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                records.add(record);
+                valid += FRAME_BYTES + size;
+            }
+        } catch (EOFException e) {
+            // Torn last record, dropped below
+        }
+
+        if (valid < file.length()) {
+            Log.w(TAG, "Dropping " + (file.length() - valid) + " damaged bytes at the end of " + file);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+        length = valid;
+        return records;
+    }
+
+    /**
+     * Buffer a record, it is written by the next sync()
+     */
+    public void append(byte[] record) {
+        crc.reset();
+        crc.update(record, 0, record.length);
+        try {
+            pendingOut.writeInt(record.length);
+            pendingOut.writeInt((int) crc.getValue());
+            pendingOut.write(record);
+        } catch (IOException e) {
+            // Writes to a ByteArrayOutputStream do not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write buffered records and force them to disk
+     */
+    public void sync() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            pending.writeTo(out);
+            out.getFD().sync();
+        } catch (IOException e) {
+            // Cut off a partial write, so the records can be appended again after it
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length);
+            } catch (IOException truncateError) {
+                Log.e(TAG, "Failed to truncate " + file, truncateError);
+            }
+            throw e;
+        }
+        length += pending.size();
+        pending.reset();
+    }
+
+    /**
+     * Replace the whole log with the given records, e.g. to drop records that are no longer needed
+     */
+    public void rewrite(List<byte[]> records) throws IOException {
+        pending.reset();
+        for (byte[] record : records) {
+            append(record);
+        }
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            pending.writeTo(out);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to replace " + file);
+        }
+        length = pending.size();
+        pending.reset();
+    }
+
+    /**
+     * @return Bytes on disk, buffered records excluded
+     */
+    public long length() {
+        return length;
+    }
+}
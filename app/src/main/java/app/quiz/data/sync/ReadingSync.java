@@ -0,0 +1,577 @@
+package app.quiz.data.sync;
+
+import android.content.Context;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import app.quiz.data.models.PagedResponse;
+import app.quiz.data.models.Reading;
+import app.quiz.data.models.ReadingQuestion;
+import app.quiz.data.remote.JsonStreamParser;
+import app.quiz.data.remote.ReadingService;
+import app.quiz.data.remote.RequestHandle;
+import app.quiz.data.remote.SingleFlight;
+
+/**
+ * Local copy of the public reading catalog, kept up to date by fetching only what changed
+ * The newest updatedAt (or createdAt) received from the server is kept as a high-water mark, and
+ * each sync asks only for readings updated since then, minus OVERLAP_MILLIS so a reading updated
+ * while the previous sync was paging is not missed. Received readings replace the stored ones with
+ * the same id. The watermark comes from the server's clock, never the device's.
+ * Changed-since queries cannot report deletions, so the whole catalog is fetched again when the
+ * store is empty and every FULL_SYNC_INTERVAL. Deletes made in the app are applied as the outbox
+ * sends them.
+ * The first page of each sync tells whether the server supports the filter: if it returns readings
+ * without a timestamp or older than asked for, or the catalog has more than MAX_SYNC_PAGES pages,
+ * the store is dropped and canServePages tells callers to page the server directly. Support is
+ * checked again with one page after FULL_SYNC_INTERVAL.
+ * The catalog and watermark are written together to one file, so they survive restarts.
+ * Thread-safe.
+ */
+public class ReadingSync {
+    private static final String TAG = "ReadingSync";
+    private static final String FILE_NAME = "reading-sync.json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String SYNC_KEY = "sync";
+    private static final long OVERLAP_MILLIS = 5 * 60 * 1000; // 5 minutes
+    private static final long FULL_SYNC_INTERVAL = 24 * 60 * 60 * 1000; // 1 day
+    private static final int SYNC_PAGE_SIZE = 100;
+    private static final int MAX_SYNC_PAGES = 100;
+
+    // Newest first, readings without a creation date last
+    private static final Comparator<Reading> NEWEST_FIRST = (a, b) -> {
+        Date first = a.getCreatedAt();
+        Date second = b.getCreatedAt();
+        if (first == null || second == null) {
+            return first == second ? a.getId().compareTo(b.getId()) : first == null ? 1 : -1;
+        }
+        int order = second.compareTo(first);
+        return order != 0 ? order : a.getId().compareTo(b.getId());
+    };
+
+    /**
+     * Source of the pages of changed readings, the server outside tests
+     */
+    interface ChangeSource {
+        RequestHandle getReadingsChangedSince(Date updatedSince, int pageNumber, int pageSize,
+                                              ReadingService.ReadingCallback<PagedResponse<Reading>> callback);
+    }
+
+    private final ReadingService readingService;
+    private final ChangeSource changeSource;
+    private final File file;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final SingleFlight<ReadingService.ReadingCallback<Integer>> syncFlight = new SingleFlight<>();
+
+    private final Map<String, Reading> readings = new HashMap<>();
+    // Readings in list order, rebuilt when the store changes
+    private List<Reading> ordered = Collections.emptyList();
+    private Date watermark;
+    private long fullSyncAt;
+    // When the server was found not to support changed-since queries, 0 while the store is in use
+    private long fallbackAt;
+
+    private long syncCount;
+    private long fullSyncCount;
+    private int lastReceivedCount;
+
+    private static ReadingSync instance;
+
+    private ReadingSync(Context context) {
+        readingService = ReadingService.getInstance(context);
+        changeSource = readingService::getReadingsChangedSince;
+        file = new File(context.getFilesDir(), FILE_NAME);
+        MutationOutbox.getInstance(context).addListener(new OutboxListener());
+        diskExecutor.execute(this::load);
+    }
+
+    /**
+     * Sync against another source of changed readings, for tests
+     */
+    ReadingSync(ChangeSource changeSource, File file) {
+        readingService = ReadingService.getInstance();
+        this.changeSource = changeSource;
+        this.file = file;
+        diskExecutor.execute(this::load);
+    }
+
+    public static synchronized ReadingSync getInstance(Context context) {
+        if (instance == null) {
+            instance = new ReadingSync(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Fetch the readings changed since the last sync and merge them into the store
+     * Concurrent calls share one sync. On failure the store and watermark are left as they were.
+     * Nothing is fetched while the server is known not to support changed-since queries.
+     * @param callback Told the number of readings added, changed or removed
+     * @return Handle to cancel the callback, the sync is cancelled once no caller waits for it
+     */
+    public RequestHandle sync(ReadingService.ReadingCallback<Integer> callback) {
+        RequestHandle handle = new RequestHandle();
+        ReadingService.ReadingCallback<Integer> guarded = guard(handle, callback);
+        RequestHandle flight = syncFlight.join(SYNC_KEY, guarded);
+        handle.onCancel(() -> syncFlight.leave(SYNC_KEY, guarded));
+        if (flight == null) {
+            return handle;
+        }
+
+        // Queued behind the load, so the watermark read from disk is used
+        diskExecutor.execute(() -> {
+            Date since;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (fallbackAt != 0 && now - fallbackAt < FULL_SYNC_INTERVAL) {
+                    syncFlight.complete(SYNC_KEY, flight, waiting -> waiting.onSuccess(0));
+                    return;
+                }
+                boolean fullDue = watermark == null || readings.isEmpty() || now - fullSyncAt > FULL_SYNC_INTERVAL;
+                since = fullDue ? null : new Date(watermark.getTime() - OVERLAP_MILLIS);
+            }
+            fetchPage(flight, since, 1, new ArrayList<>());
+        });
+        return handle;
+    }
+
+    /**
+     * Get a page of the stored readings, newest first, with changes not sent yet applied
+     * @return Handle to cancel the request
+     */
+    public RequestHandle getPage(int pageNumber, int pageSize,
+                                 ReadingService.ReadingCallback<PagedResponse<Reading>> callback) {
+        RequestHandle handle = new RequestHandle();
+        ReadingService.ReadingCallback<PagedResponse<Reading>> guarded = guard(handle, callback);
+        diskExecutor.execute(() -> {
+            if (handle.isCancelled()) {
+                return;
+            }
+            List<Reading> all;
+            synchronized (this) {
+                all = ordered;
+            }
+            int from = Math.min((pageNumber - 1) * pageSize, all.size());
+            int to = Math.min(from + pageSize, all.size());
+            int totalPages = Math.max(1, (all.size() + pageSize - 1) / pageSize);
+            PagedResponse<Reading> page = new PagedResponse<>(new ArrayList<>(all.subList(from, to)), all.size(),
+                    pageNumber, pageSize, totalPages);
+            guarded.onSuccess(readingService.withPendingChanges(page, pageNumber, null));
+        });
+        return handle;
+    }
+
+    public synchronized int getReadingCount() {
+        return readings.size();
+    }
+
+    /**
+     * @return Whether getPage can list the catalog, false if the server does not support changed-since
+     *         queries and callers must page the server instead
+     */
+    public synchronized boolean canServePages() {
+        return fallbackAt == 0;
+    }
+
+    /**
+     * @return Newest update time received from the server, or null before the first sync
+     */
+    public synchronized Date getWatermark() {
+        return watermark;
+    }
+
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * @return Number of syncs that fetched the whole catalog
+     */
+    public synchronized long getFullSyncCount() {
+        return fullSyncCount;
+    }
+
+    /**
+     * @return Number of readings transferred by the last sync
+     */
+    public synchronized int getLastReceivedCount() {
+        return lastReceivedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ReadingSync{readings=" + readings.size()
+                + ", watermark=" + (watermark != null ? JsonStreamParser.formatDate(watermark) : null)
+                + ", syncs=" + syncCount
+                + ", fullSyncs=" + fullSyncCount
+                + ", lastReceived=" + lastReceivedCount
+                + ", fallback=" + (fallbackAt != 0) + "}";
+    }
+
+    private void fetchPage(RequestHandle flight, Date since, int pageNumber, List<Reading> received) {
+        if (flight.isCancelled()) {
+            return;
+        }
+        RequestHandle request = changeSource.getReadingsChangedSince(since, pageNumber, SYNC_PAGE_SIZE,
+                new ReadingService.ReadingCallback<PagedResponse<Reading>>() {
+                    @Override
+                    public void onSuccess(PagedResponse<Reading> result) {
+                        if (result.getItems() != null) {
+                            received.addAll(result.getItems());
+                        }
+                        if (pageNumber == 1 && !isSupported(since, result)) {
+                            int changed = fallBack();
+                            syncFlight.complete(SYNC_KEY, flight, waiting -> waiting.onSuccess(changed));
+                            return;
+                        }
+                        if (pageNumber < result.getTotalPages() && pageNumber < MAX_SYNC_PAGES
+                                && result.getItems() != null && !result.getItems().isEmpty()) {
+                            fetchPage(flight, since, pageNumber + 1, received);
+                            return;
+                        }
+                        int changed = apply(since, received);
+                        syncFlight.complete(SYNC_KEY, flight, waiting -> waiting.onSuccess(changed));
+                    }
+
+                    @Override
+                    public void onError(String error, int statusCode) {
+                        Log.e(TAG, "Sync failed on page " + pageNumber + ": " + error);
+                        syncFlight.complete(SYNC_KEY, flight, waiting -> waiting.onError(error, statusCode));
+                    }
+                });
+        flight.onCancel(request::cancel);
+    }
+
+    /**
+     * Whether the first page of a sync shows the server can answer changed-since queries
+     */
+    private static boolean isSupported(Date since, PagedResponse<Reading> firstPage) {
+        if (firstPage.getTotalPages() > MAX_SYNC_PAGES) {
+            Log.w(TAG, "Catalog of " + firstPage.getTotalCount() + " readings is too large to store");
+            return false;
+        }
+        if (firstPage.getItems() == null) {
+            return true;
+        }
+        for (Reading reading : firstPage.getItems()) {
+            Date stamp = stampOf(reading);
+            if (stamp == null || (since != null && stamp.before(since))) {
+                Log.w(TAG, "Server does not filter readings by update time");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drop the store, callers page the server until support is checked again
+     * @return Number of readings removed
+     */
+    private int fallBack() {
+        int removed;
+        long savedFallbackAt;
+        synchronized (this) {
+            removed = readings.size();
+            readings.clear();
+            watermark = null;
+            fallbackAt = System.currentTimeMillis();
+            syncCount++;
+            lastReceivedCount = 0;
+            reorder();
+            savedFallbackAt = fallbackAt;
+        }
+        diskExecutor.execute(() -> save(Collections.emptyList(), null, 0, savedFallbackAt));
+        return removed;
+    }
+
+    /**
+     * Merge a sync's readings into the store and advance the watermark
+     * @param since Watermark the readings were asked for with, null for the whole catalog
+     * @return Number of readings added, changed or removed
+     */
+    private int apply(Date since, List<Reading> received) {
+        List<Reading> snapshot;
+        Date savedWatermark;
+        long savedFullSyncAt;
+        int changed = 0;
+        synchronized (this) {
+            boolean full = since == null;
+            fallbackAt = 0;
+            Map<String, Reading> previous = full ? new HashMap<>(readings) : readings;
+            if (full) {
+                readings.clear();
+                watermark = null;
+            }
+            for (Reading reading : received) {
+                Reading old = previous.get(reading.getId());
+                if (old == null || stampOf(old) == null || !stampOf(old).equals(stampOf(reading))) {
+                    changed++;
+                }
+                readings.put(reading.getId(), reading);
+                Date stamp = stampOf(reading);
+                if (stamp != null && (watermark == null || stamp.after(watermark))) {
+                    watermark = stamp;
+                }
+            }
+            if (full) {
+                for (String id : previous.keySet()) {
+                    if (!readings.containsKey(id)) {
+                        changed++;
+                    }
+                }
+                fullSyncAt = System.currentTimeMillis();
+                fullSyncCount++;
+            }
+            syncCount++;
+            lastReceivedCount = received.size();
+            if (changed > 0 || full) {
+                reorder();
+            }
+            snapshot = ordered;
+            savedWatermark = watermark;
+            savedFullSyncAt = fullSyncAt;
+        }
+        Log.d(TAG, "Synced " + received.size() + " readings since "
+                + (since != null ? JsonStreamParser.formatDate(since) : "the beginning") + ", " + changed + " changed");
+        if (since == null || !received.isEmpty()) {
+            diskExecutor.execute(() -> save(snapshot, savedWatermark, savedFullSyncAt, 0));
+        }
+        return changed;
+    }
+
+    private static Date stampOf(Reading reading) {
+        return reading.getUpdatedAt() != null ? reading.getUpdatedAt() : reading.getCreatedAt();
+    }
+
+    private void reorder() {
+        List<Reading> list = new ArrayList<>(readings.values());
+        Collections.sort(list, NEWEST_FIRST);
+        ordered = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Apply a change the outbox sent, so the list shows it before the next sync
+     * Runs on the disk thread.
+     */
+    private void applyLocal(String removedId, Reading updated) {
+        List<Reading> snapshot;
+        Date savedWatermark;
+        long savedFullSyncAt;
+        long savedFallbackAt;
+        synchronized (this) {
+            if (fallbackAt != 0) {
+                // The list comes from the server, nothing is stored
+                return;
+            }
+            if (removedId != null) {
+                readings.remove(removedId);
+            }
+            if (updated != null && !updated.getId().isEmpty()) {
+                // The watermark is left alone, the next sync still asks for this change
+                readings.put(updated.getId(), updated);
+            }
+            reorder();
+            snapshot = ordered;
+            savedWatermark = watermark;
+            savedFullSyncAt = fullSyncAt;
+            savedFallbackAt = fallbackAt;
+        }
+        save(snapshot, savedWatermark, savedFullSyncAt, savedFallbackAt);
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        List<Reading> loaded = new ArrayList<>();
+        Date loadedWatermark = null;
+        long loadedFullSyncAt = 0;
+        long loadedFallbackAt = 0;
+        try (JsonReader reader = JsonStreamParser.newReader(new BufferedInputStream(new FileInputStream(file)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "watermark":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                        } else {
+                            loadedWatermark = JsonStreamParser.parseDate(reader.nextString());
+                        }
+                        break;
+                    case "fullSyncAt":
+                        loadedFullSyncAt = reader.nextLong();
+                        break;
+                    case "fallbackAt":
+                        loadedFallbackAt = reader.nextLong();
+                        break;
+                    case "readings":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            loaded.add(JsonStreamParser.readReading(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            // Starts over with a full sync
+            Log.e(TAG, "Discarding unreadable " + file, e);
+            file.delete();
+            return;
+        }
+
+        synchronized (this) {
+            for (Reading reading : loaded) {
+                readings.put(reading.getId(), reading);
+            }
+            watermark = loadedWatermark;
+            fullSyncAt = loadedFullSyncAt;
+            fallbackAt = loadedFallbackAt;
+            reorder();
+        }
+    }
+
+    /**
+     * Write the catalog and its watermark, replacing the file only once the new one is complete
+     */
+    private void save(List<Reading> snapshot, Date savedWatermark, long savedFullSyncAt, long savedFallbackAt) {
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.beginObject();
+            writer.name("watermark").value(savedWatermark != null ? JsonStreamParser.formatDate(savedWatermark) : null);
+            writer.name("fullSyncAt").value(savedFullSyncAt);
+            writer.name("fallbackAt").value(savedFallbackAt);
+            writer.name("readings").beginArray();
+            for (Reading reading : snapshot) {
+                writeReading(writer, reading);
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to save " + file, e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Failed to replace " + file);
+            temp.delete();
+        }
+    }
+
+    private static void writeReading(JsonWriter writer, Reading reading) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(reading.getId());
+        writer.name("title").value(reading.getTitle());
+        writer.name("description").value(reading.getDescription());
+        writer.name("content").value(reading.getContent());
+        writer.name("imageUrl").value(reading.getImageUrl());
+        writer.name("userId").value(reading.getUserId());
+        if (reading.getCreatedAt() != null) {
+            writer.name("createdAt").value(JsonStreamParser.formatDate(reading.getCreatedAt()));
+        }
+        if (reading.getUpdatedAt() != null) {
+            writer.name("updatedAt").value(JsonStreamParser.formatDate(reading.getUpdatedAt()));
+        }
+        if (reading.getQuestions() != null) {
+            writer.name("questions").beginArray();
+            for (ReadingQuestion question : reading.getQuestions()) {
+                writer.beginObject();
+                writer.name("id").value(question.getId());
+                writer.name("questionText").value(question.getQuestionText());
+                writer.name("questionType").value(question.getQuestionType());
+                writer.name("optionA").value(question.getOptionA());
+                writer.name("optionB").value(question.getOptionB());
+                writer.name("optionC").value(question.getOptionC());
+                writer.name("optionD").value(question.getOptionD());
+                writer.name("correctOption").value(question.getCorrectOption());
+                writer.name("answer").value(question.getAnswer());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Wrap a callback so it is delivered at most once and never after the handle is cancelled
+     */
+    private static <T> ReadingService.ReadingCallback<T> guard(RequestHandle handle,
+                                                              ReadingService.ReadingCallback<T> callback) {
+        return new ReadingService.ReadingCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                if (handle.finish()) {
+                    callback.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void onError(String error, int statusCode) {
+                if (handle.finish()) {
+                    callback.onError(error, statusCode);
+                }
+            }
+        };
+    }
+
+    /**
+     * Keeps the store in line with reading changes the outbox sent
+     */
+    private class OutboxListener implements MutationOutbox.Listener {
+        @Override
+        public void onApplied(MutationOutbox.Mutation mutation, String responseBody) {
+            if (mutation.getEntity() != MutationOutbox.Entity.READING) {
+                return;
+            }
+            if (mutation.getOperation() == MutationOutbox.Operation.DELETE) {
+                // Queued behind the load, which would otherwise bring the reading back
+                diskExecutor.execute(() -> applyLocal(mutation.getEntityId(), null));
+                return;
+            }
+            if (responseBody == null || responseBody.trim().isEmpty()) {
+                return;
+            }
+            try {
+                Reading applied = JsonStreamParser.readReading(new JsonReader(new StringReader(responseBody)));
+                diskExecutor.execute(() -> applyLocal(null, applied));
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Unreadable response for " + mutation.getEntityId() + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void onQueued(MutationOutbox.Mutation mutation) {
+        }
+
+        @Override
+        public void onFailed(MutationOutbox.Mutation mutation, String error, int statusCode) {
+        }
+    }
+}
@@ -22,21 +22,24 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import app.quiz.R;
 import app.quiz.data.models.PagedResponse;
 import app.quiz.data.models.Reading;
 import app.quiz.data.models.User;
 import app.quiz.data.remote.ReadingService;
+import app.quiz.data.remote.RequestHandle;
 import app.quiz.ui.adapters.AdminReadingAdapter;
+import app.quiz.utils.Pager;
+import app.quiz.utils.RequestScope;
 import app.quiz.utils.SessionManager;
 
-public class AdminReadingActivity extends AppCompatActivity implements AdminReadingAdapter.OnAdminReadingClickListener {
+public class AdminReadingActivity extends AppCompatActivity implements AdminReadingAdapter.OnAdminReadingClickListener,
+        Pager.Listener {
 
     private static final String TAG = "AdminReadingActivity";
     private static final int PAGE_SIZE = 10;
+    // Start loading the next page a full page before the end of the list
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE;
     private static final int REQUEST_CREATE_READING = 1001;
     private static final int REQUEST_EDIT_READING = 1002;
 
@@ -53,11 +56,9 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
 
     // Data
     private ReadingService readingService;
+    private final RequestScope requestScope = RequestScope.of(this);
     private SessionManager sessionManager;
-    private List<Reading> readings;
-    private int currentPage = 1;
-    private boolean isLoading = false;
-    private boolean hasMorePages = true;
+    private Pager<Reading> pager;
     private String currentSearchQuery = "";
 
     @Override
@@ -68,13 +69,15 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
         initializeComponents();
         checkAdminAccess();
         setupUI();
-        loadReadings(true);
+        loadReadings();
     }
 
     private void initializeComponents() {
-        readingService = ReadingService.getInstance();
+        readingService = ReadingService.getInstance(this);
         sessionManager = SessionManager.getInstance(this);
-        readings = new ArrayList<>();
+        // Admins edit in place, so every loaded page is kept
+        pager = new Pager<>(PAGE_SIZE, PREFETCH_DISTANCE, Pager.UNBOUNDED, this::loadPage);
+        pager.setListener(this);
 
         // Setup toolbar
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -108,7 +111,8 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
 
     private void setupUI() {
         // Setup RecyclerView
-        adapter = new AdminReadingAdapter(readings, this);
+        adapter = new AdminReadingAdapter(this);
+        pager.setAdapter(adapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
 
@@ -120,25 +124,14 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
 
                 LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
                 if (layoutManager != null) {
-                    int visibleItemCount = layoutManager.getChildCount();
-                    int totalItemCount = layoutManager.getItemCount();
-                    int firstVisibleItemPosition = layoutManager.findFirstVisibleItemPosition();
-
-                    if (!isLoading && hasMorePages) {
-                        if ((visibleItemCount + firstVisibleItemPosition) >= totalItemCount - 2) {
-                            loadMoreReadings();
-                        }
-                    }
+                    pager.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
                 }
             }
         });
 
         // Setup swipe refresh
-        swipeRefreshLayout.setOnRefreshListener(() -> {
-            currentPage = 1;
-            hasMorePages = true;
-            loadReadings(true);
-        });
+        swipeRefreshLayout.setOnRefreshListener(this::loadReadings);
 
         // Setup search functionality
         etSearch.addTextChangedListener(new TextWatcher() {
@@ -153,9 +146,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
                 String query = s.toString().trim();
                 if (!query.equals(currentSearchQuery)) {
                     currentSearchQuery = query;
-                    currentPage = 1;
-                    hasMorePages = true;
-                    loadReadings(true);
+                    loadReadings();
                 }
             }
         });
@@ -167,65 +158,53 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
         });
     }
 
-    private void loadReadings(boolean clearExisting) {
-        if (isLoading) return;
-
-        isLoading = true;
-
-        if (clearExisting) {
-            progressBar.setVisibility(View.VISIBLE);
-            layoutEmptyState.setVisibility(View.GONE);
-        }
+    private void loadReadings() {
+        progressBar.setVisibility(View.VISIBLE);
+        layoutEmptyState.setVisibility(View.GONE);
+        pager.refresh();
+    }
 
-        readingService.getPublicReadings(currentPage, PAGE_SIZE, currentSearchQuery,
+    private RequestHandle loadPage(int pageNumber, int pageSize, Pager.PageCallback<Reading> callback) {
+        return requestScope.add(readingService.getPublicReadings(pageNumber, pageSize, currentSearchQuery,
                 new ReadingService.ReadingCallback<PagedResponse<Reading>>() {
                     @Override
                     public void onSuccess(PagedResponse<Reading> result) {
-                        runOnUiThread(() -> {
-                            isLoading = false;
-                            progressBar.setVisibility(View.GONE);
-                            swipeRefreshLayout.setRefreshing(false);
-
-                            if (clearExisting) {
-                                readings.clear();
-                            }
-
-                            if (result.getItems() != null && !result.getItems().isEmpty()) {
-                                readings.addAll(result.getItems());
-                                adapter.notifyDataSetChanged();
-
-                                hasMorePages = result.hasNextPage();
-
-                                layoutEmptyState.setVisibility(View.GONE);
-                                recyclerView.setVisibility(View.VISIBLE);
-                            } else if (readings.isEmpty()) {
-                                showEmptyState();
-                            }
-                        });
+                        callback.onSuccess(result);
                     }
 
                     @Override
                     public void onError(String error, int statusCode) {
-                        runOnUiThread(() -> {
-                            isLoading = false;
-                            progressBar.setVisibility(View.GONE);
-                            swipeRefreshLayout.setRefreshing(false);
+                        callback.onError(error, statusCode);
+                    }
+                }));
+    }
 
-                            if (readings.isEmpty()) {
-                                showEmptyState();
-                            }
+    @Override
+    public void onPageLoaded(int pageNumber) {
+        if (pageNumber != 1) {
+            return;
+        }
+        progressBar.setVisibility(View.GONE);
+        swipeRefreshLayout.setRefreshing(false);
 
-                            Toast.makeText(AdminReadingActivity.this, error, Toast.LENGTH_LONG).show();
-                        });
-                    }
-                });
+        if (pager.getItemCount() > 0) {
+            layoutEmptyState.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+        } else {
+            showEmptyState();
+        }
     }
 
-    private void loadMoreReadings() {
-        if (!hasMorePages || isLoading) return;
+    @Override
+    public void onLoadError(int pageNumber, String error, int statusCode) {
+        progressBar.setVisibility(View.GONE);
+        swipeRefreshLayout.setRefreshing(false);
+
+        if (pager.getItemCount() == 0) {
+            showEmptyState();
+        }
 
-        currentPage++;
-        loadReadings(false);
+        Toast.makeText(AdminReadingActivity.this, error, Toast.LENGTH_LONG).show();
     }
 
     private void showEmptyState() {
@@ -250,7 +229,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
     @Override
     public void onEditClick(Reading reading) {
         progressBar.setVisibility(View.VISIBLE);
-        readingService.getReadingById(reading.getId(), new ReadingService.ReadingCallback<Reading>() {
+        requestScope.add(readingService.getReadingById(reading.getId(), new ReadingService.ReadingCallback<Reading>() {
             @Override
             public void onSuccess(Reading fullReading) {
                 runOnUiThread(() -> {
@@ -269,7 +248,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
                     Toast.makeText(AdminReadingActivity.this, "Failed to load reading details: " + error, Toast.LENGTH_LONG).show();
                 });
             }
-        });
+        }));
     }
 
     @Override
@@ -291,7 +270,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
 
         progressBar.setVisibility(View.VISIBLE);
 
-        readingService.deleteReading(authToken, reading.getId(), new ReadingService.ReadingCallback<Void>() {
+        requestScope.add(readingService.deleteReading(authToken, reading.getId(), new ReadingService.ReadingCallback<Void>() {
             @Override
             public void onSuccess(Void result) {
                 runOnUiThread(() -> {
@@ -299,9 +278,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
                     Toast.makeText(AdminReadingActivity.this, "Reading deleted successfully", Toast.LENGTH_SHORT).show();
                     
                     // Refresh the list
-                    currentPage = 1;
-                    hasMorePages = true;
-                    loadReadings(true);
+                    loadReadings();
                 });
             }
 
@@ -312,7 +289,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
                     Toast.makeText(AdminReadingActivity.this, "Failed to delete reading: " + error, Toast.LENGTH_LONG).show();
                 });
             }
-        });
+        }));
     }
 
     @Override
@@ -321,9 +298,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
         
         if (resultCode == RESULT_OK && (requestCode == REQUEST_CREATE_READING || requestCode == REQUEST_EDIT_READING)) {
             // Refresh the list after creating or editing
-            currentPage = 1;
-            hasMorePages = true;
-            loadReadings(true);
+            loadReadings();
         }
     }
 
@@ -339,9 +314,7 @@ public class AdminReadingActivity extends AppCompatActivity implements AdminRead
             finish();
             return true;
         } else if (item.getItemId() == R.id.action_refresh) {
-            currentPage = 1;
-            hasMorePages = true;
-            loadReadings(true);
+            loadReadings();
             return true;
         }
         return super.onOptionsItemSelected(item);
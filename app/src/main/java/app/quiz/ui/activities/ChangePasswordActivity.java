@@ -22,6 +22,7 @@ import app.quiz.data.models.UpdateUserRequest;
 import app.quiz.data.models.User;
 import app.quiz.data.remote.ApiClient;
 import app.quiz.ui.activities.LoginActivity;
+import app.quiz.utils.RequestScope;
 import app.quiz.utils.SessionManager;
 
 public class ChangePasswordActivity extends AppCompatActivity {
@@ -34,6 +35,7 @@ public class ChangePasswordActivity extends AppCompatActivity {
     private Button btnCancel;
     
     private ApiClient apiClient;
+    private final RequestScope requestScope = RequestScope.of(this);
     private SessionManager sessionManager;
     
     @Override
@@ -89,7 +91,7 @@ public class ChangePasswordActivity extends AppCompatActivity {
         String userEmail = sessionManager.getUserEmail();
         LoginRequest loginRequest = new LoginRequest(userEmail, currentPassword);
         
-        apiClient.login(loginRequest, new ApiClient.ApiCallback<LoginResponse>() {
+        requestScope.add(apiClient.login(loginRequest, new ApiClient.ApiCallback<LoginResponse>() {
             @Override
             public void onSuccess(LoginResponse response) {
                 Log.d(TAG, "Current password verified, proceeding with password change");
@@ -122,7 +124,7 @@ public class ChangePasswordActivity extends AppCompatActivity {
                           ", isActive=" + currentUser.isActive());
                 
                 String authToken = sessionManager.getAuthToken();
-                apiClient.updateUser(updateRequest, authToken, new ApiClient.ApiCallback<Void>() {
+                requestScope.add(apiClient.updateUser(updateRequest, authToken, new ApiClient.ApiCallback<Void>() {
                     @Override
                     public void onSuccess(Void response) {
                         runOnUiThread(() -> {
@@ -149,7 +151,7 @@ public class ChangePasswordActivity extends AppCompatActivity {
                                     Toast.LENGTH_LONG).show();
                         });
                     }
-                });
+                }));
             }
             
             @Override
@@ -162,7 +164,7 @@ public class ChangePasswordActivity extends AppCompatActivity {
                             Toast.LENGTH_SHORT).show();
                 });
             }
-        });
+        }));
     }
     
     private boolean validatePasswordInput() {
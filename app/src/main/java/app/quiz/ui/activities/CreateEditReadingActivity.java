@@ -30,6 +30,7 @@ import app.quiz.data.models.ReadingUpdateDto;
 import app.quiz.data.models.User;
 import app.quiz.data.remote.ReadingService;
 import app.quiz.ui.adapters.QuestionEditAdapter;
+import app.quiz.utils.RequestScope;
 import app.quiz.utils.SessionManager;
 
 public class CreateEditReadingActivity extends AppCompatActivity implements QuestionEditAdapter.OnQuestionEditListener {
@@ -50,6 +51,7 @@ public class CreateEditReadingActivity extends AppCompatActivity implements Ques
 
     // Data
     private ReadingService readingService;
+    private final RequestScope requestScope = RequestScope.of(this);
     private SessionManager sessionManager;
     private List<ReadingQuestion> questions;
     private Reading editingReading;
@@ -67,7 +69,7 @@ public class CreateEditReadingActivity extends AppCompatActivity implements Ques
     }
 
     private void initializeComponents() {
-        readingService = ReadingService.getInstance();
+        readingService = ReadingService.getInstance(this);
         sessionManager = SessionManager.getInstance(this);
         questions = new ArrayList<>();
 
@@ -275,7 +277,8 @@ public class CreateEditReadingActivity extends AppCompatActivity implements Ques
             updateDto.setImageUrl(imageUrl.isEmpty() ? null : imageUrl);
             updateDto.setQuestions(new ArrayList<>(questions));
 
-            readingService.updateReading(authToken, updateDto, new ReadingService.ReadingCallback<Reading>() {
+            requestScope.add(readingService.updateReading(authToken, updateDto, editingReading.getUpdatedAt(),
+                    new ReadingService.ReadingCallback<Reading>() {
                 @Override
                 public void onSuccess(Reading result) {
                     runOnUiThread(() -> {
@@ -293,7 +296,7 @@ public class CreateEditReadingActivity extends AppCompatActivity implements Ques
                         Toast.makeText(CreateEditReadingActivity.this, "Failed to update reading: " + error, Toast.LENGTH_LONG).show();
                     });
                 }
-            });
+            }));
         } else {
             // Create new reading
             ReadingCreateDTO createDto = new ReadingCreateDTO();
@@ -303,7 +306,7 @@ public class CreateEditReadingActivity extends AppCompatActivity implements Ques
             createDto.setImageUrl(imageUrl.isEmpty() ? null : imageUrl);
             createDto.setQuestions(new ArrayList<>(questions));
 
-            readingService.createReading(authToken, createDto, new ReadingService.ReadingCallback<Reading>() {
+            requestScope.add(readingService.createReading(authToken, createDto, new ReadingService.ReadingCallback<Reading>() {
                 @Override
                 public void onSuccess(Reading result) {
                     runOnUiThread(() -> {
@@ -321,7 +324,7 @@ public class CreateEditReadingActivity extends AppCompatActivity implements Ques
                         Toast.makeText(CreateEditReadingActivity.this, "Failed to create reading: " + error, Toast.LENGTH_LONG).show();
                     });
                 }
-            });
+            }));
         }
     }
 
@@ -26,12 +26,15 @@ import app.quiz.R;
 import app.quiz.data.models.Flashcard;
 import app.quiz.data.models.FlashcardGroup;
 import app.quiz.data.remote.FlashcardService;
+import app.quiz.data.repository.FlashcardRepository;
 import app.quiz.ui.adapters.CreateFlashcardAdapter;
+import app.quiz.utils.RequestScope;
 import app.quiz.utils.SessionManager;
 
 /**
  * Activity for creating new flashcard groups
  * Implements UC-12: Create flashcard
+ * Card rows are added and removed one view at a time, only the rows after a change are renumbered
  */
 public class CreateFlashcardActivity extends AppCompatActivity {
     private static final String TAG = "CreateFlashcardActivity";
@@ -49,7 +52,8 @@ public class CreateFlashcardActivity extends AppCompatActivity {
     
     // Data
     private List<FlashcardItemView> flashcardViews;
-    private FlashcardService flashcardService;
+    private FlashcardRepository flashcardRepository;
+    private final RequestScope requestScope = RequestScope.of(this);
     private SessionManager sessionManager;
     private boolean isLoading = false;
     private boolean isEditMode = false;
@@ -72,7 +76,7 @@ public class CreateFlashcardActivity extends AppCompatActivity {
     }
     
     private void initializeServices() {
-        flashcardService = FlashcardService.getInstance();
+        flashcardRepository = FlashcardRepository.getInstance(this);
         sessionManager = SessionManager.getInstance(this);
         flashcardViews = new ArrayList<>();
     }
@@ -142,23 +146,28 @@ public class CreateFlashcardActivity extends AppCompatActivity {
         
         List<Flashcard> flashcards = editingGroup.getFlashcards();
         if (flashcards != null && !flashcards.isEmpty()) {
+            // Validated once at the end rather than after every card
             for (Flashcard fc : flashcards) {
-                addFlashcardView(fc.getTerm(), fc.getDefinition());
+                appendFlashcardView(fc.getTerm(), fc.getDefinition());
             }
+            updateEmptyState();
+            validateForm();
         } else {
             addFlashcardView();
         }
     }
     
     private void addFlashcardView(String term, String definition) {
+        appendFlashcardView(term, definition);
+        updateEmptyState();
+        validateForm();
+    }
+    
+    private void appendFlashcardView(String term, String definition) {
         View flashcardView = LayoutInflater.from(this).inflate(R.layout.item_create_flashcard, llFlashcardsContainer, false);
-        FlashcardItemView itemView = new FlashcardItemView(flashcardView, flashcardViews.size() + 1);
-        itemView.setData(term, definition);
+        FlashcardItemView itemView = new FlashcardItemView(flashcardView, flashcardViews.size() + 1, term, definition);
         flashcardViews.add(itemView);
         llFlashcardsContainer.addView(flashcardView);
-        updateEmptyState();
-        updateCardNumbers();
-        validateForm();
     }
     // Overload for new empty view
     private void addFlashcardView() {
@@ -171,11 +180,12 @@ public class CreateFlashcardActivity extends AppCompatActivity {
             return;
         }
         
-        flashcardViews.remove(itemView);
+        int index = flashcardViews.indexOf(itemView);
+        flashcardViews.remove(index);
         llFlashcardsContainer.removeView(itemView.getView());
         
         updateEmptyState();
-        updateCardNumbers();
+        updateCardNumbers(index);
         validateForm();
     }
     
@@ -189,8 +199,11 @@ public class CreateFlashcardActivity extends AppCompatActivity {
         }
     }
     
-    private void updateCardNumbers() {
-        for (int i = 0; i < flashcardViews.size(); i++) {
+    /**
+     * Renumber the cards from an index on, the ones before it keep their numbers
+     */
+    private void updateCardNumbers(int from) {
+        for (int i = from; i < flashcardViews.size(); i++) {
             flashcardViews.get(i).updateCardNumber(i + 1);
         }
     }
@@ -254,7 +267,7 @@ public class CreateFlashcardActivity extends AppCompatActivity {
         setLoading(true);
         
         if (isEditMode) {
-            flashcardService.updateFlashcard(authToken, editingGroup.getId(), title, description, isPublic, flashcards,
+            requestScope.add(flashcardRepository.updateFlashcard(authToken, editingGroup.getId(), title, description, isPublic, flashcards,
                     new FlashcardService.FlashcardCallback<FlashcardGroup>() {
                         @Override
                         public void onSuccess(FlashcardGroup result) {
@@ -265,9 +278,9 @@ public class CreateFlashcardActivity extends AppCompatActivity {
                         public void onError(String error, int statusCode) {
                             handleError(error, statusCode);
                         }
-                    });
+                    }));
         } else {
-            flashcardService.createFlashcard(authToken, title, description, isPublic, flashcards,
+            requestScope.add(flashcardRepository.createFlashcard(authToken, title, description, isPublic, flashcards,
                     new FlashcardService.FlashcardCallback<FlashcardGroup>() {
                         @Override
                         public void onSuccess(FlashcardGroup result) {
@@ -278,7 +291,7 @@ public class CreateFlashcardActivity extends AppCompatActivity {
                         public void onError(String error, int statusCode) {
                             handleError(error, statusCode);
                         }
-                    });
+                    }));
         }
     }
     
@@ -332,7 +345,7 @@ public class CreateFlashcardActivity extends AppCompatActivity {
         private final MaterialButton btnDelete;
         private final android.widget.TextView tvCardNumber;
         
-        public FlashcardItemView(View view, int cardNumber) {
+        public FlashcardItemView(View view, int cardNumber, String term, String definition) {
             this.view = view;
             this.etTerm = view.findViewById(R.id.et_term);
             this.etDefinition = view.findViewById(R.id.et_definition);
@@ -340,6 +353,8 @@ public class CreateFlashcardActivity extends AppCompatActivity {
             this.tvCardNumber = view.findViewById(R.id.tv_card_number);
             
             updateCardNumber(cardNumber);
+            // Filled in before the listeners are attached, so it does not validate the form
+            setData(term, definition);
             setupListeners();
         }
         
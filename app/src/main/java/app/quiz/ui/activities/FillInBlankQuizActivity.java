@@ -3,6 +3,7 @@ package app.quiz.ui.activities;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
@@ -17,7 +18,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import app.quiz.data.models.Flashcard;
+import app.quiz.data.search.SynonymDictionary;
 import app.quiz.ui.activities.TestResultActivity;
+import app.quiz.utils.AnswerMatcher;
 
 public class FillInBlankQuizActivity extends AppCompatActivity {
 
@@ -43,12 +46,19 @@ public class FillInBlankQuizActivity extends AppCompatActivity {
     private int totalAttempts = 0;
     private boolean isRetry = false;
     private long startTime;
+    private SynonymDictionary synonymDictionary;
+    // Forgives case, missing tone marks and one typo in answers of 4+ characters, accepts synonyms
+    private AnswerMatcher answerMatcher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_fill_in_blank_quiz);
 
+        synonymDictionary = SynonymDictionary.getInstance(this);
+        answerMatcher = new AnswerMatcher(AnswerMatcher.DEFAULT_MAX_EDITS,
+                AnswerMatcher.DEFAULT_MIN_LENGTH_FOR_EDITS, synonymDictionary);
+
         // Setup toolbar
         Toolbar toolbar = findViewById(R.id.toolbar);
         if (toolbar != null) {
@@ -158,7 +168,7 @@ public class FillInBlankQuizActivity extends AppCompatActivity {
         totalAttempts++;
         Flashcard card = flashcards.get(currentQuestionIndex);
         
-        if (isAnswerCorrect(userAnswer, card.getTerm())) {
+        if (answerMatcher.matches(userAnswer, card.getTerm())) {
             correctAnswers++;
             tvFeedback.setText("Correct! ✓");
             tvFeedback.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
@@ -170,7 +180,12 @@ public class FillInBlankQuizActivity extends AppCompatActivity {
                 loadNextQuestion();
             }, 1500);
         } else {
-            tvFeedback.setText("Incorrect. The correct answer is: " + card.getTerm());
+            String feedback = "Incorrect. The correct answer is: " + card.getTerm();
+            List<String> variants = synonymDictionary.getVariants(card.getTerm());
+            if (!variants.isEmpty()) {
+                feedback += " (also accepted: " + TextUtils.join(", ", variants) + ")";
+            }
+            tvFeedback.setText(feedback);
             tvFeedback.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
             tvFeedback.setVisibility(View.VISIBLE);
             
@@ -217,52 +232,6 @@ public class FillInBlankQuizActivity extends AppCompatActivity {
         }
     }
     
-    private boolean isAnswerCorrect(String userAnswer, String correctAnswer) {
-        String userLower = userAnswer.toLowerCase().trim();
-        String correctLower = correctAnswer.toLowerCase().trim();
-        
-        // Exact match
-        if (userLower.equals(correctLower)) {
-            return true;
-        }
-        
-        // Fuzzy matching - allow minor typos (Levenshtein distance <= 1 for words > 3 chars)
-        if (correctAnswer.length() > 3 && calculateLevenshteinDistance(userLower, correctLower) <= 1) {
-            return true;
-        }
-        
-        // Check for common synonyms or acceptable variations
-        return checkSynonyms(userLower, correctLower);
-    }
-    
-    private int calculateLevenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
-        }
-        
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1];
-                } else {
-                    dp[i][j] = 1 + Math.min(Math.min(dp[i - 1][j], dp[i][j - 1]), dp[i - 1][j - 1]);
-                }
-            }
-        }
-        
-        return dp[s1.length()][s2.length()];
-    }
-    
-    private boolean checkSynonyms(String userAnswer, String correctAnswer) {
-        // Basic synonym checking - can be expanded
-        return false;
-    }
-    
     private void showQuizResults() {
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
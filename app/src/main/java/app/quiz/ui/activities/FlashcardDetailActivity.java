@@ -7,6 +7,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
+import app.quiz.utils.RequestScope;
 import app.quiz.utils.SessionManager;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -23,6 +24,7 @@ import app.quiz.R;
 import app.quiz.data.models.FlashcardGroup;
 import app.quiz.data.models.Flashcard;
 import app.quiz.data.remote.FlashcardService;
+import app.quiz.data.repository.FlashcardRepository;
 import app.quiz.ui.activities.FlashcardListActivity;
 import app.quiz.ui.activities.FlashcardTestActivity;
 import app.quiz.ui.activities.MultipleChoiceQuizActivity;
@@ -69,7 +71,8 @@ public class FlashcardDetailActivity extends AppCompatActivity {
     // Data
     private List<Flashcard> flashcards;
     private int currentCardPosition = 0;
-    private FlashcardService flashcardService;
+    private FlashcardRepository flashcardRepository;
+    private final RequestScope requestScope = RequestScope.of(this);
     private boolean isOwned = false;
     
     @Override
@@ -88,7 +91,7 @@ public class FlashcardDetailActivity extends AppCompatActivity {
      */
     private void initializeComponents() {
         // Initialize service
-        flashcardService = FlashcardService.getInstance();
+        flashcardRepository = FlashcardRepository.getInstance(this);
         
         // Setup toolbar
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -262,7 +265,7 @@ public class FlashcardDetailActivity extends AppCompatActivity {
         btnStartQuiz.setText("Loading...");
         
         // Load flashcards from API
-        flashcardService.getFlashcardGroupDetails(flashcardGroup.getId(), 
+        requestScope.add(flashcardRepository.getFlashcardGroupDetails(flashcardGroup.getId(), 
             new FlashcardService.FlashcardCallback<FlashcardGroup>() {
                 @Override
                 public void onSuccess(FlashcardGroup detailedGroup) {
@@ -278,14 +281,9 @@ public class FlashcardDetailActivity extends AppCompatActivity {
                         
                         // Setup adapters with flashcard data
                          sliderAdapter = new FlashcardSliderAdapter(flashcards);
-                         listAdapter = new FlashcardListAdapter(flashcards);
-                         listAdapter.setOnFlashcardClickListener(position -> {
-                             // Sync ViewPager2 with RecyclerView selection
-                             viewPagerCards.setCurrentItem(position, true);
-                         });
                         
                         viewPagerCards.setAdapter(sliderAdapter);
-                        recyclerFlashcards.setAdapter(listAdapter);
+                        listAdapter.updateFlashcards(flashcards);
                         
                         // Update card counter and navigation
                 
@@ -321,7 +319,7 @@ public class FlashcardDetailActivity extends AppCompatActivity {
                         btnStartQuiz.setText("Start Quiz");
                     });
                 }
-            });
+            }));
     }
     
     /**
@@ -329,13 +327,9 @@ public class FlashcardDetailActivity extends AppCompatActivity {
       */
      private void setupAdaptersWithData() {
          sliderAdapter = new FlashcardSliderAdapter(flashcards);
-         listAdapter = new FlashcardListAdapter(flashcards);
-         listAdapter.setOnFlashcardClickListener(position -> {
-             viewPagerCards.setCurrentItem(position, true);
-         });
         
         viewPagerCards.setAdapter(sliderAdapter);
-        recyclerFlashcards.setAdapter(listAdapter);
+        listAdapter.updateFlashcards(flashcards);
         
         updateNavigationButtons();
     }
@@ -374,6 +368,9 @@ public class FlashcardDetailActivity extends AppCompatActivity {
         }
         Intent intent = new Intent(this, MultipleChoiceQuizActivity.class);
         intent.putParcelableArrayListExtra("flashcards", new ArrayList<>(flashcards));
+        if (flashcardGroup != null) {
+            intent.putExtra("flashcard_group_id", flashcardGroup.getId());
+        }
         startActivity(intent);
     }
     
@@ -477,7 +474,7 @@ public class FlashcardDetailActivity extends AppCompatActivity {
             Toast.makeText(this, "Please log in to delete flashcards", Toast.LENGTH_SHORT).show();
             return;
         }
-        flashcardService.deleteFlashcard(authToken, flashcardGroup.getId(), new FlashcardService.FlashcardCallback<Void>() {
+        requestScope.add(flashcardRepository.deleteFlashcard(authToken, flashcardGroup.getId(), new FlashcardService.FlashcardCallback<Void>() {
             @Override
             public void onSuccess(Void result) {
                 runOnUiThread(() -> {
@@ -493,7 +490,7 @@ public class FlashcardDetailActivity extends AppCompatActivity {
                     Toast.makeText(FlashcardDetailActivity.this, "Failed to delete: " + error, Toast.LENGTH_LONG).show();
                 });
             }
-        });
+        }));
     }
     
     @Override
@@ -19,24 +19,31 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.google.android.material.textfield.TextInputEditText;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import app.quiz.R;
 import app.quiz.data.models.FlashcardGroup;
 import app.quiz.data.models.PagedResponse;
 import app.quiz.data.remote.FlashcardService;
+import app.quiz.data.remote.RequestHandle;
+import app.quiz.data.repository.FlashcardRepository;
 import app.quiz.ui.adapters.FlashcardGroupAdapter;
+import app.quiz.utils.Pager;
+import app.quiz.utils.RequestScope;
+import app.quiz.utils.SearchPipeline;
 
 /**
  * FlashcardListActivity - Displays list of public flashcard sets
  * Implements UC-06: View public flashcard list
  */
 public class FlashcardListActivity extends AppCompatActivity implements 
-        FlashcardGroupAdapter.OnFlashcardGroupClickListener {
+        FlashcardGroupAdapter.OnFlashcardGroupClickListener, Pager.Listener {
     
     private static final String TAG = "FlashcardListActivity";
     private static final int PAGE_SIZE = 10;
+    // Start loading the next page a full page before the end of the list
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE;
+    private static final int MAX_PAGES = 10;
     
     // UI Components
     private RecyclerView recyclerView;
@@ -49,12 +56,11 @@ public class FlashcardListActivity extends AppCompatActivity implements
     private TextInputEditText etSearch;
     
     // Data
-    private FlashcardService flashcardService;
-    private List<FlashcardGroup> flashcardGroups;
-    private int currentPage = 1;
-    private boolean isLoading = false;
-    private boolean hasMorePages = true;
+    private FlashcardRepository flashcardRepository;
+    private final RequestScope requestScope = RequestScope.of(this);
+    private Pager<FlashcardGroup> pager;
     private String currentSearchQuery = "";
+    private SearchPipeline searchPipeline;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,15 +69,22 @@ public class FlashcardListActivity extends AppCompatActivity implements
         
         initializeComponents();
         setupUI();
-        loadFlashcards(true);
+        searchPipeline.submitNow(currentSearchQuery);
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchPipeline.cancel();
     }
     
     /**
      * Initialize components and dependencies
      */
     private void initializeComponents() {
-        flashcardService = FlashcardService.getInstance();
-        flashcardGroups = new ArrayList<>();
+        flashcardRepository = FlashcardRepository.getInstance(this);
+        pager = new Pager<>(PAGE_SIZE, PREFETCH_DISTANCE, MAX_PAGES, this::loadPage);
+        pager.setListener(this);
         
         // Setup toolbar
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -98,7 +111,8 @@ public class FlashcardListActivity extends AppCompatActivity implements
      */
     private void setupUI() {
         // Setup RecyclerView
-        adapter = new FlashcardGroupAdapter(flashcardGroups, this);
+        adapter = new FlashcardGroupAdapter(this);
+        pager.setAdapter(adapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
         
@@ -110,32 +124,21 @@ public class FlashcardListActivity extends AppCompatActivity implements
                 
                 LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
                 if (layoutManager != null) {
-                    int visibleItemCount = layoutManager.getChildCount();
-                    int totalItemCount = layoutManager.getItemCount();
-                    int firstVisibleItemPosition = layoutManager.findFirstVisibleItemPosition();
-                    
-                    Log.d(TAG, "Scroll - visible: " + visibleItemCount + ", total: " + totalItemCount + 
-                          ", firstVisible: " + firstVisibleItemPosition + ", isLoading: " + isLoading + 
-                          ", hasMorePages: " + hasMorePages + ", currentPage: " + currentPage);
-                    
-                    if (!isLoading && hasMorePages) {
-                        if ((visibleItemCount + firstVisibleItemPosition) >= totalItemCount - 2) {
-                            Log.d(TAG, "Triggering loadMoreFlashcards");
-                            loadMoreFlashcards();
-                        }
-                    }
+                    pager.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
                 }
             }
         });
         
         // Setup swipe refresh
-        swipeRefreshLayout.setOnRefreshListener(() -> {
-            currentPage = 1;
-            hasMorePages = true;
-            loadFlashcards(true);
-        });
+        swipeRefreshLayout.setOnRefreshListener(() -> searchPipeline.submitNow(currentSearchQuery));
         
-        // Setup search functionality
+        // Setup search functionality, queries are debounced and superseded ones are discarded
+        searchPipeline = new SearchPipeline((query, sequence) -> {
+            currentSearchQuery = query;
+            loadFlashcards();
+            return pager::cancel;
+        });
         etSearch.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -145,13 +148,7 @@ public class FlashcardListActivity extends AppCompatActivity implements
             
             @Override
             public void afterTextChanged(Editable s) {
-                String query = s.toString().trim();
-                if (!query.equals(currentSearchQuery)) {
-                    currentSearchQuery = query;
-                    currentPage = 1;
-                    hasMorePages = true;
-                    loadFlashcards(true);
-                }
+                searchPipeline.submit(s.toString());
             }
         });
     }
@@ -159,89 +156,73 @@ public class FlashcardListActivity extends AppCompatActivity implements
     /**
      * Load flashcards from API
      * Implements UC-06 normal sequence step 3: retrieve all public flashcard sets
-     * 
-     * @param clearExisting Whether to clear existing data
+     * Starts over from the first page, later pages are loaded by the pager while scrolling
      */
-    private void loadFlashcards(boolean clearExisting) {
-        if (isLoading) return;
-        
-        isLoading = true;
-        
-        if (clearExisting) {
-            currentPage = 1;
-            hasMorePages = true;
-            progressBar.setVisibility(View.VISIBLE);
-            layoutEmptyState.setVisibility(View.GONE);
-            Log.d(TAG, "Starting fresh load from page 1");
-        }
-        
-        flashcardService.getPublicFlashcards(currentPage, PAGE_SIZE, currentSearchQuery, 
+    private void loadFlashcards() {
+        progressBar.setVisibility(View.VISIBLE);
+        layoutEmptyState.setVisibility(View.GONE);
+        Log.d(TAG, "Starting fresh load from page 1");
+        pager.refresh();
+    }
+    
+    /**
+     * Load one page of flashcard groups for the pager
+     */
+    private RequestHandle loadPage(int pageNumber, int pageSize, Pager.PageCallback<FlashcardGroup> callback) {
+        String query = currentSearchQuery;
+        return requestScope.add(flashcardRepository.getPublicFlashcards(pageNumber, pageSize, query, 
                 new FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>>() {
                     @Override
                     public void onSuccess(PagedResponse<FlashcardGroup> result) {
-                        runOnUiThread(() -> {
-                            isLoading = false;
-                            progressBar.setVisibility(View.GONE);
-                            swipeRefreshLayout.setRefreshing(false);
-                            
-                            if (clearExisting) {
-                                flashcardGroups.clear();
-                            }
-                            
-                            if (result.getItems() != null && !result.getItems().isEmpty()) {
-                                int previousSize = flashcardGroups.size();
-                                flashcardGroups.addAll(result.getItems());
-                                adapter.notifyDataSetChanged();
-                                
-                                // Update pagination state
-                                hasMorePages = result.hasNextPage();
-                                
-                                // Hide empty state
-                                layoutEmptyState.setVisibility(View.GONE);
-                                recyclerView.setVisibility(View.VISIBLE);
-                                
-                                Log.d(TAG, "Loaded " + result.getItems().size() + " flashcard groups. Total: " + flashcardGroups.size() + 
-                                      " (was " + previousSize + "). Page: " + currentPage + ", hasMorePages: " + hasMorePages + 
-                                      ", totalPages: " + result.getTotalPages() + ", totalCount: " + result.getTotalCount());
-                            } else if (flashcardGroups.isEmpty()) {
-                                // Show empty state (EX-01: No public flashcard sets found)
-                                showEmptyState();
-                            }
-                        });
+                        callback.onSuccess(result);
                     }
                     
                     @Override
                     public void onError(String error, int statusCode) {
-                        runOnUiThread(() -> {
-                            isLoading = false;
-                            progressBar.setVisibility(View.GONE);
-                            swipeRefreshLayout.setRefreshing(false);
-                            
-                            Log.e(TAG, "Failed to load flashcards: " + error);
-                            
-                            if (flashcardGroups.isEmpty()) {
-                                showEmptyState();
-                            }
-                            
-                            Toast.makeText(FlashcardListActivity.this, error, Toast.LENGTH_LONG).show();
-                        });
+                        if (pageNumber == 1 && statusCode == -1 && !query.isEmpty()) {
+                            // No connection, answer the search from public flashcard sets loaded earlier
+                            List<FlashcardGroup> results = flashcardRepository.searchOffline(query, true, pageSize);
+                            Log.d(TAG, "Offline search for '" + query + "' found " + results.size() + " results");
+                            // One page at most, the pager would fetch rows past it as later pages
+                            callback.onSuccess(new PagedResponse<>(results, results.size(), 1, pageSize, 1));
+                            return;
+                        }
+                        callback.onError(error, statusCode);
                     }
-                });
+                }));
     }
     
-    /**
-     * Load more flashcards for pagination
-     */
-    private void loadMoreFlashcards() {
-        Log.d(TAG, "loadMoreFlashcards called - hasMorePages: " + hasMorePages + ", isLoading: " + isLoading);
-        if (!hasMorePages || isLoading) {
-            Log.d(TAG, "loadMoreFlashcards aborted - hasMorePages: " + hasMorePages + ", isLoading: " + isLoading);
+    @Override
+    public void onPageLoaded(int pageNumber) {
+        Log.d(TAG, "Loaded page " + pageNumber + ". Total: " + pager.getItemCount() + 
+              ", hasMorePages: " + pager.hasMorePages());
+        if (pageNumber != 1) {
             return;
         }
+        progressBar.setVisibility(View.GONE);
+        swipeRefreshLayout.setRefreshing(false);
+        
+        if (pager.getItemCount() > 0) {
+            // Hide empty state
+            layoutEmptyState.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+        } else {
+            // Show empty state (EX-01: No public flashcard sets found)
+            showEmptyState();
+        }
+    }
+    
+    @Override
+    public void onLoadError(int pageNumber, String error, int statusCode) {
+        Log.e(TAG, "Failed to load flashcards page " + pageNumber + ": " + error);
+        progressBar.setVisibility(View.GONE);
+        swipeRefreshLayout.setRefreshing(false);
+        
+        if (pager.getItemCount() == 0) {
+            showEmptyState();
+        }
         
-        currentPage++;
-        Log.d(TAG, "Loading page: " + currentPage);
-        loadFlashcards(false);
+        Toast.makeText(FlashcardListActivity.this, error, Toast.LENGTH_LONG).show();
     }
     
     /**
@@ -32,6 +32,10 @@ import app.quiz.data.models.Flashcard;
 import app.quiz.data.models.FlashcardGroup;
 import app.quiz.data.models.TestQuestion;
 import app.quiz.data.models.TestResult;
+import app.quiz.data.review.ReviewScheduler;
+import app.quiz.data.search.SynonymDictionary;
+import app.quiz.utils.AnswerMatcher;
+import app.quiz.utils.QuestionStream;
 import app.quiz.utils.TestGenerator;
 
 /**
@@ -44,10 +48,17 @@ public class FlashcardTestActivity extends AppCompatActivity {
     public static final String EXTRA_FLASHCARD_GROUP = "extra_flashcard_group";
     public static final String EXTRA_QUESTION_COUNT = "extra_question_count";
     public static final String EXTRA_TEST_MODE = "extra_test_mode";
+    // Optional, the same group, count, mode and seed always give the same questions
+    public static final String EXTRA_SEED = "extra_seed";
+    // Optional, keep asking questions until the user finishes, EXTRA_QUESTION_COUNT is then ignored
+    public static final String EXTRA_ENDLESS = "extra_endless";
+    // Question results kept for the result screen in an endless session, the score covers them all
+    private static final int ENDLESS_RESULTS_KEPT = 50;
     
     // Test modes
     public static final String TEST_MODE_MIXED = "mixed";
     public static final String TEST_MODE_MULTIPLE_CHOICE = "multiple_choice";
+    public static final String TEST_MODE_HARD_MULTIPLE_CHOICE = "hard_multiple_choice";
     public static final String TEST_MODE_TRUE_FALSE = "true_false";
     public static final String TEST_MODE_FILL_BLANK = "fill_blank";
     
@@ -77,19 +88,26 @@ public class FlashcardTestActivity extends AppCompatActivity {
     
     // Data
     private FlashcardGroup flashcardGroup;
-    private List<TestQuestion> questions;
+    // Questions are generated as the user advances, so long and endless sessions take constant memory
+    private QuestionStream questionStream;
+    private TestQuestion currentQuestion;
     private int currentQuestionIndex = 0;
     private TestResult testResult;
     private long testStartTime;
     private long questionStartTime;
     private boolean isAnswered = false;
     private boolean hintShown = false;
+    private AnswerMatcher answerMatcher;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_flashcard_test);
         
+        // Same leniency as the fill-in-the-blank quiz: case, tone marks, small typos and synonyms
+        answerMatcher = new AnswerMatcher(AnswerMatcher.DEFAULT_MAX_EDITS,
+                AnswerMatcher.DEFAULT_MIN_LENGTH_FOR_EDITS, SynonymDictionary.getInstance(this));
+        
         initializeUI();
         setupToolbar();
         loadTestData();
@@ -179,31 +197,48 @@ public class FlashcardTestActivity extends AppCompatActivity {
         int questionCount = getIntent().getIntExtra(EXTRA_QUESTION_COUNT, 
             TestGenerator.getRecommendedQuestionCount(flashcardGroup.getFlashcards().size()));
         String testMode = getIntent().getStringExtra(EXTRA_TEST_MODE);
+        long seed = getIntent().hasExtra(EXTRA_SEED)
+            ? getIntent().getLongExtra(EXTRA_SEED, 0) : TestGenerator.newSeed();
+        
+        if (getIntent().getBooleanExtra(EXTRA_ENDLESS, false)) {
+            questionCount = QuestionStream.UNLIMITED;
+        }
         
         List<Flashcard> flashcards = flashcardGroup.getFlashcards();
         
         switch (testMode != null ? testMode : TEST_MODE_MIXED) {
             case TEST_MODE_MULTIPLE_CHOICE:
-                questions = TestGenerator.generateMultipleChoiceQuestions(flashcards, questionCount);
+                questionStream = TestGenerator.streamQuestions(flashcards,
+                    TestQuestion.QuestionType.MULTIPLE_CHOICE, questionCount, seed);
+                break;
+            case TEST_MODE_HARD_MULTIPLE_CHOICE:
+                questionStream = TestGenerator.streamHardMultipleChoiceQuestions(flashcards, questionCount, seed);
                 break;
             case TEST_MODE_TRUE_FALSE:
-                questions = TestGenerator.generateTrueFalseQuestions(flashcards, questionCount);
+                questionStream = TestGenerator.streamQuestions(flashcards,
+                    TestQuestion.QuestionType.TRUE_FALSE, questionCount, seed);
                 break;
             case TEST_MODE_FILL_BLANK:
-                questions = TestGenerator.generateFillInBlankQuestions(flashcards, questionCount);
+                questionStream = TestGenerator.streamQuestions(flashcards,
+                    TestQuestion.QuestionType.FILL_IN_BLANK, questionCount, seed);
                 break;
             default:
-                questions = TestGenerator.generateMixedTest(flashcards, questionCount);
+                questionStream = TestGenerator.streamMixedTest(flashcards, questionCount, seed);
                 break;
         }
         
-        if (questions.isEmpty()) {
+        if (!questionStream.hasNext()) {
             Toast.makeText(this, "Unable to generate test questions", Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
         
-        testResult.setTotalQuestions(questions.size());
+        // An endless session counts the questions asked, see finishTest
+        if (questionStream.isUnlimited()) {
+            testResult.setMaxQuestionResults(ENDLESS_RESULTS_KEPT);
+        } else {
+            testResult.setTotalQuestions(questionStream.getCount());
+        }
     }
     
     private void startTest() {
@@ -213,19 +248,25 @@ public class FlashcardTestActivity extends AppCompatActivity {
     }
     
     private void loadCurrentQuestion() {
-        if (currentQuestionIndex >= questions.size()) {
+        if (!questionStream.hasNext()) {
             finishTest();
             return;
         }
         
-        TestQuestion question = questions.get(currentQuestionIndex);
+        TestQuestion question = questionStream.next();
+        currentQuestion = question;
         questionStartTime = SystemClock.elapsedRealtime();
         isAnswered = false;
         hintShown = false;
         
         // Update UI
-        tvQuestionCounter.setText(String.format("%d / %d", currentQuestionIndex + 1, questions.size()));
-        progressBar.setProgress((int) ((currentQuestionIndex / (float) questions.size()) * 100));
+        if (questionStream.isUnlimited()) {
+            tvQuestionCounter.setText(String.valueOf(currentQuestionIndex + 1));
+            progressBar.setVisibility(View.GONE);
+        } else {
+            tvQuestionCounter.setText(String.format("%d / %d", currentQuestionIndex + 1, questionStream.getCount()));
+            progressBar.setProgress((int) ((currentQuestionIndex / (float) questionStream.getCount()) * 100));
+        }
         tvQuestionText.setText(question.getQuestionText());
         
         // Hide all question type cards
@@ -292,7 +333,7 @@ public class FlashcardTestActivity extends AppCompatActivity {
     
     private void updateSubmitButton() {
         boolean hasAnswer = false;
-        TestQuestion question = questions.get(currentQuestionIndex);
+        TestQuestion question = currentQuestion;
         
         switch (question.getType()) {
             case MULTIPLE_CHOICE:
@@ -310,7 +351,7 @@ public class FlashcardTestActivity extends AppCompatActivity {
     }
     
     private void showHint() {
-        TestQuestion question = questions.get(currentQuestionIndex);
+        TestQuestion question = currentQuestion;
         tvHint.setText(question.getHint());
         tvHint.setVisibility(View.VISIBLE);
         btnShowHint.setVisibility(View.GONE);
@@ -320,7 +361,7 @@ public class FlashcardTestActivity extends AppCompatActivity {
     private void submitAnswer() {
         if (isAnswered) return;
         
-        TestQuestion question = questions.get(currentQuestionIndex);
+        TestQuestion question = currentQuestion;
         String userAnswer = getUserAnswer(question);
         boolean isCorrect = checkAnswer(question, userAnswer);
         long timeSpent = SystemClock.elapsedRealtime() - questionStartTime;
@@ -337,7 +378,7 @@ public class FlashcardTestActivity extends AppCompatActivity {
             question.getSourceFlashcard()
         );
         
-        testResult.addQuestionResult(questionResult);
+        recordQuestionResult(questionResult);
         
         // Show feedback
         showFeedback(isCorrect, question);
@@ -378,7 +419,7 @@ public class FlashcardTestActivity extends AppCompatActivity {
                     return false;
                 }
             case FILL_IN_BLANK:
-                return question.isCorrectAnswer(userAnswer);
+                return question.isCorrectAnswer(userAnswer, answerMatcher);
         }
         return false;
     }
@@ -413,7 +454,7 @@ public class FlashcardTestActivity extends AppCompatActivity {
     }
     
     private void skipQuestion() {
-        TestQuestion question = questions.get(currentQuestionIndex);
+        TestQuestion question = currentQuestion;
         long timeSpent = SystemClock.elapsedRealtime() - questionStartTime;
         
         // Record skipped result
@@ -428,11 +469,20 @@ public class FlashcardTestActivity extends AppCompatActivity {
             question.getSourceFlashcard()
         );
         
-        testResult.addQuestionResult(questionResult);
+        recordQuestionResult(questionResult);
         
         nextQuestion();
     }
     
+    private void recordQuestionResult(TestResult.QuestionResult questionResult) {
+        testResult.addQuestionResult(questionResult);
+        if (questionStream.isUnlimited()) {
+            // The result keeps only recent answers, so each one updates the schedule as it is given
+            ReviewScheduler.getInstance(this).recordAnswer(flashcardGroup.getId(), questionResult.getSourceFlashcard(),
+                    questionResult.isCorrect(), questionResult.wasSkipped(), questionResult.getTimeSpentMs());
+        }
+    }
+    
     private void nextQuestion() {
         currentQuestionIndex++;
         loadCurrentQuestion();
@@ -441,6 +491,14 @@ public class FlashcardTestActivity extends AppCompatActivity {
     private void finishTest() {
         long testDuration = SystemClock.elapsedRealtime() - testStartTime;
         testResult.setTestDurationMs(testDuration);
+        if (questionStream.isUnlimited()) {
+            testResult.setTotalQuestions(currentQuestionIndex + (isAnswered ? 1 : 0));
+        }
+        
+        // Missed cards come back soon, known ones later, in quizzes of this group
+        if (!questionStream.isUnlimited()) {
+            ReviewScheduler.getInstance(this).recordResult(testResult);
+        }
         
         // Navigate to test results
         Intent intent = new Intent(this, TestResultActivity.class);
@@ -450,6 +508,16 @@ public class FlashcardTestActivity extends AppCompatActivity {
     }
     
     private void showExitConfirmation() {
+        if (questionStream != null && questionStream.isUnlimited()) {
+            // An endless session ends here, the answered questions still count
+            new AlertDialog.Builder(this)
+                .setTitle("Finish Practice")
+                .setMessage("Finish this session and see your results?")
+                .setPositiveButton("Finish", (dialog, which) -> finishTest())
+                .setNegativeButton("Continue", null)
+                .show();
+            return;
+        }
         new AlertDialog.Builder(this)
             .setTitle("Exit Test")
             .setMessage("Are you sure you want to exit the test? Your progress will be lost.")
@@ -17,6 +17,7 @@ import com.google.android.material.button.MaterialButtonToggleGroup;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -42,11 +43,13 @@ public class FlashcardTestSetupActivity extends AppCompatActivity {
     private ChipGroup chipGroupTestMode;
     private Chip chipMixed;
     private Chip chipMultipleChoice;
+    private Chip chipHardMultipleChoice;
     private Chip chipTrueFalse;
     private Chip chipFillBlank;
     private TextView tvQuestionCount;
     private SeekBar seekBarQuestionCount;
     private TextView tvQuestionCountLabel;
+    private SwitchMaterial switchEndless;
     private MaterialButton btnStartTest;
     
     // Data
@@ -82,11 +85,13 @@ public class FlashcardTestSetupActivity extends AppCompatActivity {
         chipGroupTestMode = findViewById(R.id.chip_group_test_mode);
         chipMixed = findViewById(R.id.chip_mixed);
         chipMultipleChoice = findViewById(R.id.chip_multiple_choice);
+        chipHardMultipleChoice = findViewById(R.id.chip_hard_multiple_choice);
         chipTrueFalse = findViewById(R.id.chip_true_false);
         chipFillBlank = findViewById(R.id.chip_fill_blank);
         tvQuestionCount = findViewById(R.id.tv_question_count);
         seekBarQuestionCount = findViewById(R.id.seekbar_question_count);
         tvQuestionCountLabel = findViewById(R.id.tv_question_count_label);
+        switchEndless = findViewById(R.id.switch_endless);
         btnStartTest = findViewById(R.id.btn_start_test);
     }
     
@@ -142,6 +147,8 @@ public class FlashcardTestSetupActivity extends AppCompatActivity {
                 selectedTestMode = FlashcardTestActivity.TEST_MODE_MIXED;
             } else if (checkedId == R.id.chip_multiple_choice) {
                 selectedTestMode = FlashcardTestActivity.TEST_MODE_MULTIPLE_CHOICE;
+            } else if (checkedId == R.id.chip_hard_multiple_choice) {
+                selectedTestMode = FlashcardTestActivity.TEST_MODE_HARD_MULTIPLE_CHOICE;
             } else if (checkedId == R.id.chip_true_false) {
                 selectedTestMode = FlashcardTestActivity.TEST_MODE_TRUE_FALSE;
             } else if (checkedId == R.id.chip_fill_blank) {
@@ -207,6 +214,7 @@ public class FlashcardTestSetupActivity extends AppCompatActivity {
         
         switch (testMode) {
             case FlashcardTestActivity.TEST_MODE_MULTIPLE_CHOICE:
+            case FlashcardTestActivity.TEST_MODE_HARD_MULTIPLE_CHOICE:
                 // Need at least 4 flashcards for each multiple choice question
                 return flashcardCount >= 1 ? flashcardCount : 0;
             case FlashcardTestActivity.TEST_MODE_TRUE_FALSE:
@@ -220,6 +228,8 @@ public class FlashcardTestSetupActivity extends AppCompatActivity {
     
     private void setupClickListeners() {
         btnStartTest.setOnClickListener(v -> startTest());
+        // Questions keep coming until the user finishes, so the count does not apply
+        switchEndless.setOnCheckedChangeListener((button, isChecked) -> seekBarQuestionCount.setEnabled(!isChecked));
     }
     
     private void onFlashcardGroupSelected(FlashcardGroup group) {
@@ -273,6 +283,7 @@ public class FlashcardTestSetupActivity extends AppCompatActivity {
         intent.putExtra(FlashcardTestActivity.EXTRA_FLASHCARD_GROUP, selectedGroup);
         intent.putExtra(FlashcardTestActivity.EXTRA_QUESTION_COUNT, selectedQuestionCount);
         intent.putExtra(FlashcardTestActivity.EXTRA_TEST_MODE, selectedTestMode);
+        intent.putExtra(FlashcardTestActivity.EXTRA_ENDLESS, switchEndless.isChecked());
         startActivity(intent);
     }
 }
\ No newline at end of file
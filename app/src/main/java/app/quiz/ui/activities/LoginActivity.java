@@ -21,6 +21,7 @@ import app.quiz.data.models.LoginRequest;
 import app.quiz.data.models.User;
 import app.quiz.data.models.LoginResponse;
 import app.quiz.data.remote.ApiClient;
+import app.quiz.utils.RequestScope;
 import app.quiz.utils.SessionManager;
 import org.json.JSONObject;
 import org.json.JSONException;
@@ -41,6 +42,7 @@ public class LoginActivity extends AppCompatActivity {
     
     // Dependencies
     private ApiClient apiClient;
+    private final RequestScope requestScope = RequestScope.of(this);
     private SessionManager sessionManager;
     
     @Override
@@ -134,7 +136,7 @@ public class LoginActivity extends AppCompatActivity {
         setLoadingState(true);
         
         // Make API call
-        apiClient.login(loginRequest, new ApiClient.ApiCallback<LoginResponse>() {
+        requestScope.add(apiClient.login(loginRequest, new ApiClient.ApiCallback<LoginResponse>() {
             @Override
             public void onSuccess(LoginResponse result) {
                 runOnUiThread(() -> {
@@ -150,7 +152,7 @@ public class LoginActivity extends AppCompatActivity {
                     handleLoginError(error, statusCode);
                 });
             }
-        });
+        }));
     }
     
     /**
@@ -25,9 +25,13 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import app.quiz.R;
 import app.quiz.data.models.Flashcard;
+import app.quiz.data.review.ReviewScheduler;
+import app.quiz.utils.DistractorSampler;
 
 public class MultipleChoiceQuizActivity extends AppCompatActivity {
 
@@ -45,6 +49,7 @@ public class MultipleChoiceQuizActivity extends AppCompatActivity {
 
     // Data
     private List<Flashcard> flashcards;
+    private DistractorSampler distractorSampler;
     private List<Flashcard> skippedQuestions;
 private List<Flashcard> retryQuestions;
 private Set<Flashcard> retried;
@@ -53,6 +58,12 @@ private Set<Flashcard> retried;
     private int correctAnswerIndex;
     private boolean hasAnswered = false;
     private boolean isCorrect = false;
+    // Set when the group is known, answers then update its review schedule
+    private String flashcardGroupId;
+    private ReviewScheduler reviewScheduler;
+    private final ExecutorService scheduleExecutor = Executors.newSingleThreadExecutor();
+    private Set<Flashcard> reviewed;
+    private long questionStartTime;
 
     // Statistics
     private int correctAnswers = 0;
@@ -79,8 +90,14 @@ private Set<Flashcard> retried;
         // Setup button listeners
         setupButtonListeners();
 
-        // Load first question
-        loadNextQuestion();
+        // Load first question once the cards are in order
+        orderCards();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        scheduleExecutor.shutdownNow();
     }
 
     private void initializeViews() {
@@ -121,14 +138,42 @@ private Set<Flashcard> retried;
             return;
         }
 
-        // Shuffle flashcards for random order
-        Collections.shuffle(flashcards);
+        flashcardGroupId = getIntent().getStringExtra("flashcard_group_id");
+        distractorSampler = new DistractorSampler(flashcards, new Random());
+    }
+
+    /**
+     * Put due cards first when the group is known, random order otherwise, then show the first question
+     * The schedule may have to be read from disk, so it is consulted off the main thread.
+     */
+    private void orderCards() {
+        if (flashcardGroupId == null) {
+            Collections.shuffle(flashcards);
+            loadNextQuestion();
+            return;
+        }
+
+        btnSubmit.setVisibility(MaterialButton.GONE);
+        btnSkip.setVisibility(MaterialButton.GONE);
+        reviewScheduler = ReviewScheduler.getInstance(this);
+        List<Flashcard> deck = new ArrayList<>(flashcards);
+        scheduleExecutor.execute(() -> {
+            List<Flashcard> ordered = reviewScheduler.selectCards(flashcardGroupId, deck, deck.size());
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                flashcards = new ArrayList<>(ordered);
+                loadNextQuestion();
+            });
+        });
     }
 
     private void initializeQuizData() {
         skippedQuestions = new ArrayList<>();
 retryQuestions = new ArrayList<>();
 retried = new HashSet<>();
+        reviewed = new HashSet<>();
         startTime = System.currentTimeMillis();
         progressBar.setMax(flashcards.size());
     }
@@ -240,6 +285,7 @@ retried = new HashSet<>();
 }
 
         currentFlashcard = flashcards.get(currentQuestionIndex);
+        questionStartTime = System.currentTimeMillis();
         hasAnswered = false;
         isCorrect = false;
 
@@ -285,18 +331,7 @@ retried = new HashSet<>();
         options.add(currentFlashcard.getTerm());
         
         // Generate 3 distractors from other flashcards
-        List<Flashcard> otherFlashcards = new ArrayList<>(flashcards);
-        otherFlashcards.remove(currentFlashcard);
-        Collections.shuffle(otherFlashcards);
-        
-        int distractorsAdded = 0;
-        for (Flashcard flashcard : otherFlashcards) {
-            if (distractorsAdded >= 3) break;
-            if (!flashcard.getTerm().equals(currentFlashcard.getTerm())) {
-                options.add(flashcard.getTerm());
-                distractorsAdded++;
-            }
-        }
+        options.addAll(distractorSampler.sampleTerms(currentFlashcard, 3));
         
         // If we don't have enough distractors, generate some generic ones
         while (options.size() < 4) {
@@ -357,6 +392,7 @@ retried = new HashSet<>();
             retryQuestions.add(currentFlashcard);
             retried.add(currentFlashcard);
         }
+        recordReview(isCorrect, false);
         
         // Show visual feedback
         highlightAnswers(selectedIndex);
@@ -408,6 +444,7 @@ retried = new HashSet<>();
     private void skipQuestion() {
         // Add to skipped questions for retry
         skippedQuestions.add(currentFlashcard);
+        recordReview(false, true);
         
         // Show correct answer
         highlightCorrectAnswer();
@@ -425,6 +462,16 @@ retried = new HashSet<>();
         
     }
 
+    /**
+     * Schedule the card's next review from its first answer, retries in the same quiz do not count
+     */
+    private void recordReview(boolean correct, boolean skipped) {
+        if (reviewScheduler != null && reviewed.add(currentFlashcard)) {
+            reviewScheduler.recordAnswer(flashcardGroupId, currentFlashcard, correct, skipped,
+                System.currentTimeMillis() - questionStartTime);
+        }
+    }
+
     private void highlightCorrectAnswer() {
         MaterialCardView[] cards = {cardOptionA, cardOptionB, cardOptionC, cardOptionD};
         cards[correctAnswerIndex].setCardBackgroundColor(
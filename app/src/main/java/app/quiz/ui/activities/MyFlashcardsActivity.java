@@ -34,17 +34,26 @@ import app.quiz.R;
 import app.quiz.data.models.FlashcardGroup;
 import app.quiz.data.models.PagedResponse;
 import app.quiz.data.remote.FlashcardService;
+import app.quiz.data.remote.RequestHandle;
+import app.quiz.data.repository.FlashcardRepository;
 import app.quiz.ui.activities.CreateFlashcardActivity;
 import app.quiz.ui.adapters.FlashcardGroupAdapter;
+import app.quiz.utils.FlashcardSearchIndex;
+import app.quiz.utils.Pager;
+import app.quiz.utils.RequestScope;
+import app.quiz.utils.SearchPipeline;
 import app.quiz.utils.SessionManager;
 
 /**
  * Activity for displaying user's personal flashcard groups (UC-08: View my flashcards)
  * Allows users to view, search, and filter their created flashcard sets
  */
-public class MyFlashcardsActivity extends AppCompatActivity implements FlashcardGroupAdapter.OnFlashcardGroupClickListener {
+public class MyFlashcardsActivity extends AppCompatActivity implements FlashcardGroupAdapter.OnFlashcardGroupClickListener,
+        Pager.Listener {
     private static final String TAG = "MyFlashcardsActivity";
     private static final int PAGE_SIZE = 20;
+    // Start loading the next page half a page before the end of the list
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
     private static final int REQUEST_CREATE_FLASHCARD = 1001;
     private static final int REQUEST_FLASHCARD_DETAIL = 1002;
     
@@ -66,15 +75,15 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
     
     // Data and Adapters
     private FlashcardGroupAdapter adapter;
-    private List<FlashcardGroup> flashcardGroups;
+    private Pager<FlashcardGroup> pager;
     private List<FlashcardGroup> filteredFlashcardGroups;
-    private FlashcardService flashcardService;
+    private FlashcardRepository flashcardRepository;
+    private final RequestScope requestScope = RequestScope.of(this);
     private SessionManager sessionManager;
+    private SearchPipeline searchPipeline;
+    private final FlashcardSearchIndex searchIndex = new FlashcardSearchIndex();
     
     // State variables
-    private boolean isLoading = false;
-    private boolean hasMorePages = true;
-    private int currentPage = 1;
     private String currentSearchQuery = "";
     private SortOption currentSortOption = SortOption.RECENT;
     
@@ -89,7 +98,7 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
         setContentView(R.layout.activity_my_flashcards);
         
         // Initialize services
-        flashcardService = FlashcardService.getInstance();
+        flashcardRepository = FlashcardRepository.getInstance(this);
         sessionManager = SessionManager.getInstance(this);
         
         // Check if user is logged in
@@ -109,7 +118,16 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
         setupCreateFlashcardFab();
         
         // Load initial data
-        loadMyFlashcards(true);
+        searchPipeline.submitNow(currentSearchQuery);
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (searchPipeline != null) {
+            searchPipeline.cancel();
+        }
+        searchIndex.shutdown();
     }
     
     private void initializeViews() {
@@ -130,8 +148,9 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
         chipAlphabetical = findViewById(R.id.chip_alphabetical);
         chipOldest = findViewById(R.id.chip_oldest);
         
-        // Initialize data lists
-        flashcardGroups = new ArrayList<>();
+        // Initialize data lists, the screen shows a filtered and sorted copy of the loaded pages
+        pager = new Pager<>(PAGE_SIZE, PREFETCH_DISTANCE, Pager.UNBOUNDED, this::loadPage);
+        pager.setListener(this);
         filteredFlashcardGroups = new ArrayList<>();
     }
     
@@ -144,7 +163,7 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
     }
     
     private void setupRecyclerView() {
-        adapter = new FlashcardGroupAdapter(filteredFlashcardGroups, this);
+        adapter = new FlashcardGroupAdapter(this);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
         
@@ -155,28 +174,25 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
                 super.onScrolled(recyclerView, dx, dy);
                 
                 LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
-                if (layoutManager != null && !isLoading && hasMorePages) {
-                    int visibleItemCount = layoutManager.getChildCount();
+                if (layoutManager != null) {
                     int totalItemCount = layoutManager.getItemCount();
-                    int firstVisibleItemPosition = layoutManager.findFirstVisibleItemPosition();
-                    
-                    if ((visibleItemCount + firstVisibleItemPosition) >= totalItemCount - 5) {
-                        loadMoreFlashcards();
-                    }
+                    int lastVisibleItemPosition = layoutManager.findLastVisibleItemPosition();
+                    pager.prefetchIfNeeded(totalItemCount - 1 - lastVisibleItemPosition);
                 }
             }
         });
     }
     
     private void setupSwipeRefresh() {
-        swipeRefresh.setOnRefreshListener(() -> {
-            currentPage = 1;
-            hasMorePages = true;
-            loadMyFlashcards(true);
-        });
+        swipeRefresh.setOnRefreshListener(() -> searchPipeline.submitNow(currentSearchQuery));
     }
     
     private void setupSearch() {
+        // Loaded sets are filtered on every keystroke, the server search is debounced
+        searchPipeline = new SearchPipeline((query, sequence) -> {
+            loadMyFlashcards();
+            return pager::cancel;
+        });
         searchEditText.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -188,6 +204,7 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
             public void afterTextChanged(Editable s) {
                 currentSearchQuery = s.toString().trim();
                 filterFlashcards();
+                searchPipeline.submit(currentSearchQuery);
             }
         });
     }
@@ -227,81 +244,50 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
         });
     }
     
-    private void loadMyFlashcards(boolean refresh) {
-        if (isLoading) return;
-        
-        isLoading = true;
-        
-        if (refresh) {
-            showLoading(true);
-            flashcardGroups.clear();
-            filteredFlashcardGroups.clear();
-            adapter.notifyDataSetChanged();
-        }
-        
-        String authToken = sessionManager.getAuthToken();
-        
-        new Thread(() -> {
-            try {
-                flashcardService.getUserFlashcards(authToken, currentPage, PAGE_SIZE, currentSearchQuery, new FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>>() {
-                    @Override
-                    public void onSuccess(PagedResponse<FlashcardGroup> response) {
-                        runOnUiThread(() -> {
-                            handleFlashcardsLoaded(response, refresh);
-                        });
-                    }
-                    
-                    @Override
-                    public void onError(String error, int statusCode) {
-                        runOnUiThread(() -> {
-                            handleLoadError(error);
-                        });
-                    }
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "Error loading flashcards", e);
-                runOnUiThread(() -> {
-                    handleLoadError(e.getMessage());
-                });
-            }
-        }).start();
+    private void loadMyFlashcards() {
+        // The current rows stay in the adapter, the first page is diffed against them
+        showLoading(true);
+        searchIndex.clear();
+        pager.refresh();
     }
     
-    private void loadMoreFlashcards() {
-        if (isLoading || !hasMorePages) return;
+    private RequestHandle loadPage(int pageNumber, int pageSize, Pager.PageCallback<FlashcardGroup> callback) {
+        String authToken = sessionManager.getAuthToken();
         
-        currentPage++;
-        loadMyFlashcards(false);
+        return requestScope.add(flashcardRepository.getUserFlashcards(authToken, pageNumber, pageSize, searchPipeline.getQuery(), new FlashcardService.FlashcardCallback<PagedResponse<FlashcardGroup>>() {
+            @Override
+            public void onSuccess(PagedResponse<FlashcardGroup> response) {
+                callback.onSuccess(response);
+            }
+            
+            @Override
+            public void onError(String error, int statusCode) {
+                callback.onError(error, statusCode);
+            }
+        }));
     }
     
-    private void handleFlashcardsLoaded(PagedResponse<FlashcardGroup> response, boolean refresh) {
-        isLoading = false;
+    @Override
+    public void onPageLoaded(int pageNumber) {
         showLoading(false);
         swipeRefresh.setRefreshing(false);
         
-        if (response != null && response.getItems() != null) {
-            if (refresh) {
-                flashcardGroups.clear();
-            }
-            flashcardGroups.addAll(response.getItems());
-            hasMorePages = response.getPageNumber() < response.getTotalPages();
-            
-            filterFlashcards();
-            
-            if (flashcardGroups.isEmpty()) {
-                showEmptyState();
-            } else {
-                hideEmptyState();
-            }
+        searchIndex.addAll(pager.getItems());
+        filterFlashcards();
+        
+        if (pager.getItemCount() == 0) {
+            showEmptyState();
         } else {
-            if (flashcardGroups.isEmpty()) {
-                showEmptyState();
-            }
+            hideEmptyState();
         }
     }
     
+    @Override
+    public void onLoadError(int pageNumber, String error, int statusCode) {
+        handleLoadError(error);
+    }
+    
     private void handleLoadError(String errorMessage) {
-        isLoading = false;
         showLoading(false);
         swipeRefresh.setRefreshing(false);
         
@@ -316,26 +302,28 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
         
         Toast.makeText(this, displayMessage, Toast.LENGTH_LONG).show();
         
-        if (flashcardGroups.isEmpty()) {
+        if (pager.getItemCount() == 0) {
             showEmptyState();
         }
     }
     
     private void filterFlashcards() {
-        filteredFlashcardGroups.clear();
-        
         if (currentSearchQuery.isEmpty()) {
-            filteredFlashcardGroups.addAll(flashcardGroups);
-        } else {
-            String query = currentSearchQuery.toLowerCase();
-            for (FlashcardGroup group : flashcardGroups) {
-                if (group.getName().toLowerCase().contains(query) ||
-                    (group.getDescription() != null && group.getDescription().toLowerCase().contains(query))) {
-                    filteredFlashcardGroups.add(group);
-                }
-            }
+            showFilteredFlashcards(pager.getItems());
+            return;
         }
         
+        // Matched off the main thread, results for a query the user has typed past are dropped
+        searchIndex.search(currentSearchQuery, (query, results) -> {
+            if (query.equals(currentSearchQuery)) {
+                showFilteredFlashcards(results);
+            }
+        });
+    }
+    
+    private void showFilteredFlashcards(List<FlashcardGroup> groups) {
+        filteredFlashcardGroups.clear();
+        filteredFlashcardGroups.addAll(groups);
         sortFlashcards();
     }
     
@@ -353,7 +341,8 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
                 break;
         }
         
-        adapter.notifyDataSetChanged();
+        // Diffed off the main thread, only rows that moved or changed are rebound
+        adapter.submitList(new ArrayList<>(filteredFlashcardGroups));
     }
     
     private void showLoading(boolean show) {
@@ -392,10 +381,8 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
     protected void onResume() {
         super.onResume();
         // Refresh data when returning to this activity
-        if (!flashcardGroups.isEmpty()) {
-            currentPage = 1;
-            hasMorePages = true;
-            loadMyFlashcards(true);
+        if (pager.getItemCount() > 0) {
+            searchPipeline.submitNow(currentSearchQuery);
         }
     }
     
@@ -406,9 +393,7 @@ public class MyFlashcardsActivity extends AppCompatActivity implements Flashcard
         if (resultCode == RESULT_OK) {
             if (requestCode == REQUEST_CREATE_FLASHCARD || requestCode == REQUEST_FLASHCARD_DETAIL) {
                 // Refresh the flashcard list after creating, editing, or deleting
-                currentPage = 1;
-                hasMorePages = true;
-                loadMyFlashcards(true);
+                searchPipeline.submitNow(currentSearchQuery);
                 
                 if (requestCode == REQUEST_CREATE_FLASHCARD) {
                     Toast.makeText(this, "Flashcard created successfully!", Toast.LENGTH_SHORT).show();
@@ -22,6 +22,7 @@ import app.quiz.R;
 import app.quiz.data.models.Reading;
 import app.quiz.data.models.ReadingQuestion;
 import app.quiz.data.remote.ReadingService;
+import app.quiz.utils.RequestScope;
 
 public class ReadingDetailActivity extends AppCompatActivity {
 
@@ -37,6 +38,7 @@ public class ReadingDetailActivity extends AppCompatActivity {
     private MaterialButton btnTakeTest;
 
     private ReadingService readingService;
+    private final RequestScope requestScope = RequestScope.of(this);
     private String readingId;
 
     @Override
@@ -78,7 +80,7 @@ public class ReadingDetailActivity extends AppCompatActivity {
     private void loadReadingDetails() {
         progressBar.setVisibility(View.VISIBLE);
 
-        readingService.getReadingById(readingId, new ReadingService.ReadingCallback<Reading>() {
+        requestScope.add(readingService.getReadingById(readingId, new ReadingService.ReadingCallback<Reading>() {
             @Override
             public void onSuccess(Reading result) {
                 runOnUiThread(() -> {
@@ -94,7 +96,7 @@ public class ReadingDetailActivity extends AppCompatActivity {
                     Toast.makeText(ReadingDetailActivity.this, error, Toast.LENGTH_LONG).show();
                 });
             }
-        });
+        }));
     }
 
     private void displayReading(Reading reading) {
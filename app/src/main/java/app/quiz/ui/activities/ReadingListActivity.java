@@ -19,19 +19,27 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.google.android.material.textfield.TextInputEditText;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import app.quiz.R;
 import app.quiz.data.models.PagedResponse;
 import app.quiz.data.models.Reading;
 import app.quiz.data.remote.ReadingService;
+import app.quiz.data.remote.RequestHandle;
+import app.quiz.data.sync.ReadingSync;
 import app.quiz.ui.adapters.ReadingAdapter;
+import app.quiz.utils.Pager;
+import app.quiz.utils.RequestScope;
+import app.quiz.utils.SearchPipeline;
 
-public class ReadingListActivity extends AppCompatActivity implements ReadingAdapter.OnReadingClickListener {
+public class ReadingListActivity extends AppCompatActivity implements ReadingAdapter.OnReadingClickListener,
+        Pager.Listener {
 
     private static final String TAG = "ReadingListActivity";
     private static final int PAGE_SIZE = 10;
+    // Start loading the next page a full page before the end of the list
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE;
+    private static final int MAX_PAGES = 10;
 
     // UI Components
     private RecyclerView recyclerView;
@@ -45,11 +53,12 @@ public class ReadingListActivity extends AppCompatActivity implements ReadingAda
 
     // Data
     private ReadingService readingService;
-    private List<Reading> readings;
-    private int currentPage = 1;
-    private boolean isLoading = false;
-    private boolean hasMorePages = true;
+    // Catalog kept on the device, the list without a search is served from it
+    private ReadingSync readingSync;
+    private final RequestScope requestScope = RequestScope.of(this);
+    private Pager<Reading> pager;
     private String currentSearchQuery = "";
+    private SearchPipeline searchPipeline;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,12 +67,20 @@ public class ReadingListActivity extends AppCompatActivity implements ReadingAda
 
         initializeComponents();
         setupUI();
-        loadReadings(true);
+        searchPipeline.submitNow(currentSearchQuery);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchPipeline.cancel();
     }
 
     private void initializeComponents() {
-        readingService = ReadingService.getInstance();
-        readings = new ArrayList<>();
+        readingService = ReadingService.getInstance(this);
+        readingSync = ReadingSync.getInstance(this);
+        pager = new Pager<>(PAGE_SIZE, PREFETCH_DISTANCE, MAX_PAGES, this::loadPage);
+        pager.setListener(this);
 
         // Setup toolbar
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -87,7 +104,8 @@ public class ReadingListActivity extends AppCompatActivity implements ReadingAda
 
     private void setupUI() {
         // Setup RecyclerView
-        adapter = new ReadingAdapter(readings, this);
+        adapter = new ReadingAdapter(this);
+        pager.setAdapter(adapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
 
@@ -99,27 +117,21 @@ public class ReadingListActivity extends AppCompatActivity implements ReadingAda
 
                 LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
                 if (layoutManager != null) {
-                    int visibleItemCount = layoutManager.getChildCount();
-                    int totalItemCount = layoutManager.getItemCount();
-                    int firstVisibleItemPosition = layoutManager.findFirstVisibleItemPosition();
-
-                    if (!isLoading && hasMorePages) {
-                        if ((visibleItemCount + firstVisibleItemPosition) >= totalItemCount - 2) {
-                            loadMoreReadings();
-                        }
-                    }
+                    pager.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
                 }
             }
         });
 
         // Setup swipe refresh
-        swipeRefreshLayout.setOnRefreshListener(() -> {
-            currentPage = 1;
-            hasMorePages = true;
-            loadReadings(true);
-        });
+        swipeRefreshLayout.setOnRefreshListener(() -> searchPipeline.submitNow(currentSearchQuery));
 
-        // Setup search functionality
+        // Setup search functionality, queries are debounced and superseded ones are discarded
+        searchPipeline = new SearchPipeline((query, sequence) -> {
+            currentSearchQuery = query;
+            loadReadings();
+            return pager::cancel;
+        });
         etSearch.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -129,76 +141,121 @@ public class ReadingListActivity extends AppCompatActivity implements ReadingAda
 
             @Override
             public void afterTextChanged(Editable s) {
-                String query = s.toString().trim();
-                if (!query.equals(currentSearchQuery)) {
-                    currentSearchQuery = query;
-                    currentPage = 1;
-                    hasMorePages = true;
-                    loadReadings(true);
-                }
+                searchPipeline.submit(s.toString());
             }
         });
     }
 
-    private void loadReadings(boolean clearExisting) {
-        if (isLoading) return;
+    private void loadReadings() {
+        progressBar.setVisibility(View.VISIBLE);
+        layoutEmptyState.setVisibility(View.GONE);
+        if (currentSearchQuery.isEmpty()) {
+            syncReadings();
+        } else {
+            pager.refresh();
+        }
+    }
 
-        isLoading = true;
+    /**
+     * Fetch the readings changed since the last sync, then show the stored catalog
+     * The stored readings are shown even if the sync fails, e.g. offline.
+     */
+    private void syncReadings() {
+        // Show what is stored while the changes are fetched, pages are read after the store has loaded
+        pager.refresh();
+        requestScope.add(readingSync.sync(new ReadingService.ReadingCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer changed) {
+                Log.d(TAG, "Reading sync: " + changed + " changed, " + readingSync);
+                runOnUiThread(() -> {
+                    if (!currentSearchQuery.isEmpty()) {
+                        return;
+                    }
+                    if (changed > 0 || pager.getItemCount() == 0) {
+                        pager.refresh();
+                    } else {
+                        swipeRefreshLayout.setRefreshing(false);
+                    }
+                });
+            }
 
-        if (clearExisting) {
-            progressBar.setVisibility(View.VISIBLE);
-            layoutEmptyState.setVisibility(View.GONE);
-        }
+            @Override
+            public void onError(String error, int statusCode) {
+                runOnUiThread(() -> {
+                    if (!currentSearchQuery.isEmpty()) {
+                        return;
+                    }
+                    pager.refresh();
+                    Toast.makeText(ReadingListActivity.this, error, Toast.LENGTH_LONG).show();
+                });
+            }
+        }));
+    }
+
+    private RequestHandle loadPage(int pageNumber, int pageSize, Pager.PageCallback<Reading> callback) {
+        String query = currentSearchQuery;
+        if (query.isEmpty() && readingSync.canServePages()) {
+            return requestScope.add(readingSync.getPage(pageNumber, pageSize,
+                    new ReadingService.ReadingCallback<PagedResponse<Reading>>() {
+                        @Override
+                        public void onSuccess(PagedResponse<Reading> result) {
+                            callback.onSuccess(result);
+                        }
 
-        readingService.getPublicReadings(currentPage, PAGE_SIZE, currentSearchQuery,
+                        @Override
+                        public void onError(String error, int statusCode) {
+                            callback.onError(error, statusCode);
+                        }
+                    }));
+        }
+        return requestScope.add(readingService.getPublicReadings(pageNumber, pageSize, query,
                 new ReadingService.ReadingCallback<PagedResponse<Reading>>() {
                     @Override
                     public void onSuccess(PagedResponse<Reading> result) {
-                        runOnUiThread(() -> {
-                            isLoading = false;
-                            progressBar.setVisibility(View.GONE);
-                            swipeRefreshLayout.setRefreshing(false);
-
-                            if (clearExisting) {
-                                readings.clear();
-                            }
-
-                            if (result.getItems() != null && !result.getItems().isEmpty()) {
-                                readings.addAll(result.getItems());
-                                adapter.notifyDataSetChanged();
-
-                                hasMorePages = result.hasNextPage();
-
-                                layoutEmptyState.setVisibility(View.GONE);
-                                recyclerView.setVisibility(View.VISIBLE);
-                            } else if (readings.isEmpty()) {
-                                showEmptyState();
-                            }
-                        });
+                        callback.onSuccess(result);
                     }
 
                     @Override
                     public void onError(String error, int statusCode) {
-                        runOnUiThread(() -> {
-                            isLoading = false;
-                            progressBar.setVisibility(View.GONE);
-                            swipeRefreshLayout.setRefreshing(false);
+                        if (pageNumber == 1 && statusCode == -1 && !query.isEmpty()) {
+                            // No connection, answer the search from readings loaded earlier
+                            List<Reading> results = readingService.searchOffline(query, pageSize);
+                            Log.d(TAG, "Offline search for '" + query + "' found " + results.size() + " results");
+                            // One page at most, the pager would fetch rows past it as later pages
+                            callback.onSuccess(new PagedResponse<>(results, results.size(), 1, pageSize, 1));
+                            return;
+                        }
+                        callback.onError(error, statusCode);
+                    }
+                }));
+    }
 
-                            if (readings.isEmpty()) {
-                                showEmptyState();
-                            }
+    @Override
+    public void onPageLoaded(int pageNumber) {
+        if (pageNumber != 1) {
+            return;
+        }
+        progressBar.setVisibility(View.GONE);
+        swipeRefreshLayout.setRefreshing(false);
 
-                            Toast.makeText(ReadingListActivity.this, error, Toast.LENGTH_LONG).show();
-                        });
-                    }
-                });
+        if (pager.getItemCount() > 0) {
+            layoutEmptyState.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+        } else {
+            showEmptyState();
+        }
     }
 
-    private void loadMoreReadings() {
-        if (!hasMorePages || isLoading) return;
+    @Override
+    public void onLoadError(int pageNumber, String error, int statusCode) {
+        progressBar.setVisibility(View.GONE);
+        swipeRefreshLayout.setRefreshing(false);
+
+        if (pager.getItemCount() == 0) {
+            showEmptyState();
+        }
 
-        currentPage++;
-        loadReadings(false);
+        Toast.makeText(ReadingListActivity.this, error, Toast.LENGTH_LONG).show();
     }
 
     private void showEmptyState() {
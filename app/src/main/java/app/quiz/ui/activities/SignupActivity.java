@@ -20,6 +20,7 @@ import app.quiz.R;
 import app.quiz.data.models.SignupRequest;
 import app.quiz.data.models.User;
 import app.quiz.data.remote.ApiClient;
+import app.quiz.utils.RequestScope;
 import app.quiz.utils.SessionManager;
 
 /**
@@ -38,6 +39,7 @@ public class SignupActivity extends AppCompatActivity {
     
     // Dependencies
     private ApiClient apiClient;
+    private final RequestScope requestScope = RequestScope.of(this);
     private SessionManager sessionManager;
     
     @Override
@@ -124,7 +126,7 @@ public class SignupActivity extends AppCompatActivity {
         setLoadingState(true);
         
         // Make API call
-        apiClient.register(signupRequest, new ApiClient.ApiCallback<User>() {
+        requestScope.add(apiClient.register(signupRequest, new ApiClient.ApiCallback<User>() {
             @Override
             public void onSuccess(User result) {
                 runOnUiThread(() -> {
@@ -140,7 +142,7 @@ public class SignupActivity extends AppCompatActivity {
                     handleSignupError(error, statusCode);
                 });
             }
-        });
+        }));
     }
     
     /**
@@ -8,6 +8,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -15,15 +16,13 @@ import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
 import com.bumptech.glide.request.RequestOptions;
 
 import java.text.SimpleDateFormat;
-import java.util.List;
 import java.util.Locale;
 
 import app.quiz.R;
 import app.quiz.data.models.Reading;
 
-public class AdminReadingAdapter extends RecyclerView.Adapter<AdminReadingAdapter.AdminReadingViewHolder> {
+public class AdminReadingAdapter extends ListAdapter<Reading, AdminReadingAdapter.AdminReadingViewHolder> {
 
-    private List<Reading> readings;
     private OnAdminReadingClickListener listener;
     private SimpleDateFormat dateFormat;
 
@@ -33,9 +32,10 @@ public class AdminReadingAdapter extends RecyclerView.Adapter<AdminReadingAdapte
         void onDeleteClick(Reading reading);
     }
 
-    public AdminReadingAdapter(List<Reading> readings, OnAdminReadingClickListener listener) {
-        this.readings = readings;
+    public AdminReadingAdapter(OnAdminReadingClickListener listener) {
+        super(ReadingAdapter.DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
         this.dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
     }
 
@@ -49,13 +49,13 @@ public class AdminReadingAdapter extends RecyclerView.Adapter<AdminReadingAdapte
 
     @Override
     public void onBindViewHolder(@NonNull AdminReadingViewHolder holder, int position) {
-        Reading reading = readings.get(position);
+        Reading reading = getItem(position);
         holder.bind(reading);
     }
 
     @Override
-    public int getItemCount() {
-        return readings.size();
+    public long getItemId(int position) {
+        return StableIds.of(getItem(position).getId(), position);
     }
 
     public class AdminReadingViewHolder extends RecyclerView.ViewHolder {
@@ -139,23 +139,4 @@ public class AdminReadingAdapter extends RecyclerView.Adapter<AdminReadingAdapte
             });
         }
     }
-
-    public void updateReadings(List<Reading> newReadings) {
-        this.readings = newReadings;
-        notifyDataSetChanged();
-    }
-
-    public void addReadings(List<Reading> newReadings) {
-        int startPosition = this.readings.size();
-        this.readings.addAll(newReadings);
-        notifyItemRangeInserted(startPosition, newReadings.size());
-    }
-
-    public void removeReading(Reading reading) {
-        int position = readings.indexOf(reading);
-        if (position != -1) {
-            readings.remove(position);
-            notifyItemRemoved(position);
-        }
-    }
 }
\ No newline at end of file
@@ -6,9 +6,11 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
+import java.util.Objects;
 
 import app.quiz.R;
 import app.quiz.data.models.FlashcardGroup;
@@ -16,10 +18,26 @@ import app.quiz.data.models.FlashcardGroup;
 /**
  * Adapter for displaying flashcard groups in RecyclerView
  * Implements UC-06: Display flashcard sets with title, author, number of cards, etc.
+ * Lists are diffed on a background thread, so only changed rows are rebound
  */
-public class FlashcardGroupAdapter extends RecyclerView.Adapter<FlashcardGroupAdapter.FlashcardGroupViewHolder> {
+public class FlashcardGroupAdapter extends ListAdapter<FlashcardGroup, FlashcardGroupAdapter.FlashcardGroupViewHolder> {
+    
+    private static final DiffUtil.ItemCallback<FlashcardGroup> DIFF_CALLBACK = new DiffUtil.ItemCallback<FlashcardGroup>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull FlashcardGroup oldItem, @NonNull FlashcardGroup newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull FlashcardGroup oldItem, @NonNull FlashcardGroup newItem) {
+            // Only the fields shown in the row
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && oldItem.getFlashcardCount() == newItem.getFlashcardCount()
+                    && oldItem.isPublic() == newItem.isPublic();
+        }
+    };
     
-    private List<FlashcardGroup> flashcardGroups;
     private OnFlashcardGroupClickListener listener;
     
     /**
@@ -30,14 +48,14 @@ public class FlashcardGroupAdapter extends RecyclerView.Adapter<FlashcardGroupAd
     }
     
     /**
-     * Constructor
+     * Constructor, items are provided with submitList
      * 
-     * @param flashcardGroups List of flashcard groups
      * @param listener Click listener
      */
-    public FlashcardGroupAdapter(List<FlashcardGroup> flashcardGroups, OnFlashcardGroupClickListener listener) {
-        this.flashcardGroups = flashcardGroups;
+    public FlashcardGroupAdapter(OnFlashcardGroupClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
     
     @NonNull
@@ -50,26 +68,14 @@ public class FlashcardGroupAdapter extends RecyclerView.Adapter<FlashcardGroupAd
     
     @Override
     public void onBindViewHolder(@NonNull FlashcardGroupViewHolder holder, int position) {
-        FlashcardGroup flashcardGroup = flashcardGroups.get(position);
+        FlashcardGroup flashcardGroup = getItem(position);
         holder.bind(flashcardGroup);
     }
     
     @Override
-    public int getItemCount() {
-        return flashcardGroups != null ? flashcardGroups.size() : 0;
-    }
-    
-    /**
-     * Update the flashcard groups list
-     * 
-     * @param newFlashcardGroups New list of flashcard groups
-     */
-    public void updateFlashcardGroups(List<FlashcardGroup> newFlashcardGroups) {
-        this.flashcardGroups.clear();
-        if (newFlashcardGroups != null) {
-            this.flashcardGroups.addAll(newFlashcardGroups);
-        }
-        notifyDataSetChanged();
+    public long getItemId(int position) {
+        FlashcardGroup flashcardGroup = getItem(position);
+        return StableIds.of(flashcardGroup != null ? flashcardGroup.getId() : null, position);
     }
     
     /**
@@ -92,7 +98,11 @@ public class FlashcardGroupAdapter extends RecyclerView.Adapter<FlashcardGroupAd
             // Set click listener
             itemView.setOnClickListener(v -> {
                 if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onFlashcardGroupClick(flashcardGroups.get(getAdapterPosition()));
+                    FlashcardGroup flashcardGroup = getItem(getAdapterPosition());
+                    // Placeholders for pages that are still loading are not clickable
+                    if (flashcardGroup != null) {
+                        listener.onFlashcardGroupClick(flashcardGroup);
+                    }
                 }
             });
         }
@@ -101,9 +111,17 @@ public class FlashcardGroupAdapter extends RecyclerView.Adapter<FlashcardGroupAd
          * Bind flashcard group data to views
          * Implements UC-06 normal sequence step 4: display title, description, number of cards
          * 
-         * @param flashcardGroup Flashcard group to bind
+         * @param flashcardGroup Flashcard group to bind, or null for a placeholder while its page loads
          */
         public void bind(FlashcardGroup flashcardGroup) {
+            if (flashcardGroup == null) {
+                tvTitle.setText("");
+                tvDescription.setVisibility(View.GONE);
+                tvCardCount.setText("");
+                tvPublicIndicator.setVisibility(View.GONE);
+                return;
+            }
+            
             // Set title
             tvTitle.setText(flashcardGroup.getName());
             
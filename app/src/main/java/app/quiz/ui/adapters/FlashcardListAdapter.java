@@ -6,16 +6,32 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
+import java.util.Objects;
 
 import app.quiz.R;
 import app.quiz.data.models.Flashcard;
 
-public class FlashcardListAdapter extends RecyclerView.Adapter<FlashcardListAdapter.FlashcardListViewHolder> {
+public class FlashcardListAdapter extends ListAdapter<Flashcard, FlashcardListAdapter.FlashcardListViewHolder> {
+
+    // Flashcards have no id, the term identifies a card within its set
+    static final DiffUtil.ItemCallback<Flashcard> DIFF_CALLBACK = new DiffUtil.ItemCallback<Flashcard>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Flashcard oldItem, @NonNull Flashcard newItem) {
+            return oldItem == newItem || Objects.equals(oldItem.getTerm(), newItem.getTerm());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Flashcard oldItem, @NonNull Flashcard newItem) {
+            return Objects.equals(oldItem.getTerm(), newItem.getTerm())
+                    && Objects.equals(oldItem.getDefinition(), newItem.getDefinition());
+        }
+    };
 
-    private List<Flashcard> flashcards;
     private OnFlashcardClickListener listener;
 
     public interface OnFlashcardClickListener {
@@ -23,7 +39,8 @@ public class FlashcardListAdapter extends RecyclerView.Adapter<FlashcardListAdap
     }
 
     public FlashcardListAdapter(List<Flashcard> flashcards) {
-        this.flashcards = flashcards;
+        super(DIFF_CALLBACK);
+        submitList(flashcards);
     }
 
     public void setOnFlashcardClickListener(OnFlashcardClickListener listener) {
@@ -40,15 +57,10 @@ public class FlashcardListAdapter extends RecyclerView.Adapter<FlashcardListAdap
 
     @Override
     public void onBindViewHolder(@NonNull FlashcardListViewHolder holder, int position) {
-        Flashcard flashcard = flashcards.get(position);
+        Flashcard flashcard = getItem(position);
         holder.bind(flashcard, position);
     }
 
-    @Override
-    public int getItemCount() {
-        return flashcards.size();
-    }
-
     public class FlashcardListViewHolder extends RecyclerView.ViewHolder {
         private TextView tvListTerm, tvListDefinition;
 
@@ -74,7 +86,6 @@ public class FlashcardListAdapter extends RecyclerView.Adapter<FlashcardListAdap
     }
 
     public void updateFlashcards(List<Flashcard> newFlashcards) {
-        this.flashcards = newFlashcards;
-        notifyDataSetChanged();
+        submitList(newFlashcards);
     }
 }
\ No newline at end of file
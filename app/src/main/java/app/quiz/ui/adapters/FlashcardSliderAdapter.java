@@ -115,9 +115,12 @@ public class FlashcardSliderAdapter extends RecyclerView.Adapter<FlashcardSlider
     }
 
     public void resetFlipStates() {
+        // Only rebind the cards that were actually flipped
         for (int i = 0; i < isFlipped.length; i++) {
-            isFlipped[i] = false;
+            if (isFlipped[i]) {
+                isFlipped[i] = false;
+                notifyItemChanged(i);
+            }
         }
-        notifyDataSetChanged();
     }
 }
\ No newline at end of file
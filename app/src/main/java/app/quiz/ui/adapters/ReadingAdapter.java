@@ -6,25 +6,48 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
+import java.util.Objects;
 
 import app.quiz.R;
 import app.quiz.data.models.Reading;
 
-public class ReadingAdapter extends RecyclerView.Adapter<ReadingAdapter.ReadingViewHolder> {
+public class ReadingAdapter extends ListAdapter<Reading, ReadingAdapter.ReadingViewHolder> {
+
+    static final DiffUtil.ItemCallback<Reading> DIFF_CALLBACK = new DiffUtil.ItemCallback<Reading>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Reading oldItem, @NonNull Reading newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Reading oldItem, @NonNull Reading newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt())
+                    && Objects.equals(oldItem.getUpdatedAt(), newItem.getUpdatedAt())
+                    && questionCount(oldItem) == questionCount(newItem);
+        }
+
+        private int questionCount(Reading reading) {
+            return reading.getQuestions() != null ? reading.getQuestions().size() : 0;
+        }
+    };
 
-    private List<Reading> readings;
     private OnReadingClickListener listener;
 
     public interface OnReadingClickListener {
         void onReadingClick(Reading reading);
     }
 
-    public ReadingAdapter(List<Reading> readings, OnReadingClickListener listener) {
-        this.readings = readings;
+    public ReadingAdapter(OnReadingClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -37,21 +60,14 @@ public class ReadingAdapter extends RecyclerView.Adapter<ReadingAdapter.ReadingV
 
     @Override
     public void onBindViewHolder(@NonNull ReadingViewHolder holder, int position) {
-        Reading reading = readings.get(position);
+        Reading reading = getItem(position);
         holder.bind(reading);
     }
 
     @Override
-    public int getItemCount() {
-        return readings != null ? readings.size() : 0;
-    }
-
-    public void updateReadings(List<Reading> newReadings) {
-        this.readings.clear();
-        if (newReadings != null) {
-            this.readings.addAll(newReadings);
-        }
-        notifyDataSetChanged();
+    public long getItemId(int position) {
+        Reading reading = getItem(position);
+        return StableIds.of(reading != null ? reading.getId() : null, position);
     }
 
     class ReadingViewHolder extends RecyclerView.ViewHolder {
@@ -65,12 +81,21 @@ public class ReadingAdapter extends RecyclerView.Adapter<ReadingAdapter.ReadingV
 
             itemView.setOnClickListener(v -> {
                 if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onReadingClick(readings.get(getAdapterPosition()));
+                    Reading reading = getItem(getAdapterPosition());
+                    // Placeholders for pages that are still loading are not clickable
+                    if (reading != null) {
+                        listener.onReadingClick(reading);
+                    }
                 }
             });
         }
 
         public void bind(Reading reading) {
+            if (reading == null) {
+                tvTitle.setText("");
+                tvDescription.setVisibility(View.GONE);
+                return;
+            }
             tvTitle.setText(reading.getTitle());
             if (reading.getDescription() != null && !reading.getDescription().trim().isEmpty()) {
                 tvDescription.setText(reading.getDescription());
@@ -7,11 +7,14 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.card.MaterialCardView;
 
 import java.util.List;
+import java.util.Objects;
 
 import app.quiz.R;
 import app.quiz.data.models.FlashcardGroup;
@@ -19,20 +22,36 @@ import app.quiz.data.models.FlashcardGroup;
 /**
  * SelectableFlashcardGroupAdapter - RecyclerView adapter for selecting flashcard groups
  * Used in FlashcardTestSetupActivity for test configuration
+ * Lists are diffed on a background thread, so only changed rows are rebound
  */
-public class SelectableFlashcardGroupAdapter extends RecyclerView.Adapter<SelectableFlashcardGroupAdapter.SelectableFlashcardGroupViewHolder> {
+public class SelectableFlashcardGroupAdapter extends ListAdapter<FlashcardGroup, SelectableFlashcardGroupAdapter.SelectableFlashcardGroupViewHolder> {
+    
+    private static final DiffUtil.ItemCallback<FlashcardGroup> DIFF_CALLBACK = new DiffUtil.ItemCallback<FlashcardGroup>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull FlashcardGroup oldItem, @NonNull FlashcardGroup newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull FlashcardGroup oldItem, @NonNull FlashcardGroup newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && oldItem.getFlashcards().size() == newItem.getFlashcards().size();
+        }
+    };
     
     public interface OnGroupSelectedListener {
         void onGroupSelected(FlashcardGroup group);
     }
     
-    private List<FlashcardGroup> flashcardGroups;
     private OnGroupSelectedListener listener;
     private FlashcardGroup selectedGroup;
     
     public SelectableFlashcardGroupAdapter(List<FlashcardGroup> flashcardGroups, OnGroupSelectedListener listener) {
-        this.flashcardGroups = flashcardGroups;
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
+        submitList(flashcardGroups);
     }
     
     @NonNull
@@ -45,14 +64,14 @@ public class SelectableFlashcardGroupAdapter extends RecyclerView.Adapter<Select
     
     @Override
     public void onBindViewHolder(@NonNull SelectableFlashcardGroupViewHolder holder, int position) {
-        FlashcardGroup group = flashcardGroups.get(position);
+        FlashcardGroup group = getItem(position);
         boolean isSelected = group.equals(selectedGroup);
         holder.bind(group, isSelected, listener);
     }
     
     @Override
-    public int getItemCount() {
-        return flashcardGroups.size();
+    public long getItemId(int position) {
+        return StableIds.of(getItem(position).getId(), position);
     }
     
     public void setSelectedGroup(FlashcardGroup group) {
@@ -61,13 +80,13 @@ public class SelectableFlashcardGroupAdapter extends RecyclerView.Adapter<Select
         
         // Notify changes for previous and current selection
         if (previousSelected != null) {
-            int previousIndex = flashcardGroups.indexOf(previousSelected);
+            int previousIndex = getCurrentList().indexOf(previousSelected);
             if (previousIndex != -1) {
                 notifyItemChanged(previousIndex);
             }
         }
         
-        int currentIndex = flashcardGroups.indexOf(group);
+        int currentIndex = getCurrentList().indexOf(group);
         if (currentIndex != -1) {
             notifyItemChanged(currentIndex);
         }
@@ -78,9 +97,13 @@ public class SelectableFlashcardGroupAdapter extends RecyclerView.Adapter<Select
     }
     
     public void updateFlashcardGroups(List<FlashcardGroup> newFlashcardGroups) {
-        this.flashcardGroups = newFlashcardGroups;
+        FlashcardGroup previousSelected = selectedGroup;
         selectedGroup = null; // Reset selection when data changes
-        notifyDataSetChanged();
+        int previousIndex = getCurrentList().indexOf(previousSelected);
+        if (previousIndex != -1) {
+            notifyItemChanged(previousIndex);
+        }
+        submitList(newFlashcardGroups);
     }
     
     static class SelectableFlashcardGroupViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,30 @@
+package app.quiz.ui.adapters;
+
+/**
+ * Stable RecyclerView item ids derived from server ids
+ * Lets RecyclerView match rows across list updates so only changed rows are rebound.
+ */
+final class StableIds {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StableIds() {}
+
+    /**
+     * @param id Server id of the item
+     * @param position Adapter position, used for items without an id such as paging placeholders
+     * @return 64-bit FNV-1a hash of the id, so collisions are practically impossible
+     */
+    static long of(String id, int position) {
+        if (id == null) {
+            // Kept apart from hashed ids by the sign bit pattern, unique per position
+            return Long.MIN_VALUE + position;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash == Long.MIN_VALUE ? hash + 1 : hash;
+    }
+}
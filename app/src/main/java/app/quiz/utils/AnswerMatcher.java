@@ -0,0 +1,241 @@
+package app.quiz.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides whether a typed answer matches the expected one
+ * Both sides are folded the way TextNormalizer does it, so case and diacritics are ignored
+ * ("tieng viet" matches "Tiếng Việt"), and runs of spaces and punctuation count as one space.
+ * Answers of at least minLengthForEdits characters may also be off by up to maxEdits typos, and
+ * answers listed together in the synonym table are accepted for each other.
+ * Folding and edit distance work in buffers owned by the matcher, so a check allocates nothing
+ * once the buffers fit the answers. For the same reason an instance must not be shared between threads.
+ */
+public class AnswerMatcher {
+    public static final int DEFAULT_MAX_EDITS = 1;
+    public static final int DEFAULT_MIN_LENGTH_FOR_EDITS = 4;
+
+    /**
+     * Tells which answers are acceptable for each other
+     * Both arguments are folded, with single spaces between words.
+     */
+    public interface SynonymProvider {
+        boolean areSynonyms(String answer, String expected);
+    }
+
+    /**
+     * Synonym table held in memory, filled with groups of interchangeable answers
+     */
+    public static class SynonymTable implements SynonymProvider {
+        private final Map<String, Integer> groups = new HashMap<>();
+        private int groupCount;
+
+        /**
+         * Make every answer of the group acceptable for every other one
+         */
+        public SynonymTable addGroup(String... answers) {
+            int group = groupCount++;
+            for (String answer : answers) {
+                groups.put(normalize(answer), group);
+            }
+            return this;
+        }
+
+        @Override
+        public boolean areSynonyms(String answer, String expected) {
+            Integer answerGroup = groups.get(answer);
+            return answerGroup != null && answerGroup.equals(groups.get(expected));
+        }
+    }
+
+    // Folded form of every char up to FOLD_TABLE_SIZE, SKIP for marks, SEPARATOR for spaces and punctuation
+    private static final int FOLD_TABLE_SIZE = 0x2070; // Through Latin, Vietnamese and general punctuation
+    private static final char SKIP = '\uFFFF';
+    private static final char SEPARATOR = ' ';
+    private static final char[] FOLD_TABLE = buildFoldTable();
+
+    private final int maxEdits;
+    private final int minLengthForEdits;
+    private final SynonymProvider synonyms;
+
+    private char[] answerBuffer = new char[32];
+    private char[] expectedBuffer = new char[32];
+    private int[] previousRow = new int[33];
+    private int[] currentRow = new int[33];
+
+    public AnswerMatcher() {
+        this(DEFAULT_MAX_EDITS, DEFAULT_MIN_LENGTH_FOR_EDITS, null);
+    }
+
+    /**
+     * @param maxEdits Typos (insertions, deletions, substitutions) forgiven in long enough answers
+     * @param minLengthForEdits Folded length from which typos are forgiven, shorter answers must match exactly
+     * @param synonyms Acceptable alternatives, or null for none
+     */
+    public AnswerMatcher(int maxEdits, int minLengthForEdits, SynonymProvider synonyms) {
+        this.maxEdits = Math.max(0, maxEdits);
+        this.minLengthForEdits = minLengthForEdits;
+        this.synonyms = synonyms;
+    }
+
+    /**
+     * @return true if the answer is the expected one, a close enough misspelling or a synonym
+     */
+    public boolean matches(CharSequence answer, CharSequence expected) {
+        if (answer == null || expected == null) {
+            return false;
+        }
+
+        answerBuffer = ensureCapacity(answerBuffer, answer.length());
+        expectedBuffer = ensureCapacity(expectedBuffer, expected.length());
+        int answerLength = fold(answer, answerBuffer);
+        int expectedLength = fold(expected, expectedBuffer);
+        if (answerLength == 0) {
+            return false;
+        }
+
+        if (regionEquals(answerBuffer, answerLength, expectedBuffer, expectedLength)) {
+            return true;
+        }
+        if (expectedLength >= minLengthForEdits && maxEdits > 0
+                && withinDistance(answerBuffer, answerLength, expectedBuffer, expectedLength, maxEdits)) {
+            return true;
+        }
+        return synonyms != null && synonyms.areSynonyms(new String(answerBuffer, 0, answerLength),
+                new String(expectedBuffer, 0, expectedLength));
+    }
+
+    /**
+     * Fold text the same way answers are compared, e.g. for building synonym keys
+     */
+    public static String normalize(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        char[] buffer = new char[text.length()];
+        return new String(buffer, 0, fold(text, buffer));
+    }
+
+    /**
+     * Fold text into a buffer at least as long as the text
+     * @return Folded length, without leading, trailing or repeated separators
+     */
+    private static int fold(CharSequence text, char[] buffer) {
+        int length = 0;
+        boolean pendingSeparator = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char folded = c < FOLD_TABLE_SIZE ? FOLD_TABLE[c]
+                    : Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : SEPARATOR;
+            if (folded == SKIP) {
+                continue;
+            }
+            if (folded == SEPARATOR) {
+                pendingSeparator = length > 0;
+                continue;
+            }
+            if (pendingSeparator) {
+                buffer[length++] = SEPARATOR;
+                pendingSeparator = false;
+            }
+            buffer[length++] = folded;
+        }
+        return length;
+    }
+
+    /**
+     * Levenshtein distance restricted to a band of width 2 * limit + 1 around the diagonal
+     * Cells outside the band can only exceed the limit, and the check stops at the first row
+     * whose every cell does.
+     */
+    private boolean withinDistance(char[] a, int aLength, char[] b, int bLength, int limit) {
+        if (Math.abs(aLength - bLength) > limit) {
+            return false;
+        }
+
+        previousRow = ensureCapacity(previousRow, bLength + 1);
+        currentRow = ensureCapacity(currentRow, bLength + 1);
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        int outside = limit + 1;
+
+        for (int j = 0; j <= bLength; j++) {
+            previous[j] = j <= limit ? j : outside;
+        }
+
+        for (int i = 1; i <= aLength; i++) {
+            int from = Math.max(1, i - limit);
+            int to = Math.min(bLength, i + limit);
+            current[0] = i <= limit ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+
+            int rowMin = current[0];
+            char ac = a[i - 1];
+            for (int j = from; j <= to; j++) {
+                int cost = ac == b[j - 1] ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (value > outside) {
+                    value = outside;
+                }
+                current[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            if (to < bLength) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > limit) {
+                return false;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[bLength] <= limit;
+    }
+
+    private static boolean regionEquals(char[] a, int aLength, char[] b, int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char[] ensureCapacity(char[] buffer, int length) {
+        return buffer.length >= length ? buffer : new char[Math.max(length, buffer.length * 2)];
+    }
+
+    private static int[] ensureCapacity(int[] buffer, int length) {
+        return buffer.length >= length ? buffer : new int[Math.max(length, buffer.length * 2)];
+    }
+
+    private static char[] buildFoldTable() {
+        char[] table = new char[FOLD_TABLE_SIZE];
+        for (int c = 0; c < FOLD_TABLE_SIZE; c++) {
+            char ch = (char) c;
+            if (ch == '\'' || ch == '\u2019') {
+                // "don't" and "dont" are the same answer
+                table[c] = SKIP;
+            } else if (Character.isLetterOrDigit(ch)) {
+                String folded = TextNormalizer.fold(String.valueOf(ch));
+                table[c] = folded.length() == 1 ? folded.charAt(0) : Character.toLowerCase(ch);
+            } else {
+                int type = Character.getType(ch);
+                boolean mark = type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                        || type == Character.ENCLOSING_MARK;
+                table[c] = mark ? SKIP : SEPARATOR;
+            }
+        }
+        return table;
+    }
+}
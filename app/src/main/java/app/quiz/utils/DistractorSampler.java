@@ -0,0 +1,136 @@
+package app.quiz.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import app.quiz.data.models.Flashcard;
+
+/**
+ * Draws wrong answers (distractors) for a question from the rest of a deck
+ * The deck is indexed once: every card gets ids for its term and its definition, so excluding the
+ * cards of the correct term and skipping repeated answers are int comparisons. Distractors are then
+ * drawn by partial Fisher-Yates over a permutation of the deck that is kept between draws, so a
+ * question costs O(count) on average instead of a copy and shuffle of the whole deck.
+ * Not thread-safe, use one sampler per test being generated.
+ */
+public class DistractorSampler {
+    private final Random random;
+    private final String[] terms;
+    private final String[] definitions;
+    private final int[] termIds;
+    private final int[] definitionIds;
+    private final Map<String, Integer> termIdsByTerm = new HashMap<>();
+    private final Map<String, Integer> definitionIdsByDefinition = new HashMap<>();
+    // Permutation of card indexes, shuffled in place as distractors are drawn
+    private final int[] order;
+    private final int[] drawn;
+
+    /**
+     * @param deck Cards to draw from, the list is not kept
+     * @param random Source of randomness, e.g. a seeded one for reproducible tests
+     */
+    public DistractorSampler(List<Flashcard> deck, Random random) {
+        this.random = random;
+        int size = deck.size();
+        terms = new String[size];
+        definitions = new String[size];
+        termIds = new int[size];
+        definitionIds = new int[size];
+        order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            Flashcard flashcard = deck.get(i);
+            terms[i] = flashcard.getTerm();
+            definitions[i] = flashcard.getDefinition();
+            termIds[i] = idOf(termIdsByTerm, terms[i]);
+            definitionIds[i] = idOf(definitionIdsByDefinition, definitions[i]);
+            order[i] = i;
+        }
+        drawn = new int[size];
+    }
+
+    /**
+     * @return Up to count distinct terms of other cards, fewer if the deck has too few
+     */
+    public List<String> sampleTerms(Flashcard correct, int count) {
+        int found = draw(correct, termIds, -1, count);
+        List<String> distractors = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            distractors.add(terms[drawn[i]]);
+        }
+        return distractors;
+    }
+
+    /**
+     * @return Up to count distinct definitions of cards with another term and definition, fewer if the
+     * deck has too few
+     */
+    public List<String> sampleDefinitions(Flashcard correct, int count) {
+        int found = draw(correct, definitionIds, definitionId(correct), count);
+        List<String> distractors = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            distractors.add(definitions[drawn[i]]);
+        }
+        return distractors;
+    }
+
+    /**
+     * @return Definition of a card with another term, or null if there is none
+     */
+    public String sampleDefinition(Flashcard correct) {
+        return draw(correct, definitionIds, definitionId(correct), 1) > 0 ? definitions[drawn[0]] : null;
+    }
+
+    /**
+     * Draw cards with another term than the correct one and pairwise different values
+     * @param valueIds Ids of the answers that will be shown, to skip repeats
+     * @param excludedValue Id of the correct answer when other terms can share it, or -1
+     * @return Number of cards written to drawn
+     */
+    private int draw(Flashcard correct, int[] valueIds, int excludedValue, int count) {
+        Integer correctTerm = termIdsByTerm.get(correct.getTerm());
+        int excludedTerm = correctTerm != null ? correctTerm : -1;
+        int size = order.length;
+        int found = 0;
+
+        for (int i = 0; i < size && found < count; i++) {
+            int j = i + random.nextInt(size - i);
+            int card = order[j];
+            order[j] = order[i];
+            order[i] = card;
+
+            if (termIds[card] == excludedTerm || valueIds[card] == excludedValue
+                    || isDrawn(valueIds, valueIds[card], found)) {
+                continue;
+            }
+            drawn[found++] = card;
+        }
+        return found;
+    }
+
+    private int definitionId(Flashcard correct) {
+        Integer id = definitionIdsByDefinition.get(correct.getDefinition());
+        return id != null ? id : -1;
+    }
+
+    private boolean isDrawn(int[] valueIds, int valueId, int found) {
+        for (int i = 0; i < found; i++) {
+            if (valueIds[drawn[i]] == valueId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int idOf(Map<String, Integer> ids, String value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = ids.size();
+            ids.put(value, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,182 @@
+package app.quiz.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import app.quiz.data.models.Flashcard;
+import app.quiz.data.models.FlashcardGroup;
+
+/**
+ * Local search index over loaded flashcard groups
+ * Names, descriptions and the terms and definitions of their cards are folded and tokenized once,
+ * when a group is added. A query matches the groups that have, for every query token, a token
+ * starting with it. Matching tokens are found as a range of a sorted token map, so a keystroke
+ * costs a few range lookups and bitset operations instead of a scan over every group.
+ * Indexing and queries run in order on a background thread, results are delivered on the main thread.
+ */
+public class FlashcardSearchIndex {
+
+    /**
+     * Receives the groups matching a query, in the order they were added
+     */
+    public interface SearchCallback {
+        void onResults(String query, List<FlashcardGroup> results);
+    }
+
+    /**
+     * Sorted ids of the documents containing a token
+     */
+    private static class Postings {
+        int[] documents = new int[2];
+        int size;
+
+        void add(int document) {
+            if (size == documents.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(documents, 0, grown, 0, size);
+                documents = grown;
+            }
+            documents[size++] = document;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Only accessed on the executor thread
+    private final List<FlashcardGroup> documents = new ArrayList<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private final BitSet replaced = new BitSet();
+    private final TreeMap<String, Postings> tokens = new TreeMap<>();
+
+    /**
+     * Index groups, typically the items loaded so far
+     * Groups already indexed are skipped, a new instance of an indexed group replaces it.
+     */
+    public void addAll(List<FlashcardGroup> groups) {
+        List<FlashcardGroup> snapshot = new ArrayList<>(groups);
+        executor.execute(() -> {
+            for (FlashcardGroup group : snapshot) {
+                index(group);
+            }
+        });
+    }
+
+    /**
+     * Remove every group, e.g. before the list is loaded again
+     */
+    public void clear() {
+        executor.execute(() -> {
+            documents.clear();
+            documentIds.clear();
+            replaced.clear();
+            tokens.clear();
+        });
+    }
+
+    /**
+     * Find the groups matching a query after all earlier additions have been indexed
+     * @param query Search text, matched by token prefix ignoring case and diacritics
+     * @param callback Called on the main thread
+     */
+    public void search(String query, SearchCallback callback) {
+        executor.execute(() -> {
+            List<FlashcardGroup> results = find(query);
+            handler.post(() -> {
+                if (!executor.isShutdown()) {
+                    callback.onResults(query, results);
+                }
+            });
+        });
+    }
+
+    /**
+     * Stop the index thread, pending searches are not delivered
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void index(FlashcardGroup group) {
+        if (group == null || group.getId() == null) {
+            return;
+        }
+
+        Integer existing = documentIds.get(group.getId());
+        if (existing != null) {
+            if (documents.get(existing) == group) {
+                return;
+            }
+            // Postings are append-only, the old version is masked out of results
+            replaced.set(existing);
+        }
+
+        int document = documents.size();
+        documents.add(group);
+        documentIds.put(group.getId(), document);
+
+        Set<String> groupTokens = new HashSet<>();
+        groupTokens.addAll(TextNormalizer.tokenize(group.getName()));
+        groupTokens.addAll(TextNormalizer.tokenize(group.getDescription()));
+        if (group.getFlashcards() != null) {
+            for (Flashcard flashcard : group.getFlashcards()) {
+                groupTokens.addAll(TextNormalizer.tokenize(flashcard.getTerm()));
+                groupTokens.addAll(TextNormalizer.tokenize(flashcard.getDefinition()));
+            }
+        }
+        for (String token : groupTokens) {
+            Postings postings = tokens.get(token);
+            if (postings == null) {
+                postings = new Postings();
+                tokens.put(token, postings);
+            }
+            postings.add(document);
+        }
+    }
+
+    private List<FlashcardGroup> find(String query) {
+        BitSet matches = null;
+        for (String queryToken : new HashSet<>(TextNormalizer.tokenize(query))) {
+            BitSet tokenMatches = new BitSet(documents.size());
+            // Every indexed token starting with the query token
+            for (Postings postings : tokens.subMap(queryToken, true, queryToken + Character.MAX_VALUE, true).values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    tokenMatches.set(postings.documents[i]);
+                }
+            }
+
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.and(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+
+        if (matches == null) {
+            // No searchable characters in the query
+            matches = new BitSet(documents.size());
+            matches.set(0, documents.size());
+        }
+        matches.andNot(replaced);
+
+        List<FlashcardGroup> results = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            results.add(documents.get(i));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,302 @@
+package app.quiz.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.recyclerview.widget.ListAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import app.quiz.data.models.PagedResponse;
+import app.quiz.data.remote.RequestHandle;
+
+/**
+ * Paging engine for RecyclerView lists backed by a paged endpoint
+ * The next page is requested as soon as the user scrolls within prefetchDistance items of the end,
+ * so it is usually in place before the end is reached. With a page window, at most maxPages pages
+ * are kept in memory: pages far from the visible range are replaced by null placeholders, keeping
+ * positions stable, and are loaded again when they come back into view.
+ * Must be used from the main thread.
+ * @param <T> Item type
+ */
+public class Pager<T> {
+    public static final int UNBOUNDED = 0;
+
+    /**
+     * Loads one page, typically by calling a service
+     */
+    public interface PageSource<T> {
+        RequestHandle loadPage(int pageNumber, int pageSize, PageCallback<T> callback);
+    }
+
+    /**
+     * Result of a page load, may be called from any thread
+     */
+    public interface PageCallback<T> {
+        void onSuccess(PagedResponse<T> page);
+        void onError(String error, int statusCode);
+    }
+
+    /**
+     * Load events for updating the rest of the screen (spinners, empty state, errors)
+     */
+    public interface Listener {
+        void onPageLoaded(int pageNumber);
+        void onLoadError(int pageNumber, String error, int statusCode);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxPages;
+    private final PageSource<T> source;
+
+    private final List<T> items = new ArrayList<>();
+    private final TreeSet<Integer> residentPages = new TreeSet<>();
+    private final Map<Integer, RequestHandle> loadingPages = new HashMap<>();
+
+    private ListAdapter<T, ?> adapter;
+    private Listener listener;
+    private int generation;
+    private int lastPage;          // Highest page appended to items
+    private int totalPages = -1;   // Unknown until the first page arrives
+    private int failedPage = -1;   // Not prefetched again until retry or refresh
+    private int firstVisible;
+    private int lastVisible;
+
+    /**
+     * @param pageSize Items per page
+     * @param prefetchDistance Remaining items below the visible range that trigger loading the next page
+     * @param maxPages Pages kept in memory, or UNBOUNDED to keep every loaded page
+     * @param source Loads pages
+     */
+    public Pager(int pageSize, int prefetchDistance, int maxPages, PageSource<T> source) {
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        // The visible pages and the ones on either side must always fit
+        this.maxPages = maxPages == UNBOUNDED ? UNBOUNDED : Math.max(3, maxPages);
+        this.source = source;
+    }
+
+    /**
+     * Adapter to submit a snapshot of the items to whenever they change (optional)
+     * The adapter diffs snapshots off the main thread, so only changed rows are rebound.
+     */
+    public void setAdapter(ListAdapter<T, ?> adapter) {
+        this.adapter = adapter;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Items loaded so far, with null placeholders for pages that were dropped from the window
+     * The list is a live read-only view, adapters get snapshots through setAdapter instead.
+     */
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    /**
+     * @return true while the first page of the current list is loading
+     */
+    public boolean isLoadingFirstPage() {
+        return loadingPages.containsKey(1);
+    }
+
+    public boolean isLoading() {
+        return !loadingPages.isEmpty();
+    }
+
+    public boolean hasMorePages() {
+        return totalPages < 0 || lastPage < totalPages;
+    }
+
+    /**
+     * Drop everything and load the first page again, e.g. for a new query or pull-to-refresh
+     */
+    public void refresh() {
+        cancel();
+        generation++;
+        items.clear();
+        residentPages.clear();
+        lastPage = 0;
+        totalPages = -1;
+        failedPage = -1;
+        firstVisible = 0;
+        lastVisible = 0;
+        publish();
+        loadPage(1);
+    }
+
+    /**
+     * Retry the page that last failed to load
+     */
+    public void retry() {
+        int page = failedPage;
+        failedPage = -1;
+        if (page > 0 && !loadingPages.containsKey(page)) {
+            loadPage(page);
+        }
+    }
+
+    /**
+     * Cancel all page loads in flight
+     */
+    public void cancel() {
+        for (RequestHandle handle : loadingPages.values()) {
+            if (handle != null) {
+                handle.cancel();
+            }
+        }
+        loadingPages.clear();
+    }
+
+    /**
+     * Report the visible adapter positions, typically from RecyclerView.OnScrollListener.onScrolled
+     * Loads placeholders near the visible range, prefetches the next page and trims the window.
+     */
+    public void onVisibleRangeChanged(int first, int last) {
+        if (first < 0 || last < first) {
+            return;
+        }
+        firstVisible = first;
+        lastVisible = last;
+
+        if (!items.isEmpty()) {
+            int fromPage = pageOf(Math.max(0, first - prefetchDistance));
+            int toPage = pageOf(Math.min(items.size() - 1, last + prefetchDistance));
+            for (int page = fromPage; page <= toPage; page++) {
+                // A page that failed waits for retry, like the next page, instead of reloading on every scroll
+                if (!residentPages.contains(page) && page != failedPage && !loadingPages.containsKey(page)) {
+                    loadPage(page);
+                }
+            }
+        }
+
+        prefetchIfNeeded(items.size() - 1 - last);
+    }
+
+    /**
+     * Load the next page if few enough items are left below the visible range
+     * For screens that show a filtered view of the items and cannot report pager positions.
+     * @param remainingItems Items below the last visible one
+     */
+    public void prefetchIfNeeded(int remainingItems) {
+        int nextPage = lastPage + 1;
+        if (remainingItems <= prefetchDistance && hasMorePages() && lastPage > 0
+                && nextPage != failedPage && !loadingPages.containsKey(nextPage)) {
+            loadPage(nextPage);
+        }
+    }
+
+    private void loadPage(int pageNumber) {
+        int requestGeneration = generation;
+        // Mark the page as loading before the source runs, it may call back synchronously
+        loadingPages.put(pageNumber, null);
+        RequestHandle handle = source.loadPage(pageNumber, pageSize, new PageCallback<T>() {
+            @Override
+            public void onSuccess(PagedResponse<T> page) {
+                handler.post(() -> onPageResult(requestGeneration, pageNumber, page));
+            }
+
+            @Override
+            public void onError(String error, int statusCode) {
+                handler.post(() -> onPageError(requestGeneration, pageNumber, error, statusCode));
+            }
+        });
+        if (loadingPages.containsKey(pageNumber) && loadingPages.get(pageNumber) == null) {
+            loadingPages.put(pageNumber, handle);
+        }
+    }
+
+    private void onPageResult(int requestGeneration, int pageNumber, PagedResponse<T> page) {
+        if (requestGeneration != generation || !loadingPages.containsKey(pageNumber)) {
+            return;
+        }
+        loadingPages.remove(pageNumber);
+
+        List<T> pageItems = page.getItems() != null ? page.getItems() : Collections.emptyList();
+        totalPages = page.getTotalPages();
+
+        if (pageNumber == lastPage + 1) {
+            items.addAll(pageItems);
+            lastPage = pageNumber;
+            residentPages.add(pageNumber);
+            if (pageItems.isEmpty()) {
+                // Nothing more to load even if the total was stale
+                totalPages = lastPage;
+            }
+        } else if (pageNumber <= lastPage) {
+            // A dropped page coming back into view
+            int start = (pageNumber - 1) * pageSize;
+            int count = Math.min(pageItems.size(), Math.min(pageSize, items.size() - start));
+            for (int i = 0; i < count; i++) {
+                items.set(start + i, pageItems.get(i));
+            }
+            residentPages.add(pageNumber);
+        }
+
+        trimToWindow();
+        publish();
+
+        if (listener != null) {
+            listener.onPageLoaded(pageNumber);
+        }
+    }
+
+    private void onPageError(int requestGeneration, int pageNumber, String error, int statusCode) {
+        if (requestGeneration != generation || !loadingPages.containsKey(pageNumber)) {
+            return;
+        }
+        loadingPages.remove(pageNumber);
+        failedPage = pageNumber;
+
+        if (listener != null) {
+            listener.onLoadError(pageNumber, error, statusCode);
+        }
+    }
+
+    /**
+     * Replace the pages farthest from the visible range with placeholders until the window fits
+     */
+    private void trimToWindow() {
+        if (maxPages == UNBOUNDED) {
+            return;
+        }
+
+        int visiblePage = pageOf((firstVisible + lastVisible) / 2);
+        while (residentPages.size() > maxPages) {
+            int lowest = residentPages.first();
+            int highest = residentPages.last();
+            int page = visiblePage - lowest >= highest - visiblePage ? lowest : highest;
+            residentPages.remove(page);
+
+            int start = (page - 1) * pageSize;
+            int end = Math.min(items.size(), start + pageSize);
+            for (int i = start; i < end; i++) {
+                items.set(i, null);
+            }
+        }
+    }
+
+    private void publish() {
+        if (adapter != null) {
+            adapter.submitList(new ArrayList<>(items));
+        }
+    }
+
+    private int pageOf(int position) {
+        return position / pageSize + 1;
+    }
+}
@@ -0,0 +1,175 @@
+package app.quiz.utils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import app.quiz.data.models.Flashcard;
+import app.quiz.data.models.TestQuestion;
+
+/**
+ * Test questions generated one at a time, as the user advances
+ * Memory does not grow with the number of questions, so a session can be endless. Cards are taken
+ * from a permutation of the deck that is shuffled a step at a time (partial Fisher-Yates), so every
+ * card is asked once before any is asked again, and a card is never repeated within a window of
+ * recent questions, not even across rounds. Question types are drawn from a bag holding each type
+ * as many times as its weight, refilled when empty, so every run of weight-sum questions has
+ * exactly the configured mix.
+ * Created through TestGenerator, not thread-safe.
+ */
+public class QuestionStream implements Iterator<TestQuestion> {
+    public static final int UNLIMITED = -1;
+    // Longest window without repeats, capped to half the deck so a card that may be asked always remains
+    public static final int DEFAULT_REPEAT_WINDOW = 50;
+
+    private static final TestQuestion.QuestionType[] TYPES = TestQuestion.QuestionType.values();
+
+    private final List<Flashcard> deck;
+    private final int count;
+    private final Random random;
+    private final DistractorSampler sampler;
+    private final int window;
+
+    private final int[] weights;
+    private final int[] bag;
+    private int bagSize;
+
+    // Permutation of card indexes, cards before position were asked in the current round
+    private final int[] order;
+    private int position;
+    // Number of the question each card was last asked in, -1 if never
+    private final int[] lastAsked;
+    private int produced;
+
+    /**
+     * @param count Number of questions, or UNLIMITED
+     * @param weights Share of each question type, indexed by QuestionType ordinal
+     * @param similarDistractors Whether multiple choice options resemble the correct answer
+     */
+    QuestionStream(List<Flashcard> deck, int count, int[] weights, boolean similarDistractors, long seed) {
+        this.deck = deck;
+        this.random = TestGenerator.newRandom(seed);
+        this.weights = weights.clone();
+        this.bag = new int[weights.length];
+
+        int size = deck != null ? deck.size() : 0;
+        int weightSum = 0;
+        for (int weight : weights) {
+            weightSum += Math.max(0, weight);
+        }
+        this.count = size == 0 || weightSum == 0 ? 0 : count;
+        this.window = Math.min(DEFAULT_REPEAT_WINDOW, size / 2);
+
+        order = new int[size];
+        lastAsked = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            lastAsked[i] = -1;
+        }
+
+        boolean needsDistractors = weightOf(TestQuestion.QuestionType.TRUE_FALSE) > 0
+                || weightOf(TestQuestion.QuestionType.MULTIPLE_CHOICE) > 0;
+        if (!needsDistractors || size == 0) {
+            sampler = null;
+        } else if (similarDistractors) {
+            sampler = new SimilarDistractorSampler(deck, random);
+        } else {
+            sampler = new DistractorSampler(deck, random);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return count == UNLIMITED || produced < count;
+    }
+
+    @Override
+    public TestQuestion next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TestQuestion.QuestionType type = nextType();
+        Flashcard flashcard = deck.get(nextCard());
+        produced++;
+
+        switch (type) {
+            case TRUE_FALSE:
+                return TestGenerator.trueFalseQuestion(flashcard, random, sampler);
+            case MULTIPLE_CHOICE:
+                return TestGenerator.multipleChoiceQuestion(flashcard, deck.size(), random, sampler);
+            case FILL_IN_BLANK:
+            default:
+                return TestGenerator.fillInBlankQuestion(flashcard, random);
+        }
+    }
+
+    /**
+     * @return Number of questions, or UNLIMITED for an endless session
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isUnlimited() {
+        return count == UNLIMITED;
+    }
+
+    /**
+     * @return Number of questions generated so far
+     */
+    public int getProducedCount() {
+        return produced;
+    }
+
+    private TestQuestion.QuestionType nextType() {
+        if (bagSize == 0) {
+            for (int type = 0; type < weights.length; type++) {
+                bag[type] = Math.max(0, weights[type]);
+                bagSize += bag[type];
+            }
+        }
+        int pick = random.nextInt(bagSize);
+        int type = 0;
+        while (pick >= bag[type]) {
+            pick -= bag[type];
+            type++;
+        }
+        bag[type]--;
+        bagSize--;
+        return TYPES[type];
+    }
+
+    /**
+     * Next step of the shuffle, passing over cards asked within the window
+     */
+    private int nextCard() {
+        int size = order.length;
+        if (position == size) {
+            position = 0;
+        }
+        int start = position + random.nextInt(size - position);
+        int pick = start;
+        while (isRecent(order[pick])) {
+            pick = pick + 1 == size ? position : pick + 1;
+            if (pick == start) {
+                // Cannot happen while the window is at most half the deck
+                break;
+            }
+        }
+
+        int card = order[pick];
+        order[pick] = order[position];
+        order[position++] = card;
+        lastAsked[card] = produced;
+        return card;
+    }
+
+    private boolean isRecent(int card) {
+        return lastAsked[card] >= 0 && produced - lastAsked[card] < window;
+    }
+
+    private int weightOf(TestQuestion.QuestionType type) {
+        return type.ordinal() < weights.length ? weights[type.ordinal()] : 0;
+    }
+}
@@ -0,0 +1,75 @@
+package app.quiz.utils;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.quiz.data.remote.RequestHandle;
+
+/**
+ * Ties service calls to the lifecycle of a screen
+ * Every handle added to the scope is cancelled when the owner is destroyed, so abandoned screens
+ * stop their network work and never receive callbacks.
+ */
+public class RequestScope implements DefaultLifecycleObserver {
+    private final List<RequestHandle> handles = new ArrayList<>();
+    private boolean destroyed;
+
+    private RequestScope() {}
+
+    /**
+     * Create a scope bound to an Activity or other lifecycle owner
+     */
+    public static RequestScope of(LifecycleOwner owner) {
+        RequestScope scope = new RequestScope();
+        owner.getLifecycle().addObserver(scope);
+        return scope;
+    }
+
+    /**
+     * Track a handle until it finishes
+     * @param handle Handle returned by a service call
+     * @return The same handle, for chaining
+     */
+    public RequestHandle add(RequestHandle handle) {
+        boolean cancelNow;
+        synchronized (this) {
+            cancelNow = destroyed;
+            if (!cancelNow) {
+                // Drop handles whose calls have already completed
+                handles.removeIf(h -> h.isFinished() || h.isCancelled());
+                handles.add(handle);
+            }
+        }
+        if (cancelNow) {
+            handle.cancel();
+        }
+        return handle;
+    }
+
+    /**
+     * Cancel every call in the scope, the scope stays usable
+     */
+    public void cancelAll() {
+        List<RequestHandle> active;
+        synchronized (this) {
+            active = new ArrayList<>(handles);
+            handles.clear();
+        }
+        for (RequestHandle handle : active) {
+            handle.cancel();
+        }
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        owner.getLifecycle().removeObserver(this);
+        synchronized (this) {
+            destroyed = true;
+        }
+        cancelAll();
+    }
+}
@@ -0,0 +1,161 @@
+package app.quiz.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Debounced search for list screens
+ * Keystrokes are collapsed into one query once typing pauses for the debounce window. Every
+ * dispatched query gets a new sequence number and cancels the one before it, so a response can be
+ * checked with isCurrent(sequence) and dropped if a newer query has been issued since.
+ * Must be used from the main thread.
+ */
+public class SearchPipeline {
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    /**
+     * Handle for an in-flight search that can be aborted
+     */
+    public interface Cancellable {
+        void cancel();
+    }
+
+    /**
+     * Runs a search for a query
+     */
+    public interface QueryHandler {
+        /**
+         * @param query Trimmed query, empty for no filter
+         * @param sequence Sequence number to check responses against with isCurrent
+         * @return Handle to cancel the search when it is superseded, or null
+         */
+        Cancellable onQuery(String query, int sequence);
+    }
+
+    /**
+     * Runs the debounce timer, the main thread by default and a manual clock in tests
+     */
+    interface Scheduler {
+        void postDelayed(Runnable task, long delayMillis);
+        void removeCallbacks(Runnable task);
+    }
+
+    private static class MainThreadScheduler implements Scheduler {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            handler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            handler.removeCallbacks(task);
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final long debounceMillis;
+    private final QueryHandler queryHandler;
+
+    private String pendingQuery;
+    private String currentQuery;
+    private int sequence;
+    private Cancellable inFlight;
+    private long dispatchedCount;
+
+    private final Runnable dispatchPending = () -> {
+        if (!pendingQuery.equals(currentQuery)) {
+            dispatch(pendingQuery);
+        }
+    };
+
+    public SearchPipeline(QueryHandler queryHandler) {
+        this(DEFAULT_DEBOUNCE_MILLIS, queryHandler);
+    }
+
+    /**
+     * @param debounceMillis How long typing must pause before a query is dispatched
+     * @param queryHandler Runs dispatched queries
+     */
+    public SearchPipeline(long debounceMillis, QueryHandler queryHandler) {
+        this(new MainThreadScheduler(), debounceMillis, queryHandler);
+    }
+
+    SearchPipeline(Scheduler scheduler, long debounceMillis, QueryHandler queryHandler) {
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+        this.queryHandler = queryHandler;
+    }
+
+    /**
+     * Submit the text of the search box, dispatched once it stops changing for the debounce window
+     * A query equal to the current one is not dispatched again.
+     */
+    public void submit(String text) {
+        pendingQuery = text != null ? text.trim() : "";
+        scheduler.removeCallbacks(dispatchPending);
+        scheduler.postDelayed(dispatchPending, debounceMillis);
+    }
+
+    /**
+     * Dispatch a query right away, e.g. for the first load or pull-to-refresh
+     */
+    public void submitNow(String text) {
+        scheduler.removeCallbacks(dispatchPending);
+        dispatch(text != null ? text.trim() : "");
+    }
+
+    /**
+     * @return true if no query has been dispatched after the one with this sequence number
+     */
+    public boolean isCurrent(int sequence) {
+        return this.sequence == sequence;
+    }
+
+    /**
+     * @return Sequence number of the last dispatched query
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return Last dispatched query, empty before the first dispatch
+     */
+    public String getQuery() {
+        return currentQuery != null ? currentQuery : "";
+    }
+
+    /**
+     * @return Number of queries dispatched to the handler
+     */
+    public long getDispatchedCount() {
+        return dispatchedCount;
+    }
+
+    /**
+     * Drop any pending query and cancel the in-flight one, e.g. when the screen is destroyed
+     * Responses that still arrive fail the isCurrent check.
+     */
+    public void cancel() {
+        scheduler.removeCallbacks(dispatchPending);
+        sequence++;
+        cancelInFlight();
+    }
+
+    private void dispatch(String query) {
+        cancelInFlight();
+        currentQuery = query;
+        sequence++;
+        dispatchedCount++;
+        inFlight = queryHandler.onQuery(query, sequence);
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.content.SharedPreferences;
 import android.util.Log;
 
 import app.quiz.data.models.User;
+import app.quiz.data.search.OfflineSearchIndex;
 
 /**
  * Session manager for handling user authentication state and preferences
@@ -83,10 +84,12 @@ public class SessionManager {
     
     /**
      * Clear user session (logout)
+     * The offline search index is cleared too, it holds the user's private flashcard sets.
      */
     public void clearSession() {
         editor.clear();
         editor.apply();
+        OfflineSearchIndex.getInstance().clear();
         Log.d(TAG, "Session cleared");
     }
     
@@ -228,6 +231,17 @@ public class SessionManager {
         return Math.max(0, MAX_LOGIN_ATTEMPTS - getFailedLoginAttempts());
     }
     
+    /**
+     * Get current user's id
+     * @return User id or null if not logged in
+     */
+    public String getUserId() {
+        if (!isLoggedIn()) {
+            return null;
+        }
+        return preferences.getString(KEY_USER_ID, null);
+    }
+    
     /**
      * Get current user's email
      * @return User email or null if not logged in
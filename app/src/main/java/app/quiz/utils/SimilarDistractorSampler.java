@@ -0,0 +1,345 @@
+package app.quiz.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import app.quiz.data.models.Flashcard;
+
+/**
+ * Distractor sampler that prefers wrong answers resembling the correct one
+ * Candidates are scored by character trigram overlap, length and shared prefix, so "photosynthesis"
+ * gets "photosphere" rather than "volcano". Trigram overlap is estimated from MinHash sketches computed
+ * once per deck, and only answers sharing a band of their sketch with the correct one (locality-sensitive
+ * hashing) are scored, so ranking stays fast on large decks. Slots without a similar enough candidate
+ * are filled with random distractors.
+ * Not thread-safe, use one sampler per test being generated.
+ */
+public class SimilarDistractorSampler extends DistractorSampler {
+    private static final int SKETCH_SIZE = 32;
+    private static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = SKETCH_SIZE / BANDS;
+    private static final int MAX_SCORED_CANDIDATES = 256;
+    private static final int PREFIX_LENGTH = 3;
+
+    private static final float WEIGHT_OVERLAP = 0.6f;
+    private static final float WEIGHT_LENGTH = 0.25f;
+    private static final float WEIGHT_PREFIX = 0.15f;
+    // Random share of the score, so the same question does not always get the same distractors
+    private static final float JITTER = 0.05f;
+
+    private static final int[] SEEDS = new int[SKETCH_SIZE];
+
+    static {
+        Random seeds = new Random(0x5EED);
+        for (int i = 0; i < SKETCH_SIZE; i++) {
+            SEEDS[i] = seeds.nextInt();
+        }
+    }
+
+    /**
+     * Sketches and LSH buckets of the distinct values of one field (terms or definitions)
+     */
+    private static class SketchIndex {
+        final String[] values;
+        final Map<String, Integer> valueIds = new HashMap<>();
+        final int[] sketches;
+        final int[] lengths;
+        final char[] prefixes;
+        // Cards of each value as a linked list, to exclude values that belong to the correct term
+        final int[] firstCard;
+        final int[] nextCard;
+        // Per band, (band hash << 32 | value) sorted, so a bucket is a run found by binary search
+        final long[][] bands = new long[BANDS][];
+        // Marks values already scored for the current query
+        final int[] seen;
+        int query;
+
+        SketchIndex(String[] cardValues) {
+            nextCard = new int[cardValues.length];
+            List<String> distinct = new ArrayList<>();
+            List<Integer> firsts = new ArrayList<>();
+            for (int card = cardValues.length - 1; card >= 0; card--) {
+                Integer id = valueIds.get(cardValues[card]);
+                if (id == null) {
+                    id = distinct.size();
+                    valueIds.put(cardValues[card], id);
+                    distinct.add(cardValues[card]);
+                    firsts.add(-1);
+                }
+                nextCard[card] = firsts.get(id);
+                firsts.set(id, card);
+            }
+
+            int count = distinct.size();
+            values = distinct.toArray(new String[0]);
+            firstCard = new int[count];
+            sketches = new int[count * SKETCH_SIZE];
+            lengths = new int[count];
+            prefixes = new char[count * PREFIX_LENGTH];
+            seen = new int[count];
+
+            for (int band = 0; band < BANDS; band++) {
+                bands[band] = new long[count];
+            }
+            for (int value = 0; value < count; value++) {
+                firstCard[value] = firsts.get(value);
+                String folded = TextNormalizer.fold(values[value]);
+                lengths[value] = folded.length();
+                folded.getChars(0, Math.min(PREFIX_LENGTH, folded.length()), prefixes, value * PREFIX_LENGTH);
+                sketch(folded, sketches, value * SKETCH_SIZE);
+                for (int band = 0; band < BANDS; band++) {
+                    bands[band][value] = ((long) bandHash(sketches, value * SKETCH_SIZE, band) << 32) | value;
+                }
+            }
+            for (long[] band : bands) {
+                Arrays.sort(band);
+            }
+        }
+
+        /**
+         * Most similar values to a correct answer
+         * @param excludedTerm Term id whose cards' values are never returned
+         * @param cardTermIds Term id of every card
+         * @return Up to count values, best first
+         */
+        List<String> rank(String correctValue, int excludedTerm, int[] cardTermIds, int count, Random random) {
+            Integer correctId = valueIds.get(correctValue);
+            if (correctId == null || count <= 0) {
+                return new ArrayList<>();
+            }
+            int queryOffset = correctId * SKETCH_SIZE;
+            query++;
+
+            int[] best = new int[count];
+            float[] bestScores = new float[count];
+            int found = 0;
+            int scored = 0;
+
+            for (int band = 0; band < BANDS && scored < MAX_SCORED_CANDIDATES; band++) {
+                long[] entries = bands[band];
+                long hash = bandHash(sketches, queryOffset, band);
+                int from = firstIndexOf(entries, hash);
+                int to = from;
+                while (to < entries.length && entries[to] >> 32 == hash) {
+                    to++;
+                }
+                int size = to - from;
+                if (size <= 1) {
+                    continue;
+                }
+                // Start at a random member so large buckets do not always yield the same candidates
+                int start = random.nextInt(size);
+                for (int i = 0; i < size && scored < MAX_SCORED_CANDIDATES; i++) {
+                    int value = (int) entries[from + (start + i) % size];
+                    if (seen[value] == query || value == correctId) {
+                        continue;
+                    }
+                    seen[value] = query;
+                    if (belongsToTerm(value, excludedTerm, cardTermIds)) {
+                        continue;
+                    }
+                    scored++;
+
+                    float score = score(correctId, value);
+                    if (score < 0) {
+                        continue;
+                    }
+                    score += random.nextFloat() * JITTER;
+
+                    // Insert into the best list, kept sorted by descending score
+                    int position = found < count ? found++ : count;
+                    while (position > 0 && bestScores[position - 1] < score) {
+                        if (position < count) {
+                            best[position] = best[position - 1];
+                            bestScores[position] = bestScores[position - 1];
+                        }
+                        position--;
+                    }
+                    if (position < count) {
+                        best[position] = value;
+                        bestScores[position] = score;
+                    }
+                }
+            }
+
+            List<String> ranked = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                ranked.add(values[best[i]]);
+            }
+            return ranked;
+        }
+
+        /**
+         * @return Similarity in [0, 1], or -1 for a variant of the correct answer that must not be offered
+         */
+        private float score(int correct, int candidate) {
+            int matches = 0;
+            int correctOffset = correct * SKETCH_SIZE;
+            int candidateOffset = candidate * SKETCH_SIZE;
+            for (int i = 0; i < SKETCH_SIZE; i++) {
+                if (sketches[correctOffset + i] == sketches[candidateOffset + i]) {
+                    matches++;
+                }
+            }
+            int correctLength = lengths[correct];
+            int candidateLength = lengths[candidate];
+            if (matches == SKETCH_SIZE && correctLength == candidateLength) {
+                // Most likely the same answer in another case or with other diacritics
+                return -1;
+            }
+
+            int prefix = 0;
+            int prefixLimit = Math.min(PREFIX_LENGTH, Math.min(correctLength, candidateLength));
+            while (prefix < prefixLimit && prefixes[correct * PREFIX_LENGTH + prefix]
+                    == prefixes[candidate * PREFIX_LENGTH + prefix]) {
+                prefix++;
+            }
+
+            float overlap = (float) matches / SKETCH_SIZE;
+            float length = (float) Math.min(correctLength, candidateLength) / Math.max(1, Math.max(correctLength, candidateLength));
+            return WEIGHT_OVERLAP * overlap + WEIGHT_LENGTH * length + WEIGHT_PREFIX * prefix / PREFIX_LENGTH;
+        }
+
+        /**
+         * @return Index of the first entry with the band hash, or where it would be
+         */
+        private static int firstIndexOf(long[] entries, long hash) {
+            long key = hash << 32;
+            int low = 0;
+            int high = entries.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (entries[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private boolean belongsToTerm(int value, int term, int[] cardTermIds) {
+            for (int card = firstCard[value]; card >= 0; card = nextCard[card]) {
+                if (cardTermIds[card] == term) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Random random;
+    private final String[] terms;
+    private final String[] definitions;
+    private final int[] cardTermIds;
+    private final Map<String, Integer> termIds = new HashMap<>();
+    // Built on first use, a test may need only one of them
+    private SketchIndex termIndex;
+    private SketchIndex definitionIndex;
+
+    public SimilarDistractorSampler(List<Flashcard> deck, Random random) {
+        super(deck, random);
+        this.random = random;
+        int size = deck.size();
+        terms = new String[size];
+        definitions = new String[size];
+        cardTermIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            Flashcard flashcard = deck.get(i);
+            terms[i] = flashcard.getTerm();
+            definitions[i] = flashcard.getDefinition();
+            Integer id = termIds.get(terms[i]);
+            if (id == null) {
+                id = termIds.size();
+                termIds.put(terms[i], id);
+            }
+            cardTermIds[i] = id;
+        }
+    }
+
+    @Override
+    public List<String> sampleTerms(Flashcard correct, int count) {
+        if (termIndex == null) {
+            termIndex = new SketchIndex(terms);
+        }
+        List<String> distractors = termIndex.rank(correct.getTerm(), termIdOf(correct), cardTermIds, count, random);
+        return fill(distractors, super.sampleTerms(correct, count), count);
+    }
+
+    @Override
+    public List<String> sampleDefinitions(Flashcard correct, int count) {
+        if (definitionIndex == null) {
+            definitionIndex = new SketchIndex(definitions);
+        }
+        List<String> distractors = definitionIndex.rank(correct.getDefinition(), termIdOf(correct), cardTermIds,
+                count, random);
+        return fill(distractors, super.sampleDefinitions(correct, count), count);
+    }
+
+    @Override
+    public String sampleDefinition(Flashcard correct) {
+        List<String> distractors = sampleDefinitions(correct, 1);
+        return distractors.isEmpty() ? null : distractors.get(0);
+    }
+
+    private int termIdOf(Flashcard correct) {
+        Integer id = termIds.get(correct.getTerm());
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Top up ranked distractors with random ones not already chosen
+     */
+    private static List<String> fill(List<String> distractors, List<String> randomDistractors, int count) {
+        for (int i = 0; i < randomDistractors.size() && distractors.size() < count; i++) {
+            String distractor = randomDistractors.get(i);
+            if (!distractors.contains(distractor)) {
+                distractors.add(distractor);
+            }
+        }
+        return distractors;
+    }
+
+    /**
+     * MinHash of the trigrams of folded text, padded so short words still have some
+     */
+    private static void sketch(String folded, int[] sketches, int offset) {
+        for (int i = 0; i < SKETCH_SIZE; i++) {
+            sketches[offset + i] = Integer.MAX_VALUE;
+        }
+        String padded = " " + folded + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            int trigram = (padded.charAt(i) * 31 + padded.charAt(i + 1)) * 31 + padded.charAt(i + 2);
+            for (int j = 0; j < SKETCH_SIZE; j++) {
+                int hash = mix(trigram ^ SEEDS[j]);
+                if (hash < sketches[offset + j]) {
+                    sketches[offset + j] = hash;
+                }
+            }
+        }
+    }
+
+    private static int bandHash(int[] sketches, int offset, int band) {
+        int hash = band;
+        for (int row = 0; row < ROWS_PER_BAND; row++) {
+            hash = hash * 31 + sketches[offset + band * ROWS_PER_BAND + row];
+        }
+        return hash;
+    }
+
+    /**
+     * Murmur3 finalizer, spreads trigram codes over the int range
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -7,17 +7,44 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.UUID;
 
 /**
  * Utility class for generating test questions from flashcards
  * Supports multiple question types: multiple choice, true/false, fill-in-the-blank
+ * Every generator also takes a seed: the same deck, count and seed always give the same test,
+ * question ids included, so a test can be cached or regenerated on another device from its seed.
  */
 public class TestGenerator {
-    private static final Random random = new Random();
+    // Seeds tests generated without one, all randomness of a test then comes from its seed
+    private static final SplittableRandom seeds = new SplittableRandom();
     private static final int MIN_FLASHCARDS_FOR_MULTIPLE_CHOICE = 1;
     private static final int MULTIPLE_CHOICE_OPTIONS_COUNT = 4;
     
+    /**
+     * Random backed by SplittableRandom, fast and not cryptographic, for classes taking a Random
+     */
+    private static class SeededRandom extends Random {
+        private final SplittableRandom source;
+        
+        SeededRandom(long seed) {
+            source = new SplittableRandom(seed);
+        }
+        
+        @Override
+        protected int next(int bits) {
+            return (int) (source.nextLong() >>> (64 - bits));
+        }
+    }
+    
+    /**
+     * @return A new random seed, e.g. to generate a test that can be reproduced later
+     */
+    public static synchronized long newSeed() {
+        return seeds.nextLong();
+    }
+    
     /**
      * Generate a mixed test with different question types from flashcards
      * @param flashcards List of flashcards to generate questions from
@@ -25,75 +52,66 @@ public class TestGenerator {
      * @return List of test questions
      */
     public static List<TestQuestion> generateMixedTest(List<Flashcard> flashcards, int questionCount) {
-        if (flashcards == null || flashcards.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
+        return generateMixedTest(flashcards, questionCount, newSeed());
+    }
+    
+    /**
+     * Generate a mixed test that is the same for the same flashcards, count and seed
+     */
+    public static List<TestQuestion> generateMixedTest(List<Flashcard> flashcards, int questionCount, long seed) {
         List<TestQuestion> questions = new ArrayList<>();
-        List<Flashcard> shuffledFlashcards = new ArrayList<>(flashcards);
-        Collections.shuffle(shuffledFlashcards);
-        
-        int questionsPerType = questionCount / 3;
-        int remainingQuestions = questionCount % 3;
-        
-        // Generate fill-in-the-blank questions
-        int fillInBlankCount = questionsPerType + (remainingQuestions > 0 ? 1 : 0);
-        questions.addAll(generateFillInBlankQuestions(shuffledFlashcards, fillInBlankCount));
-        
-        // Generate true/false questions
-        int trueFalseCount = questionsPerType + (remainingQuestions > 1 ? 1 : 0);
-        questions.addAll(generateTrueFalseQuestions(shuffledFlashcards, trueFalseCount));
-        
-        // Generate multiple choice questions (if enough flashcards)
-        int multipleChoiceCount = questionsPerType;
-        if (flashcards.size() >= MIN_FLASHCARDS_FOR_MULTIPLE_CHOICE) {
-            questions.addAll(generateMultipleChoiceQuestions(shuffledFlashcards, multipleChoiceCount));
-        } else {
-            // If not enough flashcards for multiple choice, generate more fill-in-the-blank
-            questions.addAll(generateFillInBlankQuestions(shuffledFlashcards, multipleChoiceCount));
+        QuestionStream stream = streamMixedTest(flashcards, questionCount, seed);
+        while (stream.hasNext()) {
+            questions.add(stream.next());
         }
-        
-        // Shuffle the final question list
-        Collections.shuffle(questions);
-        
-        // Trim to exact count if needed
-        if (questions.size() > questionCount) {
-            questions = questions.subList(0, questionCount);
-        }
-        
         return questions;
     }
     
+    /**
+     * Mixed test generated one question at a time, for long or endless sessions
+     * Every run of three questions has one of each type, and a card is not asked again before
+     * the rest of the deck has been.
+     * @param questionCount Number of questions, or QuestionStream.UNLIMITED for an endless session
+     */
+    public static QuestionStream streamMixedTest(List<Flashcard> flashcards, int questionCount, long seed) {
+        int[] weights = new int[TestQuestion.QuestionType.values().length];
+        weights[TestQuestion.QuestionType.FILL_IN_BLANK.ordinal()] = 1;
+        weights[TestQuestion.QuestionType.TRUE_FALSE.ordinal()] = 1;
+        weights[TestQuestion.QuestionType.MULTIPLE_CHOICE.ordinal()] = 1;
+        return new QuestionStream(flashcards, limit(questionCount, size(flashcards) * weights.length), weights,
+                false, seed);
+    }
+    
+    /**
+     * Questions of a single type generated one at a time, see streamMixedTest
+     */
+    public static QuestionStream streamQuestions(List<Flashcard> flashcards, TestQuestion.QuestionType type,
+                                                 int questionCount, long seed) {
+        return new QuestionStream(flashcards, limit(questionCount, size(flashcards)), weightsOf(type), false, seed);
+    }
+    
+    /**
+     * Multiple choice questions with similar wrong options generated one at a time, see streamMixedTest
+     */
+    public static QuestionStream streamHardMultipleChoiceQuestions(List<Flashcard> flashcards, int questionCount,
+                                                                   long seed) {
+        return new QuestionStream(flashcards, limit(questionCount, size(flashcards)),
+                weightsOf(TestQuestion.QuestionType.MULTIPLE_CHOICE), true, seed);
+    }
+    
     /**
      * Generate fill-in-the-blank questions
      */
     public static List<TestQuestion> generateFillInBlankQuestions(List<Flashcard> flashcards, int count) {
+        return generateFillInBlankQuestions(flashcards, count, newSeed());
+    }
+    
+    public static List<TestQuestion> generateFillInBlankQuestions(List<Flashcard> flashcards, int count, long seed) {
+        Random random = new SeededRandom(seed);
         List<TestQuestion> questions = new ArrayList<>();
         
         for (int i = 0; i < Math.min(count, flashcards.size()); i++) {
-            Flashcard flashcard = flashcards.get(i);
-            String questionId = UUID.randomUUID().toString();
-            
-            // Create question text by replacing the term with blank
-            String questionText = "Fill in the blank: " + 
-                flashcard.getDefinition().replace(flashcard.getTerm(), "____");
-            
-            // If the term is not in the definition, create a different format
-            if (!flashcard.getDefinition().toLowerCase().contains(flashcard.getTerm().toLowerCase())) {
-                questionText = "What term matches this definition: " + flashcard.getDefinition() + "?";
-            }
-            
-            String hint = "Definition: " + flashcard.getDefinition();
-            
-            TestQuestion question = new TestQuestion(
-                questionId,
-                questionText,
-                flashcard.getTerm(),
-                hint,
-                flashcard
-            );
-            
-            questions.add(question);
+            questions.add(fillInBlankQuestion(flashcards.get(i), random));
         }
         
         return questions;
@@ -103,36 +121,16 @@ public class TestGenerator {
      * Generate true/false questions
      */
     public static List<TestQuestion> generateTrueFalseQuestions(List<Flashcard> flashcards, int count) {
+        return generateTrueFalseQuestions(flashcards, count, newSeed());
+    }
+    
+    public static List<TestQuestion> generateTrueFalseQuestions(List<Flashcard> flashcards, int count, long seed) {
+        Random random = new SeededRandom(seed);
+        DistractorSampler sampler = new DistractorSampler(flashcards, random);
         List<TestQuestion> questions = new ArrayList<>();
         
         for (int i = 0; i < Math.min(count, flashcards.size()); i++) {
-            Flashcard flashcard = flashcards.get(i);
-            String questionId = UUID.randomUUID().toString();
-            
-            boolean isCorrectStatement = random.nextBoolean();
-            String questionText;
-            String hint = "Think about the definition: " + flashcard.getDefinition();
-            
-            if (isCorrectStatement) {
-                // Create a true statement
-                questionText = "True or False: The term '" + flashcard.getTerm() + 
-                    "' means '" + flashcard.getDefinition() + "'.";
-            } else {
-                // Create a false statement by using a wrong definition
-                String wrongDefinition = getRandomWrongDefinition(flashcard, flashcards);
-                questionText = "True or False: The term '" + flashcard.getTerm() + 
-                    "' means '" + wrongDefinition + "'.";
-            }
-            
-            TestQuestion question = new TestQuestion(
-                questionId,
-                questionText,
-                isCorrectStatement,
-                hint,
-                flashcard
-            );
-            
-            questions.add(question);
+            questions.add(trueFalseQuestion(flashcards.get(i), random, sampler));
         }
         
         return questions;
@@ -142,131 +140,181 @@ public class TestGenerator {
      * Generate multiple choice questions
      */
     public static List<TestQuestion> generateMultipleChoiceQuestions(List<Flashcard> flashcards, int count) {
-        List<TestQuestion> questions = new ArrayList<>();
-        
+        return generateMultipleChoiceQuestions(flashcards, count, newSeed());
+    }
+    
+    public static List<TestQuestion> generateMultipleChoiceQuestions(List<Flashcard> flashcards, int count, long seed) {
         if (flashcards.size() < MIN_FLASHCARDS_FOR_MULTIPLE_CHOICE) {
-            return questions;
-        }
-        
-        for (int i = 0; i < Math.min(count, flashcards.size()); i++) {
-            Flashcard correctFlashcard = flashcards.get(i);
-            String questionId = UUID.randomUUID().toString();
-            
-            // Randomly choose question format
-            boolean askForDefinition = random.nextBoolean();
-            String questionText;
-            List<String> options = new ArrayList<>();
-            int correctAnswerIndex;
-            
-            if (askForDefinition) {
-                // Ask for definition given term
-                questionText = "What is the definition of '" + correctFlashcard.getTerm() + "'?";
-                int optionsCount = Math.min(MULTIPLE_CHOICE_OPTIONS_COUNT, flashcards.size());
-                options.add(correctFlashcard.getDefinition());
-                
-                // Add wrong definitions
-                List<String> wrongDefinitions = getRandomWrongDefinitions(correctFlashcard, flashcards, optionsCount - 1);
-                options.addAll(wrongDefinitions);
-            } else {
-                // Ask for term given definition
-                questionText = "Which term matches this definition: '" + correctFlashcard.getDefinition() + "'?";
-                int optionsCount = Math.min(MULTIPLE_CHOICE_OPTIONS_COUNT, flashcards.size());
-                options.add(correctFlashcard.getTerm());
-                
-                // Add wrong terms
-                List<String> wrongTerms = getRandomWrongTerms(correctFlashcard, flashcards, optionsCount - 1);
-                options.addAll(wrongTerms);
-            }
-            
-            // Shuffle options and find correct answer index
-            correctAnswerIndex = 0; // Correct answer is currently at index 0
-            Collections.shuffle(options);
-            
-            // Find where the correct answer ended up after shuffling
-            String correctAnswer = askForDefinition ? correctFlashcard.getDefinition() : correctFlashcard.getTerm();
-            correctAnswerIndex = options.indexOf(correctAnswer);
-            
-            String hint = "Think about: " + (askForDefinition ? correctFlashcard.getTerm() : correctFlashcard.getDefinition());
-            
-            TestQuestion question = new TestQuestion(
-                questionId,
-                questionText,
-                options,
-                correctAnswerIndex,
-                hint,
-                correctFlashcard
-            );
-            
-            questions.add(question);
+            return new ArrayList<>();
         }
-        
-        return questions;
+        Random random = new SeededRandom(seed);
+        return generateMultipleChoiceQuestions(flashcards, count, random, new DistractorSampler(flashcards, random));
     }
     
     /**
-     * Get a random wrong definition for true/false questions
+     * Generate multiple choice questions whose wrong options resemble the correct answer
+     * (similar spelling, length and beginning) instead of being drawn at random
      */
-    private static String getRandomWrongDefinition(Flashcard correctFlashcard, List<Flashcard> allFlashcards) {
-        List<Flashcard> otherFlashcards = new ArrayList<>();
-        for (Flashcard flashcard : allFlashcards) {
-            if (!flashcard.getTerm().equals(correctFlashcard.getTerm())) {
-                otherFlashcards.add(flashcard);
-            }
+    public static List<TestQuestion> generateHardMultipleChoiceQuestions(List<Flashcard> flashcards, int count) {
+        return generateHardMultipleChoiceQuestions(flashcards, count, newSeed());
+    }
+    
+    public static List<TestQuestion> generateHardMultipleChoiceQuestions(List<Flashcard> flashcards, int count,
+                                                                         long seed) {
+        if (flashcards.size() < MIN_FLASHCARDS_FOR_MULTIPLE_CHOICE) {
+            return new ArrayList<>();
         }
+        Random random = new SeededRandom(seed);
+        List<Flashcard> shuffledFlashcards = new ArrayList<>(flashcards);
+        Collections.shuffle(shuffledFlashcards, random);
+        return generateMultipleChoiceQuestions(shuffledFlashcards, count, random,
+                new SimilarDistractorSampler(shuffledFlashcards, random));
+    }
+    
+    private static List<TestQuestion> generateMultipleChoiceQuestions(List<Flashcard> flashcards, int count,
+                                                                     Random random, DistractorSampler sampler) {
+        List<TestQuestion> questions = new ArrayList<>();
         
-        if (otherFlashcards.isEmpty()) {
-            return "This is not the correct definition";
+        for (int i = 0; i < Math.min(count, flashcards.size()); i++) {
+            questions.add(multipleChoiceQuestion(flashcards.get(i), flashcards.size(), random, sampler));
         }
         
-        return otherFlashcards.get(random.nextInt(otherFlashcards.size())).getDefinition();
+        return questions;
     }
     
-    /**
-     * Get random wrong definitions for multiple choice questions
-     */
-    private static List<String> getRandomWrongDefinitions(Flashcard correctFlashcard, List<Flashcard> allFlashcards, int count) {
-        List<String> wrongDefinitions = new ArrayList<>();
-        List<Flashcard> otherFlashcards = new ArrayList<>();
+    static TestQuestion fillInBlankQuestion(Flashcard flashcard, Random random) {
+        String questionId = questionId(random);
         
-        for (Flashcard flashcard : allFlashcards) {
-            if (!flashcard.getTerm().equals(correctFlashcard.getTerm())) {
-                otherFlashcards.add(flashcard);
-            }
+        // Create question text by replacing the term with blank
+        String questionText = "Fill in the blank: " + 
+            flashcard.getDefinition().replace(flashcard.getTerm(), "____");
+        
+        // If the term is not in the definition, create a different format
+        if (!flashcard.getDefinition().toLowerCase().contains(flashcard.getTerm().toLowerCase())) {
+            questionText = "What term matches this definition: " + flashcard.getDefinition() + "?";
         }
         
-        Collections.shuffle(otherFlashcards);
+        String hint = "Definition: " + flashcard.getDefinition();
         
-        for (int i = 0; i < Math.min(count, otherFlashcards.size()); i++) {
-            wrongDefinitions.add(otherFlashcards.get(i).getDefinition());
-        }
+        return new TestQuestion(
+            questionId,
+            questionText,
+            flashcard.getTerm(),
+            hint,
+            flashcard
+        );
+    }
+    
+    static TestQuestion trueFalseQuestion(Flashcard flashcard, Random random, DistractorSampler sampler) {
+        String questionId = questionId(random);
         
+        boolean isCorrectStatement = random.nextBoolean();
+        String questionText;
+        String hint = "Think about the definition: " + flashcard.getDefinition();
         
+        if (isCorrectStatement) {
+            // Create a true statement
+            questionText = "True or False: The term '" + flashcard.getTerm() + 
+                "' means '" + flashcard.getDefinition() + "'.";
+        } else {
+            // Create a false statement by using a wrong definition
+            String wrongDefinition = sampler.sampleDefinition(flashcard);
+            if (wrongDefinition == null) {
+                wrongDefinition = "This is not the correct definition";
+            }
+            questionText = "True or False: The term '" + flashcard.getTerm() + 
+                "' means '" + wrongDefinition + "'.";
+        }
         
-        return wrongDefinitions;
+        return new TestQuestion(
+            questionId,
+            questionText,
+            isCorrectStatement,
+            hint,
+            flashcard
+        );
     }
     
     /**
-     * Get random wrong terms for multiple choice questions
+     * @param deckSize Number of cards the distractors come from, caps the number of options
      */
-    private static List<String> getRandomWrongTerms(Flashcard correctFlashcard, List<Flashcard> allFlashcards, int count) {
-        List<String> wrongTerms = new ArrayList<>();
-        List<Flashcard> otherFlashcards = new ArrayList<>();
+    static TestQuestion multipleChoiceQuestion(Flashcard correctFlashcard, int deckSize, Random random,
+                                               DistractorSampler sampler) {
+        String questionId = questionId(random);
         
-        for (Flashcard flashcard : allFlashcards) {
-            if (!flashcard.getTerm().equals(correctFlashcard.getTerm())) {
-                otherFlashcards.add(flashcard);
-            }
-        }
+        // Randomly choose question format
+        boolean askForDefinition = random.nextBoolean();
+        String questionText;
+        List<String> options = new ArrayList<>();
+        int correctAnswerIndex;
+        int optionsCount = Math.min(MULTIPLE_CHOICE_OPTIONS_COUNT, deckSize);
         
-        Collections.shuffle(otherFlashcards);
-        
-        for (int i = 0; i < Math.min(count, otherFlashcards.size()); i++) {
-            wrongTerms.add(otherFlashcards.get(i).getTerm());
+        if (askForDefinition) {
+            // Ask for definition given term
+            questionText = "What is the definition of '" + correctFlashcard.getTerm() + "'?";
+            options.add(correctFlashcard.getDefinition());
+            
+            // Add wrong definitions
+            List<String> wrongDefinitions = sampler.sampleDefinitions(correctFlashcard, optionsCount - 1);
+            options.addAll(wrongDefinitions);
+        } else {
+            // Ask for term given definition
+            questionText = "Which term matches this definition: '" + correctFlashcard.getDefinition() + "'?";
+            options.add(correctFlashcard.getTerm());
+            
+            // Add wrong terms
+            List<String> wrongTerms = sampler.sampleTerms(correctFlashcard, optionsCount - 1);
+            options.addAll(wrongTerms);
         }
         
+        // Shuffle options and find correct answer index
+        Collections.shuffle(options, random);
+        
+        // Find where the correct answer ended up after shuffling
+        String correctAnswer = askForDefinition ? correctFlashcard.getDefinition() : correctFlashcard.getTerm();
+        correctAnswerIndex = options.indexOf(correctAnswer);
         
+        String hint = "Think about: " + (askForDefinition ? correctFlashcard.getTerm() : correctFlashcard.getDefinition());
         
-        return wrongTerms;
+        return new TestQuestion(
+            questionId,
+            questionText,
+            options,
+            correctAnswerIndex,
+            hint,
+            correctFlashcard
+        );
+    }
+    
+    static Random newRandom(long seed) {
+        return new SeededRandom(seed);
+    }
+    
+    private static int[] weightsOf(TestQuestion.QuestionType type) {
+        int[] weights = new int[TestQuestion.QuestionType.values().length];
+        weights[type.ordinal()] = 1;
+        return weights;
+    }
+    
+    private static int size(List<Flashcard> flashcards) {
+        return flashcards != null ? flashcards.size() : 0;
+    }
+    
+    /**
+     * Cap a finite question count, like the list generators do, so cards only repeat in endless sessions
+     */
+    private static int limit(int questionCount, int max) {
+        return questionCount == QuestionStream.UNLIMITED ? questionCount : Math.max(0, Math.min(questionCount, max));
+    }
+    
+    /**
+     * Question id drawn from the test's random source, so a seed also reproduces the ids
+     * Formatted as a version 4 UUID, like UUID.randomUUID().
+     */
+    private static String questionId(Random random) {
+        long mostSignificant = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSignificant = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant).toString();
     }
     
     /**
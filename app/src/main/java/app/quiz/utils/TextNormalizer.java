@@ -0,0 +1,80 @@
+package app.quiz.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Text folding shared by search and answer matching
+ * Folding lowercases text and strips diacritics, so "Tiếng Việt", "TIENG VIET" and "tieng viet"
+ * all compare equal. Vietnamese đ has no decomposition and is mapped to d explicitly.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {}
+
+    /**
+     * @return Lowercase text without diacritics, empty for null
+     */
+    public static String fold(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return "";
+        }
+
+        String input = text.toString();
+        if (isPlainAscii(input)) {
+            // Most English input never needs decomposing
+            return input.toLowerCase(Locale.ROOT);
+        }
+
+        String decomposed = Normalizer.normalize(input, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            if (c == '\u0111' || c == '\u0110') {
+                c = 'd';
+            }
+            folded.append(Character.toLowerCase(c));
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Split text into folded tokens of letters and digits
+     * @return Tokens in order of appearance, may contain duplicates
+     */
+    public static List<String> tokenize(CharSequence text) {
+        String folded = fold(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < folded.length(); i++) {
+            if (Character.isLetterOrDigit(folded.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(folded.substring(start));
+        }
+        return tokens;
+    }
+
+    private static boolean isPlainAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package app.quiz.data.remote;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    private CircuitBreaker breaker;
+    private long now;
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker("GET /api/test");
+        now = System.currentTimeMillis();
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire(now));
+            breaker.recordFailure(now);
+        }
+    }
+
+    @Test
+    public void staysClosedBelowThreshold() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD - 1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire(now));
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD - 1);
+        assertTrue(breaker.tryAcquire(now));
+        breaker.recordSuccess();
+        fail(CircuitBreaker.FAILURE_THRESHOLD - 1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void opensAtThresholdAndFailsFast() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(now));
+        assertFalse(breaker.tryAcquire(now + CircuitBreaker.OPEN_MILLIS - 1));
+        assertEquals(2, breaker.getRejectedCount());
+        assertEquals(1, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void halfOpenLetsOneTrialThrough() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD);
+        now += CircuitBreaker.OPEN_MILLIS;
+
+        assertTrue(breaker.tryAcquire(now));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(now));
+    }
+
+    @Test
+    public void successfulTrialCloses() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD);
+        now += CircuitBreaker.OPEN_MILLIS;
+        assertTrue(breaker.tryAcquire(now));
+        breaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire(now));
+        assertTrue(breaker.tryAcquire(now));
+    }
+
+    @Test
+    public void failedTrialReopensForTwiceAsLong() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD);
+        now += CircuitBreaker.OPEN_MILLIS;
+        assertTrue(breaker.tryAcquire(now));
+        breaker.recordFailure(now);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(now + CircuitBreaker.OPEN_MILLIS));
+        assertTrue(breaker.tryAcquire(now + 2 * CircuitBreaker.OPEN_MILLIS));
+        assertEquals(2, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void openPeriodIsCapped() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD);
+        for (int i = 0; i < 10; i++) {
+            now += CircuitBreaker.MAX_OPEN_MILLIS;
+            assertTrue(breaker.tryAcquire(now));
+            breaker.recordFailure(now);
+        }
+
+        assertTrue(breaker.tryAcquire(now + CircuitBreaker.MAX_OPEN_MILLIS));
+    }
+
+    @Test
+    public void abandonedTrialFreesTheSlot() {
+        fail(CircuitBreaker.FAILURE_THRESHOLD);
+        now += CircuitBreaker.OPEN_MILLIS;
+        assertTrue(breaker.tryAcquire(now));
+        breaker.recordAbandoned();
+
+        assertTrue(breaker.tryAcquire(now));
+    }
+}
@@ -0,0 +1,255 @@
+package app.quiz.data.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Retries and circuit breaking of HttpTransport against a local server
+ */
+public class HttpTransportTest {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String BODY = "{\"Name\":\"Basic Vocabulary\"}";
+
+    private HttpServer server;
+    private HttpTransport transport;
+    // Status of each answer in turn, the last one repeats
+    private final List<Integer> statuses = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean rejectCompressed;
+    // Retry-After of 503 answers in seconds, or null
+    private volatile String retryAfter;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        transport = new HttpTransport("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            while (body.read(buffer) != -1) {
+                // Drain the request so the connection can be reused
+            }
+        }
+        boolean compressed = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        requests.add(exchange.getRequestMethod() + (compressed ? " gzip" : ""));
+
+        int status;
+        if (compressed && rejectCompressed) {
+            status = 415;
+        } else {
+            synchronized (statuses) {
+                status = statuses.size() > 1 ? statuses.remove(0) : statuses.get(0);
+            }
+        }
+        if (status == 204) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+        if (status == 503 && retryAfter != null) {
+            exchange.getResponseHeaders().set("Retry-After", retryAfter);
+        }
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private void respond(Integer... answers) {
+        statuses.clear();
+        Collections.addAll(statuses, answers);
+    }
+
+    @Test
+    public void idempotentRequestIsRetriedUpToMaxAttempts() throws IOException {
+        respond(503);
+
+        HttpTransport.Response response = transport.execute("GET", "/api/flashcards", null, null);
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals(MAX_ATTEMPTS, requests.size());
+        assertEquals(MAX_ATTEMPTS - 1, transport.getRetryCount());
+    }
+
+    @Test
+    public void retryStopsAtFirstSuccess() throws IOException {
+        respond(503, 200);
+
+        HttpTransport.Response response = transport.execute("PUT", "/api/flashcards", null, BODY);
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void successStatusIsPassedThrough() throws IOException {
+        respond(201, 204);
+
+        HttpTransport.Response created = transport.execute("POST", "/api/flashcards", null, BODY);
+        HttpTransport.Response deleted = transport.execute("DELETE", "/api/flashcards/42", null, null);
+
+        assertEquals(201, created.getStatusCode());
+        assertEquals("{}", created.getBody());
+        assertEquals(204, deleted.getStatusCode());
+        assertEquals("", deleted.getBody());
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() throws IOException {
+        respond(404);
+
+        HttpTransport.Response response = transport.execute("GET", "/api/flashcards/42", null, null);
+
+        assertEquals(404, response.getStatusCode());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void nonIdempotentWriteIsNotRetried() throws IOException {
+        respond(503);
+
+        HttpTransport.Response response = transport.execute("POST", "/api/flashcards", null, BODY);
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals(1, requests.size());
+        assertEquals(0, transport.getRetryCount());
+    }
+
+    @Test
+    public void writeWithIdempotencyKeyIsRetried() throws IOException {
+        respond(503);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Idempotency-Key", "7f7e1c2a-0d0b-4b8e-9d4e-0c5f1b6c2a11");
+
+        HttpTransport.Response response = transport.execute("POST", "/api/flashcards", null, BODY, headers);
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals(MAX_ATTEMPTS, requests.size());
+    }
+
+    @Test
+    public void uncompressedResendDoesNotUseAnAttempt() throws IOException {
+        respond(503);
+        rejectCompressed = true;
+        transport.setRequestCompressionThreshold(0);
+
+        HttpTransport.Response response = transport.execute("PUT", "/api/flashcards", null, BODY);
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals("PUT gzip", requests.get(0));
+        assertEquals(1 + MAX_ATTEMPTS, requests.size());
+        assertEquals(HttpTransport.COMPRESSION_DISABLED, transport.getRequestCompressionThreshold());
+    }
+
+    @Test
+    public void openCircuitFailsFastWithoutNetwork() throws IOException {
+        respond(503);
+        transport.execute("GET", "/api/readings", null, null);
+        assertEquals(MAX_ATTEMPTS, requests.size());
+
+        try {
+            transport.execute("GET", "/api/readings", null, null);
+            fail("Expected the circuit to open");
+        } catch (HttpTransport.CircuitOpenException e) {
+            assertEquals(CircuitBreaker.FAILURE_THRESHOLD, requests.size());
+        }
+        try {
+            transport.execute("GET", "/api/readings", null, null);
+            fail("Expected the circuit to stay open");
+        } catch (HttpTransport.CircuitOpenException e) {
+            assertEquals(CircuitBreaker.FAILURE_THRESHOLD, requests.size());
+            assertEquals(CircuitBreaker.State.OPEN, e.getCircuitBreaker().getState());
+        }
+    }
+
+    @Test
+    public void enqueuedRequestIsRetried() throws InterruptedException {
+        respond(503, 503, 200);
+        HttpTransport.Response[] response = new HttpTransport.Response[1];
+        CountDownLatch done = new CountDownLatch(1);
+
+        transport.enqueue(NetworkExecutor.Priority.PREFETCH, null, "PUT", "/api/flashcards", null, BODY, null,
+                new HttpTransport.ResponseCallback() {
+                    @Override
+                    public void onResponse(HttpTransport.Response result) {
+                        response[0] = result;
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(IOException e) {
+                        done.countDown();
+                    }
+                });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(200, response[0].getStatusCode());
+        assertEquals(MAX_ATTEMPTS, requests.size());
+        assertEquals(MAX_ATTEMPTS - 1, transport.getRetryCount());
+    }
+
+    @Test
+    public void enqueuedRetriesDoNotHoldNetworkThreads() throws InterruptedException {
+        NetworkExecutor executor = NetworkExecutor.getInstance();
+        // Enough waiting retries to hold every thread if they slept on them
+        String[] endpoints = {"/api/alpha", "/api/beta", "/api/gamma", "/api/delta"};
+        assertEquals(executor.getMaxThreads(), endpoints.length);
+        respond(503, 503, 503, 503, 200);
+        retryAfter = "2";
+        CountDownLatch responses = new CountDownLatch(endpoints.length);
+        for (String endpoint : endpoints) {
+            transport.enqueue(NetworkExecutor.Priority.PREFETCH, null, "PUT", endpoint, null, BODY, null,
+                    new HttpTransport.ResponseCallback() {
+                        @Override
+                        public void onResponse(HttpTransport.Response response) {
+                            assertEquals(200, response.getStatusCode());
+                            responses.countDown();
+                        }
+
+                        @Override
+                        public void onFailure(IOException e) {
+                        }
+                    });
+        }
+        while (requests.size() < endpoints.length) {
+            Thread.sleep(10);
+        }
+
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(NetworkExecutor.Priority.USER_VISIBLE, ran::countDown);
+
+        // Well inside the two seconds the retries wait
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertTrue(responses.await(10, TimeUnit.SECONDS));
+        assertEquals(2 * endpoints.length, requests.size());
+    }
+}
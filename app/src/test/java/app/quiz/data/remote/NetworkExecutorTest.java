@@ -0,0 +1,103 @@
+package app.quiz.data.remote;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ordering of the shared NetworkExecutor queue under a burst of prefetches
+ */
+public class NetworkExecutorTest {
+    private static final int BURST = 500;
+
+    private NetworkExecutor executor;
+    // Holds each network thread until released
+    private final List<CountDownLatch> gates = new ArrayList<>();
+    private final List<Integer> queueDepths = Collections.synchronizedList(new ArrayList<>());
+    private final List<NetworkExecutor.Priority> queuedPriorities = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger threadsCreated = new AtomicInteger();
+
+    @Before
+    public void setUp() throws InterruptedException {
+        executor = NetworkExecutor.getInstance();
+        CountDownLatch blocked = new CountDownLatch(executor.getMaxThreads());
+        for (int i = 0; i < executor.getMaxThreads(); i++) {
+            CountDownLatch gate = new CountDownLatch(1);
+            gates.add(gate);
+            executor.execute(NetworkExecutor.Priority.USER_VISIBLE, () -> {
+                blocked.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        executor.setMonitor(new NetworkExecutor.Monitor() {
+            @Override
+            public void onThreadCreated(int poolSize) {
+                threadsCreated.incrementAndGet();
+            }
+
+            @Override
+            public void onTaskQueued(NetworkExecutor.Priority priority, int queueDepth) {
+                queuedPriorities.add(priority);
+                queueDepths.add(queueDepth);
+            }
+
+            @Override
+            public void onTaskFinished(int activeCount, int queueDepth) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.setMonitor(null);
+        for (CountDownLatch gate : gates) {
+            gate.countDown();
+        }
+    }
+
+    @Test
+    public void userVisibleTaskJumpsAPrefetchBurst() throws InterruptedException {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(BURST + 1);
+        for (int i = 0; i < BURST; i++) {
+            String name = "prefetch-" + i;
+            executor.execute(NetworkExecutor.Priority.PREFETCH, () -> {
+                order.add(name);
+                done.countDown();
+            });
+        }
+        executor.execute(NetworkExecutor.Priority.USER_VISIBLE, () -> {
+            order.add("user-visible");
+            done.countDown();
+        });
+
+        // Every task waits behind the blocked threads, none of them gets a thread of its own
+        assertEquals(BURST + 1, queuedPriorities.size());
+        assertEquals(NetworkExecutor.Priority.USER_VISIBLE, queuedPriorities.get(BURST));
+        assertEquals(BURST + 1, (int) queueDepths.get(BURST));
+        assertEquals(0, threadsCreated.get());
+
+        // A single thread drains the queue, so tasks run exactly in queue order
+        gates.get(0).countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals("user-visible", order.get(0));
+        assertEquals("prefetch-0", order.get(1));
+        assertEquals("prefetch-" + (BURST - 1), order.get(BURST));
+    }
+}
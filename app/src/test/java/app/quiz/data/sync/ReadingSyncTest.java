@@ -0,0 +1,197 @@
+package app.quiz.data.sync;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import app.quiz.data.models.PagedResponse;
+import app.quiz.data.models.Reading;
+import app.quiz.data.remote.ReadingService;
+import app.quiz.data.remote.RequestHandle;
+
+import static org.junit.Assert.*;
+
+/**
+ * ReadingSync against a local stand-in for the paged reading endpoint
+ */
+public class ReadingSyncTest {
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * In-memory catalog answering changed-since queries, or ignoring the filter like the real server
+     */
+    private static class StandInServer implements ReadingSync.ChangeSource {
+        private final List<Reading> catalog = new ArrayList<>();
+        // Watermark of each page requested
+        private final List<Date> requests = Collections.synchronizedList(new ArrayList<>());
+        private boolean filters = true;
+        private boolean timestamps = true;
+
+        void add(int count, long start) {
+            for (int i = 0; i < count; i++) {
+                Reading reading = new Reading();
+                reading.setId("reading-" + catalog.size());
+                reading.setTitle("Reading " + catalog.size());
+                reading.setCreatedAt(new Date(start + i * HOUR));
+                catalog.add(reading);
+            }
+        }
+
+        void update(int index, long time) {
+            catalog.get(index).setUpdatedAt(new Date(time));
+        }
+
+        @Override
+        public RequestHandle getReadingsChangedSince(Date updatedSince, int pageNumber, int pageSize,
+                ReadingService.ReadingCallback<PagedResponse<Reading>> callback) {
+            requests.add(updatedSince);
+            List<Reading> matching = new ArrayList<>();
+            for (Reading reading : catalog) {
+                Date stamp = reading.getUpdatedAt() != null ? reading.getUpdatedAt() : reading.getCreatedAt();
+                if (!filters || updatedSince == null || !stamp.before(updatedSince)) {
+                    matching.add(copy(reading));
+                }
+            }
+            int from = Math.min((pageNumber - 1) * pageSize, matching.size());
+            int to = Math.min(from + pageSize, matching.size());
+            int totalPages = Math.max(1, (matching.size() + pageSize - 1) / pageSize);
+            callback.onSuccess(new PagedResponse<>(new ArrayList<>(matching.subList(from, to)), matching.size(),
+                    pageNumber, pageSize, totalPages));
+            return new RequestHandle();
+        }
+
+        // What a client receives is parsed from the response, never the server's own object
+        private Reading copy(Reading reading) {
+            Reading copy = new Reading();
+            copy.setId(reading.getId());
+            copy.setTitle(reading.getTitle());
+            if (timestamps) {
+                copy.setCreatedAt(reading.getCreatedAt());
+                copy.setUpdatedAt(reading.getUpdatedAt());
+            }
+            return copy;
+        }
+    }
+
+    private StandInServer server;
+    private ReadingSync readingSync;
+    private long start;
+
+    @Before
+    public void setUp() throws IOException {
+        File directory = Files.createTempDirectory("reading-sync").toFile();
+        directory.deleteOnExit();
+        server = new StandInServer();
+        readingSync = new ReadingSync(server, new File(directory, "reading-sync.json"));
+        start = System.currentTimeMillis() - 1000 * HOUR;
+    }
+
+    private int sync() throws InterruptedException {
+        int[] changed = {-1};
+        CountDownLatch done = new CountDownLatch(1);
+        readingSync.sync(new ReadingService.ReadingCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                changed[0] = result;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String error, int statusCode) {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return changed[0];
+    }
+
+    @Test
+    public void firstSyncFetchesTheWholeCatalog() throws InterruptedException {
+        server.add(250, start);
+
+        assertEquals(250, sync());
+
+        assertEquals(250, readingSync.getReadingCount());
+        assertEquals(3, server.requests.size());
+        assertNull(server.requests.get(0));
+        assertTrue(readingSync.canServePages());
+    }
+
+    @Test
+    public void laterSyncTransfersOnlyChanges() throws InterruptedException {
+        server.add(250, start);
+        sync();
+        server.requests.clear();
+        server.update(10, start + 300 * HOUR);
+        server.update(20, start + 301 * HOUR);
+        server.add(1, start + 302 * HOUR);
+
+        assertEquals(3, sync());
+
+        assertEquals(1, server.requests.size());
+        assertNotNull(server.requests.get(0));
+        // The newest reading of the previous sync is inside the overlap and sent again
+        assertEquals(4, readingSync.getLastReceivedCount());
+        assertEquals(251, readingSync.getReadingCount());
+        assertEquals(start + 302 * HOUR, readingSync.getWatermark().getTime());
+    }
+
+    @Test
+    public void serverIgnoringTheFilterIsDetectedOnTheFirstPage() throws InterruptedException {
+        server.add(250, start);
+        sync();
+        server.requests.clear();
+        server.filters = false;
+
+        assertEquals(250, sync());
+
+        assertEquals(1, server.requests.size());
+        assertFalse(readingSync.canServePages());
+        assertEquals(0, readingSync.getReadingCount());
+    }
+
+    @Test
+    public void readingsWithoutTimestampsAreDetectedOnTheFirstPage() throws InterruptedException {
+        server.add(250, start);
+        server.timestamps = false;
+
+        sync();
+
+        assertEquals(1, server.requests.size());
+        assertFalse(readingSync.canServePages());
+    }
+
+    @Test
+    public void unsupportedServerIsNotAskedAgainRightAway() throws InterruptedException {
+        server.add(250, start);
+        server.timestamps = false;
+        sync();
+        server.requests.clear();
+
+        assertEquals(0, sync());
+
+        assertTrue(server.requests.isEmpty());
+        assertFalse(readingSync.canServePages());
+    }
+
+    @Test
+    public void catalogTooLargeToStoreFallsBack() throws InterruptedException {
+        server.add(100 * PAGE_SIZE + 1, start - 100 * PAGE_SIZE * HOUR);
+
+        sync();
+
+        assertEquals(1, server.requests.size());
+        assertFalse(readingSync.canServePages());
+        assertEquals(0, readingSync.getReadingCount());
+    }
+}
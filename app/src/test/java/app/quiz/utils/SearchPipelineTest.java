@@ -0,0 +1,138 @@
+package app.quiz.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchPipelineTest {
+    private static final long DEBOUNCE_MILLIS = 300;
+    // A fast typist, well inside the debounce window
+    private static final long KEYSTROKE_MILLIS = 120;
+
+    /**
+     * Scheduler on a clock that only moves when the test advances it
+     */
+    private static class ManualScheduler implements SearchPipeline.Scheduler {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private final List<Long> dueTimes = new ArrayList<>();
+        private long now;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            tasks.add(task);
+            dueTimes.add(now + delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i) == task) {
+                    tasks.remove(i);
+                    dueTimes.remove(i);
+                }
+            }
+        }
+
+        void advanceBy(long millis) {
+            long target = now + millis;
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (dueTimes.get(i) <= target && (next < 0 || dueTimes.get(i) < dueTimes.get(next))) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                now = dueTimes.remove(next);
+                tasks.remove(next).run();
+            }
+            now = target;
+        }
+    }
+
+    private ManualScheduler scheduler;
+    private List<String> queries;
+    private int cancelled;
+    private SearchPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        queries = new ArrayList<>();
+        cancelled = 0;
+        pipeline = new SearchPipeline(scheduler, DEBOUNCE_MILLIS, (query, sequence) -> {
+            queries.add(query);
+            return () -> cancelled++;
+        });
+    }
+
+    private void type(String text) {
+        for (int i = 1; i <= text.length(); i++) {
+            pipeline.submit(text.substring(0, i));
+            scheduler.advanceBy(KEYSTROKE_MILLIS);
+        }
+    }
+
+    @Test
+    public void typingAQueryIssuesOneRequest() {
+        type("photosynthes");
+        scheduler.advanceBy(DEBOUNCE_MILLIS);
+
+        assertEquals(1, pipeline.getDispatchedCount());
+        assertEquals("photosynthes", queries.get(0));
+    }
+
+    @Test
+    public void pausingMidQueryIssuesAtMostTwoRequests() {
+        type("photo");
+        scheduler.advanceBy(DEBOUNCE_MILLIS);
+        type("photosynthes");
+        scheduler.advanceBy(DEBOUNCE_MILLIS);
+
+        assertTrue(pipeline.getDispatchedCount() <= 2);
+        assertEquals("photosynthes", pipeline.getQuery());
+    }
+
+    @Test
+    public void nothingIsDispatchedBeforeTypingPauses() {
+        type("photosynthes");
+
+        assertEquals(0, pipeline.getDispatchedCount());
+    }
+
+    @Test
+    public void sameQueryIsNotDispatchedAgain() {
+        pipeline.submit("cell");
+        scheduler.advanceBy(DEBOUNCE_MILLIS);
+        pipeline.submit("cell ");
+        scheduler.advanceBy(DEBOUNCE_MILLIS);
+
+        assertEquals(1, pipeline.getDispatchedCount());
+    }
+
+    @Test
+    public void newQueryCancelsTheOneInFlight() {
+        pipeline.submitNow("cell");
+        int first = pipeline.getSequence();
+        pipeline.submitNow("cells");
+
+        assertEquals(1, cancelled);
+        assertFalse(pipeline.isCurrent(first));
+        assertTrue(pipeline.isCurrent(pipeline.getSequence()));
+    }
+
+    @Test
+    public void cancelDropsThePendingQuery() {
+        pipeline.submit("cell");
+        pipeline.cancel();
+        scheduler.advanceBy(DEBOUNCE_MILLIS);
+
+        assertEquals(0, pipeline.getDispatchedCount());
+    }
+}